@@ -36,11 +36,26 @@ public class LoggingOutputPane extends JTextPane {
 
     private OutputPaneDocument document;
 
+    /**
+     * the number of lines kept - older lines are removed, 0 for all lines
+     */
+    private int maximumLines;
+
     public LoggingOutputPane() {
         document = new OutputPaneDocument();
         setDocument(document);
     }
 
+    /**
+     * Sets the number of lines retained by the pane. When exceeded
+     * the oldest lines are removed, 0 retains all lines.
+     *
+     * @param maximumLines the number of lines retained
+     */
+    public void setMaximumLines(int maximumLines) {
+        this.maximumLines = Math.max(0, maximumLines);
+    }
+
     public void append(String text) {
         appendPlain(text);
     }
@@ -214,6 +229,7 @@ public class LoggingOutputPane extends JTextPane {
                     try {
 
                         insertString(length, textBuffer.toString(), attrs);
+                        removeExcessLines();
 
                     } catch (BadLocationException e) {
                     }
@@ -226,6 +242,20 @@ public class LoggingOutputPane extends JTextPane {
 
         }
 
+        private void removeExcessLines() throws BadLocationException {
+
+            if (maximumLines == 0) {
+                return;
+            }
+
+            Element root = getDefaultRootElement();
+            int excess = root.getElementCount() - maximumLines;
+            if (excess > 0) {
+
+                remove(0, root.getElement(excess - 1).getEndOffset());
+            }
+        }
+
     } // class OutputPaneDocument
 
 }
@@ -669,7 +669,7 @@ public class MetaDataValues implements ConnectionListener {
 
             releaseResources(rs);
 
-            if(((PooledConnection) connection).getRealConnection().unwrap(Connection.class).getClass().getName().contains("FBConnection")) {
+            if (isFirebirdConnection()) {
                 // need to add info about column subtype
                 Statement statement;
                 for (Object od :
@@ -710,6 +710,203 @@ public class MetaDataValues implements ConnectionListener {
 
     }
 
+    private static final String BULK_KEYS_QUERY =
+            "select trim(rc.rdb$relation_name), trim(rc.rdb$constraint_name), rc.rdb$constraint_type,\n" +
+                    "trim(s.rdb$field_name), trim(refc.rdb$relation_name), trim(refs.rdb$field_name)\n" +
+                    "from rdb$relation_constraints rc\n" +
+                    "join rdb$index_segments s on s.rdb$index_name = rc.rdb$index_name\n" +
+                    "left join rdb$ref_constraints ref on ref.rdb$constraint_name = rc.rdb$constraint_name\n" +
+                    "left join rdb$relation_constraints refc on refc.rdb$constraint_name = ref.rdb$const_name_uq\n" +
+                    "left join rdb$index_segments refs on refs.rdb$index_name = refc.rdb$index_name\n" +
+                    "and refs.rdb$field_position = s.rdb$field_position\n" +
+                    "where rc.rdb$constraint_type in ('PRIMARY KEY', 'FOREIGN KEY')";
+
+    private static final String BULK_SUBTYPES_QUERY =
+            "select trim(rf.rdb$relation_name), trim(rf.rdb$field_name), f.rdb$field_sub_type\n" +
+                    "from rdb$relation_fields rf\n" +
+                    "join rdb$fields f on f.rdb$field_name = rf.rdb$field_source";
+
+    /**
+     * Retrieves the column meta data of the specified tables with a
+     * few bulk queries for all tables instead of several queries for
+     * each table and column.
+     *
+     * @param tableNames - the database table names
+     * @param schema     - the database schema name
+     * @return the columns keyed by table name, tables without
+     * columns are not contained
+     */
+    public Map<String, ColumnData[]> getColumnMetaData(Collection<String> tableNames,
+                                                       String schema) throws DataSourceException {
+
+        ResultSet rs = null;
+        try {
+            ensureConnection();
+            DatabaseMetaData dmd = connection.getMetaData();
+
+            if (!dmd.supportsSchemasInTableDefinitions()) {
+                schema = null;
+            }
+
+            Set<String> names = new HashSet<>(tableNames);
+            boolean firebird = isFirebirdConnection();
+
+            // -----------------------------------------
+            // retrieve the keys of all tables
+            // -----------------------------------------
+
+            Map<String, List<ColumnConstraint>> constraints = new HashMap<>();
+            if (firebird) {
+
+                Statement statement = connection.createStatement();
+                try {
+                    rs = statement.executeQuery(BULK_KEYS_QUERY);
+                    while (rs.next()) {
+
+                        String table = rs.getString(1);
+                        if (!names.contains(table)) {
+                            continue;
+                        }
+
+                        ColumnConstraint cc = new ColumnConstraint();
+                        cc.setTable(table);
+                        cc.setName(rs.getString(2));
+                        cc.setColumn(rs.getString(4));
+                        if ("PRIMARY KEY".equals(rs.getString(3).trim())) {
+                            cc.setType(PRIMARY_KEY);
+                        } else {
+                            cc.setRefTable(rs.getString(5));
+                            cc.setRefColumn(rs.getString(6));
+                            cc.setType(FOREIGN_KEY);
+                        }
+                        constraints.computeIfAbsent(columnKey(table, cc.getColumn()), k -> new ArrayList<>()).add(cc);
+                    }
+                } finally {
+                    releaseResources(statement, rs);
+                }
+
+            } else {
+
+                for (String table : names) {
+
+                    ResultSet keys = dmd.getPrimaryKeys(null, schema, table);
+                    while (keys.next()) {
+                        ColumnConstraint cc = new ColumnConstraint();
+                        cc.setRefSchema(keys.getString(2));
+                        cc.setTable(keys.getString(3));
+                        cc.setColumn(keys.getString(4));
+                        cc.setName(keys.getString(6));
+                        cc.setType(PRIMARY_KEY);
+                        constraints.computeIfAbsent(columnKey(table, cc.getColumn()), k -> new ArrayList<>()).add(cc);
+                    }
+                    releaseResources(keys);
+
+                    keys = dmd.getImportedKeys(null, schema, table);
+                    while (keys.next()) {
+                        ColumnConstraint cc = new ColumnConstraint();
+                        cc.setTable(table);
+                        cc.setRefSchema(keys.getString(2));
+                        cc.setRefTable(keys.getString(3));
+                        cc.setRefColumn(keys.getString(4));
+                        cc.setColumn(keys.getString(8));
+                        cc.setName(keys.getString(12));
+                        cc.setType(FOREIGN_KEY);
+                        constraints.computeIfAbsent(columnKey(table, cc.getColumn()), k -> new ArrayList<>()).add(cc);
+                    }
+                    releaseResources(keys);
+                }
+            }
+
+            // -----------------------------------------
+            // retrieve the column subtypes
+            // -----------------------------------------
+
+            Map<String, Short> subtypes = new HashMap<>();
+            if (firebird) {
+
+                Statement statement = connection.createStatement();
+                try {
+                    rs = statement.executeQuery(BULK_SUBTYPES_QUERY);
+                    while (rs.next()) {
+                        if (names.contains(rs.getString(1))) {
+                            subtypes.put(columnKey(rs.getString(1), rs.getString(2)), rs.getShort(3));
+                        }
+                    }
+                } finally {
+                    releaseResources(statement, rs);
+                }
+            }
+
+            // -----------------------------------------
+            // retrieve the columns of all tables
+            // -----------------------------------------
+
+            Map<String, List<ColumnData>> columns = new HashMap<>();
+            rs = dmd.getColumns(null, schema, null, null);
+            while (rs.next()) {
+
+                String table = rs.getString(3);
+                if (!names.contains(table)) {
+                    continue;
+                }
+
+                String columnName = rs.getString(4);
+
+                ColumnData cd = new ColumnData(databaseConnection);
+                cd.setSchema(schema);
+                cd.setColumnName(columnName);
+                cd.setSQLType(rs.getShort(5));
+                cd.setColumnType(rs.getString(6));
+                cd.setColumnSize(rs.getInt(7));
+                cd.setColumnScale(rs.getInt(9));
+                cd.setColumnRequired(rs.getInt(11));
+                cd.setDefaultValue(rs.getString(13));
+                cd.setTableName(table);
+
+                String key = columnKey(table, columnName);
+                List<ColumnConstraint> columnConstraints = constraints.get(key);
+                if (columnConstraints != null) {
+                    for (ColumnConstraint cc : columnConstraints) {
+                        cd.addConstraint(cc);
+                        if (cc.getType() == PRIMARY_KEY) {
+                            cd.setPrimaryKey(true);
+                        } else {
+                            cd.setForeignKey(true);
+                        }
+                    }
+                }
+
+                Short subtype = subtypes.get(key);
+                if (subtype != null) {
+                    cd.setColumnSubtype(subtype);
+                }
+
+                columns.computeIfAbsent(table, k -> new ArrayList<>()).add(cd);
+            }
+
+            Map<String, ColumnData[]> columnData = new HashMap<>(columns.size());
+            for (Map.Entry<String, List<ColumnData>> entry : columns.entrySet()) {
+                columnData.put(entry.getKey(), entry.getValue().toArray(new ColumnData[0]));
+            }
+            return columnData;
+
+        } catch (SQLException e) {
+            throw new DataSourceException(e);
+        } finally {
+            releaseResources(rs);
+        }
+
+    }
+
+    private static String columnKey(String table, String column) {
+        return table + '\u0000' + column;
+    }
+
+    private boolean isFirebirdConnection() throws SQLException {
+        return ((PooledConnection) connection).getRealConnection().unwrap(Connection.class)
+                .getClass().getName().contains("FBConnection");
+    }
+
     /**
      * Retrieves the database product name from
      * the connection's meta data.
@@ -1492,6 +1492,38 @@ public class DefaultStatementExecutor implements StatementExecutor, Serializable
 
     }
 
+    /**
+     * <p>Executes the specified statements as one batch within
+     * the current transaction. Unlike the single statement methods
+     * a failure is thrown so the caller may roll back the batch.
+     *
+     * @param queries the statements to execute
+     * @return the update counts of the statements
+     */
+    public int[] executeBatch(List<String> queries) throws SQLException {
+
+        if (!prepared()) {
+            throw new SQLException(statementResult.getErrorMessage());
+        }
+
+        stmnt = conn.createStatement();
+
+        try {
+
+            for (String query : queries) {
+                stmnt.addBatch(query);
+            }
+
+            int[] result = stmnt.executeBatch();
+            useCount += queries.size();
+            return result;
+
+        } finally {
+            finished();
+        }
+
+    }
+
     /*
     public SqlStatementResult establishConnection(String query) {
         statementResult.reset();
@@ -280,9 +280,5 @@ public interface DatabaseHost extends NamedObject {
 
     Connection getTemporaryConnection();
 
-    int countFinishedMetaTags();
-
-    void incCountFinishedMetaTags();
-
 }
 
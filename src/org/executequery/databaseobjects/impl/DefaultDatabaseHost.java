@@ -49,8 +49,6 @@ import java.util.*;
 public class DefaultDatabaseHost extends AbstractNamedObject
         implements DatabaseHost {
 
-    private int countFinishedMetaTags;
-
     private final int typeTree;
 
     /**
@@ -92,7 +90,6 @@ public class DefaultDatabaseHost extends AbstractNamedObject
 
     public DefaultDatabaseHost(DatabaseConnection databaseConnection, int typeTree) {
         this.databaseConnection = databaseConnection;
-        countFinishedMetaTags = 0;
         this.typeTree = typeTree;
     }
 
@@ -102,13 +99,19 @@ public class DefaultDatabaseHost extends AbstractNamedObject
         this.dependObject = dependObject;
     }
 
+    /**
+     * Returns the type of the tree this host is shown in.
+     */
+    public int getTypeTree() {
+        return typeTree;
+    }
+
     /**
      * Attempts to establish a connection using this host.
      */
     public boolean connect() throws DataSourceException {
 
         if (!isConnected()) {
-            countFinishedMetaTags = 0;
 
             boolean connected = connectionMediator().connect(getDatabaseConnection());
             if(connected)
@@ -200,16 +203,6 @@ public class DefaultDatabaseHost extends AbstractNamedObject
         return ConnectionManager.getTemporaryConnection(getDatabaseConnection());
     }
 
-    @Override
-    public int countFinishedMetaTags() {
-        return countFinishedMetaTags;
-    }
-
-    @Override
-    public void incCountFinishedMetaTags() {
-        countFinishedMetaTags++;
-    }
-
     /**
      * Returns the database meta data for this host.
      *
@@ -0,0 +1,376 @@
+/*
+ * ConnectionHeartbeat.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.datasource;
+
+import org.executequery.databasemediators.ConnectionMediator;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.log.Log;
+import org.underworldlabs.util.SystemProperties;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the pooled connections of all open database connections
+ * from one shared scheduler.
+ * <p>
+ * Each registered connection is probed with
+ * <code>Connection.isValid</code> at the configured heartbeat
+ * interval. A probe not answered within the shutdown timeout or
+ * failing counts as a failure and a connection failing repeatedly is
+ * marked dead - dead connections are closed when idle and evicted
+ * from their pool. Once all pooled connections of a database
+ * connection are dead the server is considered lost and the database
+ * connection is disconnected. Nothing is displayed to the user from
+ * the probe threads, failures are logged only.
+ * <p>
+ * Connections busy executing a statement are not probed and the
+ * round trip times of the latest probes are kept as the health history
+ * of the connection.
+ *
+ * @author Takis Diakoumis
+ */
+public final class ConnectionHeartbeat {
+
+    public static final String INTERVAL_KEY = "connection.heartbeat.interval";
+
+    public static final String TIMEOUT_KEY = "connection.shutdown.timeout";
+
+    /**
+     * the consecutive failures marking a connection dead
+     */
+    private static final int MAX_FAILURES = 2;
+
+    /**
+     * the delay of a repeated probe after a failure
+     */
+    private static final long RETRY_DELAY = 1000;
+
+    /**
+     * the number of round trip times kept per connection
+     */
+    private static final int HISTORY_SIZE = 32;
+
+    private static final int MAX_PROBE_THREADS = 4;
+
+    private static ConnectionHeartbeat instance;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService probes;
+
+    private final Map<PooledConnection, Health> connections = new ConcurrentHashMap<>();
+
+    private final AtomicInteger probeNumbers = new AtomicInteger();
+
+    private ConnectionHeartbeat() {
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("ConnectionHeartbeat"));
+
+        ThreadPoolExecutor probeExecutor = new ThreadPoolExecutor(
+                MAX_PROBE_THREADS, MAX_PROBE_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("ConnectionProbe"));
+        probeExecutor.allowCoreThreadTimeOut(true);
+        probes = probeExecutor;
+    }
+
+    public static synchronized ConnectionHeartbeat getInstance() {
+
+        if (instance == null) {
+            instance = new ConnectionHeartbeat();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the heartbeat of the specified connection.
+     */
+    public void register(PooledConnection connection) {
+
+        Health health = new Health(connection);
+        connections.put(connection, health);
+
+        long interval = interval();
+        if (interval > 0) {
+            health.scheduled = scheduler.scheduleWithFixedDelay(
+                    () -> probe(health), interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the heartbeat of the specified connection.
+     */
+    public void unregister(PooledConnection connection) {
+
+        Health health = connections.remove(connection);
+        if (health != null && health.scheduled != null) {
+            health.scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * Probes the specified connection as soon as possible - used once
+     * a statement of the connection failed. A probe already running
+     * for the connection is not repeated.
+     */
+    public void checkNow(PooledConnection connection) {
+
+        Health health = connections.get(connection);
+        if (health != null) {
+            scheduler.execute(() -> probe(health));
+        }
+    }
+
+    /**
+     * Returns the health of the specified connection or null if the
+     * connection is not registered.
+     */
+    public Health getHealth(PooledConnection connection) {
+        return connections.get(connection);
+    }
+
+    /**
+     * Returns the health of the registered pooled connections of the
+     * specified database connection.
+     */
+    public List<Health> getHealth(DatabaseConnection databaseConnection) {
+
+        List<Health> healths = new ArrayList<>();
+        for (Health health : connections.values()) {
+            if (health.connection.getDatabaseConnection() == databaseConnection) {
+                healths.add(health);
+            }
+        }
+        return healths;
+    }
+
+    /**
+     * Starts a probe of the connection on a probe thread failing it
+     * from the scheduler thread if not answered within the timeout.
+     */
+    private void probe(Health health) {
+
+        if (!connections.containsKey(health.connection) || health.dead) {
+            return;
+        }
+
+        int probe = probeNumbers.incrementAndGet();
+        if (!health.probe.compareAndSet(0, probe)) {
+            return;
+        }
+
+        long timeout = timeout();
+        try {
+
+            Future<?> answer = probes.submit(() -> runProbe(health, probe, timeout));
+            scheduler.schedule(() -> {
+
+                if (health.probe.compareAndSet(probe, 0)) {
+                    answer.cancel(true);
+                    failed(health, "no answer within " + timeout + " ms");
+                }
+
+            }, timeout, TimeUnit.MILLISECONDS);
+
+        } catch (RejectedExecutionException e) {
+
+            health.probe.set(0);
+        }
+    }
+
+    private void runProbe(Health health, int probe, long timeout) {
+
+        try {
+
+            long start = System.nanoTime();
+            Boolean valid = health.connection.ping((int) Math.max(1, timeout / 1000));
+            long roundTripTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            if (!health.probe.compareAndSet(probe, 0)) {
+                return;
+            }
+
+            // null for a connection busy executing a statement - not checked this time
+            if (valid == null) {
+                return;
+            }
+
+            if (valid) {
+                health.answered(roundTripTime);
+            } else {
+                failed(health, "connection is not valid");
+            }
+
+        } catch (SQLException | RuntimeException e) {
+
+            if (health.probe.compareAndSet(probe, 0)) {
+                failed(health, e.getMessage());
+            }
+        }
+    }
+
+    private void failed(Health health, String reason) {
+
+        int failures = health.failures.incrementAndGet();
+        Log.warning("Heartbeat of connection " + health.connection.getId() + " to "
+                + health.connection.getDatabaseConnection().getName() + " failed - " + reason);
+
+        if (failures < MAX_FAILURES) {
+
+            // confirmed shortly so transient errors do not evict the connection
+            scheduler.schedule(() -> probe(health), RETRY_DELAY, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        markDead(health);
+    }
+
+    private void markDead(Health health) {
+
+        health.dead = true;
+        PooledConnection connection = health.connection;
+        DatabaseConnection databaseConnection = connection.getDatabaseConnection();
+        Log.warning("Connection " + connection.getId() + " to "
+                + databaseConnection.getName() + " is not responding and will be closed");
+
+        // closing a connection to a lost server may block - not on the scheduler thread
+        probes.execute(connection::markDead);
+
+        for (Health other : getHealth(databaseConnection)) {
+            if (!other.dead) {
+                return;
+            }
+        }
+
+        if (databaseConnection.isConnected()) {
+
+            Log.error("Lost connection to server of " + databaseConnection.getName());
+            SwingUtilities.invokeLater(() -> {
+                if (databaseConnection.isConnected()) {
+                    databaseConnection.setConnected(false);
+                    ConnectionMediator.getInstance().disconnect(databaseConnection);
+                }
+            });
+        }
+    }
+
+    private static long interval() {
+        return SystemProperties.getIntProperty("user", INTERVAL_KEY);
+    }
+
+    private static long timeout() {
+        return Math.max(1000, SystemProperties.getIntProperty("user", TIMEOUT_KEY));
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+
+        AtomicInteger number = new AtomicInteger();
+        return runnable -> {
+
+            Thread thread = new Thread(runnable, name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The heartbeat state and round trip history of one connection.
+     */
+    public static final class Health {
+
+        private final PooledConnection connection;
+
+        /**
+         * the ring buffer of the latest round trip times
+         */
+        private final long[] roundTripTimes = new long[HISTORY_SIZE];
+
+        private int roundTripCount;
+
+        private long lastCheckTime;
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        /**
+         * the number of the running probe or 0
+         */
+        private final AtomicInteger probe = new AtomicInteger();
+
+        private volatile boolean dead;
+
+        private volatile ScheduledFuture<?> scheduled;
+
+        Health(PooledConnection connection) {
+            this.connection = connection;
+        }
+
+        synchronized void answered(long roundTripTime) {
+
+            roundTripTimes[roundTripCount++ % HISTORY_SIZE] = roundTripTime;
+            lastCheckTime = System.currentTimeMillis();
+            failures.set(0);
+        }
+
+        public PooledConnection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the round trip times of the latest probes in
+         * milliseconds, the oldest first.
+         */
+        public synchronized long[] getRoundTripTimes() {
+
+            int count = Math.min(roundTripCount, HISTORY_SIZE);
+            long[] times = new long[count];
+            for (int i = 0; i < count; i++) {
+                times[i] = roundTripTimes[(roundTripCount - count + i) % HISTORY_SIZE];
+            }
+            return times;
+        }
+
+        /**
+         * Returns the round trip time of the latest answered probe or -1.
+         */
+        public synchronized long getLastRoundTripTime() {
+            return roundTripCount > 0 ? roundTripTimes[(roundTripCount - 1) % HISTORY_SIZE] : -1;
+        }
+
+        public synchronized long getLastCheckTime() {
+            return lastCheckTime;
+        }
+
+        public int getFailureCount() {
+            return failures.get();
+        }
+
+        public boolean isDead() {
+            return dead;
+        }
+
+    } // class Health
+
+}
@@ -25,7 +25,6 @@ import org.executequery.databasemediators.DatabaseConnection;
 import org.executequery.databasemediators.DatabaseDriver;
 import org.executequery.databaseobjects.DatabaseHost;
 import org.executequery.databaseobjects.NamedObject;
-import org.executequery.databaseobjects.impl.DefaultDatabaseMetaTag;
 import org.executequery.gui.browser.ConnectionsTreePanel;
 import org.executequery.gui.browser.nodes.DatabaseObjectNode;
 import org.executequery.log.Log;
@@ -33,6 +32,7 @@ import org.executequery.repository.DatabaseDriverRepository;
 import org.executequery.repository.RepositoryCache;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.SystemProperties;
 
 import javax.resource.ResourceException;
@@ -42,6 +42,7 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages all data source connections across multiple
@@ -52,79 +53,102 @@ import java.util.*;
 public final class ConnectionManager {
 
     private static Map<DatabaseConnection, ConnectionPool> connectionPools = Collections.synchronizedMap(new HashMap<DatabaseConnection, ConnectionPool>());
+
     /**
      * Creates a stored data source for the specified database
      * connection properties object.
+     * <p>
+     * The pool is created on the calling thread, the meta tags of the
+     * connection are then loaded in the background and appear in the
+     * tree as they complete.
+     * Only the connection itself is locked so opening one connection
+     * never waits for another.
      *
      * @param the database connection properties object
      */
-    public static synchronized void createDataSource(DatabaseConnection databaseConnection) throws IllegalArgumentException {
+    public static void createDataSource(DatabaseConnection databaseConnection) throws IllegalArgumentException {
+
+        synchronized (databaseConnection) {
+
+            // check the connection has a driver
+            if (databaseConnection.getJDBCDriver() == null) {
 
-        // check the connection has a driver
-        if (databaseConnection.getJDBCDriver() == null) {
+                long driverId = databaseConnection.getDriverId();
+                DatabaseDriver driver = driverById(driverId);
 
-            long driverId = databaseConnection.getDriverId();
-            DatabaseDriver driver = driverById(driverId);
+                if (driver != null) {
 
-            if (driver != null) {
+                    databaseConnection.setJDBCDriver(driver);
 
-                databaseConnection.setJDBCDriver(driver);
+                } else {
 
-            } else {
+                    throw new DataSourceException("No JDBC driver specified");
+                }
 
-                throw new DataSourceException("No JDBC driver specified");
             }
 
+            Log.info("Initialising data source for " + databaseConnection.getName());
+            ConnectionPool pool = new ConnectionPoolImpl(databaseConnection);
+            pool.setMinimumConnections(SystemProperties.getIntProperty("user", "connection.initialcount"));
+            pool.setInitialConnections(SystemProperties.getIntProperty("user", "connection.initialcount"));
+            connectionPools.put(databaseConnection, pool);
+            databaseConnection.setConnected(true);
         }
 
-        Log.info("Initialising data source for " + databaseConnection.getName());
-        ConnectionPool pool = new ConnectionPoolImpl(databaseConnection);
-        pool.setMinimumConnections(SystemProperties.getIntProperty("user", "connection.initialcount"));
-        pool.setInitialConnections(SystemProperties.getIntProperty("user", "connection.initialcount"));
-        connectionPools.put(databaseConnection, pool);
-        databaseConnection.setConnected(true);
         DatabaseObjectNode hostNode = ((ConnectionsTreePanel) GUIUtilities.getDockedTabComponent(ConnectionsTreePanel.PROPERTY_KEY)).getHostNode(databaseConnection);
-        loadTree(hostNode);
-        DatabaseHost host = (DatabaseHost) hostNode.getDatabaseObject();
-        try {
-            while (host.countFinishedMetaTags() < hostNode.getChildCount()) {
+        loadTree(hostNode, databaseConnection).whenComplete((result, e) -> {
 
-                Thread.sleep(100);
-            }
+            if (e != null) {
 
-        } catch (InterruptedException e) {
-            if(Log.isDebugEnabled())
-            e.printStackTrace();
-        }
-        if(databaseConnection.isConnected())
-        Log.info("Data source " + databaseConnection.getName() + " initialized.");
-    }
+                Log.error("Error loading the database objects of " + databaseConnection.getName(), e);
 
+            } else if (databaseConnection.isConnected()) {
 
-    public static void loadTree(DatabaseObjectNode root) {
+                Log.info("Data source " + databaseConnection.getName() + " initialized.");
+            }
+        });
+    }
+
+    /**
+     * Populates the children of the specified node loading the meta
+     * tags on the meta data pool. At most a few meta data tasks of one
+     * connection run at once, the others wait for them to complete.
+     *
+     * @param root               the node to be populated
+     * @param databaseConnection the connection the node belongs to
+     * @return the completion of the node and all its loaded children
+     */
+    public static CompletableFuture<Void> loadTree(DatabaseObjectNode root, DatabaseConnection databaseConnection) {
         root.populateChildren();
+        List<CompletableFuture<Void>> loads = new ArrayList<CompletableFuture<Void>>();
         Enumeration<TreeNode> nodes = root.children();
         while (nodes.hasMoreElements()) {
             DatabaseObjectNode node = (DatabaseObjectNode) nodes.nextElement();
             if (node.isHostNode() || node.getType() == NamedObject.META_TAG) {
-                SwingWorker sw = new SwingWorker() {
+                CompletableFuture<Void> load = new CompletableFuture<Void>();
+                loads.add(load);
+                SwingWorker sw = new SwingWorker(TaskScheduler.Workload.METADATA, databaseConnection) {
                     @Override
                     public Object construct() {
-                        loadTree(node);
-                        return null;
-                    }
-
-                    @Override
-                    public void finished() {
-                        if (node.getType() == NamedObject.META_TAG) {
-                            ((DefaultDatabaseMetaTag) node.getDatabaseObject()).getHost().incCountFinishedMetaTags();
+                        try {
+                            loadTree(node, databaseConnection).whenComplete((result, e) -> {
+                                if (e != null) {
+                                    load.completeExceptionally(e);
+                                } else {
+                                    load.complete(null);
+                                }
+                            });
+                        } catch (RuntimeException e) {
+                            load.completeExceptionally(e);
                         }
+                        return null;
                     }
                 };
                 sw.start();
             }
         }
 
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[loads.size()]));
     }
 
     /**
@@ -200,23 +224,26 @@ public final class ConnectionManager {
      *
      * @param the stored database connection properties object
      */
-    public static synchronized void closeConnection(DatabaseConnection databaseConnection) {
+    public static void closeConnection(DatabaseConnection databaseConnection) {
 
-        if (connectionPools.containsKey(databaseConnection)) {
+        synchronized (databaseConnection) {
 
-            Log.info("Disconnecting from data source " + databaseConnection.getName());
+            if (connectionPools.containsKey(databaseConnection)) {
 
-            ConnectionPool pool = connectionPools.get(databaseConnection);
-            SimpleDataSource dataSource = (SimpleDataSource) pool.getDataSource();
-            try {
-                dataSource.close();
-            } catch (ResourceException e) {
-                e.printStackTrace();
-            }
-            pool.close();
+                Log.info("Disconnecting from data source " + databaseConnection.getName());
+
+                ConnectionPool pool = connectionPools.get(databaseConnection);
+                SimpleDataSource dataSource = (SimpleDataSource) pool.getDataSource();
+                try {
+                    dataSource.close();
+                } catch (ResourceException e) {
+                    e.printStackTrace();
+                }
+                pool.close();
 
-            connectionPools.remove(databaseConnection);
-            databaseConnection.setConnected(false);
+                connectionPools.remove(databaseConnection);
+                databaseConnection.setConnected(false);
+            }
         }
     }
 
@@ -144,7 +144,7 @@ public class ConnectionPoolImpl extends AbstractConnectionPool implements Pooled
         if (connection != null) {
 
             try {
-                if (connection.isClosed()) {
+                if (connection.isClosed() || connection.isDead()) {
 
                     close(connection);
                     return getConnection();
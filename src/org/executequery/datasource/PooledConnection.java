@@ -20,16 +20,9 @@
 
 package org.executequery.datasource;
 
-import biz.redsoft.IFBDatabasePerformance;
-import org.executequery.GUIUtilities;
-import org.executequery.databasemediators.ConnectionMediator;
 import org.executequery.databasemediators.DatabaseConnection;
-import org.underworldlabs.util.DynamicLibraryLoader;
-import org.underworldlabs.util.SystemProperties;
 
-import javax.swing.*;
 import java.sql.*;
-import java.util.Timer;
 import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
@@ -76,13 +69,18 @@ public class PooledConnection implements Connection {
 
     private List<PooledConnectionListener> listeners;
 
-    private final Timer timer;
-    private Timer timerDelay;
-    private final TimerTask task;
-    private final int timeoutShutdown;
     private PooledStatement lastStatement;
+
+    /**
+     * whether the connection is checked by the connection heartbeat
+     */
     private final boolean timerCheckConnection;
 
+    /**
+     * indicates that the server did not answer the heartbeat
+     */
+    private volatile boolean dead;
+
 
     /**
      * Creates a new PooledConnection object with the
@@ -109,19 +107,10 @@ public class PooledConnection implements Connection {
         this.timerCheckConnection=timerCheckConnection;
         mutex = new Semaphore(1);
         useCount = 0;
-        timeoutShutdown = SystemProperties.getIntProperty("user", "connection.shutdown.timeout");
         this.realConnection = realConnection;
         this.closeOnReturn = closeOnReturn;
-        timer = new Timer();
-        timerDelay = new Timer();
-        task = new TimerTask() {
-            @Override
-            public void run() {
-                checkConnectionToServer();
-            }
-        };
-        if(this.timerCheckConnection)
-            timer.schedule(task, timeoutShutdown);
+        if (this.timerCheckConnection)
+            ConnectionHeartbeat.getInstance().register(this);
         try {
 
             originalAutoCommit = realConnection.getAutoCommit();
@@ -209,8 +198,8 @@ public class PooledConnection implements Connection {
     public void close() throws SQLException {
 
         inUse = false;
-        if(timerCheckConnection)
-            timer.cancel();
+        if (timerCheckConnection)
+            ConnectionHeartbeat.getInstance().unregister(this);
 
         if (realConnection != null) {
 
@@ -257,47 +246,58 @@ public class PooledConnection implements Connection {
         throw e;
     }
 
-    public void checkConnectionToServer()
-    {
-        try {
-            IFBDatabasePerformance db = (IFBDatabasePerformance) DynamicLibraryLoader.loadingObjectFromClassLoader(realConnection, "FBDatabasePerformanceImpl");
-            db.setConnection(realConnection);
-            TimerTask task = new TimerTask() {
-                @Override
-                public void run() {
-                    if (databaseConnection.isConnected()) {
-                        if (GUIUtilities.displayConfirmDialog("The server is not responding. do you want to close the connection?") == JOptionPane.OK_OPTION) {
-                            closeDatabaseConnection();
-                            timerDelay.cancel();
-                        }
-                    } else
-                        timerDelay.cancel();
-                }
-            };
-            timerDelay = new Timer();
-            /*StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-            Log.info("---------------------------------Start check----------------------------------\n\n\n");
-            for (int i = 0; i < stack.length - 2; i++)
-                Log.info(stack[stack.length - 1 - i]);*/
-            timerDelay.schedule(task, timeoutShutdown);
-            db.getPerformanceInfo();
-            timerDelay.cancel();
-            //Log.info("---------------------------------Finish check.----------------------------------\n\n\n");
-        } catch (SQLException e)
-        {
-            if (databaseConnection.isConnected())
-                closeDatabaseConnection();
-            timerDelay.cancel();
-        } catch (ClassNotFoundException e) {
-            if (databaseConnection.isConnected()) {
-                if (GUIUtilities.displayConfirmDialog("The server is not responding. do you want to close the connection?") == JOptionPane.OK_OPTION) {
-                    closeDatabaseConnection();
-                }
-            }
-            timerDelay.cancel();
+    /**
+     * Requests a check of the server answering on this connection.
+     * The check runs in the background on the connection heartbeat.
+     */
+    public void checkConnectionToServer() {
+        if (timerCheckConnection)
+            ConnectionHeartbeat.getInstance().checkNow(this);
+    }
+
+    /**
+     * Checks whether the server answers on this connection unless a
+     * statement is executing on it.
+     *
+     * @param timeout the timeout in seconds
+     * @return whether the connection is valid or null if the
+     * connection is busy or closed
+     */
+    Boolean ping(int timeout) throws SQLException {
+
+        Connection connection = realConnection;
+        if (connection == null || !mutex.tryAcquire())
+            return null;
+
+        try {
+            if (connection.isClosed())
+                return null;
+            return connection.isValid(timeout);
+
+        } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+            // the driver can not check - assumed valid
+            return Boolean.TRUE;
+
+        } finally {
+            mutex.release();
         }
     }
 
+    /**
+     * Marks the connection as not answering. The connection is closed
+     * at once when not in use, otherwise when returned to the pool.
+     */
+    void markDead() {
+
+        dead = true;
+        if (!inUse)
+            destroy();
+    }
+
+    public boolean isDead() {
+        return dead;
+    }
+
     public Statement createStatement() throws SQLException {
         checkOpen();
         Statement statement = null;
@@ -570,13 +570,6 @@ public class PooledConnection implements Connection {
         }*/
     }
 
-    public synchronized void closeDatabaseConnection() {
-        databaseConnection.setConnected(false);
-        ConnectionMediator.getInstance().disconnect(databaseConnection);
-        timer.cancel();
-        GUIUtilities.displayErrorMessage("lost connection to server");
-    }
-
     public int getHoldability() throws SQLException {
         checkOpen();
         try {
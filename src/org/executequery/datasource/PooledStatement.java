@@ -409,7 +409,9 @@ public class PooledStatement implements CallableStatement {
                 if (statement != null)
                     if (!statement.isClosed())
                         statement.close();
-                connection.lock(false);
+                // individual statements do not hold the connection lock
+                if (!individual)
+                    connection.lock(false);
                 closed = true;
             } else {
                 if (!individual)
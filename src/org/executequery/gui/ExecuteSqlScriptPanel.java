@@ -35,9 +35,11 @@ import org.executequery.event.ApplicationEvent;
 import org.executequery.event.ConnectionEvent;
 import org.executequery.event.ConnectionListener;
 import org.executequery.event.DefaultKeywordEvent;
+import org.executequery.gui.text.LargeTextFileViewer;
 import org.executequery.gui.text.SimpleSqlTextPanel;
 import org.executequery.gui.text.TextFileWriter;
 import org.executequery.localization.Bundles;
+import org.executequery.log.Log;
 import org.executequery.sql.ActionOnError;
 import org.executequery.sql.ExecutionController;
 import org.executequery.sql.SqlScriptRunner;
@@ -50,7 +52,9 @@ import org.underworldlabs.swing.ProgressBar;
 import org.underworldlabs.swing.ProgressBarFactory;
 import org.underworldlabs.swing.plaf.UIUtils;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.FileUtils;
+import org.underworldlabs.util.MappedTextFile;
 import org.underworldlabs.util.MiscUtils;
 
 import javax.swing.*;
@@ -75,6 +79,10 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
     public static final String FRAME_ICON = "ExecuteSqlScript16.png";
     public static final int MAX_LENGTH_TEXT_PANE = 1000000;
 
+    private static final String EDITOR_CARD = "editor";
+
+    private static final String VIEWER_CARD = "viewer";
+
     private JComboBox connectionsCombo;
 
     private JTextField fileNameField;
@@ -83,6 +91,10 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
 
     private SimpleSqlTextPanel sqlText;
 
+    private JPanel scriptPanel;
+
+    private LargeTextFileViewer largeFileViewer;
+
     private LoggingOutputPanel outputPanel;
 
     private SqlTextPaneStatusBar statusBar;
@@ -107,7 +119,11 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
 
     private boolean resetButtons;
 
-    private String script = null;
+    /**
+     * the script too large for the editor which is executed from
+     * the file or null
+     */
+    private MappedTextFile largeFile;
 
     public ExecuteSqlScriptPanel() {
 
@@ -233,8 +249,10 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
         gbc.insets.bottom = 0;
         gbc.gridwidth = GridBagConstraints.REMAINDER;
         gbc.fill = GridBagConstraints.BOTH;
+        scriptPanel = new JPanel(new CardLayout());
+        scriptPanel.add(sqlText, EDITOR_CARD);
         JSplitPane splitPane = new SplitPaneFactory().create(JSplitPane.VERTICAL_SPLIT,
-                sqlText, outputPanel);
+                scriptPanel, outputPanel);
         splitPane.setResizeWeight(0.5);
         splitPane.setDividerLocation(400);
         splitPane.setDividerSize(5);
@@ -290,13 +308,106 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
     }
 
     public void fileNameChanged() {
-        File file = new File(fileNameField.getText());
+        openFile(new File(fileNameField.getText()));
+    }
 
-        try {
-            sqlText.setSQLText(FileUtils.loadFile(file.getPath()));
-        } catch (IOException e) {
-            GUIUtilities.displayErrorMessage(bundleString("error.load-file"));
+    /**
+     * Opens the script in a new panel.
+     */
+    public static void openScript(File file) {
+
+        ExecuteSqlScriptPanel panel = new ExecuteSqlScriptPanel();
+        GUIUtilities.addCentralPane(TITLE, FRAME_ICON, panel, null, true);
+        panel.openFile(file);
+    }
+
+    /**
+     * Loads the script into the editor - a script too large for it is
+     * mapped and indexed in the background, shown read-only and executed
+     * from the file.
+     */
+    public void openFile(File file) {
+
+        if (executing) {
+            return;
+        }
+
+        fileNameField.setText(file.getAbsolutePath());
+        closeLargeFile();
+
+        if (file.length() < MAX_LENGTH_TEXT_PANE) {
+
+            try {
+                sqlText.setSQLText(FileUtils.loadFile(file.getPath()));
+            } catch (IOException e) {
+                GUIUtilities.displayErrorMessage(bundleString("error.load-file"));
+            }
+            return;
+        }
+
+        sqlText.setSQLText("");
+        startButton.setEnabled(false);
+        saveButton.setEnabled(false);
+        statusBar.setStatusText(bundleString("IndexingFile"));
+        statusBar.startProgressBar();
+
+        SwingWorker worker = new SwingWorker(TaskScheduler.Workload.IO) {
+
+            @Override
+            public Object construct() {
+
+                try {
+                    return new MappedTextFile(file, null);
+                } catch (IOException e) {
+                    return e;
+                }
+            }
+
+            @Override
+            public void finished() {
+
+                statusBar.stopProgressBar();
+                statusBar.setStatusText("");
+                startButton.setEnabled(true);
+
+                Object result = get();
+                if (result instanceof IOException) {
+
+                    IOException e = (IOException) result;
+                    Log.error("Error opening the script " + file, e);
+                    GUIUtilities.displayExceptionErrorDialog(bundleString("error.load-file") + "\n" + e.getMessage(), e);
+                    return;
+                }
+
+                if (!file.getAbsolutePath().equals(fileNameField.getText())) {
+
+                    // another script was opened meanwhile
+                    ((MappedTextFile) result).close();
+                    return;
+                }
+
+                largeFile = (MappedTextFile) result;
+                largeFileViewer = new LargeTextFileViewer(largeFile);
+                scriptPanel.add(largeFileViewer, VIEWER_CARD);
+                ((CardLayout) scriptPanel.getLayout()).show(scriptPanel, VIEWER_CARD);
+            }
+        };
+        worker.start();
+    }
+
+    private void closeLargeFile() {
+
+        if (largeFile == null) {
+            return;
         }
+
+        largeFile.close();
+        largeFile = null;
+
+        scriptPanel.remove(largeFileViewer);
+        largeFileViewer = null;
+        ((CardLayout) scriptPanel.getLayout()).show(scriptPanel, EDITOR_CARD);
+        saveButton.setEnabled(true);
     }
 
     public boolean logOutput() {
@@ -319,18 +430,17 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
             return;
         }
 
-        File file = fileChooser.getSelectedFile();
-        fileNameField.setText(file.getAbsolutePath());
-        script = FileUtils.loadFile(file.getPath());
-        if(script.length()<MAX_LENGTH_TEXT_PANE)
-            sqlText.setSQLText(script);
-        else sqlText.setSQLText("'File is very big.It can not opened in editor'");
+        openFile(fileChooser.getSelectedFile());
     }
 
     private boolean fieldsValid() {
 
         String fileName = fileNameField.getText();
-        if (StringUtils.isBlank(fileName) && StringUtils.isEmpty(sqlText.getSQLText())) {
+        if (largeFile != null) {
+
+            return true;
+
+        } else if (StringUtils.isBlank(fileName) && StringUtils.isEmpty(sqlText.getSQLText())) {
 
             GUIUtilities.displayErrorMessage(bundleString("error.select-input-file"));
             return false;
@@ -361,6 +471,10 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
     public void cleanup() {
 
         combosGroup.close();
+        if (largeFile != null) {
+
+            largeFile.close();
+        }
 
         if (statusBar != null) {
 
@@ -555,12 +669,20 @@ public class ExecuteSqlScriptPanel extends DefaultTabViewActionPanel
                 if (selectedHost != null)
                     connection = selectedHost.getDatabaseConnection();
             }
-            if (script == null || script.length() < MAX_LENGTH_TEXT_PANE)
-                script = sqlText.getSQLText();
-            sqlStatementResult = sqlScriptRunner.execute(
-                    connection,
-                    script,
-                    (ActionOnError) actionOnErrorCombo.getSelectedItem());
+            if (largeFile != null) {
+
+                sqlStatementResult = sqlScriptRunner.execute(
+                        connection,
+                        largeFile.openReader(),
+                        (ActionOnError) actionOnErrorCombo.getSelectedItem());
+
+            } else {
+
+                sqlStatementResult = sqlScriptRunner.execute(
+                        connection,
+                        sqlText.getSQLText(),
+                        (ActionOnError) actionOnErrorCombo.getSelectedItem());
+            }
 
         } finally {
 
@@ -75,6 +75,16 @@ public class LoggingOutputPanel extends JPanel
         }
     }
 
+    /**
+     * Sets the number of lines retained by the output pane.
+     *
+     * @param maximumLines the number of lines retained, 0 for all lines
+     */
+    public void setMaximumLines(int maximumLines) {
+
+        outputPane.setMaximumLines(maximumLines);
+    }
+
     public void append(String text) {
 
         outputPane.append(text);
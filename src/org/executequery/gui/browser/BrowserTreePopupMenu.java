@@ -53,6 +53,7 @@ public class BrowserTreePopupMenu extends JPopupMenu {
     private final JMenuItem delete;
     private final JMenuItem recycleConnection;
     private final JMenuItem copyName;
+    private final JMenuItem findUsages;
     private final JMenuItem moveToFolder;
 
 
@@ -105,6 +106,8 @@ public class BrowserTreePopupMenu extends JPopupMenu {
 
         copyName = createMenuItem(bundleString("copyName"), "copyName", listener);
         add(copyName);
+        findUsages = createMenuItem(bundleString("findUsages"), "findUsages", listener);
+        add(findUsages);
 
         //addSeparator();
 
@@ -147,6 +150,7 @@ public class BrowserTreePopupMenu extends JPopupMenu {
         disconnect.setVisible(!canConnect);
         delete.setVisible(canConnect);
         reload.setVisible(!canConnect);
+        findUsages.setVisible(!canConnect);
 
         String label = null;
         DefaultMutableTreeNode currentPathComponent = (DefaultMutableTreeNode) listener.getCurrentPathComponent();
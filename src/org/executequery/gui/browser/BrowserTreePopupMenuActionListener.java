@@ -662,6 +662,20 @@ public class BrowserTreePopupMenuActionListener extends ReflectiveAction {
         }
     }
 
+    public void findUsages(ActionEvent e) {
+        if (currentSelection != null) {
+            String name = "";
+            if (currentPath != null && currentPath.getLastPathComponent() instanceof DatabaseObjectNode) {
+                DatabaseObjectNode node = (DatabaseObjectNode) currentPath.getLastPathComponent();
+                if (node.getDatabaseObject() instanceof DefaultDatabaseColumn)
+                    name = node.getDatabaseObject().getParent().getName() + "." + node.getName();
+                else if (!node.isHostNode() && node.getType() != NamedObject.META_TAG)
+                    name = node.getName();
+            }
+            new FindUsagesDialog(currentSelection, name);
+        }
+    }
+
     public void disconnect(ActionEvent e) {
         treePanel.disconnect(currentSelection);
     }
@@ -28,6 +28,7 @@ import org.executequery.databasemediators.DatabaseConnection;
 import org.executequery.databasemediators.DatabaseDriver;
 import org.executequery.databaseobjects.ConnectionTester;
 import org.executequery.databaseobjects.DatabaseHost;
+import org.executequery.datasource.ConnectionHeartbeat;
 import org.executequery.datasource.ConnectionManager;
 import org.executequery.datasource.DefaultDriverLoader;
 import org.executequery.event.*;
@@ -299,7 +300,12 @@ public class ConnectionPanel extends AbstractConnectionPanel
 
         gbh.insertEmptyRow(mainPanel, 0);
 
-        statusLabel = new DefaultFieldLabel();
+        statusLabel = new DefaultFieldLabel() {
+            @Override
+            public String getToolTipText() {
+                return statusToolTip(super.getToolTipText());
+            }
+        };
         gbh.addLabelFieldPair(mainPanel, bundleString("statusLabel"),
                 statusLabel, bundleString("statusLabel.tool-tip"), true, false, fieldWidth);
 
@@ -1250,6 +1256,46 @@ public class ConnectionPanel extends AbstractConnectionPanel
         setEncryptPassword();
     }
 
+    /**
+     * Returns the tool tip of the status with the round trip times
+     * of the heartbeat probes of the open connections.
+     */
+    private String statusToolTip(String toolTip) {
+
+        if (databaseConnection == null || !databaseConnection.isConnected()) {
+
+            return toolTip;
+        }
+
+        int count = 0;
+        long total = 0;
+        long max = 0;
+        long last = -1;
+        long lastCheckTime = 0;
+        for (ConnectionHeartbeat.Health health : ConnectionHeartbeat.getInstance().getHealth(databaseConnection)) {
+
+            for (long roundTripTime : health.getRoundTripTimes()) {
+
+                total += roundTripTime;
+                max = Math.max(max, roundTripTime);
+                count++;
+            }
+
+            if (health.getLastCheckTime() > lastCheckTime) {
+
+                lastCheckTime = health.getLastCheckTime();
+                last = health.getLastRoundTripTime();
+            }
+        }
+
+        if (count == 0) {
+
+            return toolTip;
+        }
+
+        return toolTip + " - " + Bundles.get(ConnectionPanel.class, "status.roundTrip", last, total / count, max, count);
+    }
+
     /**
      * Changes the state of the save and encrypt password
      * check boxes depending on the whether the encrypt
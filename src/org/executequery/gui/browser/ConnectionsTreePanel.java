@@ -47,10 +47,12 @@ import org.underworldlabs.swing.GUIUtils;
 import org.underworldlabs.swing.toolbar.PanelToolBar;
 import org.underworldlabs.swing.tree.DynamicTree;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.SystemProperties;
 
 import javax.swing.*;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import java.awt.*;
@@ -1547,7 +1549,7 @@ public class ConnectionsTreePanel extends TreePanel
     }
 
     final DatabaseObjectNode node = (DatabaseObjectNode) object;
-    worker = new SwingWorker() {
+    worker = new SwingWorker(TaskScheduler.Workload.METADATA) {
       public Object construct() {
         GUIUtilities.showWaitCursor();
         doNodeExpansion(node);
@@ -1563,6 +1565,8 @@ public class ConnectionsTreePanel extends TreePanel
       }
 
     };
+    // expanded by the user - ahead of any background loading
+    worker.setPriority(TaskScheduler.Priority.HIGH);
     worker.start();
   }
 
@@ -2013,8 +2017,9 @@ public class ConnectionsTreePanel extends TreePanel
     databaseConnection.setFolderId(connectionsFolder.getId());
     connectionsFolder.addConnection(databaseConnection.getId());
 
+    // moved, not detached - the objects stay in the search index
     DatabaseObjectNode node = getHostNode(databaseConnection);
-    tree.removeNode(node);
+    ((DefaultTreeModel) tree.getModel()).removeNodeFromParent(node);
     folder.add(node);
     tree.nodeStructureChanged(folder);
     tree.expandPath(new TreePath(folder.getPath()));
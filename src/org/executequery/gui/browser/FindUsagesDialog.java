@@ -0,0 +1,368 @@
+/*
+ * FindUsagesDialog.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.browser;
+
+import org.apache.commons.lang.StringUtils;
+import org.executequery.GUIUtilities;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.databaseobjects.NamedObject;
+import org.executequery.gui.BaseDialog;
+import org.executequery.gui.DefaultPanelButton;
+import org.executequery.gui.browser.nodes.DatabaseObjectNode;
+import org.executequery.gui.browser.tree.SchemaTree;
+import org.executequery.localization.Bundles;
+import org.executequery.sql.PsqlSourceIndex;
+import org.underworldlabs.swing.actions.ReflectiveAction;
+import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Finds the procedures, functions, triggers, packages and views
+ * using a table, column, variable or other name in their source from
+ * the source index of the connection.
+ *
+ * @author Takis Diakoumis
+ */
+public class FindUsagesDialog extends BaseDialog {
+
+    private final DatabaseConnection databaseConnection;
+
+    private final PsqlSourceIndex index;
+
+    private JTextField nameField;
+
+    private JLabel statusLabel;
+
+    private UsagesTableModel model;
+
+    private JTable table;
+
+    private JButton findButton;
+
+    private JButton refreshButton;
+
+    public FindUsagesDialog(DatabaseConnection databaseConnection, String name) {
+
+        super(bundledString("title", databaseConnection.getName()), false, true);
+        this.databaseConnection = databaseConnection;
+        this.index = PsqlSourceIndex.getInstance(databaseConnection);
+        init();
+
+        nameField.setText(name);
+        display();
+
+        if (StringUtils.isNotBlank(name)) {
+            find(null);
+        }
+    }
+
+    private void init() {
+
+        ReflectiveAction action = new ReflectiveAction(this);
+
+        nameField = new JTextField();
+        nameField.setActionCommand("find");
+        nameField.addActionListener(action);
+
+        findButton = new DefaultPanelButton(action, bundledString("find"), "find");
+        refreshButton = new DefaultPanelButton(action, bundledString("refresh"), "refresh");
+
+        model = new UsagesTableModel();
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setPreferredWidth(120);
+        table.getColumnModel().getColumn(1).setPreferredWidth(200);
+        table.getColumnModel().getColumn(2).setPreferredWidth(200);
+        table.getColumnModel().getColumn(3).setPreferredWidth(60);
+        table.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+
+                if (e.getClickCount() >= 2) {
+
+                    openObject();
+                }
+            }
+        });
+
+        statusLabel = new JLabel(" ");
+
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        panel.add(new JLabel(bundledString("name")), gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(nameField, gbc);
+        gbc.gridx = 2;
+        gbc.weightx = 0;
+        gbc.fill = GridBagConstraints.NONE;
+        panel.add(findButton, gbc);
+        gbc.gridx = 3;
+        panel.add(refreshButton, gbc);
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.weightx = 1.0;
+        gbc.weighty = 1.0;
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.fill = GridBagConstraints.BOTH;
+        panel.add(new JScrollPane(table), gbc);
+        gbc.gridy = 2;
+        gbc.weighty = 0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(statusLabel, gbc);
+
+        JButton closeButton = new DefaultPanelButton(action, Bundles.get("common.close.button"), "close");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 5));
+        buttonPanel.add(closeButton);
+
+        JPanel base = new JPanel(new BorderLayout());
+        base.setPreferredSize(new Dimension(650, 450));
+        base.add(panel, BorderLayout.CENTER);
+        base.add(buttonPanel, BorderLayout.SOUTH);
+
+        addDisplayComponentWithEmptyBorder(base);
+    }
+
+    public void find(ActionEvent e) {
+
+        String name = nameField.getText();
+        if (StringUtils.isBlank(name)) {
+            return;
+        }
+        search(name, false);
+    }
+
+    public void refresh(ActionEvent e) {
+
+        search(nameField.getText(), true);
+    }
+
+    public void close(ActionEvent e) {
+
+        dispose();
+    }
+
+    /**
+     * Looks up the name in a worker - the index is loaded and
+     * refreshed first as required.
+     */
+    private void search(String name, boolean refresh) {
+
+        setSearching(true);
+        SwingWorker worker = new SwingWorker(TaskScheduler.Workload.METADATA) {
+
+            private Throwable exception;
+
+            @Override
+            public Object construct() {
+
+                try {
+
+                    index.load();
+                    if (refresh) {
+                        index.refresh();
+                    } else {
+                        index.refreshIfStale();
+                    }
+
+                    if (StringUtils.isNotBlank(name)) {
+                        return index.findUsages(name);
+                    }
+
+                } catch (Exception e) {
+
+                    exception = e;
+                }
+                return null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void finished() {
+
+                setSearching(false);
+                if (exception != null) {
+
+                    GUIUtilities.displayExceptionErrorDialog(
+                            bundledString("indexError", exception.getMessage()), exception);
+                    return;
+                }
+
+                List<PsqlSourceIndex.Usage> usages = (List<PsqlSourceIndex.Usage>) get();
+                if (usages != null) {
+                    model.setUsages(usages);
+                }
+                updateStatus();
+            }
+        };
+        worker.start();
+    }
+
+    private void setSearching(boolean searching) {
+
+        findButton.setEnabled(!searching);
+        refreshButton.setEnabled(!searching);
+        if (searching) {
+            statusLabel.setText(bundledString("searching"));
+        }
+    }
+
+    private void updateStatus() {
+
+        long refreshTime = index.getRefreshTime();
+        String refreshed = refreshTime > 0
+                ? DateFormat.getDateTimeInstance().format(new Date(refreshTime))
+                : bundledString("notRefreshed");
+
+        statusLabel.setText(bundledString("status",
+                model.getRowCount(), index.getObjectCount(), refreshed));
+    }
+
+    /**
+     * Selects the object of the selected usage in the connections tree.
+     */
+    private void openObject() {
+
+        int row = table.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+
+        String name = model.getUsage(table.convertRowIndexToModel(row)).getObject().getName();
+        ConnectionsTreePanel treePanel = (ConnectionsTreePanel) GUIUtilities.getDockedTabComponent(ConnectionsTreePanel.PROPERTY_KEY);
+        if (treePanel == null) {
+            return;
+        }
+
+        DatabaseObjectNode hostNode = treePanel.getHostNode(databaseConnection);
+        if (hostNode == null) {
+            return;
+        }
+
+        SchemaTree tree = treePanel.getTree();
+        TreeFindAction action = new TreeFindAction();
+        action.install(tree);
+        action.findString(tree, name.replace("$", "\\$"), hostNode);
+
+        JList list = action.getResultsList();
+        int type = model.getUsage(table.convertRowIndexToModel(row)).getObject().getType();
+        for (int i = 0; i < list.getModel().getSize(); i++) {
+
+            TreePath path = (TreePath) list.getModel().getElementAt(i);
+            if (((DatabaseObjectNode) path.getLastPathComponent()).getType() == type) {
+
+                action.listValueSelected(path);
+                return;
+            }
+        }
+    }
+
+    private static String typeLabel(PsqlSourceIndex.SourceObject object) {
+
+        String type = Bundles.get(NamedObject.class, NamedObject.META_TYPES_FOR_BUNDLE[object.getType()]);
+        return object.isBody() ? bundledString("packageBody", type) : type;
+    }
+
+    private static String bundledString(String key, Object... args) {
+        return Bundles.get(FindUsagesDialog.class, key, args);
+    }
+
+    private static class UsagesTableModel extends AbstractTableModel {
+
+        private final String[] columns = {
+                bundledString("type"),
+                bundledString("object"),
+                bundledString("lines"),
+                bundledString("exact")
+        };
+
+        private List<PsqlSourceIndex.Usage> usages = new ArrayList<>();
+
+        void setUsages(List<PsqlSourceIndex.Usage> usages) {
+
+            this.usages = usages;
+            fireTableDataChanged();
+        }
+
+        PsqlSourceIndex.Usage getUsage(int row) {
+            return usages.get(row);
+        }
+
+        public int getRowCount() {
+            return usages.size();
+        }
+
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        public Class<?> getColumnClass(int column) {
+            return column == 3 ? Boolean.class : String.class;
+        }
+
+        public Object getValueAt(int row, int column) {
+
+            PsqlSourceIndex.Usage usage = usages.get(row);
+            switch (column) {
+
+                case 0:
+                    return typeLabel(usage.getObject());
+
+                case 1:
+                    return usage.getObject().getName();
+
+                case 2:
+                    StringBuilder sb = new StringBuilder();
+                    for (int line : usage.getLines()) {
+
+                        if (sb.length() > 0) {
+                            sb.append(", ");
+                        }
+                        sb.append(line);
+                    }
+                    return sb.toString();
+
+                default:
+                    return usage.isExact();
+            }
+        }
+
+    } // class UsagesTableModel
+
+}
@@ -1,30 +1,28 @@
 package org.executequery.gui.browser;
 
-import biz.redsoft.IFBBatch;
-import biz.redsoft.IFBBatchCompletionState;
-import biz.redsoft.IFBDatabaseConnection;
 import org.executequery.GUIUtilities;
 import org.executequery.base.TabView;
 import org.executequery.databasemediators.DatabaseConnection;
-import org.executequery.databasemediators.QueryTypes;
 import org.executequery.databasemediators.spi.DefaultStatementExecutor;
 import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.databaseobjects.DatabaseHost;
 import org.executequery.databaseobjects.NamedObject;
-import org.executequery.datasource.ConnectionManager;
 import org.executequery.datasource.DefaultDriverLoader;
 import org.executequery.gui.LoggingOutputPanel;
 import org.executequery.gui.browser.generatortestdata.FieldGenerator;
 import org.executequery.gui.browser.generatortestdata.FieldsPanel;
+import org.executequery.gui.browser.generatortestdata.engine.GeneratorColumn;
+import org.executequery.gui.browser.generatortestdata.engine.SchemaTestDataGenerator;
+import org.executequery.gui.browser.generatortestdata.engine.TestDataGenerator;
 import org.executequery.gui.components.OpenConnectionsComboboxPanel;
 import org.executequery.localization.Bundles;
 import org.executequery.sql.SqlStatementResult;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.DynamicComboBoxModel;
+import org.underworldlabs.swing.ListSelectionPanel;
 import org.underworldlabs.swing.NumberTextField;
 import org.underworldlabs.swing.layouts.GridBagHelper;
 import org.underworldlabs.swing.util.SwingWorker;
-import org.underworldlabs.util.DynamicLibraryLoader;
 
 import javax.swing.*;
 import java.awt.*;
@@ -55,12 +53,22 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
 
     private JButton stopButton;
 
-    private boolean stop = false;
+    private TestDataGenerator generator;
+
+    private SchemaTestDataGenerator schemaGenerator;
+
+    private Timer progressTimer;
 
     private NumberTextField countRecordsField;
 
     private NumberTextField batchCountField;
 
+    private NumberTextField threadCountField;
+
+    private NumberTextField seedField;
+
+    private NumberTextField firstRowField;
+
     private LoggingOutputPanel logPanel;
 
     private JProgressBar progressBar;
@@ -77,6 +85,15 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
 
     private JCheckBox stopOnErrorBox;
 
+    private JCheckBox allTablesBox;
+
+    private JButton selectTablesButton;
+
+    /**
+     * the tables of the schema wide generation, null for all tables
+     */
+    private List<String> selectedTables;
+
 
     public GeneratorTestDataPanel() {
         init();
@@ -135,10 +152,14 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
         return tables;
     }
 
+    private DatabaseHost getSelectedHost() {
+        NamedObject object = ((ConnectionsTreePanel) GUIUtilities.getDockedTabComponent(ConnectionsTreePanel.PROPERTY_KEY)).getHostNode(getSelectedConnection()).getDatabaseObject();
+        return (DatabaseHost) object;
+    }
+
     private void fillCols() {
         if (tableBox.getSelectedItem() != "") {
-            NamedObject object = ((ConnectionsTreePanel) GUIUtilities.getDockedTabComponent(ConnectionsTreePanel.PROPERTY_KEY)).getHostNode(getSelectedConnection()).getDatabaseObject();
-            DatabaseHost host = (DatabaseHost) object;
+            DatabaseHost host = getSelectedHost();
             List<DatabaseColumn> cols = host.getColumns(null, null, (String) tableBox.getSelectedItem());
             List<FieldGenerator> fieldGenerators = new ArrayList<>();
             for (int i = 0; i < cols.size(); i++) {
@@ -160,6 +181,7 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
             public void itemStateChanged(ItemEvent e) {
                 if (e.getStateChange() == ItemEvent.SELECTED) {
                     executor.setDatabaseConnection(getSelectedConnection());
+                    selectedTables = null;
                     tableBoxModel.setElements(fillTables());
                 }
             }
@@ -179,7 +201,10 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
         stopButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                stop = true;
+                if (generator != null)
+                    generator.stop();
+                if (schemaGenerator != null)
+                    schemaGenerator.stop();
             }
         });
         stopButton.setEnabled(false);
@@ -188,196 +213,7 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
         startButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                SwingWorker worker = new SwingWorker() {
-                    @Override
-                    public Object construct() {
-                        stop = false;
-                        int count = countRecordsField.getValue();
-                        if (count <= 0)
-                            GUIUtilities.displayErrorMessage("the number of records to be added must be greater than zero");
-                        else {
-                            boolean outlog = logBox.isSelected();
-                            startButton.setEnabled(false);
-                            stopButton.setEnabled(true);
-                            long startTime = System.currentTimeMillis();
-                            progressBar.setMinimum(0);
-                            progressBar.setMaximum(count);
-                            int commitAfter = commitAfterField.getValue();
-                            int countSuccess = 0;
-                            int countError = 0;
-                            List<FieldGenerator> fieldGenerators = fieldsPanel.getFieldGenerators();
-                            List<FieldGenerator> selectedFields = new ArrayList<>();
-                            String sql = "INSERT INTO \"" + tableBox.getSelectedItem() + "\" (";
-                            String values = "";
-                            boolean first = true;
-                            for (int g = 0; g < fieldGenerators.size(); g++) {
-                                if (fieldGenerators.get(g).isSelectedField()) {
-                                    selectedFields.add(fieldGenerators.get(g));
-                                    if (!first) {
-                                        sql += ",";
-                                        values += ",";
-                                    } else first = false;
-                                    sql += " \"" + fieldGenerators.get(g).getColumn().getName() + "\"\n";
-                                    values += "? ";
-                                    fieldGenerators.get(g).setFirst();
-
-                                }
-                            }
-                            sql += ") VALUES (" + values + ");";
-                            logPanel.append("execute:\n");
-                            logPanel.append(sql);
-                            try {
-                                if (selectedFields.size() < 1)
-                                    throw new DataSourceException("no columns selected for generation");
-                                executor.setCommitMode(false);
-                                executor.setKeepAlive(true);
-                                if (useBatchesBox.isSelected()) {
-
-                                    int batchCount = batchCountField.getValue();
-
-                                    Connection realConnection = ConnectionManager.getTemporaryConnection(getSelectedConnection());
-                                    if (realConnection.unwrap(Connection.class).getClass().getName().contains("FBConnection")) { // Red Database or FB
-                                        Connection fbConn = realConnection.unwrap(Connection.class);
-                                        IFBDatabaseConnection db = null;
-                                        try {
-                                            db = (IFBDatabaseConnection) DynamicLibraryLoader.loadingObjectFromClassLoader(fbConn, "FBDatabaseConnectionImpl4");
-                                        } catch (ClassNotFoundException e) {
-                                            e.printStackTrace();
-                                        }
-                                        db.setConnection(fbConn);
-                                        IFBBatch batch = db.createBatch(sql);
-
-                                        boolean lastError = false;
-                                        String lastMessage = "";
-                                        int i = 0;
-                                        for (; i < count;) {
-
-                                            if (i + batchCount > count)
-                                                batchCount = i + batchCount - count;
-
-                                            for (int bc = 0; bc < batchCount; bc++) {
-                                                for (int g = 0; g < selectedFields.size(); g++) {
-                                                    Object param = selectedFields.get(g).getMethodGeneratorPanel().getTestDataObject();
-                                                    String typeName = selectedFields.get(g).getColumn().getTypeName();
-                                                    if (typeName.contains("BLOB")) {
-                                                        if (((byte[]) param).length == 0)
-                                                            param = new byte[1];
-                                                        batch.addBlob(g + 1, (byte[]) param);
-                                                    } else {
-                                                        batch.setObject(g + 1, param);
-                                                    }
-                                                }
-                                                batch.addBatch();
-                                            }
-
-                                            IFBBatchCompletionState execute = batch.execute();
-                                            if (printBatchStateBox.isSelected())
-                                                logPanel.append(execute.printAllStates());
-
-                                            if (stop)
-                                                break;
-                                            if (i % commitAfter == 0 && i != 0) {
-                                                batch.commit();
-                                                batch.startTransaction();
-                                            }
-                                            i += batchCount;
-                                            progressBar.setValue(i);
-                                        }
-
-                                        batch.commit();
-                                        logPanel.append("Execution time: " + (System.currentTimeMillis() - startTime) + " ms");
-                                        GUIUtilities.displayInformationMessage("Batch execution completed. See log panel to details.");
-                                    }
-                                } else {
-                                    PreparedStatement statement = executor.getPreparedStatement(sql);
-                                    boolean lastError = false;
-                                    String lastMessage = "";
-                                    int i = 0;
-                                    for (; i < count; i++) {
-                                        if (stop)
-                                            break;
-                                        if (i % commitAfter == 0 && i != 0) {
-                                            executor.getConnection().commit();
-                                        }
-                                        progressBar.setValue(i);
-                                        try {
-                                            for (int g = 0; g < selectedFields.size(); g++) {
-                                                Object param = selectedFields.get(g).getMethodGeneratorPanel().getTestDataObject();
-                                                statement.setObject(g + 1, param);
-                                            }
-                                        } catch (SQLException e) {
-                                            String message = sql;
-                                            if (outlog) {
-                                                String errorMessage = e.getMessage();
-                                                if (!lastError) {
-                                                    if (!errorMessage.contentEquals(lastMessage)) {
-                                                        message += errorMessage;
-                                                        lastMessage = message;
-                                                        logPanel.appendError(message);
-                                                    }
-                                                    logPanel.appendError("failed from " + i);
-                                                    lastError = true;
-                                                }
-                                            }
-                                        }
-                                        SqlStatementResult result = executor.execute(QueryTypes.INSERT, statement);
-                                        String message = sql;// + params;
-                                        if (result.isException()) {
-                                            if (outlog) {
-                                                String errorMessage = result.getSqlException().getMessage();
-                                                if (!lastError) {
-                                                    if (!errorMessage.contentEquals(lastMessage)) {
-                                                        message += errorMessage;
-                                                        lastMessage = message;
-                                                        logPanel.appendError(message);
-                                                    }
-                                                    logPanel.appendError("failed from " + i);
-                                                    lastError = true;
-                                                }
-                                            }
-                                            countError++;
-                                            if (stopOnErrorBox.isSelected()) {
-                                                GUIUtilities.displayExceptionErrorDialog(result.getSqlException().getMessage(), result.getSqlException());
-                                                break;
-                                            }
-                                        } else {
-                                            countSuccess++;
-                                            if (outlog && lastError) {
-                                                logPanel.appendError("to " + (i - 1));
-                                                lastError = false;
-                                            }
-                                        }
-                                    }
-                                    if (outlog && lastError) {
-                                        logPanel.appendError("to " + (i - 1));
-                                    }
-                                    executor.getConnection().commit();
-                                    logPanel.append("Execution time: " + (System.currentTimeMillis() - startTime) + " ms");
-                                }
-
-                                if (!useBatchesBox.isSelected()) {
-                                    GUIUtilities.displayInformationMessage(countSuccess + " records added successfully\n" + countError + " queries failed");
-                                    logPanel.append(countSuccess + " records added successfully\n" + countError + " queries failed");
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                                GUIUtilities.displayExceptionErrorDialog("generation error: " + ex.getMessage(), ex);
-                            } finally {
-                                executor.releaseResources();
-                            }
-                            progressBar.setValue(0);
-                        }
-                        return null;
-                    }
-
-                    @Override
-                    public void finished() {
-                        startButton.setEnabled(true);
-                        stopButton.setEnabled(false);
-                    }
-                };
-                worker.start();
-
+                startGeneration();
             }
         });
         countRecordsField = new NumberTextField(false);
@@ -389,11 +225,27 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
         commitAfterField = new NumberTextField(false);
         commitAfterField.setText("500");
 
+        threadCountField = new NumberTextField(false);
+        threadCountField.setValue(Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+        seedField = new NumberTextField(true);
+        seedField.setToolTipText(bundles("SeedToolTip"));
+
+        firstRowField = new NumberTextField(false);
+        firstRowField.setText("0");
+        firstRowField.setToolTipText(bundles("FirstRowToolTip"));
+
 
         logBox = new JCheckBox(bundles("OutputLog"));
         useBatchesBox = new JCheckBox(bundles("useBatchesBox"));
         printBatchStateBox = new JCheckBox(bundles("printBatchStateBox"));
         stopOnErrorBox = new JCheckBox(bundles("StopOnError"));
+        allTablesBox = new JCheckBox(bundles("AllTables"));
+        allTablesBox.setToolTipText(bundles("AllTablesToolTip"));
+        selectTablesButton = new JButton(bundles("SelectTables"));
+        selectTablesButton.setEnabled(false);
+        selectTablesButton.addActionListener(e -> selectTables());
+        allTablesBox.addItemListener(e -> selectTablesButton.setEnabled(allTablesBox.isSelected()));
 
         tableBoxModel.setElements(fillTables());
         JPanel topPanel = new JPanel();
@@ -417,6 +269,10 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
 
         topPanel.add(tableBox, gbh.defaults().nextCol().spanX().get());
 
+        topPanel.add(allTablesBox, gbh.defaults().nextRowFirstCol().setLabelDefault().get());
+
+        topPanel.add(selectTablesButton, gbh.defaults().nextCol().setLabelDefault().get());
+
         label = new JLabel(bundles("CountRecords"));
         topPanel.add(label, gbh.defaults().nextRowFirstCol().setLabelDefault().get());
 
@@ -427,6 +283,21 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
 
         topPanel.add(commitAfterField, gbh.defaults().nextCol().spanX().get());
 
+        label = new JLabel(bundles("ThreadCount"));
+        topPanel.add(label, gbh.defaults().nextRowFirstCol().setLabelDefault().get());
+
+        topPanel.add(threadCountField, gbh.defaults().nextCol().spanX().get());
+
+        label = new JLabel(bundles("Seed"));
+        topPanel.add(label, gbh.defaults().nextRowFirstCol().setLabelDefault().get());
+
+        topPanel.add(seedField, gbh.defaults().nextCol().spanX().get());
+
+        label = new JLabel(bundles("FirstRow"));
+        topPanel.add(label, gbh.defaults().nextRowFirstCol().setLabelDefault().get());
+
+        topPanel.add(firstRowField, gbh.defaults().nextCol().spanX().get());
+
         topPanel.add(logBox, gbh.defaults().nextRowFirstCol().setLabelDefault().get());
 
         topPanel.add(stopOnErrorBox, gbh.defaults().nextCol().setLabelDefault().get());
@@ -496,4 +367,222 @@ public class GeneratorTestDataPanel extends JPanel implements TabView {
         }
     }
 
+
+    private void startGeneration() {
+        long count = countRecordsField.getLongValue();
+        if (count <= 0) {
+            GUIUtilities.displayErrorMessage("the number of records to be added must be greater than zero");
+            return;
+        }
+
+        // generators are compiled from the panels once, here on the EDT
+        List<GeneratorColumn> columns = new ArrayList<>();
+        try {
+            for (FieldGenerator fieldGenerator : fieldsPanel.getFieldGenerators()) {
+                if (fieldGenerator.isSelectedField())
+                    columns.add(fieldGenerator.createGeneratorColumn());
+            }
+            if (columns.isEmpty())
+                throw new DataSourceException("no columns selected for generation");
+        } catch (Exception ex) {
+            GUIUtilities.displayExceptionErrorDialog("generation error: " + ex.getMessage(), ex);
+            return;
+        }
+
+        // an entered seed makes the run reproducible
+        boolean deterministic = !seedField.getText().trim().isEmpty();
+        long seed = deterministic ? seedField.getLongValue() : System.nanoTime();
+        logPanel.append("seed: " + seed);
+
+        if (allTablesBox.isSelected()) {
+            startSchemaGeneration(count, columns, seed, deterministic);
+            return;
+        }
+
+        generator = new TestDataGenerator(getSelectedConnection(), (String) tableBox.getSelectedItem(), columns);
+        generator.setRowCount(count);
+        generator.setThreadCount(threadCountField.getValue());
+        generator.setCommitAfter(commitAfterField.getValue());
+        generator.setUseFBBatch(useBatchesBox.isSelected());
+        generator.setBatchSize(useBatchesBox.isSelected() ? batchCountField.getValue() : commitAfterField.getValue());
+        generator.setPrintBatchState(printBatchStateBox.isSelected());
+        generator.setStopOnError(stopOnErrorBox.isSelected());
+        generator.setSeed(seed);
+        generator.setDeterministic(deterministic);
+        generator.setFirstRow(firstRowField.getLongValue());
+
+        logPanel.append("execute:\n");
+        logPanel.append(generator.getInsertStatement());
+
+        startButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        progressBar.setMinimum(0);
+        progressBar.setMaximum(1000);
+        progressBar.setStringPainted(true);
+
+        progressTimer = new Timer(250, e -> updateProgress());
+        progressTimer.start();
+
+        final TestDataGenerator currentGenerator = generator;
+        SwingWorker worker = new SwingWorker() {
+            @Override
+            public Object construct() {
+                try {
+                    currentGenerator.execute();
+                    return null;
+                } catch (Exception ex) {
+                    return ex;
+                }
+            }
+
+            @Override
+            public void finished() {
+                progressTimer.stop();
+                updateProgress();
+                Object result = get();
+                if (result instanceof Exception) {
+                    Exception ex = (Exception) result;
+                    GUIUtilities.displayExceptionErrorDialog("generation error: " + ex.getMessage(), ex);
+                }
+
+                String message = currentGenerator.getInsertedCount() + " records added successfully\n"
+                        + currentGenerator.getFailedCount() + " records failed";
+                logPanel.append(message);
+                logPanel.append("Execution time: " + currentGenerator.getElapsedTime() + " ms ("
+                        + Math.round(currentGenerator.getRowsPerSecond()) + " rows/sec)");
+                GUIUtilities.displayInformationMessage(message);
+
+                progressBar.setValue(0);
+                progressBar.setStringPainted(false);
+                startButton.setEnabled(true);
+                stopButton.setEnabled(false);
+            }
+        };
+        worker.start();
+    }
+
+    private List<String> getTableNames() {
+
+        List<String> tables = new ArrayList<>();
+        for (int i = 0; i < tableBoxModel.getSize(); i++) {
+            String table = (String) tableBoxModel.getElementAt(i);
+            if (!table.isEmpty())
+                tables.add(table);
+        }
+        return tables;
+    }
+
+    private void selectTables() {
+
+        List<String> tables = getTableNames();
+        ListSelectionPanel listPanel = new ListSelectionPanel(bundles("AvailableTables"), bundles("SelectedTables"));
+        listPanel.createAvailableList(new Vector<>(tables));
+        if (selectedTables == null)
+            listPanel.selectAllAction();
+        else
+            for (String table : selectedTables)
+                listPanel.selectOneStringAction(table);
+
+        int result = JOptionPane.showConfirmDialog(this, listPanel, bundles("SelectTables"),
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION)
+            return;
+
+        selectedTables = new ArrayList<>();
+        for (Object table : listPanel.getSelectedValues())
+            selectedTables.add(table.toString());
+    }
+
+    private void startSchemaGeneration(long count, List<GeneratorColumn> columns, long seed, boolean deterministic) {
+
+        List<String> tables = selectedTables != null ? selectedTables : getTableNames();
+        if (tables.isEmpty()) {
+            GUIUtilities.displayErrorMessage(bundles("NoTablesSelected"));
+            return;
+        }
+
+        schemaGenerator = new SchemaTestDataGenerator(getSelectedConnection(), getSelectedHost());
+        for (String table : tables)
+            schemaGenerator.addTable(table, count);
+        schemaGenerator.setConfiguredColumns((String) tableBox.getSelectedItem(), columns);
+        schemaGenerator.setThreadCount(threadCountField.getValue());
+        schemaGenerator.setCommitAfter(commitAfterField.getValue());
+        schemaGenerator.setUseFBBatch(useBatchesBox.isSelected());
+        schemaGenerator.setBatchSize(useBatchesBox.isSelected() ? batchCountField.getValue() : commitAfterField.getValue());
+        schemaGenerator.setStopOnError(stopOnErrorBox.isSelected());
+        schemaGenerator.setSeed(seed);
+        schemaGenerator.setDeterministic(deterministic);
+        schemaGenerator.setFirstRow(firstRowField.getLongValue());
+
+        startButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        progressBar.setMinimum(0);
+        progressBar.setMaximum(schemaGenerator.getTableCount());
+        progressBar.setStringPainted(true);
+
+        progressTimer = new Timer(250, e -> updateSchemaProgress());
+        progressTimer.start();
+
+        final SchemaTestDataGenerator currentGenerator = schemaGenerator;
+        SwingWorker worker = new SwingWorker() {
+            @Override
+            public Object construct() {
+                try {
+                    currentGenerator.execute();
+                    return null;
+                } catch (Exception ex) {
+                    return ex;
+                }
+            }
+
+            @Override
+            public void finished() {
+                progressTimer.stop();
+                updateSchemaProgress();
+                Object result = get();
+                if (result instanceof Exception) {
+                    Exception ex = (Exception) result;
+                    GUIUtilities.displayExceptionErrorDialog("generation error: " + ex.getMessage(), ex);
+                }
+
+                String message = currentGenerator.getInsertedCount() + " records added successfully\n"
+                        + currentGenerator.getFailedCount() + " records failed";
+                logPanel.append(message);
+                logPanel.append("Execution time: " + currentGenerator.getElapsedTime() + " ms ("
+                        + Math.round(currentGenerator.getRowsPerSecond()) + " rows/sec)");
+                GUIUtilities.displayInformationMessage(message);
+
+                progressBar.setValue(0);
+                progressBar.setStringPainted(false);
+                startButton.setEnabled(true);
+                stopButton.setEnabled(false);
+            }
+        };
+        worker.start();
+    }
+
+    private void updateSchemaProgress() {
+        String message;
+        while ((message = schemaGenerator.pollMessage()) != null)
+            logPanel.append(message);
+        String table = schemaGenerator.getCurrentTable();
+        progressBar.setValue(schemaGenerator.getCurrentTableIndex());
+        progressBar.setString((table != null ? table + " " : "")
+                + (schemaGenerator.getCurrentTableIndex() + 1) + " / " + schemaGenerator.getTableCount()
+                + " (" + schemaGenerator.getInsertedCount() + " rows, "
+                + Math.round(schemaGenerator.getRowsPerSecond()) + " rows/sec)");
+    }
+
+    private void updateProgress() {
+        String message;
+        while ((message = generator.pollMessage()) != null) {
+            if (logBox.isSelected() || printBatchStateBox.isSelected())
+                logPanel.appendError(message);
+        }
+        long processed = generator.getProcessedCount();
+        progressBar.setValue((int) (processed * 1000 / generator.getRowCount()));
+        progressBar.setString(processed + " / " + generator.getRowCount()
+                + " (" + Math.round(generator.getRowsPerSecond()) + " rows/sec)");
+    }
+
 }
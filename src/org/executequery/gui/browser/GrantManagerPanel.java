@@ -19,6 +19,7 @@ import org.executequery.localization.Bundles;
 import org.executequery.log.Log;
 import org.executequery.repository.DatabaseConnectionRepository;
 import org.executequery.repository.RepositoryCache;
+import org.executequery.sql.SqlStatementResult;
 import org.underworldlabs.swing.layouts.GridBagHelper;
 import org.underworldlabs.swing.util.SwingWorker;
 import org.underworldlabs.util.MiscUtils;
@@ -29,10 +30,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -97,6 +98,24 @@ public class GrantManagerPanel extends JPanel implements TabView {
     public static final int CREATE_TABLE = 9;
     JToolBar grantToolbar;
 
+    /**
+     * the tables, views and procedures of the selected connection - read once
+     * and filtered for display
+     */
+    List<Relation> relations;
+
+    /**
+     * the privileges of the selected user
+     */
+    PrivilegeMatrix privileges;
+
+    /**
+     * the statements of the current grant action and the updates
+     * of the privileges once the statements are committed
+     */
+    private final List<String> grantQueries = new ArrayList<>();
+    private final List<Runnable> grantUpdates = new ArrayList<>();
+
     /**
      * Creates new form GrantManagerPanel
      */
@@ -134,6 +153,8 @@ public class GrantManagerPanel extends JPanel implements TabView {
     }
 
     private void refreshButtonActionPerformed(java.awt.event.ActionEvent evt) {
+        relations = null;
+        privileges = null;
         load_connections();
     }
 
@@ -145,6 +166,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
             for (int col = 1; col < headers.length; col++) {
                 grant_on_role(0, row, col);
             }
+            applyGrants();
         }
     }
 
@@ -157,8 +179,8 @@ public class GrantManagerPanel extends JPanel implements TabView {
             for (int col = 1; col < headers.length; col++) {
                 grant_on_role(1, row, col);
             }
+            applyGrants();
         }
-        querySender.releaseResources();
     }
 
     private JButton[] grantButtons;
@@ -177,7 +199,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
             for (int col = 1; col < headers.length; col++) {
                 grant_on_role(2, row, col);
             }
-            querySender.releaseResources();
+            applyGrants();
         }
     }
 
@@ -199,8 +221,8 @@ public class GrantManagerPanel extends JPanel implements TabView {
                     } else {
                         grant_on_role(1, row, col);
                     }
+                    applyGrants();
                 }
-                querySender.releaseResources();
             }
             if (row >= 0) {
                 setVisiblePanelOfTable(!relType.elementAt(row).equals(objectBox.getItemAt(3)));
@@ -222,6 +244,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
                     } else {
                         grant_on_role(1, row, col, row2);
                     }
+                    applyGrants();
                 }
             }
 
@@ -231,55 +254,67 @@ public class GrantManagerPanel extends JPanel implements TabView {
     private void revoke_v1ActionPerformed(java.awt.event.ActionEvent evt) {
         int col = privilegesForFieldTable.getSelectedColumn();
         int row2 = obj_index;
-        if (col > 1)
+        if (col > 1) {
             for (int row = 0; row < fieldName.size(); row++) {
                 grant_on_role(0, row2, col, row);
             }
+            applyGrants();
+        }
     }
 
     private void revoke_g1ActionPerformed(java.awt.event.ActionEvent evt) {
         int row = privilegesForFieldTable.getSelectedRow();
         int row2 = obj_index;
-        if (row >= 0)
+        if (row >= 0) {
             for (int col = 2; col < 4; col++) {
                 grant_on_role(0, row2, col, row);
             }
+            applyGrants();
+        }
     }
 
     private void grant_v1ActionPerformed(java.awt.event.ActionEvent evt) {
         int col = privilegesForFieldTable.getSelectedColumn();
         int row2 = obj_index;
-        if (col > 1)
+        if (col > 1) {
             for (int row = 0; row < fieldName.size(); row++) {
                 grant_on_role(1, row2, col, row);
             }
+            applyGrants();
+        }
     }
 
     private void grant_g1ActionPerformed(java.awt.event.ActionEvent evt) {
         int row = privilegesForFieldTable.getSelectedRow();
         int row2 = obj_index;
-        if (row >= 0)
+        if (row >= 0) {
             for (int col = 2; col < 4; col++) {
                 grant_on_role(1, row2, col, row);
             }
+            applyGrants();
+        }
     }
 
     private void grant_option_v1ActionPerformed(java.awt.event.ActionEvent evt) {
         int col = privilegesForFieldTable.getSelectedColumn();
         int row2 = obj_index;
-        if (col > 1)
+        if (col > 1) {
             for (int row = 0; row < fieldName.size(); row++) {
                 grant_on_role(2, row2, col, row);
             }
+            applyGrants();
+        }
     }
 
     private void grant_option_g1ActionPerformed(java.awt.event.ActionEvent evt) {
         int row = privilegesForFieldTable.getSelectedRow();
         int row2 = obj_index;
-        if (row >= 0)
+        if (row >= 0) {
             for (int col = 2; col < 4; col++) {
                 grant_on_role(2, row2, col, row);
             }
+            applyGrants();
+        }
     }
 
     public void load_connections() {
@@ -396,7 +431,6 @@ public class GrantManagerPanel extends JPanel implements TabView {
     private String grant;
 
     void load_table2(String rname) {
-        privilegesForFieldTable.setModel(new RoleTableModel(headers2, 0));
         fieldName = new Vector<>();
         fieldType = new Vector<>();
         try {
@@ -416,38 +450,16 @@ public class GrantManagerPanel extends JPanel implements TabView {
         } catch (Exception e) {
             GUIUtilities.displayErrorMessage(e.getMessage());
         }
-        for (int i = 0; i < fieldName.size(); i++)
-            try {
-                String s = "select distinct RDB$PRIVILEGE,RDB$GRANT_OPTION from RDB$USER_PRIVILEGES\n" +
-                        "where (rdb$Relation_name='" + rname + "') and (rdb$user='" + userList.getSelectedValue().trim() + "') and\n" +
-                        "(RDB$FIELD_NAME='" + fieldName.elementAt(i) + "')";
-                ResultSet rs1 = querySender.execute(QueryTypes.SELECT, s, -1).getResultSet();
-                Vector<Object> roleData = new Vector<Object>();
-                roleData.add(fieldName.elementAt(i));
-                roleData.add(fieldType.elementAt(i));
-                for (int k = 0; k < 2; k++)
-                    roleData.add(no);
-                ((RoleTableModel) privilegesForFieldTable.getModel()).addRow(roleData);
-                while (rs1.next()) {
-                    String grant = rs1.getString(1).trim();
-                    int ind = grants.indexOf(grant);
-                    if (ind == 1)
-                        if (rs1.getObject(2).equals(0)) {
-                            privilegesForFieldTable.setValueAt(gr, i, 2);
-                        } else
-                            privilegesForFieldTable.getModel().setValueAt(adm, i, 2);
-                    if (ind == 5)
-                        if (rs1.getObject(2).equals(0)) {
-                            privilegesForFieldTable.setValueAt(gr, i, 3);
-                        } else
-                            privilegesForFieldTable.getModel().setValueAt(adm, i, 3);
-
-                }
-                rs1.close();
-                querySender.releaseResources();
-            } catch (Exception e) {
-                Log.error(e.getMessage());
-            }
+        Vector<Vector<Object>> data = new Vector<>();
+        for (int i = 0; i < fieldName.size(); i++) {
+            Vector<Object> roleData = new Vector<Object>();
+            roleData.add(fieldName.elementAt(i));
+            roleData.add(fieldType.elementAt(i));
+            roleData.add(icon(privileges.get(rname, fieldName.elementAt(i), fieldPrivilege(2))));
+            roleData.add(icon(privileges.get(rname, fieldName.elementAt(i), fieldPrivilege(3))));
+            data.add(roleData);
+        }
+        privilegesForFieldTable.setModel(new RoleTableModel(data, new Vector<>(Arrays.asList(headers2))));
     }
 
     void getTables() {
@@ -485,35 +497,39 @@ public class GrantManagerPanel extends JPanel implements TabView {
     }
 
     void add_relations(String query, String type) {
-        Vector<String> rname = new Vector<>();
-        Vector<Boolean> sflag = new Vector<>();
         try {
             ResultSet rs = querySender.execute(QueryTypes.SELECT, query, -1).getResultSet();
             while (rs.next()) {
                 String name = rs.getString(1).trim();
                 boolean system_flag = rs.getInt(2) == 1;
-                rname.addElement(name);
-                sflag.addElement(system_flag);
+                relations.add(new Relation(name, type, system_flag));
             }
             rs.close();
             querySender.releaseResources();
-            for (int i = 0; i < rname.size(); i++) {
-                String name = rname.elementAt(i);
-                boolean system_flag = sflag.elementAt(i);
-                boolean granted_flag = false;
-                if (!system_flag || system_flag == systemCheck.isSelected()) {
-                    if (!invertFilterCheckBox.isSelected() == name.contains(filterField.getText()))
-                        addRow(name, type, system_flag, granted_flag);
-                }
-            }
-        } catch (SQLException e) {
-            GUIUtilities.displayErrorMessage(e.getMessage());
-
         } catch (Exception e) {
             GUIUtilities.displayErrorMessage(e.getMessage());
         }
     }
 
+    void load_relations() {
+        relations = new ArrayList<>();
+        getTables();
+        getViews();
+        getProcedures();
+    }
+
+    boolean isDisplayed(Relation relation) {
+        int objectIndex = objectBox.getSelectedIndex();
+        if (objectIndex != 0 && !relation.type.equals(objectBox.getItemAt(objectIndex)))
+            return false;
+        if (relation.system && !systemCheck.isSelected())
+            return false;
+        if (invertFilterCheckBox.isSelected() == relation.name.contains(filterField.getText()))
+            return false;
+        return filterBox.getSelectedIndex() == 0
+                || (filterBox.getSelectedIndex() == 1) == privileges.hasPrivileges(relation.name);
+    }
+
     private void filterFieldActionPerformed(java.awt.event.ActionEvent evt) {
         act = CREATE_TABLE;
         execute_thread();
@@ -526,80 +542,31 @@ public class GrantManagerPanel extends JPanel implements TabView {
             querySender.setCommitMode(false);
             querySender.setAutoddl(false);
             dbc = listConnections.get(databaseBox.getSelectedIndex());
+            relations = null;
+            privileges = null;
             con = ConnectionManager.getConnection(listConnections.get(databaseBox.getSelectedIndex()));
             load_userList();
         }
     }
 
     void load_table() {
-        tablePrivileges.setModel(new RoleTableModel(headers, 0));
         relName.removeAllElements();
         relType.removeAllElements();
         relSystem.removeAllElements();
         relGranted.removeAllElements();
-        if (objectBox.getSelectedIndex() == 0 || objectBox.getSelectedIndex() == 1)
-            getTables();
-        if (objectBox.getSelectedIndex() == 0 || objectBox.getSelectedIndex() == 2)
-            getViews();
-        if (objectBox.getSelectedIndex() == 0 || objectBox.getSelectedIndex() == 3)
-            getProcedures();
-        jProgressBar1.setMaximum(relName.size());
-        long start = System.currentTimeMillis();
+        Vector<Vector<Object>> data = new Vector<>();
         try {
-            String query = "select distinct RDB$PRIVILEGE,RDB$GRANT_OPTION,RDB$FIELD_NAME from RDB$USER_PRIVILEGES\n" +
-                    "where (rdb$Relation_name=?) and (rdb$user='"
-                    + userList.getSelectedValue().trim() + "')";
-            PreparedStatement statement = querySender.getPreparedStatement(query);
-            for (int i = 0, g = 0; i < relName.size() && !enableElements; g++, i++) {
-                jProgressBar1.setValue(g);
-                statement.setString(1, relName.elementAt(i));
-                ResultSet rs1 = querySender.execute(QueryTypes.SELECT, statement).getResultSet();
-                Vector<Object> roleData = new Vector<Object>();
-                Object[] obj = {relName.elementAt(i), Color.BLACK};
-                if (relSystem.elementAt(i))
-                    obj[1] = Color.RED;
-                roleData.add(obj);
-                for (int k = 0; k < 7; k++)
-                    roleData.add(no);
-                boolean adding = true;
-                while (rs1.next()) {
-                    relGranted.set(i, true);
-                    if (filterBox.getSelectedIndex() == 0 || (filterBox.getSelectedIndex() == 1) == relGranted.elementAt(i)) {
-                        try {
-                            if (rs1.getString(3) == null) {
-                                String grant = rs1.getString(1).trim();
-                                int ind = grants.indexOf(grant);
-                                if (ind != 7) {
-                                    Object gr_opt = rs1.getObject(2);
-                                    if (gr_opt == null)
-                                        gr_opt = 0;
-                                    if (gr_opt.equals(0)) {
-                                        roleData.set(ind + 1, gr);
-                                    } else
-                                        roleData.set(ind + 1, adm);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.error(e.getMessage());
-                        }
-                    } else {
-                        adding = false;
-                        break;
-                    }
+            if (relations == null)
+                load_relations();
+            String user = userList.getSelectedValue().trim();
+            if (privileges == null || !privileges.getUser().equals(user))
+                privileges = PrivilegeMatrix.load(querySender, user);
+            for (Relation relation : relations) {
+                if (isDisplayed(relation)) {
+                    addRow(relation.name, relation.type, relation.system, privileges.hasPrivileges(relation.name));
+                    data.add(rowData(relation));
                 }
-                rs1.close();
-                if (adding)
-                    adding = (filterBox.getSelectedIndex() == 0 || (filterBox.getSelectedIndex() == 1) == relGranted.elementAt(i));
-                if (adding)
-                    ((RoleTableModel) tablePrivileges.getModel()).addRow(roleData);
-                else {
-                    removeRow(i);
-                    i--;
-                }
-
-
             }
-            querySender.releaseResources();
         } catch (NullPointerException e) {
             Log.error(bundleString("connection.close"));
         } catch (SQLException e) {
@@ -607,11 +574,23 @@ public class GrantManagerPanel extends JPanel implements TabView {
         } catch (Exception e) {
             GUIUtilities.displayErrorMessage(e.getMessage());
         }
+        tablePrivileges.setModel(new RoleTableModel(data, new Vector<>(Arrays.asList(headers))));
         setEnableElements(true);
         setVisiblePanelOfTable(false);
 
     }
 
+    Vector<Object> rowData(Relation relation) {
+        Vector<Object> roleData = new Vector<Object>();
+        Object[] obj = {relation.name, Color.BLACK};
+        if (relation.system)
+            obj[1] = Color.RED;
+        roleData.add(obj);
+        for (int k = 0; k < headers.length - 1; k++)
+            roleData.add(icon(privileges.get(relation.name, k)));
+        return roleData;
+    }
+
     private void systemCheckActionPerformed(java.awt.event.ActionEvent evt) {
         act = CREATE_TABLE;
         execute_thread();
@@ -672,96 +651,153 @@ public class GrantManagerPanel extends JPanel implements TabView {
                     load_table();
                     break;
                 case ALL_GRANTS_TO_ALL_OBJECTS:
-                    jProgressBar1.setMaximum(relName.size());
                     for (int row = 0; row < relName.size() && !enableElements; row++) {
-                        jProgressBar1.setValue(row);
                         isClose();
                         grant_all_on_role(1, row);
-
                     }
-                    jProgressBar1.setValue(0);
-                    setEnableElements(true);
                     break;
                 case ALL_GRANTS_TO_ALL_OBJECTS_WITH_GRANT_OPTION:
-                    jProgressBar1.setMaximum(relName.size());
                     for (int row = 0; row < relName.size() && !enableElements; row++) {
-                        jProgressBar1.setValue(row);
                         isClose();
                         grant_all_on_role(2, row);
-
                     }
-                    jProgressBar1.setValue(0);
-                    setEnableElements(true);
                     break;
                 case NO_ALL_GRANTS_TO_ALL_OBJECTS:
-                    jProgressBar1.setMaximum(relName.size());
                     for (int row = 0; row < relName.size() && !enableElements; row++) {
-                        jProgressBar1.setValue(row);
                         isClose();
                         grant_all_on_role(0, row);
-
                     }
-                    jProgressBar1.setValue(0);
-                    setEnableElements(true);
                     break;
                 case GRANT_TO_ALL_OBJECTS:
                     col = tablePrivileges.getSelectedColumn();
-                    jProgressBar1.setMaximum(relName.size());
                     if (col > 0)
                         for (int row = 0; row < relName.size() && !enableElements; row++) {
-                            jProgressBar1.setValue(row);
                             isClose();
                             grant_on_role(1, row, col);
                         }
-                    jProgressBar1.setValue(0);
-                    setEnableElements(true);
                     break;
                 case GRANT_TO_ALL_OBJECTS_WITH_GRANT_OPTION:
                     col = tablePrivileges.getSelectedColumn();
-                    jProgressBar1.setMaximum(relName.size());
                     if (col > 0)
                         for (int row = 0; row < relName.size() && !enableElements; row++) {
-                            jProgressBar1.setValue(row);
                             isClose();
                             grant_on_role(2, row, col);
                         }
-                    jProgressBar1.setValue(0);
-                    setEnableElements(true);
                     break;
                 case NO_GRANT_TO_ALL_OBJECTS:
                     col = tablePrivileges.getSelectedColumn();
-                    jProgressBar1.setMaximum(relName.size());
                     if (col > 0)
                         for (int row = 0; row < relName.size() && !enableElements; row++) {
-                            jProgressBar1.setValue(row);
                             isClose();
                             grant_on_role(0, row, col);
                         }
-                    jProgressBar1.setValue(0);
-                    setEnableElements(true);
                     break;
             }
+            if (act != CREATE_TABLE) {
+                if (enableElements) {
+                    // cancelled - nothing was executed yet
+                    grantQueries.clear();
+                    grantUpdates.clear();
+                } else {
+                    jProgressBar1.setIndeterminate(true);
+                    applyGrants();
+                    jProgressBar1.setIndeterminate(false);
+                    setEnableElements(true);
+                }
+            }
             querySender.releaseResources();
     }
 
-    void grant_query(String query, Icon icon, int row, int col, JTable t) {
+    /**
+     * Adds a statement to the current grant action.
+     *
+     * @param query  the grant or revoke statement
+     * @param update the update of the privileges and the tables
+     *               once the statement is committed
+     */
+    void queueGrant(String query, Runnable update) {
+        grantQueries.add(query);
+        grantUpdates.add(update);
+    }
+
+    /**
+     * Executes the statements of the current grant action as one batch
+     * and commits them together. On failure the whole action is rolled
+     * back and the privileges displayed remain unchanged.
+     */
+    void applyGrants() {
+        if (grantQueries.isEmpty())
+            return;
+        List<String> queries = new ArrayList<>(grantQueries);
+        List<Runnable> updates = new ArrayList<>(grantUpdates);
+        grantQueries.clear();
+        grantUpdates.clear();
         try {
-            querySender.execute(QueryTypes.GRANT, query);
-            t.setValueAt(icon, row, col);
-        } catch (NullPointerException e) {
-            Log.error(bundleString("connection.close"));
+            querySender.executeBatch(queries);
+            SqlStatementResult result = querySender.execute(QueryTypes.COMMIT, (String) null);
+            if (result.isException())
+                throw new SQLException(result.getErrorMessage());
+            for (Runnable update : updates)
+                update.run();
         } catch (SQLException e) {
-            Log.error(e.getMessage());
-        } catch (Exception e) {
-            Log.error(e.getMessage());
+            try {
+                querySender.execute(QueryTypes.ROLLBACK, (String) null);
+            } catch (SQLException ex) {
+                Log.error(ex.getMessage());
+            }
+            Log.error("Error applying grants in Grant Manager:", e);
+            GUIUtilities.displayExceptionErrorDialog(bundleString("message.grant-failed"), e);
         } finally {
             querySender.releaseResourcesWithoutCommit();
         }
     }
 
+    void grant_query(String query, Icon icon, int row, int col) {
+        String relation = relName.elementAt(row);
+        queueGrant(query, () -> {
+            privileges.set(relation, col - 1, state(icon));
+            tablePrivileges.setValueAt(icon, row, col);
+        });
+    }
+
+    void grant_field_query(String query, Icon icon, int row, int col, int row2) {
+        String relation = relName.elementAt(row);
+        String field = fieldName.elementAt(row2);
+        queueGrant(query, () -> {
+            privileges.set(relation, field, fieldPrivilege(col), state(icon));
+            privilegesForFieldTable.setValueAt(icon, row2, col);
+        });
+    }
+
+    Icon icon(int state) {
+        switch (state) {
+            case PrivilegeMatrix.GRANTED:
+                return gr;
+            case PrivilegeMatrix.GRANT_OPTION:
+                return adm;
+            default:
+                return no;
+        }
+    }
+
+    int state(Icon icon) {
+        if (icon == gr)
+            return PrivilegeMatrix.GRANTED;
+        if (icon == adm)
+            return PrivilegeMatrix.GRANT_OPTION;
+        return PrivilegeMatrix.NONE;
+    }
+
+    /**
+     * Returns the privilege index of a column of the field privileges table.
+     */
+    int fieldPrivilege(int col) {
+        return PrivilegeMatrix.PRIVILEGES.indexOf(col == 2 ? 'U' : 'R');
+    }
+
     void revoke_execute(int row) {
         try {
-            grant_query(getGrantQuery(userList.getSelectedValue(), 0, 1, "EXECUTE", relName.elementAt(row)), no, row, col_execute, tablePrivileges);
+            grant_query(getGrantQuery(userList.getSelectedValue(), 0, 1, "EXECUTE", relName.elementAt(row)), no, row, col_execute);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -769,7 +805,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
 
     void grant_execute(int row) {
         try {
-            grant_query(getGrantQuery(userList.getSelectedValue(), 1, 1, "EXECUTE", relName.elementAt(row)), gr, row, col_execute, tablePrivileges);
+            grant_query(getGrantQuery(userList.getSelectedValue(), 1, 1, "EXECUTE", relName.elementAt(row)), gr, row, col_execute);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -777,26 +813,21 @@ public class GrantManagerPanel extends JPanel implements TabView {
 
     void grant_execute_admin(int row) {
         try {
-            grant_query(getGrantQuery(userList.getSelectedValue(), 1, 1, "EXECUTE", relName.elementAt(row)), adm, row, col_execute, tablePrivileges);
+            grant_query(getGrantQuery(userList.getSelectedValue(), 2, 1, "EXECUTE", relName.elementAt(row)), adm, row, col_execute);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     void grant_all_query(String query, Icon icon, int row, int grantt) {
-        try {
-            querySender.execute(QueryTypes.GRANT, query, -1);
+        String relation = relName.elementAt(row);
+        queueGrant(query, () -> {
             for (int i = 1; i < headers.length; i++)
-                if (i != col_execute && i != col_usage)
+                if (i != col_execute && i != col_usage) {
+                    privileges.set(relation, i - 1, state(icon));
                     tablePrivileges.setValueAt(icon, row, i);
-        } catch (Exception e) {
-            Log.error(e.getMessage());
-            for (int i = 1; i < headers.length; i++) {
-                grant_case(grantt, row, i);
-            }
-        } finally {
-            querySender.releaseResourcesWithoutCommit();
-        }
+                }
+        });
     }
 
     void grant_case(int grantt, int row, int col) {
@@ -841,7 +872,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
     void revoke(int row, int col) {
         if (col > 0 && col < headers.length && col != col_execute && col != col_usage) {
             try {
-                grant_query(getGrantQuery(userList.getSelectedValue(), 0, 0, headers[col], relName.elementAt(row)), no, row, col, tablePrivileges);
+                grant_query(getGrantQuery(userList.getSelectedValue(), 0, 0, headers[col], relName.elementAt(row)), no, row, col);
             } catch (SQLException e) {
                 e.printStackTrace();
             }
@@ -851,7 +882,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
     void grant(int row, int col) {
         if (col > 0 && col < headers.length && col != col_execute && col != col_usage) {
             try {
-                grant_query(getGrantQuery(userList.getSelectedValue(), 1, 0, headers[col], relName.elementAt(row)), gr, row, col, tablePrivileges);
+                grant_query(getGrantQuery(userList.getSelectedValue(), 1, 0, headers[col], relName.elementAt(row)), gr, row, col);
             } catch (SQLException e) {
                 e.printStackTrace();
             }
@@ -861,7 +892,7 @@ public class GrantManagerPanel extends JPanel implements TabView {
     void grant_admin(int row, int col) {
         if (col > 0 && col < headers.length && col != col_execute && col != col_usage) {
             try {
-                grant_query(getGrantQuery(userList.getSelectedValue(), 2, 0, headers[col], relName.elementAt(row)), adm, row, col, tablePrivileges);
+                grant_query(getGrantQuery(userList.getSelectedValue(), 2, 0, headers[col], relName.elementAt(row)), adm, row, col);
             } catch (SQLException e) {
                 e.printStackTrace();
             }
@@ -940,32 +971,29 @@ public class GrantManagerPanel extends JPanel implements TabView {
                     break;
             }
         }
-        querySender.releaseResourcesWithoutCommit();
     }
 
     void grant_on_role(int grantt, int row, int col, int row2) {
         if (row < tablePrivileges.getRowCount()) {
             try {
+                String grant = headers2[col] + " (\"" + fieldName.elementAt(row2) + "\")";
                 switch (grantt) {
                     case 0:
-                        grant_query(getGrantQuery(userList.getSelectedValue(), 0, 0, headers[col], relName.elementAt(row)), no, row2, col, privilegesForFieldTable);
+                        grant_field_query(getGrantQuery(userList.getSelectedValue(), 0, 0, grant, relName.elementAt(row)), no, row, col, row2);
                         break;
                     case 1:
                         if (privilegesForFieldTable.getValueAt(row2, col).equals(adm)) {
-                            grant_query(getGrantQuery(userList.getSelectedValue(), 0, 0, headers[col], relName.elementAt(row)), no, row2, col, privilegesForFieldTable);
+                            grant_field_query(getGrantQuery(userList.getSelectedValue(), 0, 0, grant, relName.elementAt(row)), no, row, col, row2);
                         }
-                        grant_query(getGrantQuery(userList.getSelectedValue(), 1, 0, headers[col], relName.elementAt(row)), gr, row2, col, privilegesForFieldTable);
+                        grant_field_query(getGrantQuery(userList.getSelectedValue(), 1, 0, grant, relName.elementAt(row)), gr, row, col, row2);
 
                         break;
                     case 2:
-                        grant_query(getGrantQuery(userList.getSelectedValue(), 2, 0, headers[col], relName.elementAt(row)), adm, row2, col, privilegesForFieldTable);
+                        grant_field_query(getGrantQuery(userList.getSelectedValue(), 2, 0, grant, relName.elementAt(row)), adm, row, col, row2);
                         break;
                 }
-                querySender.execute(QueryTypes.COMMIT, (String) null);
             } catch (SQLException e) {
                 e.printStackTrace();
-            } finally {
-                querySender.releaseResources();
             }
         }
     }
@@ -1414,4 +1442,17 @@ public class GrantManagerPanel extends JPanel implements TabView {
             jProgressBar1.setValue(0);
     }
 
+    static class Relation {
+
+        final String name;
+        final String type;
+        final boolean system;
+
+        Relation(String name, String type, boolean system) {
+            this.name = name;
+            this.type = type;
+            this.system = system;
+        }
+    }
+
 }
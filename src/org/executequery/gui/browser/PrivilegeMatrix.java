@@ -0,0 +1,218 @@
+/*
+ * PrivilegeMatrix.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.browser;
+
+import org.executequery.databasemediators.QueryTypes;
+import org.executequery.databasemediators.spi.DefaultStatementExecutor;
+import org.executequery.sql.SqlStatementResult;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The privileges of one user, role or object on all relations and
+ * procedures of a database.
+ * <p>
+ * The privileges are read with a single query and kept as bits per
+ * object and privilege - one set for granted privileges and one for
+ * privileges granted with grant option. Column privileges are kept
+ * the same way per object column.
+ *
+ * @author Takis Diakoumis
+ */
+final class PrivilegeMatrix {
+
+    /**
+     * the privilege codes of <code>RDB$USER_PRIVILEGES</code>
+     * in the column order of the grant manager
+     */
+    static final String PRIVILEGES = "SUDIXRG";
+
+    static final int NONE = 0;
+    static final int GRANTED = 1;
+    static final int GRANT_OPTION = 2;
+
+    private static final String QUERY =
+            "select RDB$RELATION_NAME, RDB$FIELD_NAME, RDB$PRIVILEGE, RDB$GRANT_OPTION\n" +
+                    "from RDB$USER_PRIVILEGES where RDB$USER = ?";
+
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final String user;
+
+    /**
+     * the index of each object and object column
+     */
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final BitSet granted = new BitSet();
+
+    private final BitSet grantOption = new BitSet();
+
+    /**
+     * the indexes of objects with column privileges or privileges
+     * other than those of the grant manager
+     */
+    private final BitSet otherPrivileges = new BitSet();
+
+    private PrivilegeMatrix(String user) {
+        this.user = user;
+    }
+
+    /**
+     * Reads the privileges of the specified user.
+     */
+    static PrivilegeMatrix load(DefaultStatementExecutor querySender, String user) throws SQLException {
+
+        PrivilegeMatrix matrix = new PrivilegeMatrix(user);
+
+        PreparedStatement statement = querySender.getPreparedStatement(QUERY);
+        if (statement == null) {
+            throw new SQLException("Not Connected");
+        }
+        statement.setString(1, user);
+
+        SqlStatementResult result = querySender.execute(QueryTypes.SELECT, statement);
+        if (result.isException()) {
+            throw new SQLException(result.getErrorMessage());
+        }
+
+        try (ResultSet rs = result.getResultSet()) {
+
+            while (rs.next()) {
+
+                String relation = rs.getString(1).trim();
+                String field = rs.getString(2);
+                int privilege = PRIVILEGES.indexOf(rs.getString(3).trim());
+                int grantOption = rs.getInt(4);
+
+                if (privilege < 0) {
+                    matrix.otherPrivileges.set(matrix.index(relation));
+                    continue;
+                }
+
+                int state = grantOption == 0 ? GRANTED : GRANT_OPTION;
+                if (field == null) {
+                    matrix.set(relation, privilege, state);
+                } else {
+                    matrix.set(relation, field.trim(), privilege, state);
+                }
+            }
+
+        } finally {
+            querySender.releaseResources();
+        }
+
+        return matrix;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    /**
+     * Returns whether any privilege on the object or its columns
+     * is granted.
+     */
+    boolean hasPrivileges(String relation) {
+
+        Integer index = indexes.get(relation);
+        if (index == null) {
+            return false;
+        }
+        int first = bit(index, 0);
+        int next = granted.nextSetBit(first);
+        return otherPrivileges.get(index) || (next >= 0 && next < first + PRIVILEGES.length());
+    }
+
+    /**
+     * Returns the state of the privilege on the object.
+     *
+     * @param privilege the index within {@link #PRIVILEGES}
+     * @return one of NONE, GRANTED or GRANT_OPTION
+     */
+    int get(String relation, int privilege) {
+        return state(indexes.get(relation), privilege);
+    }
+
+    /**
+     * Returns the state of the privilege on the object column.
+     */
+    int get(String relation, String field, int privilege) {
+        return state(indexes.get(fieldKey(relation, field)), privilege);
+    }
+
+    void set(String relation, int privilege, int state) {
+
+        set(index(relation), privilege, state);
+    }
+
+    void set(String relation, String field, int privilege, int state) {
+
+        set(index(fieldKey(relation, field)), privilege, state);
+        if (state != NONE) {
+            otherPrivileges.set(index(relation));
+        }
+    }
+
+    private int state(Integer index, int privilege) {
+
+        if (index == null) {
+            return NONE;
+        }
+
+        int bit = bit(index, privilege);
+        if (grantOption.get(bit)) {
+            return GRANT_OPTION;
+        }
+        return granted.get(bit) ? GRANTED : NONE;
+    }
+
+    private void set(int index, int privilege, int state) {
+
+        int bit = bit(index, privilege);
+        granted.set(bit, state != NONE);
+        grantOption.set(bit, state == GRANT_OPTION);
+    }
+
+    private int index(String key) {
+
+        Integer index = indexes.get(key);
+        if (index == null) {
+            index = indexes.size();
+            indexes.put(key, index);
+        }
+        return index;
+    }
+
+    private static int bit(int index, int privilege) {
+        return index * PRIVILEGES.length() + privilege;
+    }
+
+    private static String fieldKey(String relation, String field) {
+        return relation + FIELD_SEPARATOR + field;
+    }
+
+}
@@ -20,6 +20,7 @@
 
 package org.executequery.gui.browser;
 
+import org.executequery.gui.erd.ErdLayeredLayout;
 import org.executequery.gui.erd.ErdViewerPanel;
 
 import javax.swing.*;
@@ -55,6 +56,7 @@ public class ReferencesDiagramPanel extends JPanel {
     public void setTables(List tableNames, List columnData) {
 
         viewerPanel.resetTableValues(tableNames, columnData);
+        viewerPanel.layoutTables(new ErdLayeredLayout(), null);
     }
 
 }
@@ -26,15 +26,14 @@ import org.executequery.Constants;
 import org.executequery.EventMediator;
 import org.executequery.GUIUtilities;
 import org.executequery.components.CancelButton;
-import org.executequery.databasemediators.QueryTypes;
-import org.executequery.databasemediators.spi.DefaultStatementExecutor;
-import org.executequery.databasemediators.spi.StatementExecutor;
 import org.executequery.databaseobjects.*;
 import org.executequery.event.*;
 import org.executequery.gui.BaseDialog;
 import org.executequery.gui.ExecuteQueryDialog;
 import org.executequery.gui.editor.ResultSetTableContainer;
 import org.executequery.gui.editor.ResultSetTablePopupMenu;
+import org.executequery.gui.resultset.ForeignKeyComboBox;
+import org.executequery.gui.resultset.ForeignKeyLookup;
 import org.executequery.gui.resultset.RecordDataItem;
 import org.executequery.gui.resultset.ResultSetColumnHeader;
 import org.executequery.gui.resultset.ResultSetTable;
@@ -49,6 +48,7 @@ import org.underworldlabs.swing.table.SortableHeaderRenderer;
 import org.underworldlabs.swing.table.TableSorter;
 import org.underworldlabs.swing.toolbar.PanelToolBar;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.MiscUtils;
 import org.underworldlabs.util.SystemProperties;
 
@@ -65,7 +65,6 @@ import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.awt.image.BufferedImage;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.List;
@@ -104,8 +103,6 @@ public class TableDataTab extends JPanel
 
     private JPanel buttonsEditingPanel;
 
-    private StatementExecutor querySender;
-
     private List<String> primaryKeyColumns = new ArrayList<String>(0);
 
     private List<String> foreignKeyColumns = new ArrayList<String>(0);
@@ -261,7 +258,7 @@ public class TableDataTab extends JPanel
                 worker.interrupt();
             }
 
-            worker = new SwingWorker() {
+            worker = new SwingWorker(TaskScheduler.Workload.QUERY) {
 
                 public Object construct() {
                     try {
@@ -332,25 +329,7 @@ public class TableDataTab extends JPanel
         tableModel.createTableFromMetaData(resultSet, databaseObject.getHost().getDatabaseConnection(), columnDataList);
     }
 
-    Vector itemsForeign(org.executequery.databaseobjects.impl.ColumnConstraint key) {
-        String query = "SELECT " + key.getReferencedColumn() + " FROM " + MiscUtils.getFormattedObject(key.getReferencedTable());
-        Vector items = new Vector();
-        try {
-            ResultSet rs = querySender.execute(QueryTypes.SELECT, query).getResultSet();
-            while (rs.next()) {
-                items.add(rs.getObject(1));
-            }
-        } catch (Exception e) {
-            Log.error("Error get Foreign keys:" + e.getMessage());
-        } finally {
-            querySender.releaseResources();
-        }
-        items.add(null);
-        return items;
-    }
-
     private Object setTableResultsPanel(DatabaseObject databaseObject) {
-        querySender = new DefaultStatementExecutor(databaseObject.getHost().getDatabaseConnection(), true);
         tableDataChanges.clear();
         primaryKeyColumns.clear();
         foreignKeyColumns.clear();
@@ -523,10 +502,11 @@ public class TableDataTab extends JPanel
             if (foreigns != null)
                 if (foreigns.size() > 0)
                     for (org.executequery.databaseobjects.impl.ColumnConstraint key : foreigns) {
-                        Vector items = itemsForeign(key);
-                        DefaultTableModel defaultTableModel = tableForeign(key);
-                        //table.setComboboxColumn(tableModel.getColumnIndex(key.getColumnName()), items);
-                        table.setComboboxTable(tableModel.getColumnIndex(key.getColumnName()), defaultTableModel, items);
+
+                        // reloaded data may reference parent keys added since
+                        ForeignKeyLookup lookup = ForeignKeyLookup.forKey(databaseObject.getHost().getDatabaseConnection(), key);
+                        lookup.refresh();
+                        table.setForeignKeyLookup(tableModel.getColumnIndex(key.getColumnName()), lookup);
                     }
 
 
@@ -583,24 +563,6 @@ public class TableDataTab extends JPanel
         return "done";
     }
 
-    public static DefaultTableModel buildTableModel(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        Vector<String> columnNames = new Vector<String>();
-        int columnCount = metaData.getColumnCount();
-        for (int column = 1; column <= columnCount; column++) {
-            columnNames.add(metaData.getColumnName(column));
-        }
-        Vector<Vector<Object>> data = new Vector<Vector<Object>>();
-        while (rs.next()) {
-            Vector<Object> vector = new Vector<Object>();
-            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                vector.add(rs.getObject(columnIndex));
-            }
-            data.add(vector);
-        }
-        return new DefaultTableModel(data, columnNames);
-    }
-
     private void initialiseModel() {
 
         if (tableModel == null) {
@@ -688,7 +650,8 @@ public class TableDataTab extends JPanel
             boolean str = false;
             switch (type) {
                 case 2017:
-                    component_value = String.valueOf(((JComboBox) component).getSelectedItem());
+                    Object key = ((ForeignKeyComboBox) component).getSelectedKey();
+                    component_value = key != null ? String.valueOf(key) : null;
                     break;
                 case Types.DATE:
                     component_value = ((DatePicker) component).getDateStringOrEmptyString();
@@ -777,11 +740,11 @@ public class TableDataTab extends JPanel
         gbcLabel.insets = new Insets(5, 5, 5, 5);
         gbc.insets = new Insets(5, 5, 5, 5);
         List<Integer> fgns = new ArrayList<>();
-        List<Vector> f_items = new ArrayList<>();
+        List<ForeignKeyLookup> f_items = new ArrayList<>();
         if (foreigns != null)
             if (foreigns.size() > 0)
                 for (org.executequery.databaseobjects.impl.ColumnConstraint key : foreigns) {
-                    f_items.add(itemsForeign(key));
+                    f_items.add(ForeignKeyLookup.forKey(databaseObject.getHost().getDatabaseConnection(), key));
                     fgns.add(tableModel.getColumnIndex(key.getColumnName()));
                 }
         List<JComponent> components = new ArrayList<>();
@@ -800,7 +763,7 @@ public class TableDataTab extends JPanel
                 gbc.gridy++;
                 panel.add(label, gbcLabel);
                 if (fgns.contains(i)) {
-                    field = new JComboBox(new DefaultComboBoxModel(f_items.get(fgns.indexOf(i))));
+                    field = new ForeignKeyComboBox(f_items.get(fgns.indexOf(i)));
                     types.add(2017);
                 } else {
                     switch (type) {
@@ -918,41 +881,6 @@ public class TableDataTab extends JPanel
         }
     }
 
-    public DefaultTableModel tableForeign(org.executequery.databaseobjects.impl.ColumnConstraint key) {
-        String checked_column = "select R.RDB$FIELD_NAME from RDB$FIELDS F, RDB$RELATION_FIELDS R where (F.RDB$FIELD_NAME = R.RDB$FIELD_SOURCE) and (R.RDB$SYSTEM_FLAG = 0) and (R.RDB$RELATION_NAME = " + "'" + key.getReferencedTable() + "'" + ") and (NOT F.RDB$FIELD_NAME IN (select RDB$FIELD_NAME from RDB$FIELD_DIMENSIONS))";
-        ArrayList<String> checked_column_list = new ArrayList<String>();
-        try {
-            ResultSet checked_column_rs = querySender.execute(QueryTypes.SELECT, checked_column).getResultSet();
-            while (checked_column_rs.next()) {
-                checked_column_list.add(checked_column_rs.getObject(1).toString());
-            }
-        } catch (Exception e) {
-            Log.error("Error get Foreign keys:" + e.getMessage());
-        } finally {
-            querySender.releaseResources();
-        }
-
-        String checkedColumns = "";
-        for (int i = 0; i < checked_column_list.size(); i++) {
-            checkedColumns += MiscUtils.getFormattedObject(checked_column_list.get(i));
-            if (i < checked_column_list.size() - 1) {
-                checkedColumns += " , ";
-            }
-        }
-
-        String query = "SELECT " + checkedColumns + " FROM " + MiscUtils.getFormattedObject(key.getReferencedTable());
-        DefaultTableModel defaultTableModel = new DefaultTableModel();
-        try {
-            ResultSet rs = querySender.execute(QueryTypes.SELECT, query).getResultSet();
-            defaultTableModel = buildTableModel(rs);
-        } catch (Exception e) {
-            Log.error("Error get Foreign keys:" + e.getMessage());
-        } finally {
-            querySender.releaseResources();
-        }
-        return defaultTableModel;
-    }
-
     private void createButtonsEditingPanel() {
         tableButtons = new ArrayList<>();
         buttonsEditingPanel = new JPanel(new GridBagLayout());
@@ -1047,7 +975,7 @@ public class TableDataTab extends JPanel
                             cancel();
                             worker.interrupt();
                         }
-                        worker = new SwingWorker() {
+                        worker = new SwingWorker(TaskScheduler.Workload.QUERY) {
 
                             public Object construct() {
                                 try {
@@ -1153,6 +1081,8 @@ public class TableDataTab extends JPanel
                 return "done";
             }
         };
+        // cancelling must not wait behind queued work
+        worker.setPriority(TaskScheduler.Priority.HIGH);
         worker.start();
     }
 
@@ -22,7 +22,9 @@ package org.executequery.gui.browser;
 
 import org.apache.commons.lang.StringUtils;
 import org.executequery.databaseobjects.NamedObject;
+import org.executequery.gui.browser.nodes.DatabaseHostNode;
 import org.executequery.gui.browser.nodes.DatabaseObjectNode;
+import org.executequery.gui.browser.nodes.ObjectSearchIndex;
 import org.executequery.gui.browser.tree.SchemaTree;
 import org.executequery.localization.Bundles;
 import org.underworldlabs.util.SystemProperties;
@@ -65,27 +67,40 @@ public class TreeFindAction extends FindAction<TreePath> {
         }
 
         JTree tree = (JTree) comp;
-        String prefix = searchString;
+        List<TreePath> matchedPaths = new ArrayList<TreePath>();
 
-        if (ignoreCase()) {
+        ObjectSearchIndex index = ObjectSearchIndex.getInstance();
+        if (!index.isEmpty()) {
 
-            prefix = prefix.toUpperCase();
-        }
-
-        boolean wildcardStart = prefix.startsWith("*");
-        if (wildcardStart) {
+            // the objects of all connections loaded so far
+            for (DatabaseObjectNode node : index.search(searchString, searchInCols)) {
 
-            prefix = prefix.substring(1);
+                matchedPaths.add(new TreePath(node.getPath()));
+            }
 
         } else {
 
-            prefix = "^" + prefix;
-        }
-        prefix = prefix.replaceAll("\\*", ".*");
+            String prefix = searchString;
 
-        Matcher matcher = Pattern.compile(prefix).matcher("");
-        List<TreePath> matchedPaths = new ArrayList<TreePath>();
-        findOnTree(tree.getPathForRow(0), matchedPaths, matcher);
+            if (ignoreCase()) {
+
+                prefix = prefix.toUpperCase();
+            }
+
+            boolean wildcardStart = prefix.startsWith("*");
+            if (wildcardStart) {
+
+                prefix = prefix.substring(1);
+
+            } else {
+
+                prefix = "^" + prefix;
+            }
+            prefix = prefix.replaceAll("\\*", ".*");
+
+            Matcher matcher = Pattern.compile(prefix).matcher("");
+            findOnTree(tree.getPathForRow(0), matchedPaths, matcher);
+        }
 
         foundValues(matchedPaths);
 
@@ -246,7 +261,17 @@ public class TreeFindAction extends FindAction<TreePath> {
 
             TreePath treePath = (TreePath) value;
 
-            setText(treePath.getLastPathComponent().toString());
+            String text = treePath.getLastPathComponent().toString();
+            for (Object node : treePath.getPath()) {
+
+                if (node instanceof DatabaseHostNode) {
+
+                    // the index finds objects of all connections
+                    text += " [" + ((DatabaseHostNode) node).getDatabaseConnection().getName() + "]";
+                    break;
+                }
+            }
+            setText(text);
 
             if (isSelected) {
 
@@ -2,6 +2,7 @@ package org.executequery.gui.browser.generatortestdata;
 
 import org.executequery.databasemediators.spi.DefaultStatementExecutor;
 import org.executequery.databaseobjects.DatabaseColumn;
+import org.executequery.gui.browser.generatortestdata.engine.GeneratorColumn;
 
 public class FieldGenerator {
     MethodGeneratorPanel methodGeneratorPanel;
@@ -44,4 +45,8 @@ public class FieldGenerator {
     public Object getNextDataTestObject() {
         return getMethodGeneratorPanel().getTestDataObject();
     }
+
+    public GeneratorColumn createGeneratorColumn() {
+        return new GeneratorColumn(column.getName(), column.getTypeName(), methodGeneratorPanel.createGenerator());
+    }
 }
@@ -3,6 +3,7 @@ package org.executequery.gui.browser.generatortestdata;
 import org.executequery.databasemediators.spi.DefaultStatementExecutor;
 import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.gui.browser.GeneratorTestDataPanel;
+import org.executequery.gui.browser.generatortestdata.engine.ValueGenerator;
 import org.executequery.gui.browser.generatortestdata.methodspanels.*;
 import org.executequery.log.Log;
 import org.underworldlabs.swing.layouts.GridBagHelper;
@@ -113,6 +114,10 @@ public class MethodGeneratorPanel extends JPanel implements ActionListener {
         return methodPanel.getTestDataObject();
     }
 
+    public ValueGenerator createGenerator() {
+        return methodPanel.createGenerator();
+    }
+
     private String bundledString(String key) {
         return GeneratorTestDataPanel.bundles(key);
     }
@@ -0,0 +1,48 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Counter-based seeding of the value generators.
+ * <p>
+ * The random stream of a generated value is derived only from the run
+ * seed, the table, the column and the row index, so the same value is
+ * produced regardless of the number of threads, the writer generating
+ * the row or the partition of the rows between several processes.
+ */
+public final class CounterRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private CounterRandom() {
+    }
+
+    /**
+     * Returns the seed of the values of a column within a run.
+     */
+    public static long columnSeed(long seed, String tableName, String columnName) {
+        return mix64(mix64(seed ^ mix64(tableName.hashCode())) + columnName.hashCode());
+    }
+
+    /**
+     * Returns the random stream of the value of the specified row.
+     *
+     * @param columnSeed the seed returned by {@link #columnSeed(long, String, String)}
+     * @param row        the absolute row index
+     */
+    public static SplittableRandom forRow(long columnSeed, long row) {
+        return new SplittableRandom(mix64(columnSeed + row * GOLDEN_GAMMA));
+    }
+
+    /**
+     * SplitMix64 finalizer - a fast, well distributed 64 bit mixing function.
+     */
+    public static long mix64(long z) {
+
+        z += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
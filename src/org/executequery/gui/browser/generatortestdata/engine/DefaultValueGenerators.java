@@ -0,0 +1,207 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import org.executequery.databaseobjects.DatabaseColumn;
+import org.executequery.databaseobjects.T;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+
+/**
+ * Generators used for the columns that were not configured by the user,
+ * e.g. for the tables of a schema wide generation.
+ */
+public final class DefaultValueGenerators {
+
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private static final long MIN_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private static final long MAX_EPOCH_DAY = LocalDate.of(2030, 12, 31).toEpochDay();
+
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+
+    private DefaultValueGenerators() {
+    }
+
+    /**
+     * Returns a random generator for the type of the specified column.
+     */
+    public static ValueGenerator random(DatabaseColumn col) {
+
+        String type = col.getFormattedDataType();
+        if (type.contentEquals(T.SMALLINT))
+            return (random, row) -> (short) random.nextInt(Short.MIN_VALUE, Short.MAX_VALUE);
+        if (type.contentEquals(T.INTEGER))
+            return (random, row) -> random.nextInt();
+        if (type.contentEquals(T.BIGINT))
+            return (random, row) -> random.nextLong();
+        if (type.contentEquals(T.INT128))
+            return (random, row) -> BigInteger.valueOf(random.nextLong());
+        if (type.contentEquals(T.DOUBLE_PRECISION) || type.contentEquals(T.FLOAT))
+            return (random, row) -> random.nextDouble() * 1000;
+        if (type.startsWith(T.DECIMAL) || type.startsWith(T.NUMERIC) || type.startsWith(T.DECFLOAT)) {
+
+            int scale = Math.max(0, col.getColumnScale());
+            int digits = Math.max(1, Math.min(col.getColumnSize() - scale, 9));
+            long bound = (long) Math.pow(10, digits + scale);
+            return (random, row) -> BigDecimal.valueOf(random.nextLong(bound), scale);
+        }
+        if (type.contentEquals(T.DATE))
+            return (random, row) -> LocalDate.ofEpochDay(random.nextLong(MIN_EPOCH_DAY, MAX_EPOCH_DAY));
+        if (type.contentEquals(T.TIME))
+            return (random, row) -> LocalTime.ofNanoOfDay(random.nextLong(NANOS_PER_DAY) / 1_000_000 * 1_000_000);
+        if (type.contentEquals(T.TIME_WITH_TIMEZONE))
+            return (random, row) -> OffsetTime.of(LocalTime.ofSecondOfDay(random.nextInt(86_400)), ZoneOffset.UTC);
+        if (type.contentEquals(T.TIMESTAMP))
+            return (random, row) -> LocalDateTime.of(LocalDate.ofEpochDay(random.nextLong(MIN_EPOCH_DAY, MAX_EPOCH_DAY)),
+                    LocalTime.ofSecondOfDay(random.nextInt(86_400)));
+        if (type.contentEquals(T.TIMESTAMP_WITH_TIMEZONE))
+            return (random, row) -> OffsetDateTime.of(LocalDate.ofEpochDay(random.nextLong(MIN_EPOCH_DAY, MAX_EPOCH_DAY)),
+                    LocalTime.ofSecondOfDay(random.nextInt(86_400)), ZoneOffset.UTC);
+        if (type.contains(T.CHAR)) {
+
+            int maxLength = Math.max(1, Math.min(col.getColumnSize(), 32));
+            return (random, row) -> {
+                char[] chars = new char[1 + random.nextInt(maxLength)];
+                for (int i = 0; i < chars.length; i++)
+                    chars[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+                return new String(chars);
+            };
+        }
+        if (type.contains(T.BLOB)) {
+            return (random, row) -> {
+                byte[] bytes = new byte[1 + random.nextInt(64)];
+                for (int i = 0; i < bytes.length; i++)
+                    bytes[i] = (byte) random.nextInt(256);
+                return bytes;
+            };
+        }
+        if (type.contains(T.BOOLEAN))
+            return (random, row) -> random.nextBoolean();
+
+        return (random, row) -> null;
+    }
+
+    /**
+     * Returns a generator of unique key values - the row index shifted
+     * by the specified offset, e.g. the current maximum of the key.
+     */
+    public static ValueGenerator sequence(DatabaseColumn col, long offset) {
+
+        String type = col.getFormattedDataType();
+        if (type.contentEquals(T.SMALLINT))
+            return (random, row) -> (short) (offset + row);
+        if (type.contentEquals(T.INTEGER))
+            return (random, row) -> (int) (offset + row);
+        if (type.contentEquals(T.INT128))
+            return (random, row) -> BigInteger.valueOf(offset + row);
+        if (type.startsWith(T.DECIMAL) || type.startsWith(T.NUMERIC))
+            return (random, row) -> BigDecimal.valueOf(offset + row);
+        if (type.contains(T.CHAR))
+            return (random, row) -> Long.toString(offset + row, Character.MAX_RADIX).toUpperCase();
+        return (random, row) -> offset + row;
+    }
+
+    /**
+     * Returns a generator of unique key values following the current
+     * maximum of the key - numbers count up from the maximum, dates and
+     * timestamps step by a day and a second, strings append a fixed width
+     * counter to the maximum, so none of the generated keys exists yet.
+     *
+     * @param col     the key column
+     * @param max     the current maximum of the key, null for an empty table
+     * @param lastRow the index after the last generated row
+     * @return the generator, null if the type of the key is not supported
+     * or the generated values do not fit the column
+     */
+    public static ValueGenerator sequenceAfter(DatabaseColumn col, Object max, long lastRow) {
+
+        String type = col.getFormattedDataType();
+        if (type.contentEquals(T.SMALLINT) || type.contentEquals(T.INTEGER) || type.contentEquals(T.BIGINT)
+                || type.contentEquals(T.INT128) || type.startsWith(T.DECIMAL) || type.startsWith(T.NUMERIC)
+                || type.contentEquals(T.DOUBLE_PRECISION) || type.contentEquals(T.FLOAT) || type.startsWith(T.DECFLOAT)) {
+
+            BigDecimal offset = max != null
+                    ? new BigDecimal(max.toString()).setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE)
+                    : BigDecimal.ONE;
+
+            long limit = type.contentEquals(T.SMALLINT) ? Short.MAX_VALUE
+                    : type.contentEquals(T.INTEGER) ? Integer.MAX_VALUE
+                    : Long.MAX_VALUE;
+            if (offset.add(BigDecimal.valueOf(lastRow)).compareTo(BigDecimal.valueOf(limit)) > 0)
+                return null;
+
+            return sequence(col, offset.longValueExact());
+        }
+
+        if (type.contentEquals(T.DATE)) {
+
+            LocalDate first = max != null ? toLocalDate(max).plusDays(1) : LocalDate.ofEpochDay(MIN_EPOCH_DAY);
+            return (random, row) -> first.plusDays(row);
+        }
+
+        if (type.contentEquals(T.TIMESTAMP)) {
+
+            LocalDateTime first = max != null
+                    ? toLocalDateTime(max).withNano(0).plusSeconds(1)
+                    : LocalDate.ofEpochDay(MIN_EPOCH_DAY).atStartOfDay();
+            return (random, row) -> first.plusSeconds(row);
+        }
+
+        if (type.contains(T.CHAR) && !type.contains(T.BLOB)) {
+
+            // a string with the maximum as its prefix sorts after the maximum
+            String prefix = max != null ? max.toString().replaceAll(" +$", "") : "";
+            int width = Long.toString(Math.max(1, lastRow), Character.MAX_RADIX).length();
+            if (prefix.length() + width > col.getColumnSize())
+                return null;
+
+            return (random, row) -> {
+                String counter = Long.toString(row, Character.MAX_RADIX).toUpperCase();
+                StringBuilder sb = new StringBuilder(prefix.length() + width).append(prefix);
+                for (int i = counter.length(); i < width; i++)
+                    sb.append('0');
+                return sb.append(counter).toString();
+            };
+        }
+
+        return null;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+
+        if (value instanceof java.sql.Date)
+            return ((java.sql.Date) value).toLocalDate();
+        if (value instanceof java.util.Date)
+            return new java.sql.Date(((java.util.Date) value).getTime()).toLocalDate();
+        if (value instanceof LocalDateTime)
+            return ((LocalDateTime) value).toLocalDate();
+        return (LocalDate) value;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+
+        if (value instanceof java.sql.Timestamp)
+            return ((java.sql.Timestamp) value).toLocalDateTime();
+        if (value instanceof LocalDate)
+            return ((LocalDate) value).atStartOfDay();
+        return (LocalDateTime) value;
+    }
+
+    /**
+     * Returns true if values of the column are stored as integers.
+     */
+    public static boolean isIntegral(DatabaseColumn col) {
+
+        String type = col.getFormattedDataType();
+        return type.contentEquals(T.SMALLINT) || type.contentEquals(T.INTEGER) || type.contentEquals(T.BIGINT);
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+/**
+ * A column of the generated table together with its value generator.
+ */
+public class GeneratorColumn {
+
+    private final String name;
+
+    private final String typeName;
+
+    private final ValueGenerator generator;
+
+    public GeneratorColumn(String name, String typeName, ValueGenerator generator) {
+        this.name = name;
+        this.typeName = typeName;
+        this.generator = generator;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public ValueGenerator getGenerator() {
+        return generator;
+    }
+
+    public boolean isBlob() {
+        return typeName != null && typeName.contains("BLOB");
+    }
+
+}
@@ -0,0 +1,236 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compact in-memory pool of the key values inserted into a parent table.
+ * <p>
+ * Integral key columns are stored in primitive <code>long</code> arrays,
+ * other types as objects. All key columns of a row are appended together
+ * so the values of a composite key stay aligned by index. When the pool
+ * reaches its capacity it keeps a uniform sample of all added keys
+ * (reservoir sampling) instead of growing further.
+ * <p>
+ * The row index of every key is kept as well and the keys are ordered
+ * by it when the pool is sealed, so unless the capacity was exceeded
+ * the content of the pool does not depend on the order in which the
+ * writer threads inserted the rows.
+ */
+public class KeyPool {
+
+    /**
+     * the default maximum number of keys held by a pool
+     */
+    public static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private final String tableName;
+
+    private final List<String> columnNames;
+
+    private final int capacity;
+
+    private final long[][] longKeys;
+
+    private final Object[][] objectKeys;
+
+    private long[] rows;
+
+    private final SplittableRandom sampler = new SplittableRandom(0x5EED);
+
+    private int size;
+
+    private long addedCount;
+
+    private volatile boolean sealed;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param tableName   the parent table
+     * @param columnNames the key columns
+     * @param integral    flags of the key columns holding integral values
+     * @param capacity    the maximum number of keys held
+     */
+    public KeyPool(String tableName, List<String> columnNames, boolean[] integral, int capacity) {
+
+        this.tableName = tableName;
+        this.columnNames = columnNames;
+        this.capacity = Math.max(1, capacity);
+
+        int initialSize = Math.min(this.capacity, 1024);
+        rows = new long[initialSize];
+        longKeys = new long[columnNames.size()][];
+        objectKeys = new Object[columnNames.size()][];
+        for (int i = 0; i < columnNames.size(); i++) {
+
+            if (integral[i])
+                longKeys[i] = new long[initialSize];
+            else
+                objectKeys[i] = new Object[initialSize];
+        }
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Appends the key of one inserted row, values in the order of
+     * the key columns.
+     *
+     * @param row the index of the generated row
+     * @param key the key values
+     */
+    public synchronized void add(long row, Object[] key) {
+
+        int index;
+        addedCount++;
+        if (size < capacity) {
+
+            ensureCapacity(size + 1);
+            index = size++;
+
+        } else {
+
+            long position = sampler.nextLong(addedCount);
+            if (position >= capacity)
+                return;
+            index = (int) position;
+        }
+
+        rows[index] = row;
+        for (int i = 0; i < key.length; i++) {
+
+            if (longKeys[i] != null)
+                longKeys[i][index] = key[i] != null ? ((Number) key[i]).longValue() : 0;
+            else
+                objectKeys[i][index] = key[i];
+        }
+    }
+
+    /**
+     * Marks the pool as complete - no more keys are added and it may be
+     * read without locking by the generators of the child tables.
+     */
+    public synchronized void seal() {
+
+        if (!sealed)
+            sortByRow();
+        sealed = true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the value of the specified key column at the index.
+     * Valid only after the pool was sealed.
+     */
+    public Object getValue(int column, int index) {
+
+        if (!sealed)
+            throw new IllegalStateException("Key pool of table " + tableName + " is not complete");
+
+        if (longKeys[column] != null)
+            return longKeys[column][index];
+        return objectKeys[column][index];
+    }
+
+    public int indexOfColumn(String columnName) {
+        return columnNames.indexOf(columnName);
+    }
+
+    private void sortByRow() {
+
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++)
+            sorted = rows[i - 1] <= rows[i];
+        if (sorted)
+            return;
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        order = mergeSort(order, new int[size]);
+
+        rows = permute(rows, order);
+        for (int i = 0; i < columnNames.size(); i++) {
+
+            if (longKeys[i] != null) {
+                longKeys[i] = permute(longKeys[i], order);
+
+            } else {
+
+                Object[] values = new Object[objectKeys[i].length];
+                for (int k = 0; k < size; k++)
+                    values[k] = objectKeys[i][order[k]];
+                objectKeys[i] = values;
+            }
+        }
+    }
+
+    /**
+     * Bottom-up merge sort of the indexes by their rows, avoids boxing
+     * of the possibly millions of indexes.
+     */
+    private int[] mergeSort(int[] order, int[] buffer) {
+
+        for (int width = 1; width < size; width *= 2) {
+
+            for (int from = 0; from < size; from += 2 * width) {
+
+                int middle = Math.min(from + width, size);
+                int to = Math.min(from + 2 * width, size);
+                int left = from, right = middle, k = from;
+                while (left < middle && right < to)
+                    buffer[k++] = rows[order[left]] <= rows[order[right]] ? order[left++] : order[right++];
+                while (left < middle)
+                    buffer[k++] = order[left++];
+                while (right < to)
+                    buffer[k++] = order[right++];
+            }
+
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    private long[] permute(long[] values, int[] order) {
+
+        long[] result = new long[values.length];
+        for (int k = 0; k < size; k++)
+            result[k] = values[order[k]];
+        return result;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+
+        int length = rows.length;
+        if (minCapacity <= length)
+            return;
+
+        int newLength = (int) Math.min(capacity, Math.max(minCapacity, length * 2L));
+        rows = Arrays.copyOf(rows, newLength);
+        for (int i = 0; i < columnNames.size(); i++) {
+
+            if (longKeys[i] != null)
+                longKeys[i] = Arrays.copyOf(longKeys[i], newLength);
+            else
+                objectKeys[i] = Arrays.copyOf(objectKeys[i], newLength);
+        }
+    }
+
+}
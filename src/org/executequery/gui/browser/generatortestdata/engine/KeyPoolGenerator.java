@@ -0,0 +1,44 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates foreign key values by picking keys from the pool of the
+ * referenced table.
+ * <p>
+ * The picked index depends only on the row and the foreign key, so all
+ * columns of a composite foreign key pick the same parent row.
+ */
+public class KeyPoolGenerator implements ValueGenerator {
+
+    private final KeyPool pool;
+
+    private final int column;
+
+    private final long salt;
+
+    private final int size;
+
+    /**
+     * Creates a generator of the values of one key column.
+     *
+     * @param pool   the sealed pool of the referenced table
+     * @param column the index of the referenced column in the pool
+     * @param salt   identifies the foreign key, the same for all its columns
+     */
+    public KeyPoolGenerator(KeyPool pool, int column, long salt) {
+        this.pool = pool;
+        this.column = column;
+        this.salt = salt;
+        this.size = pool.size();
+    }
+
+    @Override
+    public Object generate(SplittableRandom random, long row) {
+
+        if (size == 0)
+            return null;
+        return pool.getValue(column, (int) Long.remainderUnsigned(CounterRandom.mix64(row ^ salt), size));
+    }
+
+}
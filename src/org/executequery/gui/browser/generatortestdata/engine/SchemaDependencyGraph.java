@@ -0,0 +1,191 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import org.executequery.databasemediators.spi.StatementExecutor;
+import org.executequery.log.Log;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Primary and foreign keys of the user tables of a database, loaded
+ * with two set-based queries, and the order in which the tables have
+ * to be filled so that parents are generated before their children.
+ */
+public class SchemaDependencyGraph {
+
+    private static final String PRIMARY_KEYS_QUERY =
+            "select trim(rc.rdb$relation_name), trim(s.rdb$field_name)\n" +
+                    "from rdb$relation_constraints rc\n" +
+                    "join rdb$index_segments s on s.rdb$index_name = rc.rdb$index_name\n" +
+                    "where rc.rdb$constraint_type = 'PRIMARY KEY'\n" +
+                    "order by rc.rdb$relation_name, s.rdb$field_position";
+
+    private static final String FOREIGN_KEYS_QUERY =
+            "select trim(rc.rdb$constraint_name), trim(rc.rdb$relation_name), trim(s.rdb$field_name),\n" +
+                    "trim(prc.rdb$relation_name), trim(ps.rdb$field_name)\n" +
+                    "from rdb$relation_constraints rc\n" +
+                    "join rdb$ref_constraints ref on ref.rdb$constraint_name = rc.rdb$constraint_name\n" +
+                    "join rdb$relation_constraints prc on prc.rdb$constraint_name = ref.rdb$const_name_uq\n" +
+                    "join rdb$index_segments s on s.rdb$index_name = rc.rdb$index_name\n" +
+                    "join rdb$index_segments ps on ps.rdb$index_name = prc.rdb$index_name\n" +
+                    "and ps.rdb$field_position = s.rdb$field_position\n" +
+                    "where rc.rdb$constraint_type = 'FOREIGN KEY'\n" +
+                    "order by rc.rdb$constraint_name, s.rdb$field_position";
+
+    private final Map<String, List<String>> primaryKeys = new HashMap<>();
+
+    private final Map<String, List<ForeignKey>> foreignKeys = new HashMap<>();
+
+    private final Set<String> cyclicTables = new LinkedHashSet<>();
+
+    /**
+     * Loads the keys of the tables of the specified connection.
+     */
+    public void load(StatementExecutor executor) throws SQLException {
+
+        primaryKeys.clear();
+        foreignKeys.clear();
+        try {
+
+            ResultSet rs = executor.getResultSet(PRIMARY_KEYS_QUERY).getResultSet();
+            while (rs.next())
+                primaryKeys.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(2));
+            rs.close();
+
+            Map<String, ForeignKey> byName = new LinkedHashMap<>();
+            rs = executor.getResultSet(FOREIGN_KEYS_QUERY).getResultSet();
+            while (rs.next()) {
+
+                ForeignKey key = byName.get(rs.getString(1));
+                if (key == null) {
+
+                    key = new ForeignKey(rs.getString(1), rs.getString(2), rs.getString(4));
+                    byName.put(key.getName(), key);
+                    foreignKeys.computeIfAbsent(key.getTableName(), k -> new ArrayList<>()).add(key);
+                }
+                key.columns.add(rs.getString(3));
+                key.referencedColumns.add(rs.getString(5));
+            }
+            rs.close();
+
+        } finally {
+
+            executor.releaseResources();
+        }
+    }
+
+    public List<String> getPrimaryKey(String tableName) {
+        return primaryKeys.getOrDefault(tableName, Collections.emptyList());
+    }
+
+    public List<ForeignKey> getForeignKeys(String tableName) {
+        return foreignKeys.getOrDefault(tableName, Collections.emptyList());
+    }
+
+    /**
+     * Returns the tables of a cycle of foreign keys found by the last
+     * call of {@link #sort(Collection)}.
+     */
+    public Set<String> getCyclicTables() {
+        return cyclicTables;
+    }
+
+    /**
+     * Orders the specified tables so that every table follows the tables
+     * it references (Kahn's algorithm). Self references are ignored, tables
+     * of a reference cycle are appended in their original order.
+     */
+    public List<String> sort(Collection<String> tableNames) {
+
+        Set<String> tables = new LinkedHashSet<>(tableNames);
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> children = new HashMap<>();
+        for (String table : tables) {
+
+            Set<String> parents = new HashSet<>();
+            for (ForeignKey key : getForeignKeys(table))
+                if (tables.contains(key.getReferencedTableName()) && !key.isSelfReference())
+                    parents.add(key.getReferencedTableName());
+
+            inDegree.put(table, parents.size());
+            for (String parent : parents)
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(table);
+        }
+
+        Deque<String> ready = new ArrayDeque<>();
+        for (String table : tables)
+            if (inDegree.get(table) == 0)
+                ready.add(table);
+
+        List<String> order = new ArrayList<>(tables.size());
+        while (!ready.isEmpty()) {
+
+            String table = ready.poll();
+            order.add(table);
+            for (String child : children.getOrDefault(table, Collections.emptyList()))
+                if (inDegree.merge(child, -1, Integer::sum) == 0)
+                    ready.add(child);
+        }
+
+        cyclicTables.clear();
+        if (order.size() < tables.size()) {
+
+            for (String table : tables)
+                if (!order.contains(table))
+                    cyclicTables.add(table);
+            Log.warning("Foreign key cycle between tables " + cyclicTables);
+            order.addAll(cyclicTables);
+        }
+
+        return order;
+    }
+
+    /**
+     * A foreign key, possibly over several columns.
+     */
+    public static class ForeignKey {
+
+        private final String name;
+
+        private final String tableName;
+
+        private final String referencedTableName;
+
+        private final List<String> columns = new ArrayList<>();
+
+        private final List<String> referencedColumns = new ArrayList<>();
+
+        ForeignKey(String name, String tableName, String referencedTableName) {
+            this.name = name;
+            this.tableName = tableName;
+            this.referencedTableName = referencedTableName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getReferencedTableName() {
+            return referencedTableName;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public List<String> getReferencedColumns() {
+            return referencedColumns;
+        }
+
+        public boolean isSelfReference() {
+            return tableName.equals(referencedTableName);
+        }
+
+    }
+
+}
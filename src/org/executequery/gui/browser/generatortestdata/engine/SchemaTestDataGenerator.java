@@ -0,0 +1,462 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.databasemediators.spi.DefaultStatementExecutor;
+import org.executequery.databaseobjects.DatabaseColumn;
+import org.executequery.databaseobjects.DatabaseHost;
+import org.executequery.sql.SqlStatementResult;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Generates consistent test data for several tables of a database.
+ * <p>
+ * Tables are filled in foreign key dependency order. The keys of every
+ * inserted parent row are collected in a {@link KeyPool} and the foreign
+ * key columns of the child tables pick their values from these pools, so
+ * no referenced table is queried during the generation. Required foreign
+ * keys to tables that are not generated take the existing keys of the
+ * parent table, a table whose required foreign key has no parent keys at
+ * all is skipped. Single column primary keys are generated as a sequence
+ * following the current maximum of the key.
+ */
+public class SchemaTestDataGenerator {
+
+    private final DatabaseConnection databaseConnection;
+
+    private final DatabaseHost host;
+
+    private final Map<String, Long> rowCounts = new LinkedHashMap<>();
+
+    private final Map<String, List<GeneratorColumn>> configuredColumns = new HashMap<>();
+
+    private final Map<String, KeyPool> keyPools = new HashMap<>();
+
+    private final SchemaDependencyGraph graph = new SchemaDependencyGraph();
+
+    private final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+
+    private int threadCount = 1;
+
+    private int batchSize = 100;
+
+    private int commitAfter = 500;
+
+    private boolean useFBBatch;
+
+    private boolean stopOnError;
+
+    private int keyPoolCapacity = KeyPool.DEFAULT_CAPACITY;
+
+    private long seed = System.nanoTime();
+
+    private boolean deterministic;
+
+    private long firstRow;
+
+    private volatile TestDataGenerator current;
+
+    private volatile String currentTable;
+
+    private volatile int currentTableIndex;
+
+    private volatile boolean stopped;
+
+    private long finishedInserted;
+
+    private long finishedFailed;
+
+    private long startTime;
+
+    public SchemaTestDataGenerator(DatabaseConnection databaseConnection, DatabaseHost host) {
+        this.databaseConnection = databaseConnection;
+        this.host = host;
+    }
+
+    /**
+     * Adds a table to be filled with the specified number of rows.
+     */
+    public void addTable(String tableName, long rowCount) {
+        rowCounts.put(tableName, rowCount);
+    }
+
+    /**
+     * Sets the user configured generators of a table, the other columns
+     * of the table are generated by the defaults.
+     */
+    public void setConfiguredColumns(String tableName, List<GeneratorColumn> columns) {
+        configuredColumns.put(tableName, columns);
+    }
+
+    /**
+     * Generates the data of all added tables, blocking until finished.
+     */
+    public void execute() throws SQLException, InterruptedException {
+
+        stopped = false;
+        startTime = System.currentTimeMillis();
+        keyPools.clear();
+
+        DefaultStatementExecutor executor = new DefaultStatementExecutor(databaseConnection, true);
+        graph.load(executor);
+        List<String> order = graph.sort(rowCounts.keySet());
+        if (!graph.getCyclicTables().isEmpty())
+            messages.add("Foreign key cycle between tables " + graph.getCyclicTables()
+                    + ", references inside the cycle are not resolved");
+
+        Map<String, Set<String>> referencedColumns = collectReferencedColumns(order);
+
+        for (int i = 0; i < order.size() && !stopped; i++) {
+
+            String tableName = order.get(i);
+            currentTable = tableName;
+            currentTableIndex = i;
+
+            List<DatabaseColumn> tableColumns = new ArrayList<>();
+            for (DatabaseColumn column : host.getColumns(null, null, tableName))
+                if (!column.isGenerated())
+                    tableColumns.add(column);
+
+            List<GeneratorColumn> columns = createColumns(tableName, tableColumns, executor);
+            if (columns == null)
+                continue;
+
+            TestDataGenerator generator = new TestDataGenerator(databaseConnection, tableName, columns);
+            generator.setRowCount(rowCounts.get(tableName));
+            generator.setThreadCount(threadCount);
+            generator.setBatchSize(batchSize);
+            generator.setCommitAfter(commitAfter);
+            generator.setUseFBBatch(useFBBatch);
+            generator.setStopOnError(stopOnError);
+            generator.setSeed(deterministic ? seed : seed + i);
+            generator.setDeterministic(deterministic);
+            generator.setFirstRow(firstRow);
+
+            KeyPool pool = null;
+            Set<String> keyColumns = referencedColumns.get(tableName);
+            if (keyColumns != null) {
+
+                // identity and computed key columns are not generated, their values are unknown
+                List<String> names = new ArrayList<>();
+                List<Boolean> integral = new ArrayList<>();
+                for (DatabaseColumn column : tableColumns) {
+                    if (keyColumns.contains(column.getName())) {
+                        names.add(column.getName());
+                        integral.add(DefaultValueGenerators.isIntegral(column));
+                    }
+                }
+
+                if (!names.isEmpty()) {
+
+                    boolean[] flags = new boolean[names.size()];
+                    for (int k = 0; k < flags.length; k++)
+                        flags[k] = integral.get(k);
+
+                    pool = new KeyPool(tableName, names, flags, keyPoolCapacity);
+                    generator.setKeyPool(pool);
+                }
+            }
+
+            messages.add("Generating " + rowCounts.get(tableName) + " rows for table " + tableName);
+            current = generator;
+            generator.execute();
+
+            String message;
+            while ((message = generator.pollMessage()) != null)
+                messages.add(message);
+
+            if (pool != null) {
+                pool.seal();
+                keyPools.put(tableName, pool);
+            }
+
+            finishedInserted += generator.getInsertedCount();
+            finishedFailed += generator.getFailedCount();
+            if (generator.isStopped())
+                stopped = true;
+        }
+        current = null;
+    }
+
+    private Map<String, Set<String>> collectReferencedColumns(List<String> tables) {
+
+        Set<String> generated = new HashSet<>(tables);
+        Map<String, Set<String>> referencedColumns = new HashMap<>();
+        for (String table : tables) {
+            for (SchemaDependencyGraph.ForeignKey key : graph.getForeignKeys(table)) {
+                if (generated.contains(key.getReferencedTableName()) && !key.isSelfReference())
+                    referencedColumns.computeIfAbsent(key.getReferencedTableName(), k -> new LinkedHashSet<>())
+                            .addAll(key.getReferencedColumns());
+            }
+        }
+        return referencedColumns;
+    }
+
+    /**
+     * Returns the generators of the columns of a table, null if the table
+     * can not be generated because a required foreign key has no parent keys.
+     */
+    private List<GeneratorColumn> createColumns(String tableName, List<DatabaseColumn> tableColumns,
+                                                DefaultStatementExecutor executor) throws SQLException {
+
+        Map<String, GeneratorColumn> configured = new HashMap<>();
+        for (GeneratorColumn column : configuredColumns.getOrDefault(tableName, Collections.emptyList()))
+            configured.put(column.getName(), column);
+
+        Map<String, ValueGenerator> foreignKeyGenerators = new HashMap<>();
+        for (SchemaDependencyGraph.ForeignKey key : graph.getForeignKeys(tableName)) {
+
+            KeyPool pool = keyPools.get(key.getReferencedTableName());
+            if (pool == null || pool.isEmpty() || !pool.getColumnNames().containsAll(key.getReferencedColumns())) {
+
+                if (!isRequired(key, tableColumns, configured))
+                    continue;
+
+                // self reference, parent not generated or skipped - take the keys the parent already has
+                pool = loadExistingKeys(key, executor);
+                if (pool.isEmpty()) {
+
+                    messages.add("Skipping table " + tableName + ": required foreign key " + key.getName()
+                            + " references table " + key.getReferencedTableName() + " which has no keys");
+                    return null;
+                }
+            }
+
+            long salt = CounterRandom.mix64(seed ^ key.getName().hashCode());
+            for (int c = 0; c < key.getColumns().size(); c++) {
+
+                int poolColumn = pool.indexOfColumn(key.getReferencedColumns().get(c));
+                foreignKeyGenerators.put(key.getColumns().get(c), new KeyPoolGenerator(pool, poolColumn, salt));
+            }
+        }
+
+        List<String> primaryKey = graph.getPrimaryKey(tableName);
+        List<GeneratorColumn> columns = new ArrayList<>();
+        for (DatabaseColumn column : tableColumns) {
+
+            String name = column.getName();
+            ValueGenerator generator;
+            if (configured.containsKey(name)) {
+
+                columns.add(configured.get(name));
+                continue;
+
+            } else if (foreignKeyGenerators.containsKey(name)) {
+
+                generator = foreignKeyGenerators.get(name);
+
+            } else if (isForeignKeyColumn(tableName, name) && !column.isRequired()) {
+
+                // self reference or parent without generated rows
+                generator = (random, row) -> null;
+
+            } else if (primaryKey.size() == 1 && primaryKey.contains(name)) {
+
+                long lastRow = firstRow + rowCounts.get(tableName);
+                generator = DefaultValueGenerators.sequenceAfter(column, maxKeyValue(tableName, column, executor), lastRow);
+                if (generator == null) {
+
+                    messages.add("Keys of column " + name + " of table " + tableName + " of type "
+                            + column.getFormattedDataType() + " can not follow the current maximum, random values are used");
+                    generator = DefaultValueGenerators.random(column);
+                }
+
+            } else {
+
+                generator = DefaultValueGenerators.random(column);
+            }
+
+            columns.add(new GeneratorColumn(name, column.getTypeName(), generator));
+        }
+        return columns;
+    }
+
+    private boolean isForeignKeyColumn(String tableName, String columnName) {
+
+        for (SchemaDependencyGraph.ForeignKey key : graph.getForeignKeys(tableName))
+            if (key.getColumns().contains(columnName))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns true if the foreign key has a required column the user
+     * did not configure a generator for.
+     */
+    private boolean isRequired(SchemaDependencyGraph.ForeignKey key, List<DatabaseColumn> tableColumns,
+                               Map<String, GeneratorColumn> configured) {
+
+        for (DatabaseColumn column : tableColumns)
+            if (column.isRequired() && key.getColumns().contains(column.getName())
+                    && !configured.containsKey(column.getName()))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the current maximum of the key column, null if the table is empty.
+     */
+    private Object maxKeyValue(String tableName, DatabaseColumn column, DefaultStatementExecutor executor)
+            throws SQLException {
+
+        String query = "select max(\"" + column.getName() + "\") from \"" + tableName + "\"";
+        try {
+
+            SqlStatementResult result = executor.getResultSet(query);
+            if (result.isException())
+                throw result.getSqlException();
+
+            ResultSet rs = result.getResultSet();
+            return rs != null && rs.next() ? rs.getObject(1) : null;
+
+        } finally {
+
+            executor.releaseResources();
+        }
+    }
+
+    /**
+     * Loads up to the key pool capacity of the existing keys of the table
+     * referenced by the foreign key.
+     */
+    private KeyPool loadExistingKeys(SchemaDependencyGraph.ForeignKey key, DefaultStatementExecutor executor)
+            throws SQLException {
+
+        String tableName = key.getReferencedTableName();
+        List<String> names = key.getReferencedColumns();
+
+        boolean[] integral = new boolean[names.size()];
+        for (DatabaseColumn column : host.getColumns(null, null, tableName))
+            if (names.contains(column.getName()))
+                integral[names.indexOf(column.getName())] = DefaultValueGenerators.isIntegral(column);
+
+        StringBuilder query = new StringBuilder("select first ").append(keyPoolCapacity).append(" ");
+        StringBuilder condition = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+
+            query.append(i > 0 ? ", " : "").append('"').append(names.get(i)).append('"');
+            condition.append(i > 0 ? " and " : " where ").append('"').append(names.get(i)).append("\" is not null");
+        }
+        query.append(" from \"").append(tableName).append('"').append(condition);
+
+        KeyPool pool = new KeyPool(tableName, names, integral, keyPoolCapacity);
+        try {
+
+            SqlStatementResult result = executor.getResultSet(query.toString());
+            if (result.isException())
+                throw result.getSqlException();
+
+            ResultSet rs = result.getResultSet();
+            for (long row = 0; rs != null && rs.next(); row++) {
+
+                Object[] values = new Object[names.size()];
+                for (int i = 0; i < values.length; i++)
+                    values[i] = rs.getObject(i + 1);
+                pool.add(row, values);
+            }
+
+        } finally {
+
+            executor.releaseResources();
+        }
+
+        pool.seal();
+        return pool;
+    }
+
+    /**
+     * Stops the generation after the current batch.
+     */
+    public void stop() {
+
+        stopped = true;
+        TestDataGenerator generator = current;
+        if (generator != null)
+            generator.stop();
+    }
+
+    public String getCurrentTable() {
+        return currentTable;
+    }
+
+    public int getCurrentTableIndex() {
+        return currentTableIndex;
+    }
+
+    public int getTableCount() {
+        return rowCounts.size();
+    }
+
+    public long getInsertedCount() {
+        TestDataGenerator generator = current;
+        return finishedInserted + (generator != null ? generator.getInsertedCount() : 0);
+    }
+
+    public long getFailedCount() {
+        TestDataGenerator generator = current;
+        return finishedFailed + (generator != null ? generator.getFailedCount() : 0);
+    }
+
+    public long getElapsedTime() {
+        return startTime != 0 ? System.currentTimeMillis() - startTime : 0;
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedTime();
+        return elapsed > 0 ? (getInsertedCount() + getFailedCount()) * 1000d / elapsed : 0;
+    }
+
+    /**
+     * Retrieves and removes the next log message, null if there is none.
+     */
+    public String pollMessage() {
+
+        TestDataGenerator generator = current;
+        if (generator != null) {
+            String message = generator.pollMessage();
+            if (message != null)
+                return message;
+        }
+        return messages.poll();
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setCommitAfter(int commitAfter) {
+        this.commitAfter = commitAfter;
+    }
+
+    public void setUseFBBatch(boolean useFBBatch) {
+        this.useFBBatch = useFBBatch;
+    }
+
+    public void setStopOnError(boolean stopOnError) {
+        this.stopOnError = stopOnError;
+    }
+
+    public void setKeyPoolCapacity(int keyPoolCapacity) {
+        this.keyPoolCapacity = keyPoolCapacity;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public void setFirstRow(long firstRow) {
+        this.firstRow = firstRow;
+    }
+
+}
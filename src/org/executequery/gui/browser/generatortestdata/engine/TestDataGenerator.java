@@ -0,0 +1,536 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import biz.redsoft.IFBBatch;
+import biz.redsoft.IFBBatchCompletionState;
+import biz.redsoft.IFBDatabaseConnection;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.datasource.ConnectionManager;
+import org.executequery.log.Log;
+import org.underworldlabs.jdbc.DataSourceException;
+import org.underworldlabs.util.DynamicLibraryLoader;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless test data generation engine.
+ * <p>
+ * The requested rows are split into contiguous ranges processed by
+ * several writer threads. Every writer owns its own connection, random
+ * stream and batch (Firebird OO API batch when available, JDBC batch
+ * otherwise) and commits independently. Counters are updated atomically
+ * so the UI may poll them at any time.
+ * <p>
+ * In the deterministic mode every value is generated from a random stream
+ * derived from the seed, the table, the column and the absolute row index
+ * (see {@link CounterRandom}), so a run may be repeated or split between
+ * several processes with {@link #setFirstRow(long)} and still produce
+ * the same data.
+ */
+public class TestDataGenerator {
+
+    private final DatabaseConnection databaseConnection;
+
+    private final String tableName;
+
+    private final List<GeneratorColumn> columns;
+
+    private long rowCount = 100;
+
+    private int threadCount = 1;
+
+    private int batchSize = 100;
+
+    private int commitAfter = 500;
+
+    private boolean useFBBatch;
+
+    private boolean printBatchState;
+
+    private boolean stopOnError;
+
+    private long seed = System.nanoTime();
+
+    private boolean deterministic;
+
+    private long firstRow;
+
+    private KeyPool keyPool;
+
+    private int[] keyPoolColumns;
+
+    private final AtomicLong insertedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean stopped;
+
+    private volatile long startTime;
+
+    private volatile long endTime;
+
+    public TestDataGenerator(DatabaseConnection databaseConnection, String tableName, List<GeneratorColumn> columns) {
+        this.databaseConnection = databaseConnection;
+        this.tableName = tableName;
+        this.columns = columns;
+    }
+
+    /**
+     * Returns the insert statement executed by the writers.
+     */
+    public String getInsertStatement() {
+
+        StringBuilder sql = new StringBuilder("INSERT INTO \"").append(tableName).append("\" (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+
+            if (i > 0) {
+                sql.append(",");
+                values.append(",");
+            }
+            sql.append(" \"").append(columns.get(i).getName()).append("\"\n");
+            values.append("? ");
+        }
+        return sql.append(") VALUES (").append(values).append(");").toString();
+    }
+
+    /**
+     * Generates the rows, blocking until all writers are finished
+     * or the generation was stopped.
+     */
+    public void execute() throws InterruptedException {
+
+        if (columns.isEmpty())
+            throw new DataSourceException("no columns selected for generation");
+
+        for (GeneratorColumn column : columns) {
+            try {
+                column.getGenerator().prepare();
+            } catch (SQLException e) {
+                throw new DataSourceException("error loading the values of column " + column.getName(), e);
+            }
+        }
+
+        insertedCount.set(0);
+        failedCount.set(0);
+        stopped = false;
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+
+        int threads = (int) Math.max(1, Math.min(threadCount, rowCount));
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private int number;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "TestDataGenerator-" + tableName + "-" + (++number));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+
+            SplittableRandom root = new SplittableRandom(seed);
+            List<Future<?>> futures = new ArrayList<>();
+            long rangeSize = rowCount / threads;
+            for (int i = 0; i < threads; i++) {
+
+                long from = firstRow + i * rangeSize;
+                long to = i == threads - 1 ? firstRow + rowCount : from + rangeSize;
+                futures.add(executorService.submit(new Writer(from, to, root.split())));
+            }
+
+            for (Future<?> future : futures) {
+
+                try {
+
+                    future.get();
+
+                } catch (ExecutionException e) {
+
+                    stopped = true;
+                    Throwable cause = e.getCause();
+                    Log.error("Test data generation error", cause);
+                    messages.add("generation error: " + cause.getMessage());
+                }
+            }
+
+        } catch (InterruptedException e) {
+
+            stopped = true;
+            throw e;
+
+        } finally {
+
+            executorService.shutdownNow();
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Stops all writers after their current batch.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public long getInsertedCount() {
+        return insertedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return insertedCount.get() + failedCount.get();
+    }
+
+    /**
+     * Returns the generation time in milliseconds.
+     */
+    public long getElapsedTime() {
+
+        if (startTime == 0)
+            return 0;
+        return (endTime != 0 ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    public double getRowsPerSecond() {
+
+        long elapsed = getElapsedTime();
+        return elapsed > 0 ? getProcessedCount() * 1000d / elapsed : 0;
+    }
+
+    /**
+     * Retrieves and removes the next log message of the writers,
+     * null if there is none.
+     */
+    public String pollMessage() {
+        return messages.poll();
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void setCommitAfter(int commitAfter) {
+        this.commitAfter = Math.max(1, commitAfter);
+    }
+
+    public void setUseFBBatch(boolean useFBBatch) {
+        this.useFBBatch = useFBBatch;
+    }
+
+    public void setPrintBatchState(boolean printBatchState) {
+        this.printBatchState = printBatchState;
+    }
+
+    public void setStopOnError(boolean stopOnError) {
+        this.stopOnError = stopOnError;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets whether the values depend only on the seed, the column and
+     * the row index instead of the random stream of the writer.
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Sets the absolute index of the first generated row, used to split
+     * a deterministic run between several processes.
+     */
+    public void setFirstRow(long firstRow) {
+        this.firstRow = Math.max(0, firstRow);
+    }
+
+    /**
+     * Sets the pool receiving the keys of the successfully inserted rows,
+     * used to generate the foreign keys of the child tables.
+     */
+    public void setKeyPool(KeyPool keyPool) {
+
+        int[] indexes = new int[keyPool.getColumnNames().size()];
+        for (int i = 0; i < indexes.length; i++) {
+
+            indexes[i] = -1;
+            for (int g = 0; g < columns.size(); g++)
+                if (columns.get(g).getName().equals(keyPool.getColumnNames().get(i)))
+                    indexes[i] = g;
+
+            if (indexes[i] < 0)
+                throw new DataSourceException("Key column " + keyPool.getColumnNames().get(i)
+                        + " is not generated for table " + tableName);
+        }
+        this.keyPool = keyPool;
+        this.keyPoolColumns = indexes;
+    }
+
+    private Connection openConnection() throws SQLException {
+
+        DataSource dataSource = ConnectionManager.getDataSource(databaseConnection);
+        if (dataSource == null)
+            throw new SQLException("Connection " + databaseConnection.getName() + " is not open");
+        return dataSource.getConnection();
+    }
+
+    private void batchFailed(long fromRow, int size, String message) {
+
+        failedCount.addAndGet(size);
+        messages.add(message + "\nfailed rows " + fromRow + " - " + (fromRow + size - 1));
+        if (stopOnError)
+            stopped = true;
+    }
+
+    private class Writer implements Callable<Void> {
+
+        private final long fromRow;
+
+        private final long toRow;
+
+        private final SplittableRandom random;
+
+        private final long[] columnSeeds;
+
+        private final Object[][] batchKeys;
+
+        Writer(long fromRow, long toRow, SplittableRandom random) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.random = random;
+            batchKeys = keyPool != null ? new Object[batchSize][] : null;
+
+            if (deterministic) {
+                columnSeeds = new long[columns.size()];
+                for (int i = 0; i < columnSeeds.length; i++)
+                    columnSeeds[i] = CounterRandom.columnSeed(seed, tableName, columns.get(i).getName());
+            } else
+                columnSeeds = null;
+        }
+
+        private Object generate(int column, int batchRow, long row) {
+
+            SplittableRandom rowRandom = columnSeeds != null ? CounterRandom.forRow(columnSeeds[column], row) : random;
+            Object value = columns.get(column).getGenerator().generate(rowRandom, row);
+            if (batchKeys != null) {
+
+                for (int i = 0; i < keyPoolColumns.length; i++) {
+                    if (keyPoolColumns[i] == column) {
+                        if (batchKeys[batchRow] == null)
+                            batchKeys[batchRow] = new Object[keyPoolColumns.length];
+                        batchKeys[batchRow][i] = value;
+                    }
+                }
+            }
+            return value;
+        }
+
+        private void recordKeys(long batchStart, int count) {
+
+            if (batchKeys != null) {
+                for (int i = 0; i < count; i++) {
+                    keyPool.add(batchStart + i, batchKeys[i]);
+                    batchKeys[i] = null;
+                }
+            }
+        }
+
+        /**
+         * Records the per-row results of a partially executed batch:
+         * rows with an update count are counted as inserted and their keys
+         * kept, failed rows and rows missing from the counts (not executed
+         * after the first error) are reported as failed.
+         */
+        private void recordResults(long batchStart, int size, int[] counts, String message) {
+
+            int failedFrom = -1;
+            for (int i = 0; i <= size; i++) {
+
+                boolean failed = i < size && (counts == null || i >= counts.length || counts[i] == Statement.EXECUTE_FAILED);
+                if (failed) {
+                    if (failedFrom < 0)
+                        failedFrom = i;
+
+                } else {
+
+                    if (failedFrom >= 0) {
+                        batchFailed(batchStart + failedFrom, i - failedFrom, message);
+                        failedFrom = -1;
+                    }
+                    if (i < size) {
+                        insertedCount.incrementAndGet();
+                        if (batchKeys != null)
+                            keyPool.add(batchStart + i, batchKeys[i]);
+                    }
+                }
+
+                if (batchKeys != null && i < size)
+                    batchKeys[i] = null;
+            }
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            Connection connection = openConnection();
+            try {
+
+                connection.setAutoCommit(false);
+                Connection realConnection = connection.unwrap(Connection.class);
+                if (useFBBatch && realConnection.getClass().getName().contains("FBConnection"))
+                    writeFBBatches(realConnection);
+                else
+                    writeJdbcBatches(connection);
+
+            } finally {
+
+                connection.close();
+            }
+            return null;
+        }
+
+        private void writeJdbcBatches(Connection connection) throws SQLException {
+
+            try (PreparedStatement statement = connection.prepareStatement(getInsertStatement())) {
+
+                long uncommitted = 0;
+                long row = fromRow;
+                while (row < toRow && !stopped) {
+
+                    long batchStart = row;
+                    int size = (int) Math.min(batchSize, toRow - row);
+                    for (int i = 0; i < size; i++, row++) {
+
+                        for (int g = 0; g < columns.size(); g++)
+                            statement.setObject(g + 1, generate(g, i, row));
+                        statement.addBatch();
+                    }
+
+                    try {
+
+                        statement.executeBatch();
+                        insertedCount.addAndGet(size);
+                        recordKeys(batchStart, size);
+
+                    } catch (BatchUpdateException e) {
+
+                        recordResults(batchStart, size, e.getUpdateCounts(), e.getMessage());
+                        statement.clearBatch();
+
+                    } catch (SQLException e) {
+
+                        batchFailed(batchStart, size, e.getMessage());
+                        statement.clearBatch();
+                    }
+
+                    uncommitted += size;
+                    if (uncommitted >= commitAfter) {
+                        connection.commit();
+                        uncommitted = 0;
+                    }
+                }
+                connection.commit();
+            }
+        }
+
+        private void writeFBBatches(Connection fbConnection) throws Exception {
+
+            IFBDatabaseConnection db = (IFBDatabaseConnection) DynamicLibraryLoader.loadingObjectFromClassLoader(fbConnection, "FBDatabaseConnectionImpl4");
+            db.setConnection(fbConnection);
+            IFBBatch batch = db.createBatch(getInsertStatement());
+
+            long uncommitted = 0;
+            long row = fromRow;
+            while (row < toRow && !stopped) {
+
+                long batchStart = row;
+                int size = (int) Math.min(batchSize, toRow - row);
+                for (int i = 0; i < size; i++, row++) {
+
+                    for (int g = 0; g < columns.size(); g++) {
+
+                        GeneratorColumn column = columns.get(g);
+                        Object param = generate(g, i, row);
+                        if (column.isBlob()) {
+                            if (param == null || ((byte[]) param).length == 0)
+                                param = new byte[1];
+                            batch.addBlob(g + 1, (byte[]) param);
+                        } else {
+                            batch.setObject(g + 1, param);
+                        }
+                    }
+                    batch.addBatch();
+                }
+
+                try {
+
+                    IFBBatchCompletionState state = batch.execute();
+                    int[] states = state.getAllStates();
+                    boolean allInserted = states.length >= size;
+                    for (int i = 0; allInserted && i < size; i++)
+                        allInserted = states[i] != Statement.EXECUTE_FAILED;
+
+                    if (allInserted) {
+
+                        insertedCount.addAndGet(size);
+                        recordKeys(batchStart, size);
+
+                    } else
+                        recordResults(batchStart, size, states, state.printAllStates());
+
+                    if (printBatchState)
+                        messages.add(state.printAllStates());
+
+                } catch (SQLException e) {
+
+                    batchFailed(batchStart, size, e.getMessage());
+                }
+
+                uncommitted += size;
+                if (uncommitted >= commitAfter) {
+                    batch.commit();
+                    batch.startTransaction();
+                    uncommitted = 0;
+                }
+            }
+            batch.commit();
+        }
+
+    } // class Writer
+
+}
@@ -0,0 +1,33 @@
+package org.executequery.gui.browser.generatortestdata.engine;
+
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
+/**
+ * Produces the values of one column.
+ * <p>
+ * Generators are compiled from the method panels once before the
+ * generation starts and are shared between the writer threads, so
+ * they must not keep mutable state - the row index and the random
+ * stream of the calling thread are passed with every call.
+ */
+public interface ValueGenerator {
+
+    /**
+     * Returns the value for the specified row.
+     *
+     * @param random the random stream of the calling thread
+     * @param row    the zero-based index of the generated row
+     * @return the generated value
+     */
+    Object generate(SplittableRandom random, long row);
+
+    /**
+     * Loads the data the generator takes its values from - called once
+     * from the generation thread before the first value is generated,
+     * so queries do not run on the event dispatching thread.
+     */
+    default void prepare() throws SQLException {
+    }
+
+}
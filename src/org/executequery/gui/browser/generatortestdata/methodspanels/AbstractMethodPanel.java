@@ -2,18 +2,45 @@ package org.executequery.gui.browser.generatortestdata.methodspanels;
 
 import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.gui.browser.GeneratorTestDataPanel;
+import org.executequery.gui.browser.generatortestdata.engine.ValueGenerator;
+import org.underworldlabs.jdbc.DataSourceException;
 
 import javax.swing.*;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
 
 public abstract class AbstractMethodPanel extends JPanel {
     protected DatabaseColumn col;
     protected boolean first = true;
+    private ValueGenerator generator;
+    private SplittableRandom random;
+    private long row;
 
     public AbstractMethodPanel(DatabaseColumn col) {
         this.col = col;
     }
 
-    public abstract Object getTestDataObject();
+    /**
+     * Compiles the current settings of the panel into a generator.
+     * Must be called on the event dispatching thread, the returned
+     * generator may then be used from any thread.
+     */
+    public abstract ValueGenerator createGenerator();
+
+    public Object getTestDataObject() {
+        if (first || generator == null) {
+            generator = createGenerator();
+            try {
+                generator.prepare();
+            } catch (SQLException e) {
+                throw new DataSourceException(e);
+            }
+            random = new SplittableRandom();
+            row = 0;
+            first = false;
+        }
+        return generator.generate(random, row++);
+    }
 
     public void setFirst(boolean first) {
         this.first = first;
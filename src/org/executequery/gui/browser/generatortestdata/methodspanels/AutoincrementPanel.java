@@ -3,6 +3,7 @@ package org.executequery.gui.browser.generatortestdata.methodspanels;
 import com.github.lgooddatepicker.components.DatePicker;
 import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.databaseobjects.T;
+import org.executequery.gui.browser.generatortestdata.engine.ValueGenerator;
 import org.executequery.log.Log;
 import org.underworldlabs.swing.DateDifferenceSetter;
 import org.underworldlabs.swing.EQDateTimePicker;
@@ -19,6 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
+import java.time.Period;
 
 public class AutoincrementPanel extends AbstractMethodPanel {
     private JPanel settingsPanel;
@@ -31,11 +33,6 @@ public class AutoincrementPanel extends AbstractMethodPanel {
     private DateDifferenceSetter iterationDate;
     private DatePicker startValueDate;
     private JComboBox plusMinusBox;
-    private long current_value;
-    private LocalDateTime current_local_date_time;
-    private OffsetDateTime current_offset_date_time;
-    private BigInteger cur_bigint;
-    private double current_double;
 
     public AutoincrementPanel(DatabaseColumn col) {
         super(col);
@@ -160,162 +157,65 @@ public class AutoincrementPanel extends AbstractMethodPanel {
         add(new JPanel(), gbh.defaults().nextRowFirstCol().spanX().spanY().fillBoth().get());
     }
 
-    public Object getTestDataObject() {
-        if (col.getFormattedDataType().contentEquals(T.BIGINT) || col.getFormattedDataType().contentEquals(T.INT128)) {
-            if (first) {
-                cur_bigint = new BigInteger(startValueField.getText());
-                first = false;
-                return cur_bigint;
-            }
-            BigInteger iterationBig = new BigInteger(iterationField.getText());
-            if (plusMinusBox.getSelectedIndex() == 0)
-                cur_bigint = cur_bigint.add(iterationBig);
-            else cur_bigint = cur_bigint.subtract(iterationBig);
-            return cur_bigint;
+    @Override
+    public ValueGenerator createGenerator() {
+        String type = col.getFormattedDataType();
+        // the value of a row is computed from its index, so rows may be generated in any order
+        final int sign = plusMinusBox.getSelectedIndex() == 0 ? 1 : -1;
+        if (type.contentEquals(T.BIGINT) || type.contentEquals(T.INT128)) {
+            BigInteger start = new BigInteger(startValueField.getText());
+            BigInteger iteration = new BigInteger(iterationField.getText()).multiply(BigInteger.valueOf(sign));
+            return (random, row) -> start.add(iteration.multiply(BigInteger.valueOf(row)));
         }
-        if (col.getFormattedDataType().contentEquals(T.TIME)) {
-            if (first) {
-                current_local_date_time = startValueTime.getLocalTime().atDate(LocalDate.of(1970, 1, 1));
-                first = false;
-                return current_local_date_time.toLocalTime();
-            }
-            LocalTime iteration = iterationTime.getLocalTime();
-            if (plusMinusBox.getSelectedIndex() == 0) {
-                current_local_date_time = current_local_date_time.plusHours(iteration.getHour());
-                current_local_date_time = current_local_date_time.plusMinutes(iteration.getMinute());
-                current_local_date_time = current_local_date_time.plusSeconds(iteration.getSecond());
-                current_local_date_time = current_local_date_time.plusNanos(iteration.getNano());
-            } else {
-                current_local_date_time = current_local_date_time.minusHours(iteration.getHour());
-                current_local_date_time = current_local_date_time.minusMinutes(iteration.getMinute());
-                current_local_date_time = current_local_date_time.minusSeconds(iteration.getSecond());
-                current_local_date_time = current_local_date_time.minusNanos(iteration.getNano());
-            }
-            return current_local_date_time.toLocalTime();
+        if (type.contentEquals(T.TIME)) {
+            LocalDateTime start = startValueTime.getLocalTime().atDate(LocalDate.of(1970, 1, 1));
+            long iteration = sign * iterationTime.getLocalTime().toNanoOfDay();
+            return (random, row) -> start.plusNanos(iteration * row).toLocalTime();
         }
-        if (col.getFormattedDataType().contentEquals(T.TIME_WITH_TIMEZONE)) {
-            if (first) {
-                current_offset_date_time = startValueTime.getOffsetTime().atDate(LocalDate.of(1970, 1, 1));
-                first = false;
-                return current_offset_date_time.toOffsetTime();
-            }
-            LocalTime iteration = iterationTime.getLocalTime();
-            if (plusMinusBox.getSelectedIndex() == 0) {
-                current_offset_date_time = current_offset_date_time.plusHours(iteration.getHour());
-                current_offset_date_time = current_offset_date_time.plusMinutes(iteration.getMinute());
-                current_offset_date_time = current_offset_date_time.plusSeconds(iteration.getSecond());
-                current_offset_date_time = current_offset_date_time.plusNanos(iteration.getNano());
-            } else {
-                current_offset_date_time = current_offset_date_time.minusHours(iteration.getHour());
-                current_offset_date_time = current_offset_date_time.minusMinutes(iteration.getMinute());
-                current_offset_date_time = current_offset_date_time.minusSeconds(iteration.getSecond());
-                current_offset_date_time = current_offset_date_time.minusNanos(iteration.getNano());
-            }
-            return current_offset_date_time.toOffsetTime();
+        if (type.contentEquals(T.TIME_WITH_TIMEZONE)) {
+            OffsetDateTime start = startValueTime.getOffsetTime().atDate(LocalDate.of(1970, 1, 1));
+            long iteration = sign * iterationTime.getLocalTime().toNanoOfDay();
+            return (random, row) -> start.plusNanos(iteration * row).toOffsetTime();
         }
-        if (col.getFormattedDataType().contentEquals(T.DATE)) {
-            if (first) {
-                current_local_date_time = LocalDateTime.of(startValueDate.getDate(), LocalTime.of(0, 0, 0));
-                first = false;
-                return current_local_date_time.toLocalDate();
-            }
-            if (plusMinusBox.getSelectedIndex() == 0) {
-                current_local_date_time = current_local_date_time.plusYears(iterationDate.getYears());
-                current_local_date_time = current_local_date_time.plusDays(iterationDate.getDays());
-                current_local_date_time = current_local_date_time.plusMonths(iterationDate.getMouths());
-            } else {
-                current_local_date_time = current_local_date_time.minusYears(iterationDate.getYears());
-                current_local_date_time = current_local_date_time.minusDays(iterationDate.getDays());
-                current_local_date_time = current_local_date_time.minusMonths(iterationDate.getMouths());
-            }
-            return new Date(Timestamp.valueOf(current_local_date_time).getTime());
+        if (type.contentEquals(T.DATE)) {
+            LocalDateTime start = LocalDateTime.of(startValueDate.getDate(), LocalTime.of(0, 0, 0));
+            Period iteration = Period.of(iterationDate.getYears(), iterationDate.getMouths(), iterationDate.getDays())
+                    .multipliedBy(sign);
+            return (random, row) -> new Date(Timestamp.valueOf(
+                    start.plus(iteration.multipliedBy((int) row))).getTime());
         }
-        if (col.getFormattedDataType().contentEquals(T.TIMESTAMP)) {
-            if (first) {
-                current_local_date_time = startValueDateTime.getDateTime();
-                first = false;
-                return current_local_date_time;
-            }
-            LocalTime iteration = iterationTime.getLocalTime();
-            if (plusMinusBox.getSelectedIndex() == 0) {
-                current_local_date_time = current_local_date_time.plusYears(iterationDate.getYears());
-                current_local_date_time = current_local_date_time.plusDays(iterationDate.getDays());
-                current_local_date_time = current_local_date_time.plusMonths(iterationDate.getMouths());
-                current_local_date_time = current_local_date_time.plusHours(iteration.getHour());
-                current_local_date_time = current_local_date_time.plusMinutes(iteration.getMinute());
-                current_local_date_time = current_local_date_time.plusSeconds(iteration.getSecond());
-                current_local_date_time = current_local_date_time.plusNanos(iteration.getNano());
-            } else {
-                current_local_date_time = current_local_date_time.minusYears(iterationDate.getYears());
-                current_local_date_time = current_local_date_time.minusDays(iterationDate.getDays());
-                current_local_date_time = current_local_date_time.minusMonths(iterationDate.getMouths());
-                current_local_date_time = current_local_date_time.minusHours(iteration.getHour());
-                current_local_date_time = current_local_date_time.minusMinutes(iteration.getMinute());
-                current_local_date_time = current_local_date_time.minusSeconds(iteration.getSecond());
-                current_local_date_time = current_local_date_time.minusNanos(iteration.getNano());
-            }
-            return current_local_date_time;
-
+        if (type.contentEquals(T.TIMESTAMP)) {
+            LocalDateTime start = startValueDateTime.getDateTime();
+            Period period = Period.of(iterationDate.getYears(), iterationDate.getMouths(), iterationDate.getDays())
+                    .multipliedBy(sign);
+            long iteration = sign * iterationTime.getLocalTime().toNanoOfDay();
+            return (random, row) -> start.plus(period.multipliedBy((int) row)).plusNanos(iteration * row);
         }
-        if (col.getFormattedDataType().contentEquals(T.TIMESTAMP_WITH_TIMEZONE)) {
-            if (first) {
-                current_offset_date_time = startValueDateTime.getOffsetDateTime();
-                first = false;
-                return current_offset_date_time;
-            }
-            LocalTime iteration = iterationTime.getLocalTime();
-            if (plusMinusBox.getSelectedIndex() == 0) {
-                current_offset_date_time = current_offset_date_time.plusYears(iterationDate.getYears());
-                current_offset_date_time = current_offset_date_time.plusDays(iterationDate.getDays());
-                current_offset_date_time = current_offset_date_time.plusMonths(iterationDate.getMouths());
-                current_offset_date_time = current_offset_date_time.plusHours(iteration.getHour());
-                current_offset_date_time = current_offset_date_time.plusMinutes(iteration.getMinute());
-                current_offset_date_time = current_offset_date_time.plusSeconds(iteration.getSecond());
-                current_offset_date_time = current_offset_date_time.plusNanos(iteration.getNano());
-            } else {
-                current_offset_date_time = current_offset_date_time.minusYears(iterationDate.getYears());
-                current_offset_date_time = current_offset_date_time.minusDays(iterationDate.getDays());
-                current_offset_date_time = current_offset_date_time.minusMonths(iterationDate.getMouths());
-                current_offset_date_time = current_offset_date_time.minusHours(iteration.getHour());
-                current_offset_date_time = current_offset_date_time.minusMinutes(iteration.getMinute());
-                current_offset_date_time = current_offset_date_time.minusSeconds(iteration.getSecond());
-                current_offset_date_time = current_offset_date_time.minusNanos(iteration.getNano());
-            }
-            return current_offset_date_time;
-
+        if (type.contentEquals(T.TIMESTAMP_WITH_TIMEZONE)) {
+            OffsetDateTime start = startValueDateTime.getOffsetDateTime();
+            Period period = Period.of(iterationDate.getYears(), iterationDate.getMouths(), iterationDate.getDays())
+                    .multipliedBy(sign);
+            long iteration = sign * iterationTime.getLocalTime().toNanoOfDay();
+            return (random, row) -> start.plus(period.multipliedBy((int) row)).plusNanos(iteration * row);
         }
-        if (col.getFormattedDataType().contentEquals(T.INTEGER) || col.getFormattedDataType().contentEquals(T.SMALLINT)) {
-            if (first) {
-                current_value = Long.parseLong(startValueField.getText());
-                first = false;
-                if (col.getFormattedDataType().contentEquals(T.SMALLINT))
-                    return (short) current_value;
-                return (int) current_value;
-            }
-            if (plusMinusBox.getSelectedIndex() == 0)
-                current_value += Long.parseLong(iterationField.getText());
-            else current_value -= Long.parseLong(iterationField.getText());
-            if (col.getFormattedDataType().contentEquals(T.SMALLINT))
-                return (short) current_value;
-            return (int) current_value;
+        if (type.contentEquals(T.INTEGER) || type.contentEquals(T.SMALLINT)) {
+            long start = Long.parseLong(startValueField.getText());
+            long iteration = sign * Long.parseLong(iterationField.getText());
+            if (type.contentEquals(T.SMALLINT))
+                return (random, row) -> (short) (start + iteration * row);
+            return (random, row) -> (int) (start + iteration * row);
         }
-        if (col.getFormattedDataType().contentEquals(T.DOUBLE_PRECISION)
-                || col.getFormattedDataType().contentEquals(T.FLOAT)
-                || col.getFormattedDataType().startsWith(T.DECIMAL)
-                || col.getFormattedDataType().startsWith(T.NUMERIC)
-                || col.getFormattedDataType().startsWith(T.DECFLOAT)
+        if (type.contentEquals(T.DOUBLE_PRECISION)
+                || type.contentEquals(T.FLOAT)
+                || type.startsWith(T.DECIMAL)
+                || type.startsWith(T.NUMERIC)
+                || type.startsWith(T.DECFLOAT)
         ) {
-            if (first) {
-                current_double = Double.parseDouble(startValueField.getText());
-                first = false;
-                return current_double;
-            }
-            if (plusMinusBox.getSelectedIndex() == 0)
-                current_double += Double.parseDouble(iterationField.getText());
-            else current_double -= Double.parseDouble(iterationField.getText());
-            return current_double;
+            double start = Double.parseDouble(startValueField.getText());
+            double iteration = sign * Double.parseDouble(iterationField.getText());
+            return (random, row) -> start + iteration * row;
         }
 
-        return null;
+        return (random, row) -> null;
     }
 }
@@ -3,6 +3,7 @@ package org.executequery.gui.browser.generatortestdata.methodspanels;
 import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.databaseobjects.T;
 import org.executequery.gui.browser.GeneratorTestDataPanel;
+import org.executequery.gui.browser.generatortestdata.engine.ValueGenerator;
 import org.executequery.gui.text.SimpleTextArea;
 import org.executequery.localization.Bundles;
 import org.underworldlabs.jdbc.DataSourceException;
@@ -18,8 +19,6 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -30,7 +29,6 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
-import java.util.Random;
 import java.util.regex.Pattern;
 
 public class GetFromListPanel extends AbstractMethodPanel {
@@ -43,7 +41,6 @@ public class GetFromListPanel extends AbstractMethodPanel {
     private JLabel labelFile;
     String[] list;
     private JTextField fileField;
-    int index;
     private JButton fileSelectButton;
 
 
@@ -127,20 +124,25 @@ public class GetFromListPanel extends AbstractMethodPanel {
     }
 
     @Override
+    public ValueGenerator createGenerator() {
+        fillList();
+        final Object[] values = listObject;
+        if (values.length == 0)
+            throw new DataSourceException("The list of values for column \"" + col.getName() + "\" is empty.");
+        final boolean blob = col.getFormattedDataType().contains("BLOB");
+        final boolean randomOrder = orderBox.getSelectedIndex() == 1;
+        return (random, row) -> {
+            int index = randomOrder ? random.nextInt(values.length) : (int) (row % values.length);
+            return blob ? readFile((String) values[index]) : values[index];
+        };
+    }
 
-    public Object getTestDataObject() {
-        if (first) {
-            fillList();
-            first = false;
-            index = 0;
-        }
-        if (index >= list.length)
-            index = 0;
-        if (orderBox.getSelectedIndex() == 1) {
-            index = new Random().nextInt(list.length);
+    private static byte[] readFile(String path) {
+        try {
+            return Files.readAllBytes(Paths.get(path));
+        } catch (IOException e) {
+            throw new DataSourceException(e);
         }
-        index++;
-        return listObject[index - 1];
     }
 
     private void fillList() {
@@ -216,11 +218,7 @@ public class GetFromListPanel extends AbstractMethodPanel {
             return str;
         }
         if (col.getFormattedDataType().contains("BLOB")) {
-            try {
-                return new FileInputStream(str);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            }
+            return str;
         }
         if (col.getFormattedDataType().contentEquals("BOOLEAN")) {
             return Boolean.valueOf(str);
@@ -6,6 +6,7 @@ import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.databaseobjects.DatabaseHost;
 import org.executequery.databaseobjects.NamedObject;
 import org.executequery.gui.browser.ConnectionsTreePanel;
+import org.executequery.gui.browser.generatortestdata.engine.ValueGenerator;
 import org.executequery.sql.SqlStatementResult;
 import org.underworldlabs.swing.DynamicComboBoxModel;
 import org.underworldlabs.swing.NumberTextField;
@@ -19,7 +20,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.Vector;
 
 public class GetFromOtherTablePanel extends AbstractMethodPanel {
@@ -29,8 +30,6 @@ public class GetFromOtherTablePanel extends AbstractMethodPanel {
     private JComboBox colBox;
     private DynamicComboBoxModel tableBoxModel;
     private DynamicComboBoxModel colBoxModel;
-    Random random;
-    private List<Object> objList;
 
     private void init() {
         setLayout(new GridBagLayout());
@@ -83,27 +82,38 @@ public class GetFromOtherTablePanel extends AbstractMethodPanel {
     }
 
     @Override
-    public Object getTestDataObject() {
-        if (first) {
-            first = false;
-            objList = new ArrayList<>();
-            String query = "Select first " + countRowsField.getStringValue() + " \n" + ((DatabaseColumn) colBox.getSelectedItem()).getName() + " from " + tableBox.getSelectedItem();
-            try {
-                ResultSet rs = executor.getResultSet(query).getResultSet();
-                random = new Random();
-                int count = countRowsField.getValue();
-                for (int i = 0; i < count && rs.next(); i++) {
-                    objList.add(rs.getObject(1));
+    public ValueGenerator createGenerator() {
+        final String query = "Select first " + countRowsField.getStringValue() + " \n" + ((DatabaseColumn) colBox.getSelectedItem()).getName() + " from " + tableBox.getSelectedItem() + " order by 1";
+        final int count = countRowsField.getValue();
+        final DefaultStatementExecutor valuesExecutor = new DefaultStatementExecutor(executor.getDatabaseConnection());
+
+        // the values are queried by the generation worker, not here on the EDT
+        return new ValueGenerator() {
+
+            private volatile Object[] values;
+
+            @Override
+            public void prepare() throws SQLException {
+                List<Object> objList = new ArrayList<>();
+                try {
+                    ResultSet rs = valuesExecutor.getResultSet(query).getResultSet();
+                    for (int i = 0; i < count && rs.next(); i++) {
+                        objList.add(rs.getObject(1));
+                    }
+                } finally {
+                    valuesExecutor.releaseResources();
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                return null;
-            } finally {
-                executor.releaseResources();
+                values = objList.toArray();
             }
-        }
-        int rand = random.nextInt(objList.size());
-        return objList.get(rand);
+
+            @Override
+            public Object generate(SplittableRandom random, long row) {
+                Object[] loaded = values;
+                if (loaded == null || loaded.length == 0)
+                    return null;
+                return loaded[random.nextInt(loaded.length)];
+            }
+        };
     }
 
     private Vector<String> fillTables() {
@@ -3,6 +3,7 @@ package org.executequery.gui.browser.generatortestdata.methodspanels;
 import com.github.lgooddatepicker.components.DatePicker;
 import org.executequery.databaseobjects.DatabaseColumn;
 import org.executequery.databaseobjects.T;
+import org.executequery.gui.browser.generatortestdata.engine.ValueGenerator;
 import org.executequery.gui.text.SimpleTextArea;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.EQDateTimePicker;
@@ -14,7 +15,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.math.BigInteger;
 import java.time.*;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class RandomMethodPanel extends AbstractMethodPanel {
     private JPanel settingsPanel;
@@ -217,227 +218,147 @@ public class RandomMethodPanel extends AbstractMethodPanel {
 
     }
 
-    private BigInteger getBigint() {
-        BigInteger bigint = new BigInteger(62, new Random());
-        BigInteger max = new BigInteger(maxField.getText());
-        BigInteger min = new BigInteger(minField.getText());
-        if (max.compareTo(min) == -1)
-            throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-        BigInteger zero = new BigInteger("0");
+    private static long nextLong(SplittableRandom random, long min, long max) {
+        if (min == max)
+            return max;
+        return random.nextLong(min, max);
+    }
+
+    private static BigInteger nextBigint(SplittableRandom random, BigInteger min, BigInteger max) {
+        BigInteger bigint = BigInteger.valueOf(random.nextLong() >>> 2);
         BigInteger diapason;
-        if (min.compareTo(zero) < 0 && max.compareTo(zero) > 0) {
-            Random random = new Random();
-            int x = random.nextInt();
-            x = x % 2;
-            if (x == 0) {
-                diapason = min.multiply(new BigInteger("-1"));
-                bigint = bigint.mod(diapason).multiply(new BigInteger("-1"));
+        if (min.signum() < 0 && max.signum() > 0) {
+            if (random.nextBoolean()) {
+                diapason = min.negate();
+                bigint = bigint.mod(diapason).negate();
             } else {
                 diapason = max;
                 bigint = bigint.mod(diapason);
             }
         } else {
             diapason = max.subtract(min);
+            if (diapason.signum() == 0)
+                return min;
             bigint = min.add(bigint.mod(diapason));
         }
         return bigint;
     }
 
+    private void checkRange(boolean minGreaterMax) {
+        if (minGreaterMax)
+            throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
+    }
 
-    public Object getTestDataObject() {
-        if (nullBox.isSelected()) {
-            if (new Random().nextInt(10) == 0)
-                return null;
-        }
-        if (col.getFormattedDataType().contentEquals(T.BIGINT) || col.getFormattedDataType().contentEquals(T.INT128)) {
-            return getBigint();
-        }
-        if (col.getFormattedDataType().contentEquals(T.TIME)) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
-
-            long max = maxTime.getLocalTime().atDate(LocalDate.of(1970, 1, 1)).toInstant(ZoneOffset.of(ZoneId.systemDefault().getId())).toEpochMilli();
-            long min = minTime.getLocalTime().atDate(LocalDate.of(1970, 1, 1)).toInstant(ZoneOffset.of(ZoneId.systemDefault().getId())).toEpochMilli();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneId.systemDefault());
-            return dateTime.toLocalTime();
-        }
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 
-        if (col.getFormattedDataType().contentEquals(T.TIME_WITH_TIMEZONE)) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
+    @Override
+    public ValueGenerator createGenerator() {
+        final ValueGenerator generator = createValueGenerator();
+        if (!nullBox.isSelected())
+            return generator;
+        return (random, row) -> random.nextInt(10) == 0 ? null : generator.generate(random, row);
+    }
 
+    private ValueGenerator createValueGenerator() {
+        String type = col.getFormattedDataType();
+        if (type.contentEquals(T.BIGINT) || type.contentEquals(T.INT128)) {
+            BigInteger max = new BigInteger(maxField.getText());
+            BigInteger min = new BigInteger(minField.getText());
+            checkRange(max.compareTo(min) < 0);
+            return (random, row) -> nextBigint(random, min, max);
+        }
+        if (type.contentEquals(T.TIME)) {
+            long max = toEpochMilli(maxTime.getLocalTime().atDate(LocalDate.of(1970, 1, 1)));
+            long min = toEpochMilli(minTime.getLocalTime().atDate(LocalDate.of(1970, 1, 1)));
+            checkRange(min > max);
+            return (random, row) -> LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(nextLong(random, min, max)), ZoneId.systemDefault()).toLocalTime();
+        }
+        if (type.contentEquals(T.TIME_WITH_TIMEZONE)) {
             long max = maxTime.getOffsetTime().atDate(LocalDate.of(1970, 1, 1)).toInstant().toEpochMilli();
             long min = minTime.getOffsetTime().atDate(LocalDate.of(1970, 1, 1)).toInstant().toEpochMilli();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            OffsetDateTime dateTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneId.systemDefault());
-            return dateTime.toOffsetTime();
+            checkRange(min > max);
+            return (random, row) -> OffsetDateTime.ofInstant(
+                    Instant.ofEpochMilli(nextLong(random, min, max)), ZoneId.systemDefault()).toOffsetTime();
         }
-
-        if (col.getFormattedDataType().contentEquals(T.DATE)) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
+        if (type.contentEquals(T.DATE)) {
             long max = maxDate.getDate().toEpochDay();
             long min = minDate.getDate().toEpochDay();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            LocalDate temp = LocalDate.ofEpochDay(value);
-            return temp;
+            checkRange(min > max);
+            return (random, row) -> LocalDate.ofEpochDay(nextLong(random, min, max));
         }
-        if (col.getFormattedDataType().contentEquals(T.TIMESTAMP)) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
-            long max = maxDateTime.getDateTime().toInstant(ZoneOffset.of(ZoneId.systemDefault().getId())).toEpochMilli();
-            long min = minDateTime.getDateTime().toInstant(ZoneOffset.of(ZoneId.systemDefault().getId())).toEpochMilli();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneId.systemDefault());
-            return dateTime;
+        if (type.contentEquals(T.TIMESTAMP)) {
+            long max = toEpochMilli(maxDateTime.getDateTime());
+            long min = toEpochMilli(minDateTime.getDateTime());
+            checkRange(min > max);
+            return (random, row) -> LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(nextLong(random, min, max)), ZoneId.systemDefault());
         }
-        if (col.getFormattedDataType().contentEquals(T.TIMESTAMP_WITH_TIMEZONE)) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
+        if (type.contentEquals(T.TIMESTAMP_WITH_TIMEZONE)) {
             long max = maxDateTime.getOffsetDateTime().toInstant().toEpochMilli();
             long min = minDateTime.getOffsetDateTime().toInstant().toEpochMilli();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            OffsetDateTime dateTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneId.systemDefault());
-            return dateTime;
+            checkRange(min > max);
+            return (random, row) -> OffsetDateTime.ofInstant(
+                    Instant.ofEpochMilli(nextLong(random, min, max)), ZoneId.systemDefault());
         }
-        if (col.getFormattedDataType().contentEquals(T.INTEGER)
-                || col.getFormattedDataType().contentEquals(T.SMALLINT)) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
-            long max = ((NumberTextField) maxField).getValue();
-            long min = ((NumberTextField) minField).getValue();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            if (col.getFormattedDataType().contentEquals(T.SMALLINT))
-                return (short) value;
-            return (int) value;
+        if (type.contentEquals(T.INTEGER) || type.contentEquals(T.SMALLINT)) {
+            long max = ((NumberTextField) maxField).getLongValue();
+            long min = ((NumberTextField) minField).getLongValue();
+            checkRange(min > max);
+            if (type.contentEquals(T.SMALLINT))
+                return (random, row) -> (short) nextLong(random, min, max);
+            return (random, row) -> (int) nextLong(random, min, max);
         }
-        if (col.getFormattedDataType().contentEquals(T.DOUBLE_PRECISION)
-                || col.getFormattedDataType().contentEquals(T.FLOAT)
-                || col.getFormattedDataType().startsWith(T.DECIMAL)
-                || col.getFormattedDataType().startsWith(T.NUMERIC)
-                || col.getFormattedDataType().startsWith(T.DECFLOAT)
+        if (type.contentEquals(T.DOUBLE_PRECISION)
+                || type.contentEquals(T.FLOAT)
+                || type.startsWith(T.DECIMAL)
+                || type.startsWith(T.NUMERIC)
+                || type.startsWith(T.DECFLOAT)
         ) {
-            long value = new Random().nextLong();
-            if (value < 0)
-                value *= -1;
             long power = (long) Math.pow(10, countSymbolsAfterComma.getLongValue());
             long max = Long.parseLong(maxField.getText()) * power;
             long min = Long.parseLong(minField.getText()) * power;
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                value = max;
-            } else
-                value = (min + (value % diapason));
-            return ((double) value) / ((double) power);
+            checkRange(min > max);
+            return (random, row) -> ((double) nextLong(random, min, max)) / ((double) power);
         }
-        if (col.getFormattedDataType().contains(T.CHAR)) {
-            long n = new Random().nextLong();
-            if (n < 0)
-                n *= -1;
+        if (type.contains(T.CHAR)) {
             long max = ((NumberTextField) maxField).getLongValue() + 1;
             long min = ((NumberTextField) minField).getLongValue();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            long diapason = max - min;
-            if (diapason == 0) {
-                n = max;
-            } else
-                n = (min + (n % diapason));
-            StringBuilder result = new StringBuilder();
-            if (useOnlyThisSymbolsBox.isSelected()) {
-                String charset = useOnlyThisSymbolsField.getTextAreaComponent().getText();
-                int length = charset.length();
+            checkRange(min > max);
+            final String charset = useOnlyThisSymbolsBox.isSelected() ?
+                    useOnlyThisSymbolsField.getTextAreaComponent().getText() : null;
+            return (random, row) -> {
+                long n = nextLong(random, min, max);
+                StringBuilder result = new StringBuilder((int) n);
                 for (int i = 0; i < n; i++) {
-                    int x = new Random().nextInt(length);
-                    result.append(charset.charAt(x));
+                    if (charset != null)
+                        result.append(charset.charAt(random.nextInt(charset.length())));
+                    else
+                        result.append((char) random.nextInt(127));
                 }
-            } else {
-                for (int i = 0; i < n; i++) {
-                    int x = new Random().nextInt(127);
-                    result.append((char) x);
-                }
-            }
-            return result.toString();
+                return result.toString();
+            };
         }
-        if (col.getFormattedDataType().contains(T.BLOB)) {
-            int n = new Random().nextInt();
-            if (n < 0)
-                n *= -1;
+        if (type.contains(T.BLOB)) {
             int max = ((NumberTextField) maxField).getValue() + 1;
             int min = ((NumberTextField) minField).getValue();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            int diapason = max - min;
-            if (diapason == 0) {
-                n = max;
-            } else
-                n = (min + (n % diapason));
-            max = ((NumberTextField) maxByteField).getValue() + 1;
-            min = ((NumberTextField) minByteField).getValue();
-            if (min > max)
-                throw new DataSourceException("minimum greater than maximum for column \"" + col.getName() + "\"");
-            diapason = max - min;
-            byte[] bytes = new byte[n];
-            for (int i = 0; i < n; i++) {
-                if (diapason == 0)
-                    bytes[i] = (byte) max;
-                int x = new Random().nextInt();
-                if (x < 0)
-                    x *= -1;
-                x = min + (x % diapason);
-                bytes[i] = (byte) x;
-            }
-            return bytes;
+            checkRange(min > max);
+            int maxByte = ((NumberTextField) maxByteField).getValue() + 1;
+            int minByte = ((NumberTextField) minByteField).getValue();
+            checkRange(minByte > maxByte);
+            return (random, row) -> {
+                byte[] bytes = new byte[(int) nextLong(random, min, max)];
+                for (int i = 0; i < bytes.length; i++)
+                    bytes[i] = (byte) nextLong(random, minByte, maxByte);
+                return bytes;
+            };
         }
-        if (col.getFormattedDataType().contains(T.BOOLEAN)) {
-            return new Random().nextInt(2) == 1;
+        if (type.contains(T.BOOLEAN)) {
+            return (random, row) -> random.nextBoolean();
         }
-        return null;
+        return (random, row) -> null;
     }
 
 }
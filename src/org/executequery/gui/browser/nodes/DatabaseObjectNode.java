@@ -20,12 +20,16 @@
 
 package org.executequery.gui.browser.nodes;
 
+import org.executequery.databaseobjects.DatabaseHost;
+import org.executequery.databaseobjects.DatabaseMetaTag;
+import org.executequery.databaseobjects.DatabaseObject;
 import org.executequery.databaseobjects.DatabaseTable;
 import org.executequery.databaseobjects.NamedObject;
 import org.executequery.databaseobjects.impl.DatabaseTableColumn;
 import org.executequery.databaseobjects.impl.DefaultDatabaseColumn;
 import org.executequery.gui.browser.DatabaseObjectChangeProvider;
 import org.executequery.localization.Bundles;
+import org.executequery.sql.PsqlSourceIndex;
 import org.underworldlabs.jdbc.DataSourceException;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -175,13 +179,14 @@ public class DatabaseObjectNode extends DefaultMutableTreeNode {
     /**
      * Adds this object's children as expanded nodes.
      */
-    public void populateChildren() throws DataSourceException {
+    public synchronized void populateChildren() throws DataSourceException {
         if (!childrenRetrieved) {
             List<DatabaseObjectNode> children = getChildObjects();
             if (children != null) {
                 for (int i = 0, n = children.size(); i < n; i++) {
                     add(children.get(i));
                 }
+                ObjectSearchIndex.getInstance().add(this, children);
             }
             childrenRetrieved = true;
         }
@@ -263,10 +268,40 @@ public class DatabaseObjectNode extends DefaultMutableTreeNode {
      */
     public void reset() {
         databaseObject.reset();
+        ObjectSearchIndex.getInstance().remove(this);
+        invalidateSourceIndex();
         removeAllChildren();
         childrenRetrieved = false;
     }
 
+    /**
+     * Marks the source index of the connection for refresh once
+     * objects with source or the whole connection are reloaded.
+     */
+    private void invalidateSourceIndex() {
+
+        DatabaseHost host = null;
+        int type = getType();
+        if (databaseObject instanceof DatabaseHost) {
+
+            host = (DatabaseHost) databaseObject;
+            type = NamedObject.HOST;
+
+        } else if (databaseObject instanceof DatabaseMetaTag) {
+
+            host = ((DatabaseMetaTag) databaseObject).getHost();
+            type = ((DatabaseMetaTag) databaseObject).getSubType();
+
+        } else if (databaseObject instanceof DatabaseObject) {
+
+            host = ((DatabaseObject) databaseObject).getHost();
+        }
+
+        if (host != null && (type == NamedObject.HOST || PsqlSourceIndex.isIndexedType(type))) {
+            PsqlSourceIndex.invalidate(host.getDatabaseConnection());
+        }
+    }
+
     /**
      * Propagates the call to the underlying database object.
      */
@@ -63,7 +63,7 @@ public class DefaultDatabaseObjectNode extends DefaultMutableTreeNode {
     /**
      * Adds this object's children as expanded nodes.
      */
-    public void populateChildren() throws DataSourceException {
+    public synchronized void populateChildren() throws DataSourceException {
         if (!childrenRetrieved) {
             List<DatabaseObjectNode> children = getChildObjects();
             if (children != null) {
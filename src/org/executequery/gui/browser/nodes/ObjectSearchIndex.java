@@ -0,0 +1,512 @@
+/*
+ * ObjectSearchIndex.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.browser.nodes;
+
+import org.executequery.databaseobjects.NamedObject;
+import org.executequery.databaseobjects.impl.DefaultDatabaseHost;
+import org.executequery.gui.browser.tree.TreePanel;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The names of the database objects loaded into the connections tree
+ * of all connected databases.
+ * <p>
+ * Objects are added as tree nodes populate their children and removed
+ * as nodes are reset or detached from the tree, so the index follows
+ * the loading of metadata on connection, the reload of tree branches
+ * after DDL statements and dropped objects or deleted connections.
+ * <p>
+ * Names are upper-cased once and kept as distinct keys - sorted for
+ * prefix matches and split into trigrams for substring matches.
+ * Names not matching otherwise are matched approximately within a few
+ * edits, candidates being those sharing trigrams with the search text.
+ *
+ * @author Takis Diakoumis
+ */
+public final class ObjectSearchIndex {
+
+    /**
+     * the maximum number of objects returned by a search
+     */
+    public static final int MAX_RESULTS = 1000;
+
+    private static final ObjectSearchIndex instance = new ObjectSearchIndex();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * the distinct upper-cased names by key id - ids are never reused
+     */
+    private final List<String> keys = new ArrayList<>();
+
+    /**
+     * the indexed objects of each key id
+     */
+    private final List<Set<Entry>> keyEntries = new ArrayList<>();
+
+    /**
+     * the key ids by name sorted for prefix matches
+     */
+    private final TreeMap<String, Integer> keyIds = new TreeMap<>();
+
+    /**
+     * the ascending key ids of each trigram
+     */
+    private final Map<Long, int[]> trigrams = new HashMap<>();
+    private final Map<Long, Integer> trigramSizes = new HashMap<>();
+
+    private final Map<DatabaseObjectNode, Entry> entries = new HashMap<>();
+
+    private ObjectSearchIndex() {
+    }
+
+    public static ObjectSearchIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds the children of the specified node of the connections tree.
+     */
+    void add(DatabaseObjectNode parent, List<DatabaseObjectNode> children) {
+
+        if (children == null || children.isEmpty()) {
+            return;
+        }
+
+        DatabaseHostNode host = null;
+        boolean inTable = false;
+        for (TreeNode node = parent; node != null; node = node.getParent()) {
+
+            if (node instanceof DatabaseHostNode) {
+                host = (DatabaseHostNode) node;
+                break;
+            }
+            if (node instanceof DatabaseObjectNode && isTable(((DatabaseObjectNode) node).getType())) {
+                inTable = true;
+            }
+        }
+
+        if (!isConnectionsTreeHost(host)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+
+            for (DatabaseObjectNode child : children) {
+
+                if (isIndexed(child)) {
+                    add(new Entry(child, inTable));
+                }
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all descendants of the specified node.
+     */
+    void remove(DatabaseObjectNode parent) {
+
+        if (parent.getChildCount() > 0) {
+            remove(parent, false);
+        }
+    }
+
+    /**
+     * Removes the specified node and all its descendants as the node
+     * is detached from the tree.
+     */
+    public void removeTree(DefaultMutableTreeNode node) {
+        remove(node, true);
+    }
+
+    private void remove(DefaultMutableTreeNode parent, boolean withParent) {
+
+        lock.writeLock().lock();
+        try {
+
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            Enumeration<?> nodes = parent.breadthFirstEnumeration();
+            while (nodes.hasMoreElements()) {
+
+                Object node = nodes.nextElement();
+                if (node == parent && !withParent) {
+                    continue;
+                }
+
+                Entry entry = entries.remove(node);
+                if (entry != null) {
+                    keyEntries.get(entry.key).remove(entry);
+                }
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+
+        lock.readLock().lock();
+        try {
+            return entries.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the objects matching the specified text - objects named
+     * as the text first, then those with names starting with the text,
+     * containing the text and those close to the text. The text may
+     * contain * wildcards matching anything as the tree search did.
+     *
+     * @param text      the search text
+     * @param inColumns whether to include the columns, keys and
+     *                  indexes of tables
+     * @return the matching tree nodes
+     */
+    public List<DatabaseObjectNode> search(String text, boolean inColumns) {
+
+        String query = text.trim().toUpperCase();
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+
+            Set<Integer> matches = new LinkedHashSet<>();
+            if (query.indexOf('*') != -1) {
+
+                wildcardMatches(query, matches);
+
+            } else {
+
+                Integer exact = keyIds.get(query);
+                if (exact != null) {
+                    matches.add(exact);
+                }
+                matches.addAll(keyIds.subMap(query, true, query + Character.MAX_VALUE, false).values());
+                substringMatches(query, matches);
+                fuzzyMatches(query, matches);
+            }
+
+            List<DatabaseObjectNode> nodes = new ArrayList<>();
+            for (Integer key : matches) {
+
+                for (Entry entry : keyEntries.get(key)) {
+
+                    if (inColumns || !entry.inTable) {
+                        nodes.add(entry.node);
+                        if (nodes.size() == MAX_RESULTS) {
+                            return nodes;
+                        }
+                    }
+                }
+            }
+            return nodes;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void wildcardMatches(String query, Set<Integer> matches) {
+
+        // anchored at the start unless starting with a wildcard
+        StringBuilder regex = new StringBuilder("^");
+        String[] parts = query.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+
+            if (i > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(parts[i]));
+        }
+
+        Matcher matcher = Pattern.compile(regex.toString()).matcher("");
+
+        for (int key = 0; key < keys.size(); key++) {
+            if (matcher.reset(keys.get(key)).find()) {
+                matches.add(key);
+            }
+        }
+    }
+
+    private void substringMatches(String query, Set<Integer> matches) {
+
+        List<Integer> found = new ArrayList<>();
+        if (query.length() < 3) {
+
+            for (int key = 0; key < keys.size(); key++) {
+                if (keys.get(key).contains(query)) {
+                    found.add(key);
+                }
+            }
+
+        } else {
+
+            int[] candidates = null;
+            int candidateCount = 0;
+            for (long trigram : trigramsOf(query)) {
+
+                int[] postings = trigrams.get(trigram);
+                if (postings == null) {
+                    return;
+                }
+
+                int size = trigramSizes.get(trigram);
+                if (candidates == null) {
+                    candidates = Arrays.copyOf(postings, size);
+                    candidateCount = size;
+                } else {
+                    candidateCount = intersect(candidates, candidateCount, postings, size);
+                }
+            }
+
+            for (int i = 0; i < candidateCount; i++) {
+                if (keys.get(candidates[i]).contains(query)) {
+                    found.add(candidates[i]);
+                }
+            }
+        }
+
+        // earlier and tighter matches first
+        found.sort(Comparator.<Integer>comparingInt(key -> keys.get(key).indexOf(query))
+                .thenComparingInt(key -> keys.get(key).length()));
+        matches.addAll(found);
+    }
+
+    private void fuzzyMatches(String query, Set<Integer> matches) {
+
+        if (query.length() < 4 || matches.size() >= MAX_RESULTS) {
+            return;
+        }
+
+        int maxEdits = query.length() <= 6 ? 1 : query.length() <= 10 ? 2 : 3;
+
+        boolean[] candidate = new boolean[keys.size()];
+        for (long trigram : trigramsOf(query)) {
+
+            int[] postings = trigrams.get(trigram);
+            if (postings != null) {
+                for (int i = 0, n = trigramSizes.get(trigram); i < n; i++) {
+                    candidate[postings[i]] = true;
+                }
+            }
+        }
+
+        List<int[]> found = new ArrayList<>();
+        for (int key = 0; key < candidate.length; key++) {
+
+            if (candidate[key] && !matches.contains(key)) {
+
+                int distance = substringDistance(query, keys.get(key), maxEdits);
+                if (distance <= maxEdits) {
+                    found.add(new int[]{key, distance});
+                }
+            }
+        }
+
+        found.sort(Comparator.<int[]>comparingInt(match -> match[1])
+                .thenComparingInt(match -> keys.get(match[0]).length()));
+        for (int[] match : found) {
+            matches.add(match[0]);
+        }
+    }
+
+    /**
+     * Returns the fewest edits turning the query into any part of the
+     * name, or more than the maximum once exceeded.
+     */
+    static int substringDistance(String query, String name, int maxEdits) {
+
+        int[] previous = new int[name.length() + 1];
+        int[] current = new int[name.length() + 1];
+
+        for (int i = 1; i <= query.length(); i++) {
+
+            current[0] = i;
+            int rowMinimum = i;
+            char c = query.charAt(i - 1);
+            for (int j = 1; j <= name.length(); j++) {
+
+                int cost = c == name.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(previous[j - 1] + cost,
+                        Math.min(previous[j] + 1, current[j - 1] + 1));
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+
+            if (rowMinimum > maxEdits) {
+                return rowMinimum;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = Integer.MAX_VALUE;
+        for (int value : previous) {
+            distance = Math.min(distance, value);
+        }
+        return distance;
+    }
+
+    private void add(Entry entry) {
+
+        Entry previous = entries.put(entry.node, entry);
+        if (previous != null) {
+            keyEntries.get(previous.key).remove(previous);
+        }
+
+        String name = entry.node.getName();
+        String key = name != null ? name.trim().toUpperCase() : "";
+
+        Integer id = keyIds.get(key);
+        if (id == null) {
+
+            id = keys.size();
+            keys.add(key);
+            keyEntries.add(new LinkedHashSet<>(2));
+            keyIds.put(key, id);
+
+            for (long trigram : trigramsOf(key)) {
+                addPosting(trigram, id);
+            }
+        }
+
+        entry.key = id;
+        keyEntries.get(id).add(entry);
+    }
+
+    private void addPosting(long trigram, int id) {
+
+        int[] postings = trigrams.get(trigram);
+        int size = postings != null ? trigramSizes.get(trigram) : 0;
+
+        if (postings == null) {
+            postings = new int[2];
+        } else if (size == postings.length) {
+            postings = Arrays.copyOf(postings, size * 2);
+        }
+
+        postings[size] = id;
+        trigrams.put(trigram, postings);
+        trigramSizes.put(trigram, size + 1);
+    }
+
+    /**
+     * Keeps the ids of the sorted candidates also contained in the
+     * sorted postings and returns their number.
+     */
+    private static int intersect(int[] candidates, int candidateCount, int[] postings, int size) {
+
+        int count = 0;
+        for (int i = 0, j = 0; i < candidateCount && j < size; ) {
+
+            if (candidates[i] < postings[j]) {
+                i++;
+            } else if (candidates[i] > postings[j]) {
+                j++;
+            } else {
+                candidates[count++] = candidates[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static Set<Long> trigramsOf(String key) {
+
+        Set<Long> values = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            values.add(((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2));
+        }
+        return values;
+    }
+
+    private static boolean isConnectionsTreeHost(DatabaseHostNode host) {
+
+        return host != null
+                && host.getDatabaseObject() instanceof DefaultDatabaseHost
+                && ((DefaultDatabaseHost) host.getDatabaseObject()).getTypeTree() == TreePanel.DEFAULT;
+    }
+
+    private static boolean isIndexed(DatabaseObjectNode node) {
+
+        // meta tags, hosts and folders are not named objects
+        int type = node.getType();
+        return type < NamedObject.META_TAG || type >= NamedObject.CHECK_KEY;
+    }
+
+    private static boolean isTable(int type) {
+
+        return type == NamedObject.TABLE
+                || type == NamedObject.SYSTEM_TABLE
+                || type == NamedObject.VIEW
+                || type == NamedObject.GLOBAL_TEMPORARY;
+    }
+
+    private static final class Entry {
+
+        private final DatabaseObjectNode node;
+
+        /**
+         * whether the object is a column, key or index of a table
+         */
+        private final boolean inTable;
+
+        private int key;
+
+        Entry(DatabaseObjectNode node, boolean inTable) {
+            this.node = node;
+            this.inTable = inTable;
+        }
+
+    }
+
+}
@@ -31,6 +31,7 @@ import org.executequery.gui.browser.depend.DependPanel;
 import org.executequery.gui.browser.nodes.ConnectionsFolderNode;
 import org.executequery.gui.browser.nodes.DatabaseHostNode;
 import org.executequery.gui.browser.nodes.DatabaseObjectNode;
+import org.executequery.gui.browser.nodes.ObjectSearchIndex;
 import org.executequery.gui.browser.nodes.RootDatabaseObjectNode;
 import org.executequery.sql.SqlStatementResult;
 import org.executequery.util.ThreadUtils;
@@ -212,6 +213,20 @@ public class SchemaTree extends DynamicTree
 
     // nice example: http://www.coderanch.com/t/346509/GUI/java/JTree-drag-drop-inside-one
 
+    /**
+     * Removes the specified node from the parent node
+     * and its objects from the search index.
+     *
+     * @param node - the node to be removed
+     */
+    @Override
+    public void removeNode(MutableTreeNode node) {
+
+        super.removeNode(node);
+        if (node instanceof DefaultMutableTreeNode)
+            ObjectSearchIndex.getInstance().removeTree((DefaultMutableTreeNode) node);
+    }
+
     public TreePanel getTreePanel() {
         return panel;
     }
@@ -32,22 +32,33 @@ import org.executequery.gui.resultset.ClobRecordDataItem;
 import org.executequery.gui.resultset.LobRecordDataItem;
 import org.executequery.gui.resultset.RecordDataItem;
 import org.executequery.gui.table.CreateTableSQLSyntax;
-import org.executequery.io.ByteArrayFileWriter;
 import org.executequery.localization.Bundles;
 import org.executequery.log.Log;
 import org.underworldlabs.swing.hexeditor.AKDockLayout;
 import org.underworldlabs.swing.hexeditor.HexEditor;
 import org.underworldlabs.swing.hexeditor.bdoc.AnnotatedBinaryDocument;
+import org.underworldlabs.swing.hexeditor.bdoc.BinaryDocument;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteArraySource;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSource;
+import org.underworldlabs.swing.hexeditor.bdoc.FileByteSource;
+import org.underworldlabs.swing.hexeditor.bdoc.PagedByteSource;
 import org.underworldlabs.util.MiscUtils;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.List;
 
 public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
@@ -55,6 +66,12 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
     private static final String CANNOT_DISPLAY_BINARY_DATA_AS_TEXT = "\n  Cannot display binary data as text";
 
+    /**
+     * The number of bytes shown as text at once - larger values are
+     * paged and may be edited in the binary view only
+     */
+    private static final int TEXT_PAGE_SIZE = 1024 * 1024;
+
     private JTextArea textArea;
 
     /*private JTextArea binaryStringTextArea;
@@ -67,6 +84,18 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
     private JButton openButton;
 
+    private JButton previousPageButton;
+
+    private JButton nextPageButton;
+
+    private JLabel pageLabel;
+
+    private long textOffset;
+
+    private String loadedText;
+
+    private FileByteSource openedFileSource;
+
     private final LobRecordDataItem recordDataItem;
 
     private final ActionContainer parent;
@@ -118,6 +147,22 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
         textArea.setMargin(new Insets(2, 2, 2, 2));
         textPanel.add(new JScrollPane(textArea), BorderLayout.CENTER);
 
+        previousPageButton = new JButton("<");
+        previousPageButton.setActionCommand("previousPage");
+        previousPageButton.addActionListener(this);
+
+        nextPageButton = new JButton(">");
+        nextPageButton.setActionCommand("nextPage");
+        nextPageButton.addActionListener(this);
+
+        pageLabel = new JLabel();
+
+        JPanel pagePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 2, 2));
+        pagePanel.add(previousPageButton);
+        pagePanel.add(nextPageButton);
+        pagePanel.add(pageLabel);
+        textPanel.add(pagePanel, BorderLayout.SOUTH);
+
         JPanel imagePanel = null;
 
         imagePanel = new JPanel(new BorderLayout());
@@ -126,7 +171,7 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
         JPanel binaryPanel = new JPanel(new AKDockLayout());
 
-        binaryStringTextArea = new HexEditor(new AnnotatedBinaryDocument(recordDataItemByteArray(), readOnly), charset);
+        binaryStringTextArea = new HexEditor(createDocument(), charset);
         imageScroll = new JScrollPane();
 
         if (isImage()) {
@@ -207,21 +252,94 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
         StringBuilder sb = new StringBuilder();
 
         sb.append(bundleString("LOBDataType") + " ").append(recordDataItem.getLobRecordItemName());
-        sb.append("   " + bundleString("TotalSize") + " ").append(recordDataItem.length()).append(" " + bundleString("Bytes"));
+        sb.append("   " + bundleString("TotalSize") + " ").append(recordDataItem.getLength()).append(" " + bundleString("Bytes"));
 
         return sb.toString();
     }
 
-    private byte[] recordDataItemByteArray() {
+    /**
+     * Creates the document reading the pages of the value as they
+     * are displayed.
+     */
+    private AnnotatedBinaryDocument createDocument() {
+
+        ByteSource source = recordDataItem.getByteSource();
+        try {
+
+            return new AnnotatedBinaryDocument(
+                    source != null ? source : new ByteArraySource(new byte[0]), readOnly);
+
+        } catch (IOException e) {
 
-        return recordDataItem.getData() != null ? recordDataItem.getData() : new byte[0];
+            Log.error("Error reading LOB data: " + e.getMessage(), e);
+            return new AnnotatedBinaryDocument(new byte[0], readOnly);
+        }
+    }
+
+    /**
+     * Reads up to the specified number of bytes of the document
+     * starting at the offset.
+     */
+    private byte[] readDocument(long offset, int count) {
+
+        BinaryDocument document = binaryStringTextArea.getDocument();
+        count = (int) Math.max(0, Math.min(count, document.length() - offset));
+
+        byte[] data = new byte[count];
+        int done = 0;
+        while (done < count) {
+
+            int read = document.read(document.createOffset(offset + done), data, done, count - done);
+            if (read < 0) {
+                break;
+            }
+            done += read;
+        }
+
+        return done < count ? Arrays.copyOf(data, done) : data;
+    }
+
+    public void previousPage() {
+
+        textOffset = Math.max(0, textOffset - TEXT_PAGE_SIZE);
+        loadTextData();
+    }
+
+    public void nextPage() {
+
+        if (textOffset + TEXT_PAGE_SIZE < binaryStringTextArea.getDocument().length()) {
+
+            textOffset += TEXT_PAGE_SIZE;
+            loadTextData();
+        }
+    }
+
+    private boolean isPaged() {
+
+        return binaryStringTextArea.getDocument().length() > TEXT_PAGE_SIZE;
+    }
+
+    private void updatePageControls() {
+
+        long length = binaryStringTextArea.getDocument().length();
+        boolean paged = isPaged();
+
+        previousPageButton.setVisible(paged);
+        nextPageButton.setVisible(paged);
+        previousPageButton.setEnabled(textOffset > 0);
+        nextPageButton.setEnabled(textOffset + TEXT_PAGE_SIZE < length);
+        pageLabel.setText(paged
+                ? Bundles.get(getClass(), "PageBytes", textOffset + 1, Math.min(length, textOffset + TEXT_PAGE_SIZE), length)
+                : "");
     }
 
     private void loadTextData() {
 
         String dataAsText = null;
-        byte[] data = binaryStringTextArea.getDocument().getData();
+        byte[] data = readDocument(textOffset, TEXT_PAGE_SIZE);
         boolean isValidText = true;
+        loadedText = null;
+        updatePageControls();
 
         if (data != null) {
             if (charset.equals(CreateTableSQLSyntax.NONE))
@@ -255,7 +373,8 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
         if (isValidText) {
 
             setTextAreaText(textArea, dataAsText);
-            textArea.setEditable(true);
+            textArea.setEditable(!isPaged());
+            loadedText = dataAsText;
 
         } else {
 
@@ -287,7 +406,8 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
         if (isBlob()) {
             try {
-                String type = ((BlobRecordDataItem) recordDataItem).getLobRecordItemName(binaryStringTextArea.getDocument().getData());
+                String type = ((BlobRecordDataItem) recordDataItem).getLobRecordItemName(
+                        readDocument(0, PagedByteSource.DEFAULT_PAGE_SIZE));
                 return SUPPORTED_IMAGES.contains(type);
             } catch (Exception e) {
                 e.printStackTrace();
@@ -305,13 +425,79 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
         if (isBlob()) {
 
-            byte[] data = binaryStringTextArea.getDocument().getData();
-            return new ImageIcon(data);
+            // decoded from the stream of the pages
+            try (InputStream in = binaryStringTextArea.getDocument().getInputStream()) {
+
+                BufferedImage image = ImageIO.read(in);
+                return image != null ? new ImageIcon(image) : null;
+
+            } catch (IOException e) {
+
+                Log.error("Error reading image data: " + e.getMessage(), e);
+            }
         }
 
         return null;
     }
 
+    /**
+     * Copies the value to the file reading it in pages.
+     */
+    private void writeValue(File file) throws IOException {
+
+        ByteSource source = recordDataItem.getByteSource();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+
+            if (source == null) {
+                return;
+            }
+
+            byte[] buffer = new byte[PagedByteSource.DEFAULT_PAGE_SIZE];
+            long position = 0;
+            int read;
+            while ((read = source.read(position, buffer, 0, buffer.length)) > 0) {
+
+                out.write(buffer, 0, read);
+                position += read;
+            }
+
+        } finally {
+
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Applies the text edited to the document.
+     */
+    private void applyTextChanges() {
+
+        if (!textArea.isEditable() || loadedText == null || textArea.getText().equals(loadedText)) {
+            return;
+        }
+
+        if (charset.equals(CreateTableSQLSyntax.NONE))
+            binaryStringTextArea.setData(textArea.getText().getBytes());
+        else try {
+            binaryStringTextArea.setData(textArea.getText().getBytes(charset));
+        } catch (UnsupportedEncodingException e1) {
+            e1.printStackTrace();
+            binaryStringTextArea.setData(textArea.getText().getBytes());
+        }
+        loadedText = textArea.getText();
+    }
+
+    private void releaseDocument() {
+
+        try {
+            binaryStringTextArea.getDocument().close();
+        } catch (IOException e) {
+            Log.error("Error releasing LOB data: " + e.getMessage(), e);
+        }
+    }
+
     public void save() {
 
         FileChooserDialog fileChooser = new FileChooserDialog();
@@ -329,8 +515,7 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
                 GUIUtilities.showWaitCursor();
 
-                new ByteArrayFileWriter().write(
-                        fileChooser.getSelectedFile(), recordDataItemByteArray());
+                writeValue(fileChooser.getSelectedFile());
 
             } catch (IOException e) {
 
@@ -355,6 +540,7 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
 
     public void close() {
 
+        releaseDocument();
         parent.finished();
     }
 
@@ -362,21 +548,20 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
         if (!readOnly) {
             int selectedIndex = tabbedPane.getSelectedIndex();
             if (selectedIndex == 0)
-                if (!textArea.getText().equals(CANNOT_DISPLAY_BINARY_DATA_AS_TEXT)) {
-                    if (charset.equals(CreateTableSQLSyntax.NONE))
-                        binaryStringTextArea.setData(textArea.getText().getBytes());
-                    else try {
-                        binaryStringTextArea.setData(textArea.getText().getBytes(charset));
-                    } catch (UnsupportedEncodingException e1) {
-                        e1.printStackTrace();
-                        binaryStringTextArea.setData(textArea.getText().getBytes());
-                    }
-                }
-            if (!recordDataItemByteArray().equals(binaryStringTextArea.getDocument().getData())) {
-                recordDataItem.valueChanged(binaryStringTextArea.getDocument().getData());
+                applyTextChanges();
+
+            BinaryDocument document = binaryStringTextArea.getDocument();
+            if (document.isModified()) {
+                recordDataItem.valueChanged(document.getData());
+                table.addTableDataChange(new TableDataChange(row));
+
+            } else if (openedFileSource != null) {
+                // the file is streamed on update
+                recordDataItem.setNewValueSource(openedFileSource);
                 table.addTableDataChange(new TableDataChange(row));
             }
         }
+        releaseDocument();
         parent.finished();
     }
 
@@ -386,8 +571,11 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
             try {
-                binaryStringTextArea = new HexEditor(new AnnotatedBinaryDocument(file), charset);
+                releaseDocument();
+                openedFileSource = new FileByteSource(file);
+                binaryStringTextArea = new HexEditor(new AnnotatedBinaryDocument(openedFileSource, false), charset);
                 scrollPane.setViewportView(binaryStringTextArea);
+                textOffset = 0;
                 loadTextData();
                 if (isImage()) {
                     imageLabel = new JLabel(loadImageData());
@@ -407,6 +595,7 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
             recordDataItem.valueChanged(null);
             table.addTableDataChange(new TableDataChange(row));
         }
+        releaseDocument();
         parent.finished();
     }
 
@@ -419,16 +608,7 @@ public class LobDataItemViewerPanel extends DefaultActionButtonsPanel
             textArea.requestFocus();
         }
         if (selectedIndex == 2) {
-            if (!textArea.getText().equals(CANNOT_DISPLAY_BINARY_DATA_AS_TEXT)) {
-                if (charset.equals(CreateTableSQLSyntax.NONE))
-                    binaryStringTextArea.setData(textArea.getText().getBytes());
-                else try {
-                    binaryStringTextArea.setData(textArea.getText().getBytes(charset));
-                } catch (UnsupportedEncodingException e1) {
-                    e1.printStackTrace();
-                    binaryStringTextArea.setData(textArea.getText().getBytes());
-                }
-            }
+            applyTextChanges();
         }
     }
 
@@ -0,0 +1,237 @@
+/*
+ * PlanHistoryDialog.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.editor;
+
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.gui.BaseDialog;
+import org.executequery.gui.DefaultPanelButton;
+import org.executequery.localization.Bundles;
+import org.executequery.sql.PlanHistory;
+import org.underworldlabs.swing.actions.ReflectiveAction;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.text.DateFormat;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Lists the recorded executions of a statement of the query editor
+ * with their times, performance counters and plans - the latest first.
+ *
+ * @author Takis Diakoumis
+ */
+public class PlanHistoryDialog extends BaseDialog {
+
+    private final PlanHistory history;
+
+    private final List<PlanHistory.Execution> executions;
+
+    /**
+     * the number of each plan in the order of its first execution
+     */
+    private final Map<Long, Integer> planNumbers = new HashMap<>();
+
+    private JTextArea planArea;
+
+    public PlanHistoryDialog(DatabaseConnection databaseConnection, String query) {
+
+        super(bundledString("title", databaseConnection.getName()), false, true);
+        this.history = PlanHistory.getInstance(databaseConnection);
+        this.executions = history.getExecutions(query);
+
+        for (int i = executions.size() - 1; i >= 0; i--) {
+
+            long planKey = executions.get(i).getPlanKey();
+            if (planKey != 0 && !planNumbers.containsKey(planKey)) {
+                planNumbers.put(planKey, planNumbers.size() + 1);
+            }
+        }
+
+        init(query);
+        display();
+    }
+
+    private void init(String query) {
+
+        ReflectiveAction action = new ReflectiveAction(this);
+
+        JTextArea queryArea = new JTextArea(query, 4, 40);
+        queryArea.setEditable(false);
+        queryArea.setFont(new Font("monospaced", 0, 12));
+
+        planArea = new JTextArea(6, 40);
+        planArea.setEditable(false);
+        planArea.setFont(new Font("monospaced", 0, 12));
+
+        JTable table = new JTable(new ExecutionsTableModel());
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setPreferredWidth(140);
+        table.getSelectionModel().addListSelectionListener(e -> {
+
+            int row = table.getSelectedRow();
+            String plan = row != -1 ? history.getPlan(executions.get(row)) : null;
+            planArea.setText(plan != null ? plan : "");
+            planArea.setCaretPosition(0);
+        });
+
+        JLabel statusLabel = new JLabel(bundledString("status", executions.size(), planNumbers.size()));
+
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.BOTH;
+        panel.add(new JScrollPane(queryArea), gbc);
+
+        gbc.gridy = 1;
+        gbc.weighty = 1.0;
+        panel.add(new JScrollPane(table), gbc);
+
+        gbc.gridy = 2;
+        gbc.weighty = 0;
+        panel.add(new JLabel(bundledString("plan")), gbc);
+        gbc.gridy = 3;
+        gbc.weighty = 0.5;
+        panel.add(new JScrollPane(planArea), gbc);
+
+        gbc.gridy = 4;
+        gbc.weighty = 0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(statusLabel, gbc);
+
+        JButton closeButton = new DefaultPanelButton(action, Bundles.get("common.close.button"), "close");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        buttonPanel.add(closeButton);
+
+        JPanel base = new JPanel(new BorderLayout());
+        base.setPreferredSize(new Dimension(800, 600));
+        base.add(panel, BorderLayout.CENTER);
+        base.add(buttonPanel, BorderLayout.SOUTH);
+
+        addDisplayComponentWithEmptyBorder(base);
+
+        if (!executions.isEmpty()) {
+            table.setRowSelectionInterval(0, 0);
+        }
+    }
+
+    public void close(ActionEvent e) {
+
+        dispose();
+    }
+
+    private static String bundledString(String key, Object... args) {
+        return Bundles.get(PlanHistoryDialog.class, key, args);
+    }
+
+    private class ExecutionsTableModel extends AbstractTableModel {
+
+        private final DateFormat dateFormat = DateFormat.getDateTimeInstance();
+
+        private final List<String> columns = Arrays.asList(
+                bundledString("executed"),
+                bundledString("time"),
+                bundledString("fetches"),
+                bundledString("reads"),
+                bundledString("writes"),
+                bundledString("marks"),
+                bundledString("planNumber"),
+                bundledString("serverVersion"));
+
+        public int getRowCount() {
+            return executions.size();
+        }
+
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        public String getColumnName(int column) {
+            return columns.get(column);
+        }
+
+        public Object getValueAt(int row, int column) {
+
+            PlanHistory.Execution execution = executions.get(row);
+            switch (column) {
+
+                case 0:
+                    return dateFormat.format(new Date(execution.getExecuted()));
+
+                case 1:
+                    return execution.getTime() >= 0 ? String.valueOf(execution.getTime()) : bundledString("prepared");
+
+                case 2:
+                    return counter(execution.getFetches());
+
+                case 3:
+                    return counter(execution.getReads());
+
+                case 4:
+                    return counter(execution.getWrites());
+
+                case 5:
+                    return counter(execution.getMarks());
+
+                case 6:
+                    return planNumber(row);
+
+                default:
+                    return execution.getServerVersion();
+            }
+        }
+
+        private String counter(long value) {
+            return value >= 0 ? String.valueOf(value) : null;
+        }
+
+        /**
+         * Returns the number of the plan marked when it differs from the
+         * plan of the previous execution.
+         */
+        private String planNumber(int row) {
+
+            long planKey = executions.get(row).getPlanKey();
+            if (planKey == 0) {
+                return null;
+            }
+
+            for (int i = row + 1; i < executions.size(); i++) {
+
+                long previous = executions.get(i).getPlanKey();
+                if (previous != 0) {
+
+                    return previous != planKey
+                            ? bundledString("planChanged", planNumbers.get(planKey))
+                            : String.valueOf(planNumbers.get(planKey));
+                }
+            }
+            return String.valueOf(planNumbers.get(planKey));
+        }
+
+    } // class ExecutionsTableModel
+
+}
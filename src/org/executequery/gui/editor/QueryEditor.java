@@ -1289,6 +1289,75 @@ public class QueryEditor extends DefaultTabView
         delegate.printExecutedPlan(getSelectedConnection(), query, explained);
     }
 
+    /**
+     * Opens the benchmark of the selected text or of the query at the
+     * cursor.
+     */
+    public void benchmarkQuery() {
+
+        String query = selectedStatement();
+        if (query == null) {
+
+            return;
+        }
+
+        DatabaseConnection databaseConnection = getSelectedConnection();
+        if (databaseConnection == null || !databaseConnection.isConnected()) {
+
+            GUIUtilities.displayErrorMessage(bundleString("BenchmarkNotConnected"));
+            return;
+        }
+
+        new StatementBenchmarkDialog(databaseConnection, query);
+    }
+
+    /**
+     * Opens the plan history of the selected text or of the query at
+     * the cursor.
+     */
+    public void showPlanHistory() {
+
+        String query = selectedStatement();
+        if (query == null) {
+
+            return;
+        }
+
+        DatabaseConnection databaseConnection = getSelectedConnection();
+        if (databaseConnection == null) {
+
+            GUIUtilities.displayErrorMessage(bundleString("PlanHistoryNoConnection"));
+            return;
+        }
+
+        new PlanHistoryDialog(databaseConnection, query);
+    }
+
+    /**
+     * Returns the selected text or the query at the cursor without
+     * the trailing delimiter - null if blank.
+     */
+    private String selectedStatement() {
+
+        String query = getSelectedText();
+        if (StringUtils.isBlank(query)) {
+
+            query = getQueryAtCursor().getQuery();
+        }
+
+        if (StringUtils.isBlank(query)) {
+
+            return null;
+        }
+
+        query = query.trim();
+        if (query.endsWith(";")) {
+
+            query = query.substring(0, query.length() - 1);
+        }
+        return query;
+    }
+
     public void executeSQLAtCursor() {
 
         preExecute();
@@ -2,6 +2,7 @@ package org.executequery.gui.editor;
 
 import org.executequery.GUIUtilities;
 import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.gui.ExecuteSqlScriptPanel;
 import org.executequery.gui.editor.autocomplete.Parameter;
 import org.executequery.util.SystemResources;
 import org.underworldlabs.util.FileUtils;
@@ -249,7 +250,9 @@ public class QueryEditorHistory {
             try {
                 removeEditor(connectionID, copy.get(i).path);
                 File file = new File(copy.get(i).path);
-                if (file.exists()) {
+                if (file.length() >= ExecuteSqlScriptPanel.MAX_LENGTH_TEXT_PANE) {
+                    ExecuteSqlScriptPanel.openScript(file);
+                } else if (file.exists()) {
                     String contents = FileUtils.loadFile(file, encoding);
                     QueryEditor queryEditor = new QueryEditor(contents, copy.get(i).path);
                     if (connection != null)
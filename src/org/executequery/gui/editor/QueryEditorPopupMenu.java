@@ -64,6 +64,8 @@ public class QueryEditorPopupMenu extends JPopupMenu
         //add(createPartialExecuteMenuItem());
         add(createExecuteSelectionMenuItem());
         add(createExecuteBlockMenuItem());
+        add(createBenchmarkMenuItem());
+        add(createPlanHistoryMenuItem());
         add(createStopMenuItem());
 
         addSeparator();
@@ -361,6 +363,16 @@ public class QueryEditorPopupMenu extends JPopupMenu
         */
     }
 
+    private JMenuItem createBenchmarkMenuItem() {
+
+        return createExecuteActionMenuItem("benchmark-query-command", bundleString("benchmark-query-command"));
+    }
+
+    private JMenuItem createPlanHistoryMenuItem() {
+
+        return createExecuteActionMenuItem("plan-history-command", bundleString("plan-history-command"));
+    }
+
     private JMenuItem createExecuteSelectionMenuItem() {
 
         return createExecuteActionMenuItem("execute-selection-command", bundleString("execute-selection-command"));
@@ -22,16 +22,20 @@ package org.executequery.gui.editor;
 
 import org.executequery.GUIUtilities;
 import org.executequery.components.FileChooserDialog;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.datasource.ConnectionManager;
 import org.executequery.gui.DefaultPanelButton;
 import org.executequery.gui.WidgetFactory;
 import org.executequery.gui.browser.DefaultInlineFieldButton;
 import org.executequery.gui.importexport.DefaultExcelWorkbookBuilder;
 import org.executequery.gui.importexport.ExcelWorkbookBuilder;
+import org.executequery.gui.importexport.StreamingExcelWorkbookBuilder;
 import org.executequery.gui.importexport.ImportExportDataProcess;
+import org.executequery.gui.resultset.BlobRecordDataItem;
 import org.executequery.gui.resultset.RecordDataItem;
 import org.executequery.gui.resultset.ResultSetTableModel;
-import org.executequery.gui.resultset.ResultSetTableModelToXMLWriter;
 import org.executequery.localization.Bundles;
+import org.executequery.log.Log;
 import org.underworldlabs.swing.AbstractBaseDialog;
 import org.underworldlabs.swing.CharLimitedTextField;
 import org.underworldlabs.swing.actions.ActionUtilities;
@@ -40,22 +44,49 @@ import org.underworldlabs.swing.util.SwingWorker;
 import org.underworldlabs.util.FileUtils;
 import org.underworldlabs.util.MiscUtils;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.table.TableModel;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.*;
-import java.sql.Types;
-import java.util.ArrayList;
+import java.sql.*;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
+ * Exports the rows of a result set table to a file.
+ * <p>
+ * The rows loaded into the table are written from the row data of
+ * the model. Alternatively the query of the results is executed
+ * again on its own cursor and all its rows are streamed to the file
+ * without being loaded into the table.
+ *
  * @author Takis Diakoumis
  */
 public class QueryEditorResultsExporter extends AbstractBaseDialog {
 
+    /**
+     * the export type of insert statements
+     */
+    private static final int SQL_INSERTS = -1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int FETCH_SIZE = 10000;
+
+    /**
+     * the number of rows exported between progress updates
+     */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private static final Pattern TABLE_NAME = Pattern.compile("\\bfrom\\s+(\"[^\"]+\"|[\\w$]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String DONE = "done";
+    private static final String CANCELLED = "cancelled";
+
     // column headers check
     private JCheckBox columnHeadersCheck;
 
@@ -74,9 +105,22 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
     // the file text field
     private JTextField fileNameField;
 
+    // execute the query again check
+    private JCheckBox reExecuteCheck;
+
+    // the table name of insert statements
+    private JTextField tableNameField;
+
     // The table model to be exported
     private TableModel model;
 
+    private ResultsProgressDialog progressDialog;
+
+    private volatile boolean cancelled;
+
+    // the executing statement of an export executing the query
+    private volatile Statement statement;
+
     public QueryEditorResultsExporter(TableModel model) {
 
         super(GUIUtilities.getParentFrame(), "Export Query Results", true);
@@ -95,11 +139,12 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
         String[] delims = {"Pipe", "Comma", "Semi-colon", "Hash", "Custom"};
         delimCombo = ActionUtilities.createComboBox(action, delims, "delimeterChanged");
 
-        String[] types = {"Delimited File", "Excel Spreadsheet", "XML"};
+        String[] types = {"Delimited File", "Excel Spreadsheet", "XML", "SQL Insert Statements"};
         typeCombo = ActionUtilities.createComboBox(action, types, "exportTypeChanged");
 
         customDelimField = new CharLimitedTextField(1);
         fileNameField = WidgetFactory.createTextField();
+        tableNameField = WidgetFactory.createTextField();
 
         JButton browseButton = new DefaultInlineFieldButton(action);
         browseButton.setText("Browse");
@@ -110,6 +155,7 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
 
         columnHeadersCheck = new JCheckBox("Include column names as first row");
         applyQuotesCheck = new JCheckBox("Use double quotes for char/varchar/longvarchar columns", true);
+        reExecuteCheck = new JCheckBox("Execute the query again and export all rows, not only the loaded rows");
 
         // the button panel
         JPanel btnPanel = new JPanel(new GridBagLayout());
@@ -140,10 +186,13 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
         base.add(columnHeadersCheck, gbc);
         gbc.gridy++;
 
-        gbc.insets.bottom = 10;
         base.add(applyQuotesCheck, gbc);
         gbc.gridy++;
 
+        gbc.insets.bottom = 10;
+        base.add(reExecuteCheck, gbc);
+        gbc.gridy++;
+
         gbc.gridwidth = 1;
         gbc.insets.bottom = 0;
         gbc.insets.top = labelInsetsTop;
@@ -177,6 +226,17 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
         base.add(customDelimField, gbc);
         gbc.gridx = 0;
         gbc.gridy++;
+        gbc.insets.top = labelInsetsTop;
+        gbc.gridwidth = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        base.add(new JLabel("Table Name:"), gbc);
+        gbc.gridx = 1;
+        gbc.insets.top = fieldInsetsTop;
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        base.add(tableNameField, gbc);
+        gbc.gridx = 0;
+        gbc.gridy++;
         gbc.gridwidth = 1;
         gbc.insets.top = labelInsetsTop;
         gbc.fill = GridBagConstraints.NONE;
@@ -202,7 +262,7 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
         gbc.gridwidth = GridBagConstraints.REMAINDER;
         base.add(btnPanel, gbc);
 
-        Dimension baseDim = new Dimension(650, 280);
+        Dimension baseDim = new Dimension(650, 340);
         base.setPreferredSize(baseDim);
 
         base.setBorder(BorderFactory.createEtchedBorder());
@@ -216,6 +276,34 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
         setResizable(false);
         setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         customDelimField.setEnabled(false);
+        tableNameField.setEnabled(false);
+
+        boolean canReExecute = canReExecute();
+        reExecuteCheck.setEnabled(canReExecute);
+        if (canReExecute) {
+
+            ResultSetTableModel resultSetTableModel = (ResultSetTableModel) model;
+            reExecuteCheck.setSelected(!resultSetTableModel.isResultSetClose());
+
+            Matcher matcher = TABLE_NAME.matcher(resultSetTableModel.getQuery());
+            if (matcher.find()) {
+                tableNameField.setText(matcher.group(1));
+            }
+        }
+    }
+
+    /**
+     * Whether the query of the results is known and may be executed again.
+     */
+    private boolean canReExecute() {
+
+        if (model instanceof ResultSetTableModel) {
+
+            ResultSetTableModel resultSetTableModel = (ResultSetTableModel) model;
+            return resultSetTableModel.getDatabaseConnection() != null
+                    && !MiscUtils.isNull(resultSetTableModel.getQuery());
+        }
+        return false;
     }
 
     public void dispose() {
@@ -233,6 +321,8 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
                 return ImportExportDataProcess.EXCEL;
             case 2:
                 return ImportExportDataProcess.XML;
+            case 3:
+                return SQL_INSERTS;
             default:
                 return ImportExportDataProcess.DELIMITED;
         }
@@ -242,7 +332,8 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
     public void exportTypeChanged(ActionEvent e) {
         int index = typeCombo.getSelectedIndex();
         delimCombo.setEnabled(index == 0);
-        columnHeadersCheck.setEnabled(index != 2);
+        columnHeadersCheck.setEnabled(index < 2);
+        tableNameField.setEnabled(index == 3);
     }
 
     public void delimeterChanged(ActionEvent e) {
@@ -276,11 +367,15 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
         int exportFormatType = getExportFormatType();
         if (exportFormatType == ImportExportDataProcess.EXCEL) {
 
-            suffix = ".xls";
+            suffix = path.toLowerCase().endsWith(".xls") ? ".xls" : ".xlsx";
 
         } else if (exportFormatType == ImportExportDataProcess.XML) {
 
             suffix = ".xml";
+
+        } else if (exportFormatType == SQL_INSERTS) {
+
+            suffix = ".sql";
         }
 
         path = appendToPath(path, suffix);
@@ -330,274 +425,319 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
 
         }
 
+        if (getExportFormatType() == SQL_INSERTS && MiscUtils.isNull(tableNameField.getText())) {
+
+            GUIUtilities.displayErrorMessage("You must enter the table name of the insert statements");
+            return;
+        }
+
+        boolean reExecute = reExecuteCheck.isSelected();
+        progressDialog = progressDialog(reExecute ? -1 : model.getRowCount());
+
         SwingWorker worker = new SwingWorker() {
             public Object construct() {
 
-                return doExport();
+                return doExport(reExecute);
             }
 
             public void finished() {
 
-                GUIUtilities.displayInformationMessage("Result set export complete.");
+                progressDialog.dispose();
+                if (DONE.equals(get())) {
+
+                    GUIUtilities.displayInformationMessage("Result set export complete.");
+                }
                 dispose();
             }
         };
         worker.start();
     }
 
-    private Object doExport() {
-        int exportFormatType = getExportFormatType();
-        if (exportFormatType == ImportExportDataProcess.DELIMITED) {
+    private Object doExport(boolean reExecute) {
 
-            return exportDelimited();
-        } else if (exportFormatType == ImportExportDataProcess.EXCEL) {
+        try (OutputStream outputStream = createOutputStream();
+             ResultsExportWriter writer = createWriter(outputStream)) {
 
-            return exportExcel();
+            if (reExecute) {
 
-        } else {
+                exportQuery(writer);
 
-            return exportXML();
-        }
-    }
+            } else {
 
-    private Object exportXML() {
+                exportModel(writer);
+            }
 
-        ResultSetTableModelToXMLWriter writer = new ResultSetTableModelToXMLWriter((ResultSetTableModel) model, fileNameField.getText());
-        try {
+            if (cancelled) {
 
-            writer.write();
+                return CANCELLED;
+            }
 
-        } catch (ParserConfigurationException e) {
+            writer.finish();
+            return DONE;
 
-            return handleError(e);
+        } catch (IOException | SQLException e) {
 
-        } catch (TransformerException e) {
+            if (cancelled) {
 
+                return CANCELLED;
+            }
             return handleError(e);
         }
-
-        return "done";
     }
 
-    private Object handleError(Throwable e) {
+    private ResultsExportWriter createWriter(OutputStream outputStream) {
 
-        String message = "Error writing to file:\n\n" + e.getMessage();
-        GUIUtilities.displayExceptionErrorDialog(message, e);
+        int exportFormatType = getExportFormatType();
+        if (exportFormatType == ImportExportDataProcess.EXCEL) {
 
-        return "failed";
-    }
+            return ResultsExportWriter.excel(outputStream, createExcelWorkbookBuilder(), columnHeadersCheck.isSelected());
+
+        } else if (exportFormatType == ImportExportDataProcess.XML) {
 
-    private Object exportExcel() {
+            String query = model instanceof ResultSetTableModel ? ((ResultSetTableModel) model).getQuery() : null;
+            return ResultsExportWriter.xml(outputStream, query != null ? query : "");
 
-        OutputStream outputStream = null;
-        ResultsProgressDialog progressDialog = null;
+        } else if (exportFormatType == SQL_INSERTS) {
 
-        try {
+            return ResultsExportWriter.sql(outputStream, tableNameField.getText().trim());
+        }
 
-            outputStream = createOutputStream();
+        return ResultsExportWriter.delimited(outputStream, delimiter(),
+                columnHeadersCheck.isSelected(), applyQuotesCheck.isSelected());
+    }
 
-            ExcelWorkbookBuilder builder = createExcelWorkbookBuilder();
+    /**
+     * Writes the rows loaded into the table model. The row data of a
+     * result set model is read directly rather than cell by cell.
+     */
+    private void exportModel(ResultsExportWriter writer) throws IOException {
 
-            builder.createSheet("Result Set Export");
+        int rowCount = model.getRowCount();
+        int columnCount = model.getColumnCount();
 
-            int rowCount = model.getRowCount();
-            int columnCount = model.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        int[] columnTypes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
 
-            progressDialog = progressDialog(rowCount);
+            columnNames[i] = model.getColumnName(i);
 
-            List<String> values = new ArrayList<String>(columnCount);
+            Object value = rowCount > 0 ? model.getValueAt(0, i) : null;
+            columnTypes[i] = value instanceof RecordDataItem ? ((RecordDataItem) value).getDataType() : Types.OTHER;
+        }
+        writer.start(columnNames, columnTypes);
 
-            if (columnHeadersCheck.isSelected()) {
+        String[] values = new String[columnCount];
+        if (model instanceof ResultSetTableModel) {
 
-                for (int i = 0; i < columnCount; i++) {
+            ResultSetTableModel resultSetTableModel = (ResultSetTableModel) model;
+            int[] columnIndices = resultSetTableModel.getVisibleColumnIndices();
+            for (int i = 0; i < rowCount && !cancelled; i++) {
+
+                List<RecordDataItem> row = resultSetTableModel.getRowDataForRow(i);
+                for (int j = 0; j < columnCount; j++) {
 
-                    values.add(model.getColumnName(i));
+                    values[j] = valueAsString(row.get(columnIndices[j]), writer);
                 }
 
-                builder.addRowHeader(values);
+                writer.row(values);
+                progress(i + 1);
             }
 
-            for (int i = 0; i < rowCount; i++) {
+        } else {
 
-                values.clear();
+            for (int i = 0; i < rowCount && !cancelled; i++) {
 
                 for (int j = 0; j < columnCount; j++) {
 
-                    Object value = model.getValueAt(i, j);
-                    values.add(valueAsString(value));
+                    values[j] = valueAsString(model.getValueAt(i, j), writer);
                 }
 
-                builder.addRow(values);
-                progressDialog.increment(i + 1);
+                writer.row(values);
+                progress(i + 1);
             }
+        }
+    }
 
-            builder.writeTo(outputStream);
+    /**
+     * Executes the query of the results again on its own connection
+     * and streams all its rows to the writer.
+     */
+    private void exportQuery(ResultsExportWriter writer) throws IOException, SQLException {
 
-            return "done";
+        ResultSetTableModel resultSetTableModel = (ResultSetTableModel) model;
+        DatabaseConnection databaseConnection = resultSetTableModel.getDatabaseConnection();
+        String query = resultSetTableModel.getQuery();
 
-        } catch (IOException e) {
+        DataSource dataSource = ConnectionManager.getDataSource(databaseConnection);
+        if (dataSource == null) {
 
-            return handleError(e);
+            throw new SQLException("Connection " + databaseConnection.getName() + " is not open");
+        }
 
-        } finally {
+        try (Connection connection = dataSource.getConnection()) {
 
-            if (progressDialog != null && progressDialog.isVisible()) {
-                progressDialog.dispose();
-                progressDialog = null;
-            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement exportStatement = connection.createStatement(
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
 
-            if (outputStream != null) {
-                try {
-                    outputStream.close();
-                } catch (IOException e) {
-                }
-            }
+                exportStatement.setFetchSize(FETCH_SIZE);
+                statement = exportStatement;
 
-        }
+                Log.info("Executing query for export: [ " + query + " ]");
+                try (ResultSet rs = exportStatement.executeQuery(query)) {
 
-    }
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    int columnCount = metaData.getColumnCount();
 
-    private ResultsProgressDialog progressDialog(int rowCount) {
+                    String[] columnNames = new String[columnCount];
+                    int[] columnTypes = new int[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
 
-        ResultsProgressDialog progressDialog;
-        progressDialog = new ResultsProgressDialog(rowCount);
-        setVisible(false);
-        progressDialog.pack();
+                        columnNames[i] = metaData.getColumnLabel(i + 1);
+                        columnTypes[i] = metaData.getColumnType(i + 1);
+                    }
+                    writer.start(columnNames, columnTypes);
 
-        progressDialog.setLocation(GUIUtilities.getLocationForDialog(progressDialog.getSize()));
-        progressDialog.setVisible(true);
+                    String[] values = new String[columnCount];
+                    long rowCount = 0;
+                    while (!cancelled && rs.next()) {
 
-        return progressDialog;
-    }
+                        for (int i = 0; i < columnCount; i++) {
 
-    private OutputStream createOutputStream() throws FileNotFoundException {
+                            values[i] = valueAsString(rs, i + 1, columnTypes[i], writer);
+                        }
 
-        return new FileOutputStream(fileNameField.getText(), false);
-    }
+                        writer.row(values);
+                        progress(++rowCount);
+                    }
+                }
 
-    private ExcelWorkbookBuilder createExcelWorkbookBuilder() {
+            } finally {
 
-        return new DefaultExcelWorkbookBuilder();
+                statement = null;
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
     }
 
-    private Object exportDelimited() {
-        int delimIndex = delimCombo.getSelectedIndex();
-        char delim = 0;
+    private String valueAsString(ResultSet rs, int index, int type, ResultsExportWriter writer) throws SQLException {
 
-        switch (delimIndex) {
-            case 0:
-                delim = '|';
-                break;
-            case 1:
-                delim = ',';
-                break;
-            case 2:
-                delim = ';';
-                break;
-            case 3:
-                delim = '#';
-                break;
-            case 4:
-                delim = customDelimField.getText().charAt(0);
-                break;
+        switch (type) {
+
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                byte[] bytes = rs.getBytes(index);
+                return bytes != null ? writer.binaryValue(bytes) : null;
+
+            default:
+                return rs.getString(index);
         }
+    }
 
-        ResultsProgressDialog progressDialog = null;
-        PrintWriter writer = null;
-        File exportFile = null;
+    private void progress(long rowCount) {
 
-        try {
-            exportFile = new File(fileNameField.getText());
+        if (rowCount % PROGRESS_INTERVAL == 0) {
 
-            StringBuilder rowLines = new StringBuilder(5000);
-            writer = new PrintWriter(new FileWriter(exportFile, false), true);
+            progressDialog.increment(rowCount);
+        }
+    }
 
-            int rowCount = model.getRowCount();
-            int columnCount = model.getColumnCount();
+    private void cancelExport() {
 
-            progressDialog = progressDialog(rowCount);
+        cancelled = true;
 
-            if (columnHeadersCheck.isSelected()) {
-                for (int i = 0; i < columnCount; i++) {
-                    rowLines.append(model.getColumnName(i));
-                    if (i != columnCount - 1) {
-                        rowLines.append(delim);
-                    }
-                }
-                writer.println(rowLines.toString());
-                rowLines.setLength(0);
-            }
+        Statement executing = statement;
+        if (executing != null) {
 
-            boolean applyQuotes = applyQuotesCheck.isSelected();
-            for (int i = 0; i < rowCount; i++) {
+            try {
 
-                for (int j = 0; j < columnCount; j++) {
+                executing.cancel();
 
-                    Object value = model.getValueAt(i, j);
-                    if (applyQuotes && isCDATA((RecordDataItem) value)) {
+            } catch (SQLException e) {
 
-                        rowLines.append("\"" + valueAsString(value) + "\"");
+                Log.debug("Error cancelling the export statement", e);
+            }
+        }
+    }
 
-                    } else {
+    private Object handleError(Throwable e) {
 
-                        rowLines.append(valueAsString(value));
-                    }
+        String message = "Error writing to file:\n\n" + e.getMessage();
+        GUIUtilities.displayExceptionErrorDialog(message, e);
 
-                    if (j != columnCount - 1) {
+        return "failed";
+    }
 
-                        rowLines.append(delim);
-                    }
+    private ResultsProgressDialog progressDialog(int rowCount) {
 
-                }
+        ResultsProgressDialog progressDialog;
+        progressDialog = new ResultsProgressDialog(rowCount);
+        setVisible(false);
+        progressDialog.pack();
 
-                writer.println(rowLines.toString());
-                rowLines.setLength(0);
-                progressDialog.increment(i + 1);
-            }
+        progressDialog.setLocation(GUIUtilities.getLocationForDialog(progressDialog.getSize()));
+        progressDialog.setVisible(true);
 
-            return "done";
+        return progressDialog;
+    }
 
-        } catch (IOException e) {
+    private OutputStream createOutputStream() throws FileNotFoundException {
 
-            return handleError(e);
+        return new BufferedOutputStream(new FileOutputStream(fileNameField.getText(), false), BUFFER_SIZE);
+    }
 
-        } finally {
-            if (progressDialog != null && progressDialog.isVisible()) {
-                progressDialog.dispose();
-                progressDialog = null;
-            }
-            if (writer != null) {
-                writer.close();
-            }
+    private ExcelWorkbookBuilder createExcelWorkbookBuilder() {
+
+        if (fileNameField.getText().toLowerCase().endsWith(".xls")) {
+
+            return new DefaultExcelWorkbookBuilder();
         }
 
+        return new StreamingExcelWorkbookBuilder();
     }
 
-    private boolean isCDATA(RecordDataItem valueAt) {
+    private char delimiter() {
 
-        int type = valueAt.getDataType();
-        return (type == Types.CHAR ||
-                type == Types.VARCHAR ||
-                type == Types.LONGVARCHAR);
+        switch (delimCombo.getSelectedIndex()) {
+            case 1:
+                return ',';
+            case 2:
+                return ';';
+            case 3:
+                return '#';
+            case 4:
+                return customDelimField.getText().charAt(0);
+            default:
+                return '|';
+        }
     }
 
-    private String valueAsString(Object value) {
+    private String valueAsString(Object value, ResultsExportWriter writer) {
 
         if (value instanceof RecordDataItem) {
 
             RecordDataItem recordDataItem = (RecordDataItem) value;
-            if (!recordDataItem.isValueNull()) {
+            if (recordDataItem instanceof BlobRecordDataItem && !recordDataItem.isValueNull()) {
+
+                byte[] bytes = ((BlobRecordDataItem) recordDataItem).getData();
+                return bytes != null ? writer.binaryValue(bytes) : null;
+
+            } else if (!recordDataItem.isValueNull()) {
 
                 return recordDataItem.getDisplayValue().toString();
 
             } else {
 
-                return "";
+                return null;
             }
 
         } else {
 
-            return (value != null ? value.toString() : "");
+            return (value != null ? value.toString() : null);
         }
 
     }
@@ -609,7 +749,20 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
 
         public ResultsProgressDialog(int recordCount) {
             super(GUIUtilities.getParentFrame(), "Exporting Query Results", false);
-            progressBar = new JProgressBar(JProgressBar.HORIZONTAL, 0, recordCount);
+            progressBar = new JProgressBar(JProgressBar.HORIZONTAL, 0, Math.max(recordCount, 0));
+
+            // the row count of an executed query is not known
+            if (recordCount < 0) {
+                progressBar.setIndeterminate(true);
+                progressBar.setStringPainted(true);
+                progressBar.setString("");
+            }
+
+            JButton cancelButton = new JButton(Bundles.get("common.cancel.button"));
+            cancelButton.addActionListener(e -> {
+                cancelButton.setEnabled(false);
+                cancelExport();
+            });
 
             JPanel base = new JPanel(new GridBagLayout());
             GridBagConstraints gbc = new GridBagConstraints();
@@ -626,6 +779,12 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
             gbc.insets.bottom = 10;
             gbc.fill = GridBagConstraints.BOTH;
             base.add(progressBar, gbc);
+            gbc.gridy = 2;
+            gbc.ipadx = 0;
+            gbc.weighty = 0;
+            gbc.anchor = GridBagConstraints.CENTER;
+            gbc.fill = GridBagConstraints.NONE;
+            base.add(cancelButton, gbc);
 
             base.setBorder(BorderFactory.createEtchedBorder());
             Container c = this.getContentPane();
@@ -639,16 +798,18 @@ public class QueryEditorResultsExporter extends AbstractBaseDialog {
             setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
         }
 
-        public void increment(int value) {
-            progressBar.setValue(value);
+        public void increment(long value) {
+            SwingUtilities.invokeLater(() -> {
+                if (progressBar.isIndeterminate()) {
+                    progressBar.setString(value + " rows");
+                } else {
+                    progressBar.setValue((int) value);
+                }
+            });
         }
 
         public void dispose() {
             setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-            }
             setVisible(false);
             super.dispose();
         }
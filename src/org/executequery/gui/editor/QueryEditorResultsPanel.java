@@ -93,6 +93,11 @@ public class QueryEditorResultsPanel extends SimpleCloseTabbedPane
     private static final String ROW_RETURNED = " row returned";
     private static final String ROWS_RETURNED = " rows returned";
 
+    /**
+     * the lines retained by the output pane during long script runs
+     */
+    private static final int MAXIMUM_OUTPUT_LINES = 20000;
+
     private ResultSetTableColumnResizingManager resultSetTableColumnResizingManager;
 
     public QueryEditorResultsPanel(QueryEditor queryEditor) {
@@ -131,6 +136,7 @@ public class QueryEditorResultsPanel extends SimpleCloseTabbedPane
     private void init() {
 
         outputTextPane = new LoggingOutputPanel();
+        outputTextPane.setMaximumLines(MAXIMUM_OUTPUT_LINES);
         outputTextPane.setBorder(null);
 
         outputTabIcon = GUIUtilities.loadIcon("SystemOutput.png", true);
@@ -362,6 +368,10 @@ public class QueryEditorResultsPanel extends SimpleCloseTabbedPane
     public int setResultSet(ResultSet rset, boolean showRowNumber, int maxRecords, String query) throws SQLException {
 
         ResultSetTableModel model = new ResultSetTableModel(rset, maxRecords, query, false);
+        if (queryEditor != null) {
+
+            model.setDatabaseConnection(queryEditor.getSelectedConnection());
+        }
 
         int rowCount = getResultSetRowCount(model, showRowNumber);
         if (rowCount == 0) {
@@ -21,6 +21,7 @@
 package org.executequery.gui.editor;
 
 import org.executequery.gui.DefaultTable;
+import org.executequery.gui.resultset.AbstractRecordDataItem;
 import org.executequery.gui.resultset.RecordDataItem;
 import org.executequery.gui.resultset.ResultSetTable;
 import org.executequery.gui.resultset.ResultSetTableModel;
@@ -30,8 +31,10 @@ import org.underworldlabs.util.SystemProperties;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Simple SQL result set display panel.
@@ -142,24 +145,31 @@ public class ResultSetPanel extends JPanel {
         }
     }
 
+    /**
+     * Returns the rows with a value containing the specified pattern
+     * ignoring case. The rows are matched in parallel and returned in
+     * the model order.
+     */
     public List<List<RecordDataItem>> filter(String pattern) {
 
-        List<List<RecordDataItem>> filteredRows = new ArrayList<List<RecordDataItem>>();
-        for (int i = 0, n = model.getRowCount(); i < n; i++) {
+        Predicate<String> matcher = AbstractRecordDataItem.containsIgnoreCase(pattern);
+        return IntStream.range(0, model.getRowCount()).parallel()
+                .mapToObj(model::getRowDataForRow)
+                .filter(row -> rowMatches(row, matcher))
+                .collect(Collectors.toList());
+    }
 
-            List<RecordDataItem> row = model.getRowDataForRow(i);
-            for (RecordDataItem recordDataItem : row) {
+    private static boolean rowMatches(List<RecordDataItem> row, Predicate<String> matcher) {
 
-                if (recordDataItem.valueContains(pattern)) {
+        for (RecordDataItem recordDataItem : row) {
 
-                    filteredRows.add(row);
-                    break;
-                }
+            if (recordDataItem.valueMatches(matcher)) {
 
+                return true;
             }
 
         }
-        return filteredRows;
+        return false;
     }
 
     public int setResultSet(ResultSetTableModel model, boolean showRowNumber) {
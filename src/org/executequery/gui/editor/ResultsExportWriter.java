@@ -0,0 +1,467 @@
+/*
+ * ResultsExportWriter.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.editor;
+
+import org.executequery.gui.importexport.ExcelWorkbookBuilder;
+import org.executequery.util.Base64;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Writes exported result set rows in one of the export formats as
+ * the rows are read, so no more than the current row is held.
+ * <p>
+ * Values are passed as strings with null for SQL NULL values, the
+ * column types are the <code>java.sql.Types</code> of the columns.
+ * Binary values are converted with {@link #binaryValue(byte[])} of
+ * the writer.
+ *
+ * @author Takis Diakoumis
+ */
+abstract class ResultsExportWriter implements Closeable {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    protected String[] columnNames;
+
+    protected int[] columnTypes;
+
+    /**
+     * Starts the export with the specified columns.
+     */
+    void start(String[] columnNames, int[] columnTypes) throws IOException {
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+    }
+
+    /**
+     * Writes one row of values.
+     */
+    abstract void row(String[] values) throws IOException;
+
+    /**
+     * Returns the exported text of a binary value - Base64 encoded.
+     */
+    String binaryValue(byte[] bytes) {
+        return Base64.encodeBytes(bytes);
+    }
+
+    /**
+     * Completes the export - the output stream is flushed but not closed.
+     */
+    abstract void finish() throws IOException;
+
+    /**
+     * Releases the resources of the writer whether the export completed
+     * or not - the output stream is not closed.
+     */
+    public void close() throws IOException {
+    }
+
+    protected boolean isCharacter(int column) {
+
+        int type = columnTypes[column];
+        return type == Types.CHAR
+                || type == Types.VARCHAR
+                || type == Types.LONGVARCHAR
+                || type == Types.NCHAR
+                || type == Types.NVARCHAR
+                || type == Types.LONGNVARCHAR;
+    }
+
+    static ResultsExportWriter delimited(OutputStream out, char delimiter,
+                                         boolean columnHeaders, boolean applyQuotes) {
+        return new DelimitedWriter(out, delimiter, columnHeaders, applyQuotes);
+    }
+
+    static ResultsExportWriter excel(OutputStream out, ExcelWorkbookBuilder builder, boolean columnHeaders) {
+        return new ExcelWriter(out, builder, columnHeaders);
+    }
+
+    static ResultsExportWriter xml(OutputStream out, String query) {
+        return new XmlWriter(out, query);
+    }
+
+    static ResultsExportWriter sql(OutputStream out, String tableName) {
+        return new SqlInsertWriter(out, tableName);
+    }
+
+    /**
+     * Delimited rows written with the default character set as the
+     * delimited export always did.
+     */
+    private static class DelimitedWriter extends ResultsExportWriter {
+
+        private final Writer writer;
+        private final char delimiter;
+        private final boolean columnHeaders;
+        private final boolean applyQuotes;
+
+        private final StringBuilder line = new StringBuilder(5000);
+
+        DelimitedWriter(OutputStream out, char delimiter, boolean columnHeaders, boolean applyQuotes) {
+            this.writer = new OutputStreamWriter(out, Charset.defaultCharset());
+            this.delimiter = delimiter;
+            this.columnHeaders = columnHeaders;
+            this.applyQuotes = applyQuotes;
+        }
+
+        @Override
+        void start(String[] columnNames, int[] columnTypes) throws IOException {
+
+            super.start(columnNames, columnTypes);
+            if (columnHeaders) {
+                writeLine(columnNames, false);
+            }
+        }
+
+        @Override
+        void row(String[] values) throws IOException {
+            writeLine(values, applyQuotes);
+        }
+
+        private void writeLine(String[] values, boolean quote) throws IOException {
+
+            for (int i = 0; i < values.length; i++) {
+
+                String value = values[i] != null ? values[i] : "";
+                if (quote && isCharacter(i)) {
+                    line.append('"').append(value).append('"');
+                } else {
+                    line.append(value);
+                }
+
+                if (i != values.length - 1) {
+                    line.append(delimiter);
+                }
+            }
+
+            line.append(LINE_SEPARATOR);
+            writer.append(line);
+            line.setLength(0);
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+    } // class DelimitedWriter
+
+    /**
+     * Excel rows added to the workbook builder - streaming builders
+     * keep only a window of rows in memory.
+     */
+    private static class ExcelWriter extends ResultsExportWriter {
+
+        private final OutputStream out;
+        private final ExcelWorkbookBuilder builder;
+        private final boolean columnHeaders;
+
+        private final List<String> values = new ArrayList<String>();
+
+        ExcelWriter(OutputStream out, ExcelWorkbookBuilder builder, boolean columnHeaders) {
+            this.out = out;
+            this.builder = builder;
+            this.columnHeaders = columnHeaders;
+        }
+
+        @Override
+        void start(String[] columnNames, int[] columnTypes) throws IOException {
+
+            super.start(columnNames, columnTypes);
+            builder.createSheet("Result Set Export");
+            if (columnHeaders) {
+                builder.addRowHeader(Arrays.asList(columnNames));
+            }
+        }
+
+        @Override
+        void row(String[] rowValues) throws IOException {
+
+            values.clear();
+            for (String value : rowValues) {
+                values.add(value != null ? value : "");
+            }
+            builder.addRow(values);
+        }
+
+        @Override
+        void finish() throws IOException {
+            builder.writeTo(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            builder.close();
+        }
+
+    } // class ExcelWriter
+
+    /**
+     * The XML document of the result set written as a stream - the
+     * document is the same as built previously in memory.
+     */
+    private static class XmlWriter extends ResultsExportWriter {
+
+        private static final String INDENT = "    ";
+
+        private final XMLStreamWriter writer;
+        private final String query;
+
+        private int rowNumber;
+
+        XmlWriter(OutputStream out, String query) {
+
+            try {
+                this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+            this.query = query;
+        }
+
+        @Override
+        void start(String[] columnNames, int[] columnTypes) throws IOException {
+
+            super.start(columnNames, columnTypes);
+            try {
+
+                writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+                newLine(0);
+                writer.writeStartElement("result-set");
+                newLine(1);
+                writer.writeStartElement("query");
+                writeCData("\n" + query + "\n");
+                writer.writeEndElement();
+                newLine(1);
+                writer.writeStartElement("data");
+
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        void row(String[] values) throws IOException {
+
+            try {
+
+                newLine(2);
+                writer.writeStartElement("row");
+                writer.writeAttribute("number", String.valueOf(++rowNumber));
+
+                for (int i = 0; i < values.length; i++) {
+
+                    newLine(3);
+                    writer.writeStartElement(columnNames[i]);
+                    if (values[i] == null) {
+                        writer.writeCharacters("NULL");
+                    } else if (isCharacter(i)) {
+                        writeCData(values[i]);
+                    } else {
+                        writer.writeCharacters(values[i]);
+                    }
+                    writer.writeEndElement();
+                }
+
+                newLine(2);
+                writer.writeEndElement();
+
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+
+            try {
+
+                if (rowNumber > 0) {
+                    newLine(1);
+                }
+                writer.writeEndElement();
+                newLine(0);
+                writer.writeEndElement();
+                newLine(0);
+                writer.writeEndDocument();
+                writer.flush();
+
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Writes a CDATA section splitting any nested section end.
+         */
+        private void writeCData(String value) throws XMLStreamException {
+            writer.writeCData(value.replace("]]>", "]]]]><![CDATA[>"));
+        }
+
+        private void newLine(int depth) throws XMLStreamException {
+
+            writer.writeCharacters("\n");
+            for (int i = 0; i < depth; i++) {
+                writer.writeCharacters(INDENT);
+            }
+        }
+
+    } // class XmlWriter
+
+    /**
+     * Insert statements of the rows into the specified table.
+     */
+    private static class SqlInsertWriter extends ResultsExportWriter {
+
+        private static final Pattern PLAIN_NAME = Pattern.compile("[A-Z][A-Z0-9_$]*");
+
+        private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+        private final Writer writer;
+        private final String tableName;
+
+        private final StringBuilder statement = new StringBuilder(1024);
+
+        private String insertStatement;
+
+        SqlInsertWriter(OutputStream out, String tableName) {
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            this.tableName = tableName;
+        }
+
+        @Override
+        void start(String[] columnNames, int[] columnTypes) throws IOException {
+
+            super.start(columnNames, columnTypes);
+
+            StringBuilder sb = new StringBuilder("INSERT INTO ");
+            sb.append(tableName).append(" (");
+            for (int i = 0; i < columnNames.length; i++) {
+
+                sb.append(escapedName(columnNames[i]));
+                if (i < columnNames.length - 1) {
+                    sb.append(", ");
+                }
+            }
+            sb.append(") VALUES (");
+            insertStatement = sb.toString();
+        }
+
+        @Override
+        void row(String[] values) throws IOException {
+
+            statement.append(insertStatement);
+            for (int i = 0; i < values.length; i++) {
+
+                appendValue(i, values[i]);
+                if (i < values.length - 1) {
+                    statement.append(", ");
+                }
+            }
+
+            statement.append(");").append(LINE_SEPARATOR);
+            writer.append(statement);
+            statement.setLength(0);
+        }
+
+        private void appendValue(int column, String value) {
+
+            if (value == null) {
+                statement.append("NULL");
+                return;
+            }
+
+            switch (columnTypes[column]) {
+
+                case Types.BIT:
+                case Types.BOOLEAN:
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                case Types.FLOAT:
+                case Types.REAL:
+                case Types.DOUBLE:
+                    statement.append(value);
+                    break;
+
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB:
+                    statement.append("x'").append(value).append('\'');
+                    break;
+
+                default:
+                    statement.append('\'').append(value.replace("'", "''")).append('\'');
+            }
+        }
+
+        /**
+         * Returns the hex digits of a binary value for an x'...' literal.
+         */
+        @Override
+        String binaryValue(byte[] bytes) {
+
+            char[] hex = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+
+                hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+            }
+            return new String(hex);
+        }
+
+        private String escapedName(String name) {
+
+            if (PLAIN_NAME.matcher(name).matches()) {
+                return name;
+            }
+            return "\"" + name.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+    } // class SqlInsertWriter
+
+}
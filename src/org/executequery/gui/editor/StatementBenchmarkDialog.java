@@ -0,0 +1,383 @@
+/*
+ * StatementBenchmarkDialog.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.editor;
+
+import org.executequery.GUIUtilities;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.gui.BaseDialog;
+import org.executequery.gui.DefaultPanelButton;
+import org.executequery.localization.Bundles;
+import org.executequery.sql.StatementBenchmark;
+import org.executequery.sql.StatementBenchmark.Metric;
+import org.underworldlabs.swing.actions.ReflectiveAction;
+import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Runs a statement of the query editor repeatedly and shows the
+ * distribution of its execution time and - for Firebird - of its
+ * performance counters next to the saved baseline of the statement.
+ *
+ * @author Takis Diakoumis
+ */
+public class StatementBenchmarkDialog extends BaseDialog {
+
+    private final StatementBenchmark benchmark;
+
+    private StatementBenchmark.Result result;
+
+    private StatementBenchmark.Baseline baseline;
+
+    private JSpinner runsSpinner;
+
+    private JSpinner warmupSpinner;
+
+    private JCheckBox fetchAllCheckBox;
+
+    private JTextArea parametersArea;
+
+    private BenchmarkTableModel model;
+
+    private JLabel statusLabel;
+
+    private JButton runButton;
+
+    private JButton stopButton;
+
+    private JButton saveBaselineButton;
+
+    public StatementBenchmarkDialog(DatabaseConnection databaseConnection, String query) {
+
+        super(bundledString("title", databaseConnection.getName()), false, true);
+        this.benchmark = new StatementBenchmark(databaseConnection, query);
+        this.baseline = benchmark.loadBaseline();
+        init(query);
+
+        updateStatus();
+        display();
+    }
+
+    private void init(String query) {
+
+        ReflectiveAction action = new ReflectiveAction(this);
+
+        JTextArea queryArea = new JTextArea(query, 4, 40);
+        queryArea.setEditable(false);
+        queryArea.setFont(new Font("monospaced", 0, 12));
+
+        runsSpinner = new JSpinner(new SpinnerNumberModel(100, 1, 1000000, 10));
+        warmupSpinner = new JSpinner(new SpinnerNumberModel(5, 0, 100000, 1));
+        fetchAllCheckBox = new JCheckBox(bundledString("fetchAll"), true);
+        parametersArea = new JTextArea(3, 40);
+
+        runButton = new DefaultPanelButton(action, bundledString("run"), "run");
+        stopButton = new DefaultPanelButton(action, bundledString("stop"), "stop");
+        saveBaselineButton = new DefaultPanelButton(action, bundledString("saveBaseline"), "saveBaseline");
+        stopButton.setEnabled(false);
+        saveBaselineButton.setEnabled(false);
+
+        model = new BenchmarkTableModel();
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(100);
+
+        statusLabel = new JLabel(" ");
+
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.BOTH;
+        panel.add(new JScrollPane(queryArea), gbc);
+
+        gbc.gridy = 1;
+        gbc.gridwidth = 1;
+        gbc.weightx = 0;
+        gbc.fill = GridBagConstraints.NONE;
+        panel.add(new JLabel(bundledString("runs")), gbc);
+        gbc.gridx = 1;
+        panel.add(runsSpinner, gbc);
+        gbc.gridx = 2;
+        panel.add(new JLabel(bundledString("warmupRuns")), gbc);
+        gbc.gridx = 3;
+        panel.add(warmupSpinner, gbc);
+        gbc.gridx = 4;
+        gbc.weightx = 1.0;
+        panel.add(fetchAllCheckBox, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.weightx = 0;
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        panel.add(new JLabel(bundledString("parameterSets")), gbc);
+        gbc.gridy = 3;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.BOTH;
+        panel.add(new JScrollPane(parametersArea), gbc);
+
+        gbc.gridy = 4;
+        gbc.weighty = 1.0;
+        panel.add(new JScrollPane(table), gbc);
+        gbc.gridy = 5;
+        gbc.weighty = 0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(statusLabel, gbc);
+
+        JButton closeButton = new DefaultPanelButton(action, Bundles.get("common.close.button"), "close");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        buttonPanel.add(runButton);
+        buttonPanel.add(stopButton);
+        buttonPanel.add(saveBaselineButton);
+        buttonPanel.add(closeButton);
+
+        JPanel base = new JPanel(new BorderLayout());
+        base.setPreferredSize(new Dimension(750, 550));
+        base.add(panel, BorderLayout.CENTER);
+        base.add(buttonPanel, BorderLayout.SOUTH);
+
+        addDisplayComponentWithEmptyBorder(base);
+    }
+
+    public void run(ActionEvent e) {
+
+        benchmark.setRuns((Integer) runsSpinner.getValue());
+        benchmark.setWarmupRuns((Integer) warmupSpinner.getValue());
+        benchmark.setFetchAll(fetchAllCheckBox.isSelected());
+        benchmark.setParameterSets(parameterSets());
+
+        setRunning(true);
+        SwingWorker worker = new SwingWorker(TaskScheduler.Workload.QUERY) {
+
+            private Throwable exception;
+
+            @Override
+            public Object construct() {
+
+                try {
+
+                    return benchmark.run((run, runs) -> {
+
+                        // about a hundred updates whatever the number of runs
+                        if (run == runs || run % Math.max(1, runs / 100) == 0) {
+                            SwingUtilities.invokeLater(() -> statusLabel.setText(bundledString("running", run, runs)));
+                        }
+                    });
+
+                } catch (Exception e) {
+
+                    exception = e;
+                    return null;
+                }
+            }
+
+            @Override
+            public void finished() {
+
+                setRunning(false);
+                if (exception != null) {
+
+                    GUIUtilities.displayExceptionErrorDialog(
+                            bundledString("error", exception.getMessage()), exception);
+                    updateStatus();
+                    return;
+                }
+
+                result = (StatementBenchmark.Result) get();
+                model.fireTableDataChanged();
+                saveBaselineButton.setEnabled(result.getRunCount() > 0);
+                updateStatus();
+            }
+        };
+        worker.start();
+    }
+
+    public void stop(ActionEvent e) {
+
+        benchmark.cancel();
+    }
+
+    public void saveBaseline(ActionEvent e) {
+
+        if (result == null) {
+            return;
+        }
+
+        try {
+
+            benchmark.saveBaseline(result);
+            baseline = benchmark.loadBaseline();
+            model.fireTableDataChanged();
+            updateStatus();
+
+        } catch (IOException ex) {
+
+            GUIUtilities.displayExceptionErrorDialog(bundledString("error", ex.getMessage()), ex);
+        }
+    }
+
+    public void close(ActionEvent e) {
+
+        benchmark.cancel();
+        dispose();
+    }
+
+    /**
+     * Returns the parameter sets - one per line, the values separated
+     * by commas.
+     */
+    private List<List<String>> parameterSets() {
+
+        List<List<String>> sets = new ArrayList<>();
+        for (String line : parametersArea.getText().split("\n")) {
+
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            List<String> values = new ArrayList<>();
+            for (String value : line.split(",", -1)) {
+                values.add(value.trim());
+            }
+            sets.add(values);
+        }
+        return sets;
+    }
+
+    private void setRunning(boolean running) {
+
+        runButton.setEnabled(!running);
+        stopButton.setEnabled(running);
+        saveBaselineButton.setEnabled(!running && result != null && result.getRunCount() > 0);
+    }
+
+    private void updateStatus() {
+
+        String saved = baseline != null
+                ? DateFormat.getDateTimeInstance().format(new Date(baseline.getSavedTime()))
+                : bundledString("noBaseline");
+
+        if (result == null) {
+
+            statusLabel.setText(bundledString("baseline", saved));
+
+        } else {
+
+            String key = benchmark.isCancelled() ? "statusCancelled" : "status";
+            statusLabel.setText(bundledString(key, result.getRunCount(), saved));
+        }
+    }
+
+    private static String bundledString(String key, Object... args) {
+        return Bundles.get(StatementBenchmarkDialog.class, key, args);
+    }
+
+    private class BenchmarkTableModel extends AbstractTableModel {
+
+        private final List<String> columns = Arrays.asList(
+                bundledString("metric"),
+                bundledString("min"),
+                bundledString("median"),
+                bundledString("p95"),
+                bundledString("p99"),
+                bundledString("max"),
+                bundledString("baselineMedian"),
+                bundledString("change"));
+
+        public int getRowCount() {
+            return result != null ? result.getMetrics().size() : 0;
+        }
+
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        public String getColumnName(int column) {
+            return columns.get(column);
+        }
+
+        public Object getValueAt(int row, int column) {
+
+            Metric metric = result.getMetrics().get(row);
+            StatementBenchmark.Summary summary = result.getDistribution(metric).summarize();
+            StatementBenchmark.Summary baselineSummary = baseline != null ? baseline.getSummary(metric) : null;
+
+            switch (column) {
+
+                case 0:
+                    return bundledString("metric." + metric.name());
+
+                case 1:
+                    return format(metric, summary.getMin());
+
+                case 2:
+                    return format(metric, summary.getMedian());
+
+                case 3:
+                    return format(metric, summary.getP95());
+
+                case 4:
+                    return format(metric, summary.getP99());
+
+                case 5:
+                    return format(metric, summary.getMax());
+
+                case 6:
+                    return baselineSummary != null ? format(metric, baselineSummary.getMedian()) : null;
+
+                default:
+                    return baselineSummary != null ? change(baselineSummary.getMedian(), summary.getMedian()) : null;
+            }
+        }
+
+        /**
+         * Formats the time in milliseconds, the counters as they are.
+         */
+        private String format(Metric metric, long value) {
+
+            if (metric == Metric.TIME) {
+                return String.format("%.3f", value / 1000000d);
+            }
+            return String.valueOf(value);
+        }
+
+        private String change(long baselineValue, long value) {
+
+            if (baselineValue == 0) {
+                return value == 0 ? "0%" : null;
+            }
+            return String.format("%+.1f%%", (value - baselineValue) * 100d / Math.abs(baselineValue));
+        }
+
+    } // class BenchmarkTableModel
+
+}
@@ -229,13 +229,34 @@ public class ErdDependanciesPanel extends JComponent {
             return;
         }
 
+        // the positions of all lines are determined as they share the
+        // join points of the tables, only visible lines are drawn
+        Rectangle clip = g2d.getClipBounds();
+
         g2d.setColor(lineColour);
         for (int i = 0; i < dependencies.length; i++) {
             determinePositions(dependencies[i]);
-            drawLines(g2d, dependencies[i], xOffset, yOffset);
+            if (clip == null || isVisible(dependencies[i], clip, xOffset, yOffset)) {
+                drawLines(g2d, dependencies[i], xOffset, yOffset);
+            }
         }
     }
 
+    private boolean isVisible(ErdTableDependency dependency, Rectangle clip,
+                              int xOffset, int yOffset) {
+
+        Rectangle extent = dependency.getTable_1().getBounds();
+        extent.add(dependency.getTable_2().getBounds());
+
+        // the arrow heads may extend beyond the tables
+        extent.grow(ARROW_MARGIN, ARROW_MARGIN);
+        extent.translate(xOffset, yOffset);
+
+        return extent.intersects(clip);
+    }
+
+    private static final int ARROW_MARGIN = 12;
+
     private void determinePositions(ErdTableDependency dependency) {
 
         dependency.reset();
@@ -0,0 +1,418 @@
+/*
+ * ErdForceDirectedLayout.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.erd;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Force directed (Fruchterman-Reingold) layout with the repulsion
+ * between all tables approximated by a Barnes-Hut quadtree, so each
+ * iteration costs O(n log n) rather than O(n<sup>2</sup>).
+ * <p>
+ * Fixed nodes take part in the forces but are never moved, which
+ * allows tables added to an existing diagram to be placed among
+ * their related tables without disturbing the rest of the diagram.
+ * Remaining overlaps are removed once the simulation has cooled.
+ *
+ * @author Takis Diakoumis
+ */
+public class ErdForceDirectedLayout implements ErdLayout {
+
+    /**
+     * the opening criterion of the quadtree cells
+     */
+    private static final double THETA = 0.8;
+
+    private static final int MAX_ITERATIONS = 300;
+
+    private static final int MIN_ITERATIONS = 60;
+
+    private static final int OVERLAP_PASSES = 50;
+
+    /**
+     * the largest initial step in multiples of the ideal edge length
+     */
+    private static final int MAX_INITIAL_STEP = 10;
+
+    /**
+     * the pull towards the centre - balancing the repulsion this
+     * keeps a diagram of n tables within about k * sqrt(n)
+     */
+    private static final double GRAVITY = 1;
+
+    private static final int SPACING = 30;
+
+    private final Random random = new Random(17);
+
+    @Override
+    public void layout(ErdLayoutGraph graph, Progress progress) {
+
+        int size = graph.size();
+        if (size == 0) {
+            return;
+        }
+
+        // simulate on the centres of the tables
+        double[] cx = new double[size];
+        double[] cy = new double[size];
+        double nodeSize = 0;
+        for (int i = 0; i < size; i++) {
+
+            cx[i] = graph.x[i] + graph.width[i] / 2;
+            cy[i] = graph.y[i] + graph.height[i] / 2;
+            nodeSize += Math.max(graph.width[i], graph.height[i]);
+        }
+        nodeSize /= size;
+
+        double k = nodeSize * 1.2;
+        placeMovableNodes(graph, cx, cy, k);
+
+        int iterations = Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, 100000 / size));
+        double temperature = k * Math.min(Math.sqrt(size), MAX_INITIAL_STEP);
+        double cooling = temperature / (iterations + 1);
+
+        double[] dx = new double[size];
+        double[] dy = new double[size];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+
+            if (progress.isCancelled()) {
+                return;
+            }
+
+            Arrays.fill(dx, 0);
+            Arrays.fill(dy, 0);
+
+            QuadTree tree = QuadTree.build(cx, cy);
+            for (int i = 0; i < size; i++) {
+                if (!graph.fixed[i]) {
+                    tree.repulse(i, cx, cy, k * k, dx, dy);
+                }
+            }
+
+            double centreX = 0;
+            double centreY = 0;
+            for (int i = 0; i < size; i++) {
+                centreX += cx[i];
+                centreY += cy[i];
+            }
+            centreX /= size;
+            centreY /= size;
+
+            // pull towards the centre keeping unrelated tables and
+            // separate groups of tables from drifting apart
+            for (int i = 0; i < size; i++) {
+                dx[i] -= (cx[i] - centreX) * GRAVITY;
+                dy[i] -= (cy[i] - centreY) * GRAVITY;
+            }
+
+            for (int edge = 0; edge < graph.edgeCount; edge++) {
+
+                int source = graph.from[edge];
+                int target = graph.to[edge];
+                double distanceX = cx[source] - cx[target];
+                double distanceY = cy[source] - cy[target];
+                double distance = Math.max(Math.hypot(distanceX, distanceY), 0.01);
+                double force = distance / k;
+
+                dx[source] -= distanceX * force;
+                dy[source] -= distanceY * force;
+                dx[target] += distanceX * force;
+                dy[target] += distanceY * force;
+            }
+
+            for (int i = 0; i < size; i++) {
+
+                if (graph.fixed[i]) {
+                    continue;
+                }
+
+                double displacement = Math.hypot(dx[i], dy[i]);
+                if (displacement > 0) {
+
+                    double limited = Math.min(displacement, temperature);
+                    cx[i] += dx[i] / displacement * limited;
+                    cy[i] += dy[i] / displacement * limited;
+                }
+            }
+
+            temperature -= cooling;
+            progress.progress((iteration + 1) * 80 / iterations);
+        }
+
+        for (int i = 0; i < size; i++) {
+            graph.x[i] = cx[i] - graph.width[i] / 2;
+            graph.y[i] = cy[i] - graph.height[i] / 2;
+        }
+
+        removeOverlaps(graph, progress);
+        graph.normalise();
+        progress.progress(100);
+    }
+
+    /**
+     * Starts new tables of an incremental layout next to their placed
+     * neighbours and scatters the nodes of a full layout.
+     */
+    private void placeMovableNodes(ErdLayoutGraph graph, double[] cx, double[] cy, double k) {
+
+        int size = graph.size();
+        if (graph.isFullLayout()) {
+
+            // keep the current arrangement as the starting point but
+            // separate tables sharing a position
+            for (int i = 0; i < size; i++) {
+                cx[i] += random.nextDouble() * k / 10;
+                cy[i] += random.nextDouble() * k / 10;
+            }
+            return;
+        }
+
+        double fixedX = 0;
+        double fixedY = 0;
+        int fixedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (graph.fixed[i]) {
+                fixedX += cx[i];
+                fixedY += cy[i];
+                fixedCount++;
+            }
+        }
+        fixedX /= fixedCount;
+        fixedY /= fixedCount;
+
+        for (int i = 0; i < size; i++) {
+
+            if (graph.fixed[i]) {
+                continue;
+            }
+
+            double sumX = 0;
+            double sumY = 0;
+            int count = 0;
+            for (int neighbour : graph.neighbours[i]) {
+                if (graph.fixed[neighbour]) {
+                    sumX += cx[neighbour];
+                    sumY += cy[neighbour];
+                    count++;
+                }
+            }
+
+            double angle = random.nextDouble() * Math.PI * 2;
+            cx[i] = (count > 0 ? sumX / count : fixedX) + Math.cos(angle) * k;
+            cy[i] = (count > 0 ? sumY / count : fixedY) + Math.sin(angle) * k;
+        }
+    }
+
+    /**
+     * Pushes overlapping tables apart along the axis of the smaller
+     * overlap, sweeping the tables sorted by their left edge.
+     */
+    private void removeOverlaps(ErdLayoutGraph graph, Progress progress) {
+
+        int size = graph.size();
+        Integer[] sorted = new Integer[size];
+        double maxWidth = 0;
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+            maxWidth = Math.max(maxWidth, graph.width[i]);
+        }
+
+        for (int pass = 0; pass < OVERLAP_PASSES && !progress.isCancelled(); pass++) {
+
+            Arrays.sort(sorted, (a, b) -> Double.compare(graph.x[a], graph.x[b]));
+
+            boolean moved = false;
+            for (int i = 0; i < size; i++) {
+
+                int a = sorted[i];
+                for (int j = i + 1; j < size; j++) {
+
+                    int b = sorted[j];
+                    if (graph.x[b] >= graph.x[a] + maxWidth + SPACING) {
+                        break;
+                    }
+                    if (graph.fixed[a] && graph.fixed[b]) {
+                        continue;
+                    }
+
+                    double overlapX = Math.min(graph.x[a] + graph.width[a], graph.x[b] + graph.width[b])
+                            - Math.max(graph.x[a], graph.x[b]) + SPACING;
+                    double overlapY = Math.min(graph.y[a] + graph.height[a], graph.y[b] + graph.height[b])
+                            - Math.max(graph.y[a], graph.y[b]) + SPACING;
+                    if (overlapX <= 0 || overlapY <= 0) {
+                        continue;
+                    }
+
+                    moved = true;
+                    double shareA = graph.fixed[a] ? 0 : graph.fixed[b] ? 1 : 0.5;
+                    double shareB = 1 - shareA;
+                    if (overlapX < overlapY) {
+
+                        double direction = graph.x[a] + graph.width[a] / 2 <= graph.x[b] + graph.width[b] / 2 ? 1 : -1;
+                        graph.x[a] -= direction * overlapX * shareA;
+                        graph.x[b] += direction * overlapX * shareB;
+
+                    } else {
+
+                        double direction = graph.y[a] + graph.height[a] / 2 <= graph.y[b] + graph.height[b] / 2 ? 1 : -1;
+                        graph.y[a] -= direction * overlapY * shareA;
+                        graph.y[b] += direction * overlapY * shareB;
+                    }
+                }
+            }
+
+            progress.progress(80 + (pass + 1) * 20 / OVERLAP_PASSES);
+            if (!moved) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Region quadtree of the node centres holding the node count and
+     * centre of mass of each cell.
+     */
+    private static final class QuadTree {
+
+        private static final int MAX_DEPTH = 24;
+
+        private final double left;
+        private final double top;
+        private final double size;
+
+        private double massX;
+        private double massY;
+        private int count;
+
+        /**
+         * the single node of a leaf or -1
+         */
+        private int node = -1;
+
+        private QuadTree[] children;
+
+        private QuadTree(double left, double top, double size) {
+            this.left = left;
+            this.top = top;
+            this.size = size;
+        }
+
+        static QuadTree build(double[] x, double[] y) {
+
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+
+            QuadTree root = new QuadTree(minX, minY, Math.max(maxX - minX, maxY - minY) + 1);
+            for (int i = 0; i < x.length; i++) {
+                root.insert(i, x, y, 0);
+            }
+            return root;
+        }
+
+        private void insert(int index, double[] x, double[] y, int depth) {
+
+            massX = (massX * count + x[index]) / (count + 1);
+            massY = (massY * count + y[index]) / (count + 1);
+            count++;
+
+            if (count == 1) {
+                node = index;
+                return;
+            }
+
+            // coincident nodes below the maximum depth share the leaf
+            if (depth >= MAX_DEPTH) {
+                return;
+            }
+
+            if (children == null) {
+
+                children = new QuadTree[4];
+                if (node != -1) {
+                    child(x[node], y[node]).insert(node, x, y, depth + 1);
+                    node = -1;
+                }
+            }
+            child(x[index], y[index]).insert(index, x, y, depth + 1);
+        }
+
+        private QuadTree child(double x, double y) {
+
+            double half = size / 2;
+            int quadrant = (x < left + half ? 0 : 1) + (y < top + half ? 0 : 2);
+            if (children[quadrant] == null) {
+                children[quadrant] = new QuadTree(
+                        quadrant % 2 == 0 ? left : left + half,
+                        quadrant < 2 ? top : top + half,
+                        half);
+            }
+            return children[quadrant];
+        }
+
+        /**
+         * Adds the repulsion of all other nodes on the specified node.
+         */
+        void repulse(int index, double[] x, double[] y, double kSquared, double[] dx, double[] dy) {
+
+            if (count == 0 || node == index && children == null) {
+                return;
+            }
+
+            double distanceX = x[index] - massX;
+            double distanceY = y[index] - massY;
+            double distance = Math.hypot(distanceX, distanceY);
+
+            if (children == null || size / Math.max(distance, 0.01) < THETA) {
+
+                int mass = node == index ? count - 1 : count;
+                if (distance < 0.01) {
+
+                    // coincident nodes - push in an arbitrary direction
+                    distanceX = 0.01 * ((index & 1) == 0 ? 1 : -1);
+                    distanceY = 0.01;
+                    distance = 0.01;
+                }
+
+                double force = mass * kSquared / (distance * distance);
+                dx[index] += distanceX * force;
+                dy[index] += distanceY * force;
+                return;
+            }
+
+            for (QuadTree child : children) {
+                if (child != null) {
+                    child.repulse(index, x, y, kSquared, dx, dy);
+                }
+            }
+        }
+
+    }
+
+}
@@ -26,6 +26,7 @@ import org.executequery.databasemediators.MetaDataValues;
 import org.executequery.gui.GenerateErdPanel;
 import org.executequery.gui.browser.ColumnData;
 import org.executequery.localization.Bundles;
+import org.executequery.log.Log;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.AbstractBaseDialog;
 import org.underworldlabs.swing.util.SwingWorker;
@@ -34,6 +35,9 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 /**
@@ -189,6 +193,18 @@ public class ErdGenerateProgressDialog extends AbstractBaseDialog {
 
         try {
 
+            // the columns and keys of all tables are loaded with a few
+            // bulk queries - per table only if the bulk load failed
+            Map<String, ColumnData[]> bulkColumnData = null;
+            try {
+                SwingUtilities.invokeLater(() -> progressBar.setIndeterminate(true));
+                bulkColumnData = metaData.getColumnMetaData(selectedTables, schema);
+            } catch (DataSourceException e) {
+                Log.debug("Bulk column meta data load failed", e);
+            } finally {
+                SwingUtilities.invokeLater(() -> progressBar.setIndeterminate(false));
+            }
+
             int count = 0;
 
             for (int i = 0; i < v_size; i++) {
@@ -198,11 +214,19 @@ public class ErdGenerateProgressDialog extends AbstractBaseDialog {
                     throw new InterruptedException();
                 }
 
-                try {
-                    columnData.add(metaData.getColumnMetaData(
-                            (String) selectedTables.elementAt(i), schema));
-                } catch (DataSourceException e) {
-                    columnData.add(new ColumnData[0]);
+                String tableName = (String) selectedTables.elementAt(i);
+                if (bulkColumnData != null) {
+
+                    ColumnData[] tableColumns = bulkColumnData.get(tableName);
+                    columnData.add(tableColumns != null ? tableColumns : new ColumnData[0]);
+
+                } else {
+
+                    try {
+                        columnData.add(metaData.getColumnMetaData(tableName, schema));
+                    } catch (DataSourceException e) {
+                        columnData.add(new ColumnData[0]);
+                    }
                 }
 
                 progressBar.setValue(count++);
@@ -245,6 +269,9 @@ public class ErdGenerateProgressDialog extends AbstractBaseDialog {
                     viewerPanel,
                     null,
                     true);
+
+            // arrange the foreign key hierarchy instead of the initial grid
+            viewerPanel.layoutTables(new ErdLayeredLayout(), null);
             GUIUtilities.showNormalCursor();
             selectedTables = null;
 
@@ -258,6 +285,9 @@ public class ErdGenerateProgressDialog extends AbstractBaseDialog {
             GUIUtilities.showWaitCursor();
             metaData = null;
 
+            boolean hadTables = parent.getAllComponentsArray().length > 0;
+            List<ErdTable> addedTables = new ArrayList<>(selectedTables.size());
+
             ErdTable table = null;
             for (int i = 0, n = selectedTables.size(); i < n; i++) {
 
@@ -266,10 +296,23 @@ public class ErdGenerateProgressDialog extends AbstractBaseDialog {
                         (String) selectedTables.elementAt(i),
                         (ColumnData[]) columnData.elementAt(i), parent);
                 table.setEditable(parent.isEditable());
-                parent.addNewTable(table);
+                if (parent.addNewTable(table)) {
+                    addedTables.add(table);
+                }
             }
 
             parent.updateTableRelationships();
+
+            // place the new tables among their related tables
+            // leaving the existing tables where they are
+            if (!addedTables.isEmpty()) {
+
+                if (hadTables) {
+                    parent.layoutTables(new ErdForceDirectedLayout(), addedTables);
+                } else {
+                    parent.layoutTables(new ErdLayeredLayout(), null);
+                }
+            }
             GUIUtilities.showNormalCursor();
             selectedTables = null;
             dispose();
@@ -0,0 +1,412 @@
+/*
+ * ErdLayeredLayout.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.erd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Layered (Sugiyama style) layout placing referenced tables above
+ * the tables referencing them.
+ * <p>
+ * Cycles are broken by reversing the back edges of a depth first
+ * search, nodes are assigned to layers by their longest path from a
+ * source and the order within each layer is improved with barycenter
+ * sweeps. Edges spanning several layers are not split into dummy
+ * nodes - the neighbours in any earlier layer are used for the
+ * barycenter instead, which keeps the cost linear in the number of
+ * edges per sweep. Tables without relationships are packed into rows
+ * below the layered part.
+ * <p>
+ * This layout always positions every node of the graph.
+ *
+ * @author Takis Diakoumis
+ */
+public class ErdLayeredLayout implements ErdLayout {
+
+    private static final int HORIZONTAL_GAP = 50;
+
+    private static final int VERTICAL_GAP = 80;
+
+    private static final int ORDERING_SWEEPS = 8;
+
+    private static final int POSITIONING_PASSES = 4;
+
+    @Override
+    public void layout(ErdLayoutGraph graph, Progress progress) {
+
+        int size = graph.size();
+        if (size == 0) {
+            return;
+        }
+
+        int[] layer = assignLayers(graph);
+        progress.progress(20);
+
+        // isolated tables are kept out of the layers
+        List<Integer> isolated = new ArrayList<>();
+        int layerCount = 0;
+        for (int i = 0; i < size; i++) {
+
+            if (graph.neighbours[i].length == 0) {
+                isolated.add(i);
+
+            } else {
+                layerCount = Math.max(layerCount, layer[i] + 1);
+            }
+        }
+
+        int[][] layers = buildLayers(graph, layer, layerCount);
+        double[] order = new double[size];
+        for (int[] nodes : layers) {
+            for (int i = 0; i < nodes.length; i++) {
+                order[nodes[i]] = i;
+            }
+        }
+
+        for (int sweep = 0; sweep < ORDERING_SWEEPS && !progress.isCancelled(); sweep++) {
+
+            boolean downwards = sweep % 2 == 0;
+            for (int i = 0; i < layerCount; i++) {
+
+                int index = downwards ? i : layerCount - 1 - i;
+                orderLayer(graph, layers[index], layer, order, downwards);
+            }
+            progress.progress(20 + (sweep + 1) * 50 / ORDERING_SWEEPS);
+        }
+
+        if (progress.isCancelled()) {
+            return;
+        }
+
+        double layeredWidth = positionLayers(graph, layers);
+        progress.progress(90);
+
+        double top = ErdLayoutGraph.MARGIN;
+        for (int i = 0; i < size; i++) {
+            if (graph.neighbours[i].length > 0) {
+                top = Math.max(top, graph.y[i] + graph.height[i]);
+            }
+        }
+        if (layerCount > 0) {
+            top += VERTICAL_GAP;
+        }
+
+        packIsolated(graph, isolated, top, layeredWidth);
+        graph.normalise();
+        progress.progress(100);
+    }
+
+    /**
+     * Assigns each node the length of the longest path reaching it
+     * once the back edges of a depth first search are reversed.
+     */
+    private int[] assignLayers(ErdLayoutGraph graph) {
+
+        int size = graph.size();
+        int edgeCount = graph.edgeCount;
+
+        // outgoing edges by node
+        int[] outStart = new int[size + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            outStart[graph.from[i] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        int[] outEdges = new int[edgeCount];
+        int[] fill = Arrays.copyOf(outStart, size);
+        for (int i = 0; i < edgeCount; i++) {
+            outEdges[fill[graph.from[i]]++] = i;
+        }
+
+        // iterative depth first search marking the back edges
+        boolean[] reversed = new boolean[edgeCount];
+        byte[] state = new byte[size];
+        int[] stack = new int[size];
+        int[] position = new int[size];
+        for (int root = 0; root < size; root++) {
+
+            if (state[root] != 0) {
+                continue;
+            }
+
+            int depth = 0;
+            stack[depth] = root;
+            position[root] = outStart[root];
+            state[root] = 1;
+
+            while (depth >= 0) {
+
+                int node = stack[depth];
+                if (position[node] < outStart[node + 1]) {
+
+                    int edge = outEdges[position[node]++];
+                    int target = graph.to[edge];
+                    if (state[target] == 1) {
+                        reversed[edge] = true;
+
+                    } else if (state[target] == 0) {
+
+                        state[target] = 1;
+                        position[target] = outStart[target];
+                        stack[++depth] = target;
+                    }
+
+                } else {
+
+                    state[node] = 2;
+                    depth--;
+                }
+            }
+        }
+
+        // longest path layering in topological order of the acyclic graph
+        int[] inDegree = new int[size];
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int[] dagStart = new int[size + 1];
+        for (int i = 0; i < edgeCount; i++) {
+
+            sources[i] = reversed[i] ? graph.to[i] : graph.from[i];
+            targets[i] = reversed[i] ? graph.from[i] : graph.to[i];
+            inDegree[targets[i]]++;
+            dagStart[sources[i] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            dagStart[i + 1] += dagStart[i];
+        }
+        int[] dagTargets = new int[edgeCount];
+        fill = Arrays.copyOf(dagStart, size);
+        for (int i = 0; i < edgeCount; i++) {
+            dagTargets[fill[sources[i]]++] = targets[i];
+        }
+
+        int[] layer = new int[size];
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (inDegree[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+
+        while (head < tail) {
+
+            int node = queue[head++];
+            for (int i = dagStart[node]; i < dagStart[node + 1]; i++) {
+
+                int target = dagTargets[i];
+                layer[target] = Math.max(layer[target], layer[node] + 1);
+                if (--inDegree[target] == 0) {
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        return layer;
+    }
+
+    private int[][] buildLayers(ErdLayoutGraph graph, int[] layer, int layerCount) {
+
+        int[] counts = new int[layerCount];
+        for (int i = 0; i < graph.size(); i++) {
+            if (graph.neighbours[i].length > 0) {
+                counts[layer[i]]++;
+            }
+        }
+
+        int[][] layers = new int[layerCount][];
+        for (int i = 0; i < layerCount; i++) {
+            layers[i] = new int[counts[i]];
+        }
+
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < graph.size(); i++) {
+            if (graph.neighbours[i].length > 0) {
+                layers[layer[i]][counts[layer[i]]++] = i;
+            }
+        }
+
+        return layers;
+    }
+
+    /**
+     * Sorts the nodes of a layer by the mean order of their neighbours
+     * in the preceding (downwards) or following (upwards) layers.
+     */
+    private void orderLayer(ErdLayoutGraph graph, int[] nodes,
+                            int[] layer, double[] order, boolean downwards) {
+
+        double[] barycenter = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+
+            int node = nodes[i];
+            double sum = 0;
+            int count = 0;
+            for (int neighbour : graph.neighbours[node]) {
+
+                if (downwards ? layer[neighbour] < layer[node] : layer[neighbour] > layer[node]) {
+                    sum += order[neighbour];
+                    count++;
+                }
+            }
+
+            // nodes without neighbours on that side keep their place
+            barycenter[i] = count > 0 ? sum / count : order[node];
+        }
+
+        Integer[] sorted = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(barycenter[a], barycenter[b]));
+
+        int[] reordered = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+
+            reordered[i] = nodes[sorted[i]];
+            order[reordered[i]] = i;
+        }
+        System.arraycopy(reordered, 0, nodes, 0, nodes.length);
+    }
+
+    /**
+     * Assigns the coordinates of the layered nodes and returns the
+     * width of the widest layer.
+     */
+    private double positionLayers(ErdLayoutGraph graph, int[][] layers) {
+
+        double maxWidth = 0;
+        for (int[] nodes : layers) {
+            maxWidth = Math.max(maxWidth, layerWidth(graph, nodes));
+        }
+
+        double top = ErdLayoutGraph.MARGIN;
+        for (int[] nodes : layers) {
+
+            double left = ErdLayoutGraph.MARGIN + (maxWidth - layerWidth(graph, nodes)) / 2;
+            double layerHeight = 0;
+            for (int node : nodes) {
+
+                graph.x[node] = left;
+                graph.y[node] = top;
+                left += graph.width[node] + HORIZONTAL_GAP;
+                layerHeight = Math.max(layerHeight, graph.height[node]);
+            }
+            top += layerHeight + VERTICAL_GAP;
+        }
+
+        // pull the nodes towards their neighbours keeping the layer order
+        double[] desired = new double[graph.size()];
+        double[] forward = new double[graph.size()];
+        for (int pass = 0; pass < POSITIONING_PASSES; pass++) {
+
+            for (int[] nodes : layers) {
+
+                for (int node : nodes) {
+
+                    double sum = 0;
+                    for (int neighbour : graph.neighbours[node]) {
+                        sum += graph.x[neighbour] + graph.width[neighbour] / 2;
+                    }
+                    desired[node] = sum / graph.neighbours[node].length - graph.width[node] / 2;
+                }
+
+                // placements keeping the gaps from the left and from the right -
+                // their mean keeps the gaps too without favouring either side
+                double limit = -Double.MAX_VALUE;
+                for (int node : nodes) {
+
+                    forward[node] = Math.max(desired[node], limit);
+                    limit = forward[node] + graph.width[node] + HORIZONTAL_GAP;
+                }
+
+                limit = Double.MAX_VALUE;
+                for (int i = nodes.length - 1; i >= 0; i--) {
+
+                    int node = nodes[i];
+                    double backward = Math.min(desired[node], limit - graph.width[node]);
+                    limit = backward - HORIZONTAL_GAP;
+                    graph.x[node] = (forward[node] + backward) / 2;
+                }
+            }
+        }
+
+        double left = Double.MAX_VALUE;
+        double right = 0;
+        for (int[] nodes : layers) {
+            if (nodes.length > 0) {
+                int first = nodes[0];
+                int last = nodes[nodes.length - 1];
+                left = Math.min(left, graph.x[first]);
+                right = Math.max(right, graph.x[last] + graph.width[last]);
+            }
+        }
+        return layers.length > 0 ? right - left : 0;
+    }
+
+    private double layerWidth(ErdLayoutGraph graph, int[] nodes) {
+
+        double width = 0;
+        for (int node : nodes) {
+            width += graph.width[node] + HORIZONTAL_GAP;
+        }
+        return Math.max(0, width - HORIZONTAL_GAP);
+    }
+
+    /**
+     * Packs the tables without relationships into rows no wider than
+     * the layered part or a roughly square block, whichever is wider.
+     */
+    private void packIsolated(ErdLayoutGraph graph, List<Integer> isolated,
+                              double top, double layeredWidth) {
+
+        if (isolated.isEmpty()) {
+            return;
+        }
+
+        double area = 0;
+        for (int node : isolated) {
+            area += (graph.width[node] + HORIZONTAL_GAP) * (graph.height[node] + HORIZONTAL_GAP);
+        }
+        double rowWidth = Math.max(layeredWidth, Math.sqrt(area));
+
+        double left = ErdLayoutGraph.MARGIN;
+        double rowHeight = 0;
+        for (int node : isolated) {
+
+            if (left > ErdLayoutGraph.MARGIN && left + graph.width[node] > rowWidth) {
+                left = ErdLayoutGraph.MARGIN;
+                top += rowHeight + HORIZONTAL_GAP;
+                rowHeight = 0;
+            }
+
+            graph.x[node] = left;
+            graph.y[node] = top;
+            left += graph.width[node] + HORIZONTAL_GAP;
+            rowHeight = Math.max(rowHeight, graph.height[node]);
+        }
+    }
+
+}
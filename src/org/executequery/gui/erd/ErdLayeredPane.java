@@ -24,6 +24,10 @@ import org.underworldlabs.swing.plaf.UIUtils;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
@@ -33,7 +37,7 @@ import java.util.Vector;
 /**
  * @author Takis Diakoumis
  */
-@SuppressWarnings({"rawtypes"})
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class ErdLayeredPane extends JLayeredPane
         implements MouseListener,
         MouseMotionListener {
@@ -61,11 +65,43 @@ public class ErdLayeredPane extends JLayeredPane
      */
     private double scale = 1.0;
 
+    /**
+     * The index of the tables for hit-testing
+     */
+    private final ErdSpatialIndex spatialIndex = new ErdSpatialIndex();
+
+    /**
+     * Whether the index reflects the current table bounds
+     */
+    private boolean spatialIndexValid;
+
     public ErdLayeredPane(ErdViewerPanel parent) {
         this.parent = parent;
         popup = new ErdPopupMenu(parent);
         addMouseListener(this);
         addMouseMotionListener(this);
+        addContainerListener(new SpatialIndexListener());
+    }
+
+    /**
+     * <p>Marks the table index as out of date after tables
+     * were added, removed, moved or resized.
+     */
+    protected void invalidateSpatialIndex() {
+        spatialIndexValid = false;
+    }
+
+    /**
+     * <p>Repaints the specified region given in unscaled
+     * canvas coordinates.
+     *
+     * @param region the region to repaint
+     */
+    protected void repaintCanvasRegion(Rectangle region) {
+        repaint((int) Math.floor(region.x * scale) - 2,
+                (int) Math.floor(region.y * scale) - 2,
+                (int) Math.ceil(region.width * scale) + 4,
+                (int) Math.ceil(region.height * scale) + 4);
     }
 
     public void setScale(double scale) {
@@ -179,16 +215,19 @@ public class ErdLayeredPane extends JLayeredPane
         int mouseX = (int) (e.getX() / scale);
         int mouseY = (int) (e.getY() / scale);
 
-        for (int i = 0, k = tables.size(); i < k; i++) {
-            component = (ErdMoveableComponent) tables.elementAt(i);
+        if (!spatialIndexValid) {
+            spatialIndex.rebuild(tables);
+            spatialIndexValid = true;
+        }
 
-            intersects = component.getBounds().contains(mouseX, mouseY);
+        // only the tables at the point are checked for the top-most
+        for (ErdMoveableComponent candidate : spatialIndex.componentsAt(mouseX, mouseY)) {
 
-            index = getIndexOf(component);
+            index = getIndexOf(candidate);
 
-            if (intersects && index < lastIndex) {
+            if (index < lastIndex) {
                 lastIndex = index;
-                selectedTable = component;
+                selectedTable = candidate;
                 selectTable = true;
             }
 
@@ -272,6 +311,37 @@ public class ErdLayeredPane extends JLayeredPane
     }
     // --------------------------------------------
 
+    /**
+     * Invalidates the table index when tables are added to or
+     * removed from the pane and when they are moved or resized.
+     */
+    private class SpatialIndexListener extends ComponentAdapter
+            implements ContainerListener {
+
+        public void componentAdded(ContainerEvent e) {
+            if (e.getChild() instanceof ErdMoveableComponent) {
+                e.getChild().addComponentListener(this);
+                invalidateSpatialIndex();
+            }
+        }
+
+        public void componentRemoved(ContainerEvent e) {
+            if (e.getChild() instanceof ErdMoveableComponent) {
+                e.getChild().removeComponentListener(this);
+                invalidateSpatialIndex();
+            }
+        }
+
+        public void componentMoved(ComponentEvent e) {
+            invalidateSpatialIndex();
+        }
+
+        public void componentResized(ComponentEvent e) {
+            invalidateSpatialIndex();
+        }
+
+    } // class SpatialIndexListener
+
     public void setMenuScaleSelection(int index) {
         popup.setMenuScaleSelection(index);
     }
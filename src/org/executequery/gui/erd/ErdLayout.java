@@ -0,0 +1,61 @@
+/*
+ * ErdLayout.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.erd;
+
+/**
+ * Automatic placement of the tables of an ERD.
+ * <p>
+ * A layout works on an {@link ErdLayoutGraph} snapshot of the diagram
+ * and does not touch any Swing component, so it may be run away from
+ * the event dispatch thread.
+ *
+ * @author Takis Diakoumis
+ */
+public interface ErdLayout {
+
+    /**
+     * <p>Positions the movable nodes of the specified graph.
+     *
+     * @param graph    the graph to be laid out
+     * @param progress the progress listener
+     */
+    void layout(ErdLayoutGraph graph, Progress progress);
+
+    /**
+     * Progress of a running layout.
+     */
+    interface Progress {
+
+        /**
+         * <p>Notifies the completed percentage of the layout.
+         *
+         * @param percent the completed percentage
+         */
+        void progress(int percent);
+
+        /**
+         * <p>Whether the layout should stop as soon as possible.
+         */
+        boolean isCancelled();
+
+    }
+
+}
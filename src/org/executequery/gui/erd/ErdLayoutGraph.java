@@ -0,0 +1,239 @@
+/*
+ * ErdLayoutGraph.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.erd;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of the tables and relationships of an ERD as plain
+ * arrays for the layout algorithms.
+ * <p>
+ * Node positions are the top left corners of the tables. Edges are
+ * directed from the referenced table to the referencing table so the
+ * parents of a foreign key hierarchy come first.
+ *
+ * @author Takis Diakoumis
+ */
+public class ErdLayoutGraph {
+
+    /**
+     * the margin kept from the canvas origin
+     */
+    public static final int MARGIN = 20;
+
+    private final ErdTable[] tables;
+
+    final double[] x;
+    final double[] y;
+    final double[] width;
+    final double[] height;
+
+    /**
+     * nodes that keep their current position
+     */
+    final boolean[] fixed;
+
+    /**
+     * edge sources and targets
+     */
+    int[] from;
+    int[] to;
+    int edgeCount;
+
+    /**
+     * undirected neighbours of each node
+     */
+    int[][] neighbours;
+
+    private ErdLayoutGraph(ErdTable[] tables) {
+
+        this.tables = tables;
+
+        int size = tables.length;
+        x = new double[size];
+        y = new double[size];
+        width = new double[size];
+        height = new double[size];
+        fixed = new boolean[size];
+        from = new int[16];
+        to = new int[16];
+    }
+
+    /**
+     * <p>Creates the graph of the specified tables and dependencies
+     * on the event dispatch thread.
+     *
+     * @param tables       the tables of the diagram
+     * @param dependencies the relationships between the tables
+     * @param movable      the tables to be positioned or null for all tables
+     * @return the layout graph
+     */
+    public static ErdLayoutGraph create(ErdTable[] tables,
+                                        ErdTableDependency[] dependencies,
+                                        Collection<ErdTable> movable) {
+
+        ErdLayoutGraph graph = new ErdLayoutGraph(tables);
+        Map<ErdTable, Integer> indices = new IdentityHashMap<>(tables.length * 2);
+
+        Set<ErdTable> movableTables = null;
+        if (movable != null) {
+            movableTables = Collections.newSetFromMap(new IdentityHashMap<>());
+            movableTables.addAll(movable);
+        }
+
+        for (int i = 0; i < tables.length; i++) {
+
+            Rectangle bounds = tables[i].getBounds();
+            graph.x[i] = bounds.x;
+            graph.y[i] = bounds.y;
+            graph.width[i] = bounds.width;
+            graph.height[i] = bounds.height;
+            graph.fixed[i] = movableTables != null && !movableTables.contains(tables[i]);
+
+            indices.put(tables[i], i);
+        }
+
+        if (dependencies != null) {
+
+            for (ErdTableDependency dependency : dependencies) {
+
+                Integer referencing = indices.get(dependency.getTable_1());
+                Integer referenced = indices.get(dependency.getTable_2());
+                if (referencing != null && referenced != null
+                        && referencing.intValue() != referenced.intValue()) {
+
+                    graph.addEdge(referenced, referencing);
+                }
+            }
+        }
+
+        graph.buildNeighbours();
+        return graph;
+    }
+
+    /**
+     * <p>Returns the number of nodes.
+     */
+    public int size() {
+        return tables.length;
+    }
+
+    /**
+     * <p>Whether all nodes of the graph may be positioned.
+     */
+    public boolean isFullLayout() {
+
+        for (boolean value : fixed) {
+            if (value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>Moves the tables to the computed positions.
+     * This must be called on the event dispatch thread.
+     */
+    public void apply() {
+
+        for (int i = 0; i < tables.length; i++) {
+
+            if (!fixed[i]) {
+
+                ErdTable table = tables[i];
+                table.setBounds((int) Math.round(x[i]), (int) Math.round(y[i]),
+                        table.getWidth(), table.getHeight());
+            }
+        }
+    }
+
+    /**
+     * <p>Shifts the movable nodes so that none lies left or above
+     * the canvas margin. For a full layout the whole diagram is
+     * moved to the margin.
+     */
+    void normalise() {
+
+        if (isFullLayout()) {
+
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            for (int i = 0; i < size(); i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+            }
+
+            for (int i = 0; i < size(); i++) {
+                x[i] += MARGIN - minX;
+                y[i] += MARGIN - minY;
+            }
+
+        } else {
+
+            for (int i = 0; i < size(); i++) {
+                if (!fixed[i]) {
+                    x[i] = Math.max(x[i], MARGIN);
+                    y[i] = Math.max(y[i], MARGIN);
+                }
+            }
+        }
+    }
+
+    private void addEdge(int source, int target) {
+
+        if (edgeCount == from.length) {
+            from = Arrays.copyOf(from, edgeCount * 2);
+            to = Arrays.copyOf(to, edgeCount * 2);
+        }
+
+        from[edgeCount] = source;
+        to[edgeCount] = target;
+        edgeCount++;
+    }
+
+    private void buildNeighbours() {
+
+        int[] degree = new int[size()];
+        for (int i = 0; i < edgeCount; i++) {
+            degree[from[i]]++;
+            degree[to[i]]++;
+        }
+
+        neighbours = new int[size()][];
+        for (int i = 0; i < size(); i++) {
+            neighbours[i] = new int[degree[i]];
+        }
+
+        Arrays.fill(degree, 0);
+        for (int i = 0; i < edgeCount; i++) {
+            neighbours[from[i]][degree[from[i]]++] = to[i];
+            neighbours[to[i]][degree[to[i]]++] = from[i];
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * ErdLayoutProgressDialog.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.erd;
+
+import org.executequery.GUIUtilities;
+import org.executequery.localization.Bundles;
+import org.executequery.log.Log;
+import org.underworldlabs.swing.AbstractBaseDialog;
+import org.underworldlabs.swing.util.SwingWorker;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Runs an ERD layout away from the event dispatch thread
+ * displaying its progress.
+ *
+ * @author Takis Diakoumis
+ */
+public class ErdLayoutProgressDialog extends AbstractBaseDialog
+        implements ErdLayout.Progress {
+
+    /**
+     * The ERD parent panel
+     */
+    private final ErdViewerPanel parent;
+
+    /**
+     * The layout to be run
+     */
+    private final ErdLayout layout;
+
+    /**
+     * The graph being laid out
+     */
+    private final ErdLayoutGraph graph;
+
+    /**
+     * The layout progress bar
+     */
+    private JProgressBar progressBar;
+
+    /**
+     * Worker thread for process
+     */
+    private SwingWorker worker;
+
+    private volatile boolean cancelled;
+
+    public ErdLayoutProgressDialog(ErdViewerPanel parent, ErdLayout layout, ErdLayoutGraph graph) {
+
+        super(GUIUtilities.getParentFrame(), bundleString("title"), false);
+
+        this.parent = parent;
+        this.layout = layout;
+        this.graph = graph;
+
+        jbInit();
+        display();
+    }
+
+    private void display() {
+        pack();
+        setLocation(GUIUtilities.getLocationForDialog(getSize()));
+        setVisible(true);
+    }
+
+    private void jbInit() {
+
+        JPanel base = new JPanel(new GridBagLayout());
+
+        JButton cancelButton = new JButton(Bundles.get("common.cancel.button"));
+        cancelButton.addActionListener(e -> {
+            cancelled = true;
+            cancelButton.setEnabled(false);
+        });
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setPreferredSize(new Dimension(250, 20));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.fill = GridBagConstraints.BOTH;
+        gbc.anchor = GridBagConstraints.NORTHWEST;
+        base.add(new JLabel(bundleString("label", graph.size())), gbc);
+        gbc.gridy = 1;
+        gbc.insets.top = 0;
+        base.add(progressBar, gbc);
+        gbc.anchor = GridBagConstraints.CENTER;
+        gbc.gridy = 2;
+        gbc.weighty = 1.0;
+        gbc.fill = GridBagConstraints.NONE;
+        base.add(cancelButton, gbc);
+
+        base.setBorder(BorderFactory.createEtchedBorder());
+
+        Container c = this.getContentPane();
+        c.setLayout(new GridBagLayout());
+        c.add(base, new GridBagConstraints(1, 1, 1, 1, 1.0, 1.0,
+                GridBagConstraints.SOUTHEAST, GridBagConstraints.BOTH,
+                new Insets(5, 5, 5, 5), 0, 0));
+
+        setResizable(false);
+
+        worker = new SwingWorker() {
+            public Object construct() {
+                try {
+                    layout.layout(graph, ErdLayoutProgressDialog.this);
+                    return Boolean.TRUE;
+                } catch (RuntimeException e) {
+                    Log.error("Error laying out the ERD tables", e);
+                    return Boolean.FALSE;
+                }
+            }
+
+            public void finished() {
+                processComplete(Boolean.TRUE.equals(get()));
+            }
+        };
+        worker.start();
+    }
+
+    private void processComplete(boolean succeeded) {
+
+        if (succeeded && !cancelled) {
+            parent.applyLayout(graph);
+        }
+        dispose();
+    }
+
+    @Override
+    public void progress(int percent) {
+        SwingUtilities.invokeLater(() -> progressBar.setValue(percent));
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private static String bundleString(String key, Object... args) {
+        return Bundles.get(ErdLayoutProgressDialog.class, key, args);
+    }
+
+}
@@ -149,9 +149,13 @@ public abstract class ErdMoveableComponent extends JComponent {
             return;
 
         if (dragging) {
+
+            // only the previous and the new outline area are repainted
+            Rectangle dirtyRegion = outlinePanel.getBounds();
             outlinePanel.setLocation((int) ((e.getX() / scale) - xDifference + getX()),
                     (int) ((e.getY() / scale) - yDifference + getY()));
-            parent.repaintLayeredPane();
+            dirtyRegion.add(outlinePanel.getBounds());
+            parent.repaintLayeredPane(dirtyRegion);
         }
 
     }
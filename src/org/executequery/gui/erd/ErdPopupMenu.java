@@ -65,6 +65,10 @@ public class ErdPopupMenu extends JPopupMenu implements ActionListener {
 
         JMenuItem reset = builder.createMenuItem(viewMenu, bundleString("Layout"),
                 MenuBuilder.ITEM_PLAIN, null);
+        JMenuItem layeredLayout = builder.createMenuItem(viewMenu, bundleString("LayeredLayout"),
+                MenuBuilder.ITEM_PLAIN, bundleString("LayeredLayout.tool-tip"));
+        JMenuItem forceDirectedLayout = builder.createMenuItem(viewMenu, bundleString("ForceDirectedLayout"),
+                MenuBuilder.ITEM_PLAIN, bundleString("ForceDirectedLayout.tool-tip"));
         viewMenu.addSeparator();
 
         ButtonGroup bg = new ButtonGroup();
@@ -102,6 +106,8 @@ public class ErdPopupMenu extends JPopupMenu implements ActionListener {
         zoomIn.addActionListener(this);
         zoomOut.addActionListener(this);
         reset.addActionListener(this);
+        layeredLayout.addActionListener(this);
+        forceDirectedLayout.addActionListener(this);
         newTable.addActionListener(this);
         newRelation.addActionListener(this);
         fontProperties.addActionListener(this);
@@ -174,6 +180,10 @@ public class ErdPopupMenu extends JPopupMenu implements ActionListener {
             parent.zoom(false);
         } else if (command.equals(bundleString("Layout"))) {
             parent.reset();
+        } else if (command.equals(bundleString("LayeredLayout"))) {
+            parent.layoutTables(new ErdLayeredLayout(), null);
+        } else if (command.equals(bundleString("ForceDirectedLayout"))) {
+            parent.layoutTables(new ErdForceDirectedLayout(), null);
         } else if (command.equals(bundleString("DisplayGrid"))) {
             parent.swapCanvasBackground();
         } else if (command.equals(bundleString("DisplayPageMargin"))) {
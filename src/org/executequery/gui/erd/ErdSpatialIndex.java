@@ -0,0 +1,100 @@
+/*
+ * ErdSpatialIndex.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.erd;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid of the ERD components by their bounds in unscaled
+ * canvas coordinates, used to find the components at a point
+ * without testing every component of the diagram.
+ *
+ * @author Takis Diakoumis
+ */
+public class ErdSpatialIndex {
+
+    /**
+     * the size of a grid cell in canvas coordinates
+     */
+    private static final int CELL_SIZE = 256;
+
+    private final Map<Long, List<ErdMoveableComponent>> cells = new HashMap<>();
+
+    /**
+     * <p>Rebuilds the index from the specified components.
+     *
+     * @param components the components of the diagram
+     */
+    public void rebuild(Collection<? extends ErdMoveableComponent> components) {
+
+        cells.clear();
+        for (ErdMoveableComponent component : components) {
+
+            Rectangle bounds = component.getBounds();
+            int firstColumn = cell(bounds.x);
+            int lastColumn = cell(bounds.x + Math.max(bounds.width - 1, 0));
+            int firstRow = cell(bounds.y);
+            int lastRow = cell(bounds.y + Math.max(bounds.height - 1, 0));
+
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    cells.computeIfAbsent(key(column, row), k -> new ArrayList<>(4)).add(component);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Returns the components containing the specified point.
+     *
+     * @param x the x coordinate on the unscaled canvas
+     * @param y the y coordinate on the unscaled canvas
+     * @return the components at the point
+     */
+    public List<ErdMoveableComponent> componentsAt(int x, int y) {
+
+        List<ErdMoveableComponent> found = new ArrayList<>();
+        List<ErdMoveableComponent> candidates = cells.get(key(cell(x), cell(y)));
+        if (candidates != null) {
+
+            for (ErdMoveableComponent component : candidates) {
+                if (component.getBounds().contains(x, y)) {
+                    found.add(component);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    private static Long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+}
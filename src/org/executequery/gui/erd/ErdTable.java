@@ -27,7 +27,10 @@ import org.underworldlabs.swing.plaf.UIUtils;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.util.Hashtable;
 import java.util.Vector;
 
@@ -114,6 +117,32 @@ public class ErdTable extends ErdMoveableComponent
     protected static final int TOP_JOIN = 2;
     protected static final int BOTTOM_JOIN = 3;
 
+    /**
+     * The display scale below which the columns are not drawn
+     */
+    private static final double NAME_ONLY_SCALE = 0.5;
+    /**
+     * The display scale below which no text is drawn
+     */
+    private static final double OUTLINE_ONLY_SCALE = 0.15;
+    /**
+     * The minimum displayed size of the table name in pixels
+     */
+    private static final float MIN_NAME_ONLY_FONT_SIZE = 11f;
+    /**
+     * The maximum number of pixels of a cached table image
+     */
+    private static final int MAX_TILE_PIXELS = 1 << 22;
+
+    /**
+     * The table rendered at the current display scale
+     */
+    private transient SoftReference<BufferedImage> tile;
+    private transient double tileScale;
+    private transient boolean tileSelected;
+    private transient Font tileTableNameFont;
+    private transient Font tileColumnNameFont;
+
     /**
      * <p>Constructs a new instance with the specified
      * table name and <code>ErdViewerPanel</code> as the
@@ -318,10 +347,16 @@ public class ErdTable extends ErdMoveableComponent
 
     public void setDisplayReferencedKeysOnly(boolean display) {
         displayReferencedKeysOnly = display;
+        invalidateTile();
     }
 
     public void tableColumnsChanged() {
         resetAllJoins();
+        invalidateTile();
+
+        if (getParent() instanceof ErdLayeredPane) {
+            ((ErdLayeredPane) getParent()).invalidateSpatialIndex();
+        }
 
         try {
             jbInit();
@@ -519,13 +554,134 @@ public class ErdTable extends ErdMoveableComponent
 
     protected void paintComponent(Graphics g) {
         Graphics2D g2d = (Graphics2D) g;
+
+        AffineTransform transform = g2d.getTransform();
+        double displayScale = transform.getScaleX();
+
+        // the table is rendered once per display scale and the image
+        // reused while dragging, scrolling or repainting other tables
+        BufferedImage image = null;
+        boolean translateOnly = (transform.getType() & ~(AffineTransform.TYPE_TRANSLATION
+                | AffineTransform.TYPE_UNIFORM_SCALE)) == 0;
+        if (translateOnly && parent != null) {
+            image = tileImage(displayScale);
+        }
+
+        if (image == null) {
+            setRenderingHints(g2d);
+            drawTable(g2d, displayScale);
+            return;
+        }
+
+        Graphics2D tileGraphics = (Graphics2D) g2d.create();
+        try {
+            tileGraphics.setTransform(AffineTransform.getTranslateInstance(
+                    Math.round(transform.getTranslateX()), Math.round(transform.getTranslateY())));
+            tileGraphics.drawImage(image, 0, 0, null);
+        } finally {
+            tileGraphics.dispose();
+        }
+    }
+
+    private BufferedImage tileImage(double displayScale) {
+
+        Font tableNameFont = parent.getTableNameFont();
+        Font columnNameFont = parent.getColumnNameFont();
+
+        BufferedImage image = tile != null ? tile.get() : null;
+        if (image != null && tileScale == displayScale && tileSelected == selected
+                && tileTableNameFont == tableNameFont && tileColumnNameFont == columnNameFont) {
+            return image;
+        }
+
+        int width = (int) Math.ceil(FINAL_WIDTH * displayScale);
+        int height = (int) Math.ceil(FINAL_HEIGHT * displayScale);
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_TILE_PIXELS) {
+            tile = null;
+            return null;
+        }
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.scale(displayScale, displayScale);
+            setRenderingHints(g);
+            drawTable(g, displayScale);
+        } finally {
+            g.dispose();
+        }
+
+        tile = new SoftReference<>(image);
+        tileScale = displayScale;
+        tileSelected = selected;
+        tileTableNameFont = tableNameFont;
+        tileColumnNameFont = columnNameFont;
+        return image;
+    }
+
+    /**
+     * <p>Discards the cached image of this table.
+     */
+    protected void invalidateTile() {
+        tile = null;
+    }
+
+    public void setSelected(boolean selected) {
+        if (this.selected != selected) {
+            invalidateTile();
+        }
+        super.setSelected(selected);
+    }
+
+    private void setRenderingHints(Graphics2D g2d) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                 RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_RENDERING,
                 RenderingHints.VALUE_RENDER_QUALITY);
         g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
                 RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        drawTable(g2d, 0, 0);
+    }
+
+    /**
+     * <p>Draws the table with the detail readable at the
+     * specified display scale.
+     */
+    private void drawTable(Graphics2D g, double displayScale) {
+
+        if (displayScale >= NAME_ONLY_SCALE || parent == null) {
+            drawTable(g, 0, 0);
+            return;
+        }
+
+        g.setColor(TITLE_BAR_BG_COLOR);
+        g.fillRect(0, 0, FINAL_WIDTH - 1, FINAL_HEIGHT - 1);
+
+        if (displayScale >= OUTLINE_ONLY_SCALE) {
+
+            // the name only - enlarged to remain readable
+            Font font = parent.getTableNameFont();
+            float size = Math.max(font.getSize2D(), (float) (MIN_NAME_ONLY_FONT_SIZE / displayScale));
+            FontMetrics fm = g.getFontMetrics(font.deriveFont(size));
+            int nameWidth = fm.stringWidth(tableName);
+            if (nameWidth > FINAL_WIDTH - 4) {
+                size = Math.max(1f, size * (FINAL_WIDTH - 4) / nameWidth);
+                fm = g.getFontMetrics(font.deriveFont(size));
+            }
+
+            g.setColor(Color.BLACK);
+            g.setFont(fm.getFont());
+            g.drawString(tableName,
+                    (FINAL_WIDTH - fm.stringWidth(tableName)) / 2,
+                    Math.min(FINAL_HEIGHT - 2, (FINAL_HEIGHT + fm.getAscent() - fm.getDescent()) / 2));
+        }
+
+        if (selected) {
+            g.setStroke(focusBorderStroke);
+            g.setColor(Color.BLUE);
+        } else {
+            g.setColor(Color.BLACK);
+        }
+        g.drawRect(0, 0, FINAL_WIDTH - 1, FINAL_HEIGHT - 1);
     }
 
     protected Color getTableBackground() {
@@ -534,6 +690,7 @@ public class ErdTable extends ErdMoveableComponent
 
     protected void setTableBackground(Color tableBackground) {
         this.tableBackground = tableBackground;
+        invalidateTile();
     }
 
     protected void drawTable(Graphics2D g, int offsetX, int offsetY) {
@@ -759,6 +916,7 @@ public class ErdTable extends ErdMoveableComponent
      */
     public void setTableName(String tableName) {
         this.tableName = tableName.toUpperCase();
+        invalidateTile();
     }
 
     /**
@@ -769,6 +927,7 @@ public class ErdTable extends ErdMoveableComponent
      */
     public void setTableColumns(ColumnData[] columns) {
         this.columns = columns;
+        invalidateTile();
     }
 
     /**
@@ -860,6 +1019,7 @@ public class ErdTable extends ErdMoveableComponent
 
     public void clean() {
         parent = null;
+        tile = null;
         columns = null;
         verticalLeftJoins = null;
         verticalRightJoins = null;
@@ -41,8 +41,13 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import static org.executequery.databaseobjects.NamedObject.PRIMARY_KEY;
@@ -66,6 +71,26 @@ public class ErdViewerPanel extends DefaultTabView
      */
     public static final String FRAME_ICON = "ErdPanel16.png";
 
+    /**
+     * Diagrams with more tables are laid out in the background
+     */
+    private static final int BACKGROUND_LAYOUT_SIZE = 150;
+
+    /**
+     * Progress of layouts run directly on the event dispatch thread
+     */
+    private static final ErdLayout.Progress NO_PROGRESS = new ErdLayout.Progress() {
+
+        @Override
+        public void progress(int percent) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
     /**
      * Whether this instance has a tool bar palatte
      */
@@ -417,69 +442,46 @@ public class ErdViewerPanel extends DefaultTabView
      */
     public Vector buildTableRelationships() {
 
-        String referencedTable = null;
-        ColumnData[] cda = null;
-        ColumnConstraint[] cca = null;
-
         ErdTable[] tables_array = getAllComponentsArray();
 
+        // index the tables by name so references resolve in constant time
+        Map<String, ErdTable> tablesByName = new HashMap<>(tables_array.length * 2);
+        for (ErdTable erdTable : tables_array) {
+            tablesByName.putIfAbsent(erdTable.toString().toUpperCase(), erdTable);
+        }
+
         Vector tableDependencies = new Vector();
-        ErdTableDependency dependency = null;
 
-        ErdTable table = null;
-        HashMap tempHash = new HashMap();
+        // tables already related - each combination is added once
+        Map<ErdTable, Set<ErdTable>> related = new IdentityHashMap<>();
 
-        for (int k = 0, m = tables.size(); k < m; k++) {
+        for (ErdTable erdTable : tables_array) {
 
-            cda = tables_array[k].getTableColumns();
+            ColumnData[] cda = erdTable.getTableColumns();
 
             if (cda == null) {
                 continue;
             }
 
-            for (int i = 0; i < cda.length; i++) {
+            for (ColumnData columnData : cda) {
 
-                if (!cda[i].isForeignKey())
+                if (!columnData.isForeignKey())
                     continue;
 
-                cca = cda[i].getColumnConstraintsArray();
-
-                for (int n = 0; n < cca.length; n++) {
+                for (ColumnConstraint constraint : columnData.getColumnConstraintsArray()) {
 
-                    if (cca[n].getType() == PRIMARY_KEY)
+                    if (constraint.getType() == PRIMARY_KEY || constraint.getRefTable() == null)
                         continue;
 
-                    referencedTable = cca[n].getRefTable();
-
-                    for (int j = 0; j < m; j++) {
-
-                        if (referencedTable.equalsIgnoreCase(
-                                tables.elementAt(j).toString())) {
-
-                            table = tables.elementAt(j);
-
-                            // check to see that the combination
-                            // does not already exist
-                            if ((tempHash.containsKey(tables_array[k]) &&
-                                    tempHash.get(tables_array[k]) == table) ||
-                                    (tempHash.containsKey(table) &&
-                                            tempHash.get(table) == tables_array[k])) {
-                                break;
-                            }
-
-                            dependency = new ErdTableDependency(tables_array[k], table);
-
-                            // place the tables in the temp HashMap so
-                            // the combination is not added a second time
-                            tempHash.put(tables_array[k], table);
-                            tempHash.put(table, tables_array[k]);
-
-                            tableDependencies.add(dependency);
-                            break;
-                        }
+                    ErdTable table = tablesByName.get(constraint.getRefTable().toUpperCase());
+                    if (table == null)
+                        continue;
 
-                    }
+                    if (!related.computeIfAbsent(erdTable, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(table))
+                        continue;
+                    related.computeIfAbsent(table, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(erdTable);
 
+                    tableDependencies.add(new ErdTableDependency(erdTable, table));
                 }
 
             }
@@ -651,6 +653,16 @@ public class ErdViewerPanel extends DefaultTabView
         layeredPane.repaint();
     }
 
+    /**
+     * <p>Repaints the specified region of the canvas given
+     * in unscaled canvas coordinates.
+     *
+     * @param region the region to repaint
+     */
+    protected void repaintLayeredPane(Rectangle region) {
+        layeredPane.repaintCanvasRegion(region);
+    }
+
     /**
      * <p>Removes the specified <code>ErdTable</code> from
      * the <code>Vector</code>.
@@ -732,6 +744,44 @@ public class ErdViewerPanel extends DefaultTabView
         return true;
     }
 
+    /**
+     * <p>Positions the tables using the specified layout. Large
+     * diagrams are laid out in the background displaying the progress.
+     *
+     * @param layout  the layout to be applied
+     * @param movable the tables to be positioned or null for all tables
+     */
+    public void layoutTables(ErdLayout layout, Collection<ErdTable> movable) {
+
+        ErdTable[] tablesArray = getAllComponentsArray();
+        if (tablesArray.length == 0) {
+            return;
+        }
+
+        ErdLayoutGraph graph = ErdLayoutGraph.create(
+                tablesArray, dependsPanel.getTableDependencies(), movable);
+
+        if (graph.size() > BACKGROUND_LAYOUT_SIZE) {
+
+            new ErdLayoutProgressDialog(this, layout, graph);
+
+        } else {
+
+            layout.layout(graph, NO_PROGRESS);
+            applyLayout(graph);
+        }
+    }
+
+    /**
+     * <p>Moves the tables to the positions of a completed layout.
+     */
+    protected void applyLayout(ErdLayoutGraph graph) {
+        graph.apply();
+        resizeCanvas();
+        layeredPane.validate();
+        layeredPane.repaint();
+    }
+
     protected ErdDependanciesPanel getDependenciesPanel() {
         return dependsPanel;
     }
@@ -240,13 +240,7 @@ public abstract class AbstractImportExportWorker implements ImportExportWorker {
         StringBuilder query = new StringBuilder("SELECT ");
         query.append(columnNamesAsCommaSeparatedString(table, columns));
         query.append(" FROM ");
-
-        String schema = parent.getSchemaName();
-        if (!MiscUtils.isNull(schema)) {
-            query.append(schema).append('.');
-        }
-
-        query.append(formatTableName(table));
+        query.append(tableReference(table));
 
         if (stmnt != null) {
             try {
@@ -266,7 +260,25 @@ public abstract class AbstractImportExportWorker implements ImportExportWorker {
         return stmnt.executeQuery(query.toString());
     }
 
-    private String columnNamesAsCommaSeparatedString(String table, List<?> columns) throws DataSourceException, SQLException {
+    /**
+     * Returns the table as referenced within the from clause
+     * of the export statements.
+     *
+     * @param table - the database table name
+     */
+    protected String tableReference(String table) {
+
+        StringBuilder reference = new StringBuilder();
+
+        String schema = parent.getSchemaName();
+        if (!MiscUtils.isNull(schema)) {
+            reference.append(schema).append('.');
+        }
+
+        return reference.append(formatTableName(table)).toString();
+    }
+
+    protected String columnNamesAsCommaSeparatedString(String table, List<?> columns) throws DataSourceException, SQLException {
 
         StringBuilder sb = new StringBuilder();
 
@@ -309,6 +321,30 @@ public abstract class AbstractImportExportWorker implements ImportExportWorker {
      */
     protected void prepareStatement(String table, Vector<?> columns) throws DataSourceException, SQLException {
 
+        String query = insertStatement(table, columns);
+
+        // make sure it was closed from a possible previous run
+        if (prepStmnt != null) {
+            try {
+                prepStmnt.close();
+            } catch (SQLException e) {
+            }
+        }
+
+        conn = getConnection();
+        conn.setAutoCommit(false);
+        prepStmnt = conn.prepareStatement(query, java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY);
+        prepStmnt.setFetchSize(fetchSizeForDatabaseProduct(conn.getMetaData()));
+    }
+
+    /**
+     * Returns the insert statement for an import process.
+     *
+     * @param table   - the database table name
+     * @param columns - the columns to insert into the table
+     */
+    protected String insertStatement(String table, Vector<?> columns) throws DataSourceException, SQLException {
+
         // check the columns and retrieve if null
         if (columns == null) {
             columns = getColumns(table);
@@ -337,18 +373,7 @@ public abstract class AbstractImportExportWorker implements ImportExportWorker {
         }
         query.append(")");
 
-        // make sure it was closed from a possible previous run
-        if (prepStmnt != null) {
-            try {
-                prepStmnt.close();
-            } catch (SQLException e) {
-            }
-        }
-
-        conn = getConnection();
-        conn.setAutoCommit(false);
-        prepStmnt = conn.prepareStatement(query.toString(), java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY);
-        prepStmnt.setFetchSize(fetchSizeForDatabaseProduct(conn.getMetaData()));
+        return query.toString();
     }
 
     private int fetchSizeForDatabaseProduct(DatabaseMetaData metaData) throws SQLException {
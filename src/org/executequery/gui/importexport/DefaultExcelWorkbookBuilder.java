@@ -56,6 +56,11 @@ public class DefaultExcelWorkbookBuilder implements ExcelWorkbookBuilder {
         workbook.write(outputStream);
     }
 
+    public void close() {
+
+        // the workbook is held in memory only
+    }
+
     public void createSheet(String sheetName) {
 
         currentSheet = workbook.createSheet(sheetName);
@@ -0,0 +1,866 @@
+/*
+ * DelimitedImportPipeline.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.importexport;
+
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.datasource.ConnectionManager;
+import org.executequery.gui.browser.ColumnData;
+import org.executequery.log.Log;
+import org.executequery.util.Base64;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports delimited files with a pipeline of concurrent stages.
+ * <p>
+ * Reader threads read the files in chunks of lines, parser threads
+ * split the lines and convert the values to the column types, writer
+ * threads bind the values to their own statement on their own connection,
+ * execute them in batches and commit after the configured number of rows.
+ * The stages are connected by bounded queues, so a slow database blocks
+ * the readers instead of filling the memory with parsed rows.
+ * <p>
+ * Since the rows are committed by several connections this is used only
+ * when the transaction is committed after a number of rows - not at the
+ * end of a file or of all files.
+ *
+ * @author Takis Diakoumis
+ */
+public class DelimitedImportPipeline {
+
+    /**
+     * the number of lines of a chunk passed between the stages
+     */
+    private static final int CHUNK_LINES = 1000;
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private static final long QUEUE_TIMEOUT = 100;
+
+    private static final RawChunk END_OF_RAW = new RawChunk(null, new String[0], new long[0], 0);
+
+    private static final ParsedChunk END_OF_PARSED = new ParsedChunk(null, 0);
+
+    private final DatabaseConnection databaseConnection;
+
+    private final ImportExportProgressPanel progress;
+
+    private final List<Source> sources;
+
+    private final String delimiter;
+
+    private final DateFormat dateFormat;
+
+    private final boolean trimWhitespace;
+
+    private final boolean batch;
+
+    private final boolean haltOnError;
+
+    private final int rollbackSize;
+
+    private final int readerThreads;
+
+    private final int parserThreads;
+
+    private final int writerThreads;
+
+    private final BlockingQueue<RawChunk> rawQueue;
+
+    private final BlockingQueue<ParsedChunk> parsedQueue;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong recordCount = new AtomicLong();
+
+    private final AtomicLong insertCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private volatile boolean stopped;
+
+    private volatile boolean failed;
+
+    private long totalBytes;
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param databaseConnection - the connection the writers connect to
+     * @param progress           - the progress panel receiving the messages
+     * @param sources            - the files to be imported
+     * @param delimiter          - the value delimiter
+     * @param dateFormat         - the date format, cloned by every parser, or null
+     * @param trimWhitespace     - whether to trim the character values
+     * @param batch              - whether rows are executed as batches
+     * @param haltOnError        - whether to stop on the first error
+     * @param rollbackSize       - the number of rows committed together
+     */
+    public DelimitedImportPipeline(DatabaseConnection databaseConnection,
+                                   ImportExportProgressPanel progress,
+                                   List<Source> sources,
+                                   String delimiter,
+                                   DateFormat dateFormat,
+                                   boolean trimWhitespace,
+                                   boolean batch,
+                                   boolean haltOnError,
+                                   int rollbackSize) {
+
+        this.databaseConnection = databaseConnection;
+        this.progress = progress;
+        this.sources = sources;
+        this.delimiter = delimiter;
+        this.dateFormat = dateFormat;
+        this.trimWhitespace = trimWhitespace;
+        this.batch = batch;
+        this.haltOnError = haltOnError;
+        this.rollbackSize = Math.max(1, rollbackSize);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        readerThreads = Math.max(1, Math.min(sources.size(), 2));
+        parserThreads = Math.max(1, processors / 2);
+        writerThreads = Math.max(1, Math.min(processors, 4));
+
+        rawQueue = new ArrayBlockingQueue<>(parserThreads * 2);
+        parsedQueue = new ArrayBlockingQueue<>(writerThreads * 2);
+    }
+
+    /**
+     * Runs the import blocking until all files were imported,
+     * an error stopped the import or the calling thread was interrupted.
+     *
+     * @return true if the import completed without being stopped
+     */
+    public boolean run() throws InterruptedException {
+
+        for (Source source : sources) {
+            totalBytes += source.file.length();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                readerThreads + parserThreads + writerThreads, new ThreadFactory() {
+
+                    private final AtomicInteger number = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "DelimitedImport-" + number.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        try {
+
+            BlockingQueue<Source> pendingSources = new LinkedBlockingQueue<>(sources);
+            AtomicInteger activeReaders = new AtomicInteger(readerThreads);
+            AtomicInteger activeParsers = new AtomicInteger(parserThreads);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < readerThreads; i++) {
+                futures.add(executor.submit(stopOnFailure(new Reader(pendingSources, activeReaders))));
+            }
+            for (int i = 0; i < parserThreads; i++) {
+                futures.add(executor.submit(stopOnFailure(new Parser(activeParsers))));
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                futures.add(executor.submit(stopOnFailure(new Writer())));
+            }
+
+            for (Future<?> future : futures) {
+
+                try {
+
+                    future.get();
+
+                } catch (ExecutionException e) {
+
+                    stop();
+                    Throwable cause = e.getCause();
+                    Log.error("Error importing delimited file", cause);
+                    progress.appendProgressErrorText("Unrecoverable error importing table data from file: "
+                            + cause.getMessage());
+                }
+            }
+
+        } catch (InterruptedException e) {
+
+            stop();
+            throw e;
+
+        } finally {
+
+            executor.shutdownNow();
+        }
+
+        return !failed;
+    }
+
+    /**
+     * Stops all stages, the uncommitted rows are rolled back.
+     */
+    public void stop() {
+        stopped = true;
+        failed = true;
+    }
+
+    /**
+     * Returns the import progress in percent of the bytes read.
+     */
+    public int getProgress() {
+        return totalBytes > 0 ? (int) Math.min(100, bytesRead.get() * 100 / totalBytes) : 0;
+    }
+
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    public long getInsertCount() {
+        return insertCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public int getThreadCount() {
+        return readerThreads + parserThreads + writerThreads;
+    }
+
+    private void error(Source source, long count, String message) {
+
+        errorCount.addAndGet(count);
+        source.errorCount.addAndGet(count);
+        progress.appendProgressErrorText(message);
+        if (haltOnError) {
+            stop();
+        }
+    }
+
+    /**
+     * Stops all stages when the specified stage fails - the stages feeding
+     * or draining it would otherwise wait for it forever.
+     */
+    private Callable<Void> stopOnFailure(Callable<Void> stage) {
+
+        return () -> {
+
+            try {
+
+                return stage.call();
+
+            } catch (Throwable e) {
+
+                stop();
+                throw e;
+            }
+        };
+    }
+
+    private <E> boolean put(BlockingQueue<E> queue, E element) throws InterruptedException {
+
+        while (!stopped) {
+            if (queue.offer(element, QUEUE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <E> E take(BlockingQueue<E> queue) throws InterruptedException {
+
+        while (!stopped) {
+            E element = queue.poll(QUEUE_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (element != null) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDateType(int sqlType) {
+        return sqlType == Types.DATE || sqlType == Types.TIME || sqlType == Types.TIMESTAMP;
+    }
+
+    /**
+     * Reads the pending files in chunks of lines.
+     */
+    private class Reader implements Callable<Void> {
+
+        private final BlockingQueue<Source> pendingSources;
+
+        private final AtomicInteger activeReaders;
+
+        Reader(BlockingQueue<Source> pendingSources, AtomicInteger activeReaders) {
+            this.pendingSources = pendingSources;
+            this.activeReaders = activeReaders;
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            try {
+
+                Source source;
+                while (!stopped && (source = pendingSources.poll()) != null) {
+                    read(source);
+                }
+
+            } finally {
+
+                // the last reader signals the end of the input to all parsers
+                if (activeReaders.decrementAndGet() == 0) {
+                    for (int i = 0; i < parserThreads; i++) {
+                        put(rawQueue, END_OF_RAW);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void read(Source source) throws IOException, InterruptedException {
+
+            try (BufferedReader reader = new BufferedReader(new FileReader(source.file), READ_BUFFER_SIZE)) {
+
+                long lineNumber = 0;
+                if (source.skipFirstLine && reader.readLine() != null) {
+                    lineNumber++;
+                }
+
+                String[] lines = new String[CHUNK_LINES];
+                long[] lineNumbers = new long[CHUNK_LINES];
+                int size = 0;
+                long chunkBytes = 0;
+
+                String line;
+                while (!stopped && (line = reader.readLine()) != null) {
+
+                    lineNumber++;
+                    chunkBytes += line.length() + 1;
+
+                    if (line.isEmpty()) {
+
+                        error(source, 1, "Line " + lineNumber + " of file " + source.file.getName()
+                                + " contains no delimited values");
+                        continue;
+                    }
+
+                    lines[size] = line;
+                    lineNumbers[size] = lineNumber;
+                    size++;
+
+                    if (size == CHUNK_LINES) {
+
+                        put(rawQueue, new RawChunk(source, lines, lineNumbers, size));
+                        bytesRead.addAndGet(chunkBytes);
+                        lines = new String[CHUNK_LINES];
+                        lineNumbers = new long[CHUNK_LINES];
+                        size = 0;
+                        chunkBytes = 0;
+                    }
+                }
+
+                if (size > 0) {
+                    put(rawQueue, new RawChunk(source, lines, lineNumbers, size));
+                }
+                bytesRead.addAndGet(chunkBytes);
+            }
+        }
+
+    } // class Reader
+
+    /**
+     * Splits the lines and converts the values to the types of the columns.
+     */
+    private class Parser implements Callable<Void> {
+
+        private final AtomicInteger activeParsers;
+
+        private final DelimitedLineScanner scanner;
+
+        private final DateFormat parserDateFormat;
+
+        Parser(AtomicInteger activeParsers) {
+            this.activeParsers = activeParsers;
+            this.scanner = new DelimitedLineScanner(delimiter);
+            this.parserDateFormat = dateFormat != null ? (DateFormat) dateFormat.clone() : null;
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            try {
+
+                RawChunk chunk;
+                while ((chunk = take(rawQueue)) != null && chunk != END_OF_RAW) {
+
+                    ParsedChunk parsed = parse(chunk);
+                    if (!put(parsedQueue, parsed)) {
+                        break;
+                    }
+                }
+
+            } finally {
+
+                // the last parser signals the end of the rows to all writers
+                if (activeParsers.decrementAndGet() == 0) {
+                    for (int i = 0; i < writerThreads; i++) {
+                        put(parsedQueue, END_OF_PARSED);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private ParsedChunk parse(RawChunk chunk) {
+
+            Source source = chunk.source;
+            String[] values = new String[source.fileColumnCount];
+            ParsedChunk parsed = new ParsedChunk(source, chunk.size);
+
+            for (int i = 0; i < chunk.size && !stopped; i++) {
+
+                long lineNumber = chunk.lineNumbers[i];
+                recordCount.incrementAndGet();
+                source.recordCount.incrementAndGet();
+
+                int valueCount = scanner.scan(chunk.lines[i], values);
+
+                // the last value may be missing when it is null
+                if (valueCount < source.fileColumnCount - 1) {
+
+                    error(source, 1, "Insufficient number of column values provided at line " + lineNumber
+                            + " of file " + source.file.getName());
+                    continue;
+                }
+
+                Object[] row = new Object[source.sqlTypes.length];
+                int position = 0;
+                try {
+
+                    for (; position < source.fileColumnCount; position++) {
+
+                        int parameter = source.parameterIndexes[position];
+                        if (parameter == -1) {
+                            continue;
+                        }
+
+                        String value = position < valueCount ? values[position] : null;
+                        row[parameter] = convert(value, source.sqlTypes[parameter]);
+                    }
+
+                } catch (ParseException | IllegalArgumentException e) {
+
+                    // NumberFormatException is an IllegalArgumentException
+                    error(source, 1, "Error parsing value - " + values[position] + " - on line " + lineNumber
+                            + " at position " + position + " of file " + source.file.getName()
+                            + ": " + e.getMessage());
+                    continue;
+                }
+
+                parsed.add(row, lineNumber);
+            }
+            return parsed;
+        }
+
+        private Object convert(String value, int sqlType) throws ParseException {
+
+            if (value == null || value.trim().length() == 0) {
+                return null;
+            }
+
+            switch (sqlType) {
+
+                case Types.TINYINT:
+                    return (short) Byte.parseByte(value);
+
+                case Types.BIGINT:
+                    return Long.parseLong(value);
+
+                case Types.SMALLINT:
+                    return Short.parseShort(value);
+
+                case Types.LONGVARCHAR:
+                case Types.CHAR:
+                case Types.VARCHAR:
+                    return trimWhitespace ? value.trim() : value;
+
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return "t".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value);
+
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    return new BigDecimal(value);
+
+                case Types.REAL:
+                    return Float.parseFloat(value);
+
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return Double.parseDouble(value);
+
+                case Types.INTEGER:
+                    return Integer.parseInt(value);
+
+                case Types.DATE:
+                case Types.TIME:
+                case Types.TIMESTAMP:
+                    // without a date format the value is converted by the driver
+                    if (parserDateFormat != null) {
+                        return new java.sql.Date(parserDateFormat.parse(value).getTime());
+                    }
+                    return value;
+
+                case Types.LONGVARBINARY:
+                case Types.BINARY:
+                case Types.BLOB:
+                case Types.CLOB:
+                    return Base64.decode(value);
+
+                default:
+                    return value;
+            }
+        }
+
+    } // class Parser
+
+    /**
+     * Inserts the parsed rows using its own connection.
+     */
+    private class Writer implements Callable<Void> {
+
+        private final Map<Source, PreparedStatement> statements = new HashMap<>();
+
+        private Connection connection;
+
+        private int uncommitted;
+
+        @Override
+        public Void call() throws Exception {
+
+            DataSource dataSource = ConnectionManager.getDataSource(databaseConnection);
+            if (dataSource == null) {
+                throw new SQLException("Connection " + databaseConnection.getName() + " is not open");
+            }
+
+            connection = dataSource.getConnection();
+            try {
+
+                connection.setAutoCommit(false);
+
+                ParsedChunk chunk;
+                while ((chunk = take(parsedQueue)) != null && chunk != END_OF_PARSED) {
+                    write(chunk);
+                }
+
+                if (stopped) {
+                    connection.rollback();
+                } else {
+                    connection.commit();
+                }
+
+            } finally {
+
+                for (PreparedStatement statement : statements.values()) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        Log.debug("Error closing import statement", e);
+                    }
+                }
+                connection.close();
+            }
+            return null;
+        }
+
+        private PreparedStatement statement(Source source) throws SQLException {
+
+            PreparedStatement statement = statements.get(source);
+            if (statement == null) {
+                statement = connection.prepareStatement(source.insertStatement);
+                statements.put(source, statement);
+            }
+            return statement;
+        }
+
+        private void bind(PreparedStatement statement, Source source, Object[] row) throws SQLException {
+
+            for (int i = 0; i < row.length; i++) {
+
+                Object value = row[i];
+                int sqlType = source.sqlTypes[i];
+                if (value == null) {
+                    statement.setNull(i + 1, sqlType);
+                } else if (value instanceof String && isDateType(sqlType)) {
+                    statement.setObject(i + 1, value, sqlType);
+                } else {
+                    statement.setObject(i + 1, value);
+                }
+            }
+        }
+
+        private void write(ParsedChunk chunk) throws SQLException {
+
+            if (chunk.size == 0) {
+                return;
+            }
+
+            Source source = chunk.source;
+            PreparedStatement statement = statement(source);
+
+            if (batch) {
+
+                for (int i = 0; i < chunk.size; i++) {
+                    bind(statement, source, chunk.rows[i]);
+                    statement.addBatch();
+                }
+
+                try {
+
+                    count(source, statement.executeBatch().length);
+
+                } catch (BatchUpdateException e) {
+
+                    int[] updateCounts = e.getUpdateCounts();
+                    int inserted = 0;
+                    for (int updateCount : updateCounts) {
+                        if (updateCount != Statement.EXECUTE_FAILED) {
+                            inserted++;
+                        }
+                    }
+                    count(source, inserted);
+                    error(source, chunk.size - inserted, "Error on batch execution of lines " + chunk.lineNumbers[0] + " - "
+                            + chunk.lineNumbers[chunk.size - 1] + " of file " + source.file.getName()
+                            + ": " + e.getMessage());
+                    statement.clearBatch();
+                }
+
+            } else {
+
+                for (int i = 0; i < chunk.size && !stopped; i++) {
+
+                    try {
+
+                        bind(statement, source, chunk.rows[i]);
+                        count(source, statement.executeUpdate());
+
+                    } catch (SQLException e) {
+
+                        error(source, 1, "Error inserting data from line " + chunk.lineNumbers[i]
+                                + " of file " + source.file.getName() + ": " + e.getMessage());
+                    }
+                }
+            }
+
+            uncommitted += chunk.size;
+            if (uncommitted >= rollbackSize && !stopped) {
+                connection.commit();
+                uncommitted = 0;
+            }
+        }
+
+        private void count(Source source, int inserted) {
+            insertCount.addAndGet(inserted);
+            source.insertCount.addAndGet(inserted);
+        }
+
+    } // class Writer
+
+    /**
+     * A file to be imported and the binding of its values
+     * to the parameters of the insert statement.
+     */
+    public static class Source {
+
+        private final String tableName;
+
+        private final File file;
+
+        private final Vector<ColumnData> columns;
+
+        private final int[] parameterIndexes;
+
+        private final int[] sqlTypes;
+
+        private final int fileColumnCount;
+
+        private final int boundCount;
+
+        private final boolean skipFirstLine;
+
+        private String insertStatement;
+
+        private final AtomicLong recordCount = new AtomicLong();
+
+        private final AtomicLong insertCount = new AtomicLong();
+
+        private final AtomicLong errorCount = new AtomicLong();
+
+        /**
+         * Creates a new source.
+         *
+         * @param tableName        - the table receiving the values
+         * @param file             - the delimited file
+         * @param columns          - the columns of the statement, the ones present in the file first
+         * @param parameterIndexes - the statement parameter of each value of a line, -1 if ignored
+         * @param skipFirstLine    - whether the first line holds the column names
+         */
+        public Source(String tableName, File file, Vector<ColumnData> columns,
+                      int[] parameterIndexes, boolean skipFirstLine) {
+
+            this.tableName = tableName;
+            this.file = file;
+            this.columns = columns;
+            this.parameterIndexes = parameterIndexes;
+            this.fileColumnCount = parameterIndexes.length;
+            this.skipFirstLine = skipFirstLine;
+
+            sqlTypes = new int[columns.size()];
+            for (int i = 0; i < sqlTypes.length; i++) {
+                sqlTypes[i] = columns.get(i).getSQLType();
+            }
+
+            int bound = 0;
+            for (int parameterIndex : parameterIndexes) {
+                if (parameterIndex != -1) {
+                    bound++;
+                }
+            }
+            boundCount = bound;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public Vector<ColumnData> getColumns() {
+            return columns;
+        }
+
+        public int[] getParameterIndexes() {
+            return parameterIndexes;
+        }
+
+        public int[] getSqlTypes() {
+            return sqlTypes;
+        }
+
+        public int getFileColumnCount() {
+            return fileColumnCount;
+        }
+
+        /**
+         * Returns the number of parameters bound to values of the file,
+         * the remaining parameters are always null.
+         */
+        public int getBoundCount() {
+            return boundCount;
+        }
+
+        public boolean hasDateColumn() {
+
+            for (int i = 0; i < boundCount; i++) {
+                if (columns.get(i).isDateDataType()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void setInsertStatement(String insertStatement) {
+            this.insertStatement = insertStatement;
+        }
+
+        public long getRecordCount() {
+            return recordCount.get();
+        }
+
+        public long getInsertCount() {
+            return insertCount.get();
+        }
+
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+    } // class Source
+
+    private static class RawChunk {
+
+        final Source source;
+
+        final String[] lines;
+
+        final long[] lineNumbers;
+
+        final int size;
+
+        RawChunk(Source source, String[] lines, long[] lineNumbers, int size) {
+            this.source = source;
+            this.lines = lines;
+            this.lineNumbers = lineNumbers;
+            this.size = size;
+        }
+
+    } // class RawChunk
+
+    private static class ParsedChunk {
+
+        final Source source;
+
+        final Object[][] rows;
+
+        final long[] lineNumbers;
+
+        int size;
+
+        ParsedChunk(Source source, int capacity) {
+            this.source = source;
+            this.rows = new Object[capacity][];
+            this.lineNumbers = new long[capacity];
+        }
+
+        void add(Object[] row, long lineNumber) {
+            rows[size] = row;
+            lineNumbers[size] = lineNumber;
+            size++;
+        }
+
+    } // class ParsedChunk
+
+}
@@ -0,0 +1,121 @@
+/*
+ * DelimitedLineScanner.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.importexport;
+
+/**
+ * Splits a line of a delimited file into its values.
+ * <p>
+ * Values may be enclosed in double quotes, in which case they may
+ * contain the delimiter and doubled quotes standing for a single quote
+ * character. This replaces the regular expression previously matched
+ * for every value of every line. Instances are not thread-safe - each
+ * parsing thread uses its own scanner.
+ *
+ * @author Takis Diakoumis
+ */
+public class DelimitedLineScanner {
+
+    private static final char QUOTE = '"';
+
+    private final String delimiter;
+
+    private final int delimiterLength;
+
+    private final StringBuilder buffer;
+
+    public DelimitedLineScanner(String delimiter) {
+        this.delimiter = delimiter;
+        this.delimiterLength = delimiter.length();
+        this.buffer = new StringBuilder();
+    }
+
+    /**
+     * Splits the specified line storing the values in the array.
+     * Values beyond the array length are counted but not stored.
+     *
+     * @param line   - the line to be split
+     * @param values - the array receiving the values
+     * @return the number of values found in the line
+     */
+    public int scan(String line, String[] values) {
+
+        int length = line.length();
+        int position = 0;
+        int count = 0;
+
+        while (position <= length) {
+
+            String value;
+            int next;
+
+            if (position < length && line.charAt(position) == QUOTE) {
+
+                buffer.setLength(0);
+                int end = length;
+                int index = position + 1;
+                while (index < length) {
+
+                    int quote = line.indexOf(QUOTE, index);
+                    if (quote == -1) {
+
+                        // unterminated quote - take the rest of the line
+                        buffer.append(line, index, length);
+                        break;
+                    }
+
+                    buffer.append(line, index, quote);
+                    if (quote + 1 < length && line.charAt(quote + 1) == QUOTE) {
+
+                        buffer.append(QUOTE);
+                        index = quote + 2;
+
+                    } else {
+
+                        end = quote + 1;
+                        break;
+                    }
+                }
+                value = buffer.toString();
+
+                // anything between the closing quote and the delimiter is dropped
+                next = line.indexOf(delimiter, Math.min(end, length));
+
+            } else {
+
+                next = line.indexOf(delimiter, position);
+                value = line.substring(position, next == -1 ? length : next);
+            }
+
+            if (count < values.length) {
+                values[count] = value;
+            }
+            count++;
+
+            if (next == -1) {
+                break;
+            }
+            position = next + delimiterLength;
+        }
+
+        return count;
+    }
+
+}
@@ -20,22 +20,26 @@
 
 package org.executequery.gui.importexport;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 
 /**
+ * Builds a workbook of one or more sheets. The builder is closed once
+ * the export finished or failed to release the resources it holds.
+ *
  * @author Takis Diakoumis
  */
-public interface ExcelWorkbookBuilder {
+public interface ExcelWorkbookBuilder extends Closeable {
 
     void reset();
 
-    void createSheet(String sheetName);
+    void createSheet(String sheetName) throws IOException;
 
-    void addRowHeader(List<String> values);
+    void addRowHeader(List<String> values) throws IOException;
 
-    void addRow(List<String> values);
+    void addRow(List<String> values) throws IOException;
 
     void writeTo(OutputStream outputStream) throws IOException;
 
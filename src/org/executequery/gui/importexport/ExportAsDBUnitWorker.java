@@ -50,6 +50,7 @@ import org.executequery.log.Log;
 import org.executequery.util.Base64;
 import org.executequery.util.ThreadWorker;
 import org.underworldlabs.jdbc.DataSourceException;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.MiscUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -70,7 +71,7 @@ public class ExportAsDBUnitWorker extends BaseImportExportWorker {
 
     protected void export() {
         
-        worker = new ThreadWorker() {
+        worker = new ThreadWorker(TaskScheduler.Workload.IO) {
 
             public Object construct() {
                 
@@ -29,12 +29,16 @@ import org.executequery.log.Log;
 import org.executequery.util.Base64;
 import org.executequery.util.ThreadWorker;
 import org.underworldlabs.jdbc.DataSourceException;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.MiscUtils;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.sql.*;
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,6 +50,8 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
 
     private ThreadWorker worker;
 
+    private ParallelTableExporter exporter;
+
     public ExportAsSQLWorker(ImportExportWizard importExportWizard) {
 
         super(importExportWizard);
@@ -53,7 +59,7 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
 
     protected void export() {
 
-        worker = new ThreadWorker() {
+        worker = new ThreadWorker(TaskScheduler.Workload.IO) {
 
             public Object construct() {
 
@@ -95,15 +101,11 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
         start();
 
         int tableCount = 0;
-        int recordCount = 0;
         int errorCount = 0;
         int totalRecordCount = 0;
 
-        PrintWriter writer = null;
-
         try {
 
-            ResultSet rs = null;
             List<DatabaseTable> databaseTables = model.getDatabaseTables();
 
             StringBuilder sb = new StringBuilder();
@@ -112,168 +114,161 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
             StringBuilder foreignKeys = new StringBuilder();
             StringBuilder uniqueKeys = new StringBuilder();
 
-            for (DatabaseTable table : databaseTables) {
-
-                ImportExportFile importExportFile = model.getImportExportFileForTable(table);
-
-                if (!model.isSingleFileMultiTableExport() || writer == null) {
-
-                    writer = new PrintWriter(
-                            new FileWriter(importExportFile.getFile(), false), true);
-                }
-
-                try {
-
-                    int dataRowCount = table.getDataRowCount();
-
-                    setProgressStatus(0);
-
-                    if (dataRowCount > 0) {
-
-                        setProgressBarMaximum(dataRowCount);
-
-                    } else {
-
-                        setProgressBarMaximum(100);
-                    }
+            // the tables and the key ranges of large tables are exported
+            // concurrently on their own connections and stitched together
+            exporter = new ParallelTableExporter(model.getDatabaseHost().getDatabaseConnection());
+            exporter.setContinueOnError(OnErrorOption.isLogAndContinue(model.getOnErrorOption()));
 
-                    sb.append("---------------------------\nTable: ");
-                    sb.append(table.getName());
-                    sb.append("\nRecords found: ");
-                    sb.append(dataRowCount);
-                    sb.append("\nExport file: ");
-                    sb.append(importExportFile.getFile().getName());
-                    appendProgressText(sb);
-                    sb.setLength(0);
+            long totalRecords = 0;
+            ParallelTableExporter.ExportFile exportFile = null;
+            List<ParallelTableExporter.ExportFile> exportFiles = new ArrayList<>();
 
-                    if (dataRowCount > 0 || isCreateTableStatementsIncluded()) {
-
-                        writer.println(headerForTable(table));
-                    }
-
-                    if (isCreateTableStatementsIncluded()) {
-
-                        writer.println(table.getCreateSQLText(DatabaseTable.STYLE_NO_CONSTRAINTS));
-                        writer.println();
-                    }
-
-                    if (isPrimaryKeyStatementsIncluded()) {
-
-                        primaryKeys.append(table.getAlterSQLTextForPrimaryKeys());
-                    }
-
-                    if (isForeignKeyStatementsIncluded()) {
+            for (DatabaseTable table : databaseTables) {
 
-                        foreignKeys.append(table.getAlterSQLTextForForeignKeys());
-                    }
+                if (Thread.interrupted()) {
 
-                    if (isUniqueKeyStatementsIncluded()) {
+                    throw new InterruptedException();
+                }
 
-                        uniqueKeys.append(table.getAlterSQLTextForUniqueKeys());
-                    }
+                ImportExportFile importExportFile = model.getImportExportFileForTable(table);
 
-                    if (dataRowCount > 0) {
+                if (!model.isSingleFileMultiTableExport() || exportFile == null) {
 
-                        List<DatabaseColumn> columns = columnSelections(importExportFile);
+                    exportFile = new ParallelTableExporter.ExportFile(
+                            importExportFile.getFile(), Charset.defaultCharset());
+                    exporter.add(exportFile);
+                    exportFiles.add(exportFile);
+                }
 
-                        appendProgressText("Exporting data...");
+                // row counts are estimated from the index statistics instead of counting the rows
+                long estimatedRows = ParallelTableExporter.estimateRowCount(
+                        table.getHost().getConnection(), table.getName());
+                totalRecords = estimatedRows < 0 || totalRecords < 0 ? -1 : totalRecords + estimatedRows;
 
-                        rs = resultSetForExport(importExportFile, columns);
-                        ResultSetMetaData rsmd = rs.getMetaData();
+                sb.append("---------------------------\nTable: ");
+                sb.append(table.getName());
+                sb.append("\nEstimated records: ");
+                sb.append(estimatedRows < 0 ? "unknown" : String.valueOf(estimatedRows));
+                sb.append("\nExport file: ");
+                sb.append(importExportFile.getFile().getName());
+                appendProgressText(sb);
+                sb.setLength(0);
 
-                        String insertStatement = insertStatementForTable(importExportFile, columns);
+                if (isCreateTableStatementsIncluded()) {
 
-                        while (rs.next()) {
+                    exportFile.addText(headerForTable(table) + LINE_SEPARATOR);
+                    exportFile.addText(table.getCreateSQLText(DatabaseTable.STYLE_NO_CONSTRAINTS)
+                            + LINE_SEPARATOR + LINE_SEPARATOR);
 
-                            if (Thread.interrupted()) {
+                } else {
 
-                                setProgressStatus(dataRowCount);
-                                throw new InterruptedException();
-                            }
+                    exportFile.addDataHeader(headerForTable(table) + LINE_SEPARATOR);
+                }
 
-                            sb.append(insertStatement);
+                if (isPrimaryKeyStatementsIncluded()) {
 
-                            for (int i = 1, n = rsmd.getColumnCount(); i <= n; i++) {
+                    primaryKeys.append(table.getAlterSQLTextForPrimaryKeys());
+                }
 
-                                String value = formatNextValue(rs, i, rsmd.getColumnType(i));
-                                sb.append(value);
+                if (isForeignKeyStatementsIncluded()) {
 
-                                if (i < n) {
+                    foreignKeys.append(table.getAlterSQLTextForForeignKeys());
+                }
 
-                                    sb.append(", ");
-                                }
+                if (isUniqueKeyStatementsIncluded()) {
 
-                            }
+                    uniqueKeys.append(table.getAlterSQLTextForUniqueKeys());
+                }
 
-                            sb.append(");\n");
-                            writer.println(sb.toString());
-                            sb.setLength(0);
+                List<DatabaseColumn> columns = columnSelections(importExportFile);
+                String insertStatement = insertStatementForTable(importExportFile, columns);
 
-                            recordCount++;
-                            totalRecordCount++;
+                exportFile.addTableData(table.getName(), selectListForExport(columns),
+                        fromClauseForExport(table), estimatedRows,
+                        metaData -> new InsertRowFormatter(insertStatement, metaData));
 
-                            setProgressStatus(recordCount);
-                        }
+                if (!model.isSingleFileMultiTableExport()) {
 
-                    }
+                    exportFile.addText(constraints(primaryKeys, foreignKeys, uniqueKeys));
+                }
+            }
 
-                    if (!model.isSingleFileMultiTableExport()) {
+            if (exportFile != null && model.isSingleFileMultiTableExport()) {
 
-                        writeConstraints(writer, primaryKeys, foreignKeys, uniqueKeys);
-                    }
+                exportFile.addText(constraints(primaryKeys, foreignKeys, uniqueKeys));
+            }
 
-                } catch (SQLException e) {
+            appendProgressText("Exporting data using " + exporter.getThreadCount() + " threads...");
 
-                    errorCount++;
-                    logException(e);
+            final ParallelTableExporter currentExporter = exporter;
+            final long progressMaximum = totalRecords;
+            setProgressStatus(0);
+            setProgressBarMaximum(100);
 
-                    if (OnErrorOption.isLogAndContinue(
-                            importExportDataModel().getOnErrorOption())) {
+            javax.swing.Timer progressTimer = new javax.swing.Timer(500, e -> {
+                if (progressMaximum > 0) {
+                    setProgressStatus((int) Math.min(100, currentExporter.getExportedCount() * 100 / progressMaximum));
+                }
+            });
+            progressTimer.start();
 
-                        outputExceptionError("SQL error exporting table ", e);
+            try {
 
-                    } else {
+                exporter.run();
 
-                        throw new DataSourceException(e);
-                    }
+            } finally {
 
-                } finally {
+                progressTimer.stop();
+                totalRecordCount = (int) exporter.getExportedCount();
+            }
 
-                    if (!model.isSingleFileMultiTableExport()) {
+            for (ParallelTableExporter.Failure failure : exporter.getFailures()) {
 
-                        flushAndClose(writer);
-                        printExportFileSize(importExportFile);
-                    }
+                errorCount++;
+                logException(failure.getException());
+                outputExceptionError("SQL error exporting table " + failure.getTableName(), failure.getException());
+            }
 
-                    closeResultSet(rs);
-                    closeStatement(statement);
-                }
+            for (DatabaseTable table : databaseTables) {
 
-                setProgressStatus(-1);
+                ImportExportFile importExportFile = model.getImportExportFileForTable(table);
+                ParallelTableExporter.ExportFile file = model.isSingleFileMultiTableExport()
+                        ? exportFiles.get(0) : exportFiles.get(tableCount);
 
-                recordCount = 0;
                 sb.append("Export complete for table: ");
                 sb.append(table.getName());
+                sb.append("\nRecords exported: ");
+                sb.append(file.getRowCount(table.getName()));
                 appendProgressText(sb);
                 sb.setLength(0);
 
-                tableCount++;
-            }
+                if (!model.isSingleFileMultiTableExport()) {
 
-            if (model.isSingleFileMultiTableExport()) {
-
-                writeConstraints(writer, primaryKeys, foreignKeys, uniqueKeys);
+                    printExportFileSize(importExportFile);
+                }
 
-                flushAndClose(writer);
+                tableCount++;
             }
 
+            setProgressStatus(-1);
             setTableCount(tableCount);
 
         } catch (InterruptedException e) {
 
-            cancelStatement(statement);
+            if (exporter != null) {
+
+                exporter.stop();
+            }
             return ImportExportResult.CANCELLED;
 
+        } catch (SQLException e) {
+
+            errorCount++;
+
+            logException(e);
+            outputExceptionError("SQL error exporting table data to file", e);
+            return ImportExportResult.FAILED;
+
         } catch (DataSourceException e) {
 
             errorCount++;
@@ -310,31 +305,34 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
         return ImportExportResult.SUCCESS;
     }
 
-    private void writeConstraints(PrintWriter writer,
-                                  StringBuilder primaryKeys, StringBuilder foreignKeys,
-                                  StringBuilder uniqueKeys) {
+    private String constraints(StringBuilder primaryKeys, StringBuilder foreignKeys,
+                               StringBuilder uniqueKeys) {
+
+        StringBuilder sb = new StringBuilder();
 
         if (isPrimaryKeyStatementsIncluded()) {
 
-            writer.println(headerForPrimaryKeyConstraints());
-            writer.println(primaryKeys);
+            sb.append(headerForPrimaryKeyConstraints()).append(LINE_SEPARATOR);
+            sb.append(primaryKeys).append(LINE_SEPARATOR);
         }
 
         if (isForeignKeyStatementsIncluded()) {
 
-            writer.println(headerForForeignKeyConstraints());
-            writer.println(foreignKeys);
+            sb.append(headerForForeignKeyConstraints()).append(LINE_SEPARATOR);
+            sb.append(foreignKeys).append(LINE_SEPARATOR);
         }
 
         if (isUniqueKeyStatementsIncluded()) {
 
-            writer.println(headerForUniqueKeyConstraints());
-            writer.println(uniqueKeys);
+            sb.append(headerForUniqueKeyConstraints()).append(LINE_SEPARATOR);
+            sb.append(uniqueKeys).append(LINE_SEPARATOR);
         }
 
         primaryKeys.setLength(0);
         foreignKeys.setLength(0);
         uniqueKeys.setLength(0);
+
+        return sb.toString();
     }
 
     private void releaseConnection() {
@@ -342,83 +340,128 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
         importExportDataModel().getDatabaseHost().close();
     }
 
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
     private static final String NULL_STRING = "NULL";
 
-    private String formatNextValue(ResultSet rs, int index, int columnType)
-            throws SQLException {
+    private static final String NEW_LINE_REPLACEMENT = "\\\\n";
+    private static final String CARRIAGE_RETURN_REPLACEMENT = "\\\\r";
+    private static final String QUOTE_REPLACEMENT = "''";
 
-        Object value = rs.getObject(index);
-        if (rs.wasNull() || value == null) {
+    /**
+     * Formats the rows of one export thread as insert statements -
+     * the matchers are not shared between the threads.
+     */
+    private static class InsertRowFormatter implements ParallelTableExporter.RowFormatter {
 
-            return NULL_STRING;
-        }
+        private final String insertStatement;
 
-        switch (columnType) {
+        private final int[] columnTypes;
 
-            case Types.LONGVARCHAR:
-            case Types.CHAR:
-            case Types.VARCHAR:
-                return "'" + formatString(value.toString()) + "'";
+        private final Matcher newLineMatcher = Pattern.compile("\n").matcher(StringUtils.EMPTY);
+        private final Matcher carriageReturnMatcher = Pattern.compile("\r").matcher(StringUtils.EMPTY);
+        private final Matcher quoteMatcher = Pattern.compile("'").matcher(StringUtils.EMPTY);
 
-            case Types.DATE:
-            case Types.TIME:
-            case Types.TIMESTAMP:
-                return "'" + value.toString() + "'";
+        InsertRowFormatter(String insertStatement, ResultSetMetaData rsmd) throws SQLException {
 
-            // TODO: not really sure how well this will work with blobs et al
+            this.insertStatement = insertStatement;
 
-            case Types.LONGVARBINARY:
-            case Types.BINARY:
-            case Types.BLOB:
-            case Types.CLOB:
-                return Base64.encodeBytes(
-                        MiscUtils.inputStreamToBytes(rs.getBinaryStream(index)));
+            columnTypes = new int[rsmd.getColumnCount()];
+            for (int i = 0; i < columnTypes.length; i++) {
 
-            case Types.BOOLEAN:
-                boolean boolValue = ((Boolean) value).booleanValue();
+                columnTypes[i] = rsmd.getColumnType(i + 1);
+            }
+        }
 
-                return boolValue ? "true" : "false";
+        @Override
+        public void format(ResultSet rs, StringBuilder sb) throws SQLException {
 
-            case Types.BIT:
-            case Types.TINYINT:
-            case Types.BIGINT:
-            case Types.NUMERIC:
-            case Types.DECIMAL:
-            case Types.INTEGER:
-            case Types.SMALLINT:
-            case Types.FLOAT:
-            case Types.REAL:
-            case Types.DOUBLE:
-                return value.toString();
+            sb.append(insertStatement);
 
-            default:
-                return "'" + formatString(value.toString()) + "'";
+            for (int i = 1, n = columnTypes.length; i <= n; i++) {
 
+                String value = formatNextValue(rs, i, columnTypes[i - 1]);
+                sb.append(value);
+
+                if (i < n) {
+
+                    sb.append(", ");
+                }
+
+            }
+
+            sb.append(");\n").append(LINE_SEPARATOR);
         }
 
-    }
+        private String formatNextValue(ResultSet rs, int index, int columnType)
+                throws SQLException {
 
-    private static final String NEW_LINE_REPLACEMENT = "\\\\n";
-    private static final String CARRIAGE_RETURN_REPLACEMENT = "\\\\r";
-    private static final String QUOTE_REPLACEMENT = "''";
+            Object value = rs.getObject(index);
+            if (rs.wasNull() || value == null) {
+
+                return NULL_STRING;
+            }
+
+            switch (columnType) {
+
+                case Types.LONGVARCHAR:
+                case Types.CHAR:
+                case Types.VARCHAR:
+                    return "'" + formatString(value.toString()) + "'";
 
-    private Matcher newLineMatcher = Pattern.compile("\n").matcher(StringUtils.EMPTY);
-    private Matcher carriageReturnMatcher = Pattern.compile("\r").matcher(StringUtils.EMPTY);
-    private Matcher quoteMatcher = Pattern.compile("'").matcher(StringUtils.EMPTY);
+                case Types.DATE:
+                case Types.TIME:
+                case Types.TIMESTAMP:
+                    return "'" + value.toString() + "'";
 
-    private String formatString(String value) {
+                // TODO: not really sure how well this will work with blobs et al
 
-        if (value != null) {
+                case Types.LONGVARBINARY:
+                case Types.BINARY:
+                case Types.BLOB:
+                case Types.CLOB:
+                    return Base64.encodeBytes(
+                            MiscUtils.inputStreamToBytes(rs.getBinaryStream(index)));
 
-            String formattedValue = newLineMatcher.reset(value).replaceAll(NEW_LINE_REPLACEMENT);
-            formattedValue = carriageReturnMatcher.reset(formattedValue).replaceAll(CARRIAGE_RETURN_REPLACEMENT);
-            formattedValue = quoteMatcher.reset(formattedValue).replaceAll(QUOTE_REPLACEMENT);
+                case Types.BOOLEAN:
+                    boolean boolValue = ((Boolean) value).booleanValue();
+
+                    return boolValue ? "true" : "false";
+
+                case Types.BIT:
+                case Types.TINYINT:
+                case Types.BIGINT:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.FLOAT:
+                case Types.REAL:
+                case Types.DOUBLE:
+                    return value.toString();
+
+                default:
+                    return "'" + formatString(value.toString()) + "'";
+
+            }
 
-            return formattedValue;
         }
 
-        return value;
-    }
+        private String formatString(String value) {
+
+            if (value != null) {
+
+                String formattedValue = newLineMatcher.reset(value).replaceAll(NEW_LINE_REPLACEMENT);
+                formattedValue = carriageReturnMatcher.reset(formattedValue).replaceAll(CARRIAGE_RETURN_REPLACEMENT);
+                formattedValue = quoteMatcher.reset(formattedValue).replaceAll(QUOTE_REPLACEMENT);
+
+                return formattedValue;
+            }
+
+            return value;
+        }
+
+    } // class InsertRowFormatter
 
     private StringBuilder stringBuilder = new StringBuilder();
 
@@ -457,26 +500,9 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
         }
     }
 
-    private Statement statement;
-
-    private ResultSet resultSetForExport(ImportExportFile importExportFile, List<DatabaseColumn> columns)
-            throws SQLException {
-
-        closeStatement(statement);
+    private String selectListForExport(List<DatabaseColumn> columns) {
 
-        DatabaseTable table = importExportFile.getDatabaseTable();
-
-        Connection connection = table.getHost().getConnection();
-        statement = connection.createStatement();
-
-        return statement.executeQuery(selectStatementForExport(importExportFile, columns));
-    }
-
-    private String selectStatementForExport(ImportExportFile importExportFile, List<DatabaseColumn> columns) {
-
-        DatabaseTable table = importExportFile.getDatabaseTable();
-
-        StringBuilder sb = new StringBuilder("SELECT ");
+        StringBuilder sb = new StringBuilder();
         for (int i = 0, n = columns.size(); i < n; i++) {
 
             DatabaseTableColumn column = (DatabaseTableColumn) columns.get(i);
@@ -488,7 +514,12 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
 
         }
 
-        sb.append(" FROM ");
+        return sb.toString();
+    }
+
+    private String fromClauseForExport(DatabaseTable table) {
+
+        StringBuilder sb = new StringBuilder();
         if (table.getParentNameForStatement() != null) {
 
             sb.append(table.getParentNameForStatement());
@@ -496,8 +527,6 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
         }
         sb.append(table.getNameForQuery());
 
-        Log.info("Executing query for export: [ " + sb + " ]");
-
         return sb.toString();
     }
 
@@ -547,16 +576,6 @@ public class ExportAsSQLWorker extends BaseImportExportWorker {
         return "\n---\n--- Unique Keys: \n---\n";
     }
 
-    private void flushAndClose(PrintWriter writer) {
-
-        if (writer != null) {
-
-            writer.flush();
-            writer.close();
-        }
-
-    }
-
     public void cancelTransfer() {
 
         worker.interrupt();
@@ -26,14 +26,11 @@ import org.executequery.gui.browser.ColumnData;
 import org.executequery.log.Log;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DateFormat;
@@ -53,6 +50,11 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
      */
     private SwingWorker worker;
 
+    /**
+     * The exporter of the table data
+     */
+    private ParallelTableExporter exporter;
+
     /**
      * Constructs a new instance with the specified parent object
      * and progress output panel.
@@ -75,7 +77,7 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
         reset();
 
         // create the worker
-        worker = new SwingWorker() {
+        worker = new SwingWorker(TaskScheduler.Workload.IO) {
             public Object construct() {
                 return doWork();
             }
@@ -115,10 +117,6 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
         // --- begin the export process ---
         // --------------------------------
 
-        ResultSet rset = null;
-//        PrintWriter writer = null;
-
-        BufferedWriter writer = null;
         try {
 
             // define the delimiter
@@ -132,21 +130,10 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
 
             boolean quoteCharacterValues = getParent().quoteCharacterValues();
 
-            // row data output buffer
-            StringBuilder rowData = new StringBuilder(5000);
-
             // retrieve the export to files
             Vector<DataTransferObject> files = getParent().getDataFileVector();
             int fileCount = files.size();
 
-            // ---------------------------
-            // --- initialise counters ---
-            // ---------------------------
-
-            int columnCount = -1;
-            int recordCount = 0;
-            int totalRecords = 0;
-
             DateFormat dateFormat = null;
 
             boolean parseDateValues = parseDateValues();
@@ -155,19 +142,24 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
                 dateFormat = createDateFormatter();
             }
 
-            // ----------------------------------------
-            // --- begin looping through the tables ---
-            // ----------------------------------------
+            // the tables and the key ranges of large tables are exported
+            // concurrently on their own connections and stitched together
+            exporter = new ParallelTableExporter(getParent().getDatabaseConnection());
+
+            long totalRecords = 0;
+            List<ParallelTableExporter.ExportFile> exportFiles = new ArrayList<>(fileCount);
 
             for (int i = 0; i < fileCount; i++) {
 
-                tableCount++;
-                setProgressStatus(0);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
 
                 DataTransferObject dto = (DataTransferObject) files.elementAt(i);
 
-                totalRecords = getTableRecordCount(dto.getTableName());
-                setProgressBarMaximum(totalRecords);
+                // row counts are estimated from the index statistics instead of counting the rows
+                long estimatedRecords = ParallelTableExporter.estimateRowCount(getConnection(), dto.getTableName());
+                totalRecords = estimatedRecords < 0 || totalRecords < 0 ? -1 : totalRecords + estimatedRecords;
 
                 // initialise the file object
                 File exportFile = new File(dto.getFileName());
@@ -175,131 +167,92 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
                 // append some output
                 outputBuffer.append("---------------------------\nTable: ");
                 outputBuffer.append(dto.getTableName());
-                outputBuffer.append("\nRecords found: ");
-                outputBuffer.append(totalRecords);
+                outputBuffer.append("\nEstimated records: ");
+                outputBuffer.append(estimatedRecords < 0 ? "unknown" : String.valueOf(estimatedRecords));
                 outputBuffer.append("\nExport file: ");
                 outputBuffer.append(exportFile.getName());
                 appendProgressText(outputBuffer);
 
                 // retrieve the columns to be exported (or all)
                 List<ColumnData> columns = new ArrayList<>(getColumns(dto.getTableName()));
-                columnCount = columns.size();
 
-                // initialise the writer
-                Path path = Paths.get(exportFile.getAbsolutePath());
-                writer = Files.newBufferedWriter(path, Charset.forName("UTF-8"));
+                ParallelTableExporter.ExportFile file =
+                        new ParallelTableExporter.ExportFile(exportFile, Charset.forName("UTF-8"));
 
                 // print the column names if specified to do so
                 if (includeColumnNames) {
-                    for (int k = 0, n = columnCount - 1; k < columnCount; k++) {
+
+                    StringBuilder rowData = new StringBuilder();
+                    for (int k = 0, n = columns.size() - 1; k < columns.size(); k++) {
                         rowData.append(columns.get(k));
                         if (k != n) {
                             rowData.append(delim);
                         }
                     }
-                    writer.write(rowData.toString());
-                    writer.newLine();
-
-                    rowData.setLength(0);
+                    file.addText(rowData.append(LINE_SEPARATOR).toString());
                 }
 
-                appendProgressText("Exporting data...");
-
-                // retrieve the result set
-                rset = getResultSet(dto.getTableName(), columns);
-
-                // start the loop over results
-                while (rset.next()) {
-
-                    if (Thread.interrupted()) {
-                        rset.close();
-                        rset = null;
-                        writer.close();
-                        setProgressStatus(totalRecords);
-                        throw new InterruptedException();
-                    }
-
-                    setProgressStatus(recordCount);
-
-                    for (int j = 1; j <= columnCount; j++) {
-
-                        String value = rset.getString(j);
-                        ColumnData column = columns.get(j - 1);
-
-                        if (value == null || rset.wasNull()) {
-
-                            value = Constants.EMPTY;
-
-                        } else {
-
-                            if ((parseDateValues && dateFormat != null) &&
-                                    column.isDateDataType()) {
-
-                                value = dateFormat.format(rset.getDate(j));
-
-                            } else {
-
-                                if (trimWhitespace) {
+                final DateFormat tableDateFormat = dateFormat;
+                file.addTableData(dto.getTableName(),
+                        columnNamesAsCommaSeparatedString(dto.getTableName(), columns),
+                        tableReference(dto.getTableName()), estimatedRecords,
+                        metaData -> new DelimitedRowFormatter(columns, delim, trimWhitespace,
+                                quoteCharacterValues, tableDateFormat));
 
-                                    value = value.trim();
-                                }
-
-                                value = formatString(value);
-                            }
-
-                        }
-
-                        boolean isCharType = column.isCharacterType();
-                        if (isCharType && quoteCharacterValues) {
-
-                            rowData.append("\"");
-                        }
-
-                        rowData.append(value);
+                exporter.add(file);
+                exportFiles.add(file);
+            }
 
-                        if (isCharType && quoteCharacterValues) {
+            appendProgressText("Exporting data using " + exporter.getThreadCount() + " threads...");
 
-                            rowData.append("\"");
-                        }
+            final ParallelTableExporter currentExporter = exporter;
+            final long progressMaximum = totalRecords;
+            if (progressMaximum > 0) {
+                setProgressBarMaximum(100);
+            } else {
+                setIndeterminateProgress(true);
+            }
 
-                        if (j != columnCount) {
+            javax.swing.Timer progressTimer = new javax.swing.Timer(500, e -> {
+                if (progressMaximum > 0) {
+                    setProgressStatus((int) Math.min(100, currentExporter.getExportedCount() * 100 / progressMaximum));
+                }
+            });
+            progressTimer.start();
 
-                            rowData.append(delim);
-                        }
+            try {
 
-                    }
+                exporter.run();
 
-                    writer.write(rowData.toString());
-                    writer.newLine();
+            } finally {
 
-                    rowData.setLength(0);
-                    totalRecordCount++;
-                    recordCount++;
-                }
+                progressTimer.stop();
+                setIndeterminateProgress(false);
+                totalRecordCount = (int) exporter.getExportedCount();
+            }
 
-                rset.close();
-                stmnt.close();
-                writer.close();
+            for (int i = 0; i < fileCount; i++) {
 
-                setProgressStatus(totalRecords);
+                tableCount++;
+                DataTransferObject dto = (DataTransferObject) files.elementAt(i);
+                ParallelTableExporter.ExportFile file = exportFiles.get(i);
 
-                recordCount = 0;
                 outputBuffer.append("Export successful for table: ");
                 outputBuffer.append(dto.getTableName());
+                outputBuffer.append("\nRecords exported: ");
+                outputBuffer.append(file.getRowCount(dto.getTableName()));
                 appendProgressText(outputBuffer);
 
-                appendFileInfo(exportFile);
-                
-                /*
-                if (tableCount != fileCount) {
-                    setProgressStatus(0);
-                }
-                */
+                appendFileInfo(file.getFile());
             }
 
+            setProgressStatus(100);
             return SUCCESS;
+
         } catch (InterruptedException e) {
-            cancelStatement();
+            if (exporter != null) {
+                exporter.stop();
+            }
             return CANCELLED;
         } catch (SQLException e) {
             logException(e);
@@ -318,13 +271,6 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
             return FAILED;
         } finally {
 
-            if (rset != null) {
-                try {
-                    rset.close();
-                } catch (SQLException e) {
-                }
-            }
-
             finish();
             setTableCount(tableCount);
             setRecordCount(totalRecordCount + errorCount);
@@ -333,38 +279,107 @@ public class ExportDelimitedWorker extends AbstractImportExportWorker {
         }
     }
 
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
     private static final String NEW_LINE_REPLACEMENT = "\\\\n";
     private static final String CARRIAGE_RETURN_REPLACEMENT = "\\\\r";
 
-    private Matcher newLineMatcher = Pattern.compile("\n").matcher(StringUtils.EMPTY);
-    private Matcher carriageReturnMatcher = Pattern.compile("\r").matcher(StringUtils.EMPTY);
+    /**
+     * Formats the rows of one export thread - the matchers and
+     * the date format are not shared between the threads.
+     */
+    private static class DelimitedRowFormatter implements ParallelTableExporter.RowFormatter {
 
-    private String formatString(String value) {
+        private final List<ColumnData> columns;
 
-        String formattedValue = newLineMatcher.reset(value).replaceAll(NEW_LINE_REPLACEMENT);
-        formattedValue = carriageReturnMatcher.reset(formattedValue).replaceAll(CARRIAGE_RETURN_REPLACEMENT);
+        private final String delim;
 
-        return formattedValue;
-    }
+        private final boolean trimWhitespace;
 
-    private void logException(Throwable e) {
-        if (Log.isDebugEnabled()) {
-            Log.debug("Error on delimited export.", e);
+        private final boolean quoteCharacterValues;
+
+        private final DateFormat dateFormat;
+
+        private final Matcher newLineMatcher = Pattern.compile("\n").matcher(StringUtils.EMPTY);
+
+        private final Matcher carriageReturnMatcher = Pattern.compile("\r").matcher(StringUtils.EMPTY);
+
+        DelimitedRowFormatter(List<ColumnData> columns, String delim, boolean trimWhitespace,
+                              boolean quoteCharacterValues, DateFormat dateFormat) {
+            this.columns = columns;
+            this.delim = delim;
+            this.trimWhitespace = trimWhitespace;
+            this.quoteCharacterValues = quoteCharacterValues;
+            this.dateFormat = dateFormat != null ? (DateFormat) dateFormat.clone() : null;
         }
-    }
 
-    /**
-     * Cancels an in progress SQL statement.
-     */
-    private void cancelStatement() {
-        if (stmnt == null) {
-            return;
+        @Override
+        public void format(ResultSet rset, StringBuilder rowData) throws SQLException {
+
+            int columnCount = columns.size();
+            for (int j = 1; j <= columnCount; j++) {
+
+                String value = rset.getString(j);
+                ColumnData column = columns.get(j - 1);
+
+                if (value == null || rset.wasNull()) {
+
+                    value = Constants.EMPTY;
+
+                } else {
+
+                    if (dateFormat != null && column.isDateDataType()) {
+
+                        value = dateFormat.format(rset.getDate(j));
+
+                    } else {
+
+                        if (trimWhitespace) {
+
+                            value = value.trim();
+                        }
+
+                        value = formatString(value);
+                    }
+
+                }
+
+                boolean isCharType = column.isCharacterType();
+                if (isCharType && quoteCharacterValues) {
+
+                    rowData.append("\"");
+                }
+
+                rowData.append(value);
+
+                if (isCharType && quoteCharacterValues) {
+
+                    rowData.append("\"");
+                }
+
+                if (j != columnCount) {
+
+                    rowData.append(delim);
+                }
+
+            }
+
+            rowData.append(LINE_SEPARATOR);
         }
-        try {
-            stmnt.cancel();
-            stmnt.close();
-            stmnt = null;
-        } catch (SQLException e) {
+
+        private String formatString(String value) {
+
+            String formattedValue = newLineMatcher.reset(value).replaceAll(NEW_LINE_REPLACEMENT);
+            formattedValue = carriageReturnMatcher.reset(formattedValue).replaceAll(CARRIAGE_RETURN_REPLACEMENT);
+
+            return formattedValue;
+        }
+
+    } // class DelimitedRowFormatter
+
+    private void logException(Throwable e) {
+        if (Log.isDebugEnabled()) {
+            Log.debug("Error on delimited export.", e);
         }
     }
 
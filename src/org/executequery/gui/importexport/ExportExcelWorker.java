@@ -24,6 +24,7 @@ import org.executequery.Constants;
 import org.executequery.log.Log;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -71,7 +72,7 @@ public class ExportExcelWorker extends AbstractImportExportWorker
         reset();
 
         // create the worker
-        worker = new SwingWorker() {
+        worker = new SwingWorker(TaskScheduler.Workload.IO) {
             public Object construct() {
                 return doWork();
             }
@@ -109,6 +110,8 @@ public class ExportExcelWorker extends AbstractImportExportWorker
 
         FileOutputStream outputStream = null;
 
+        ExcelWorkbookBuilder builder = null;
+
         try {
 
             int fileFormat = _parent.getMutlipleTableTransferType();
@@ -125,7 +128,9 @@ public class ExportExcelWorker extends AbstractImportExportWorker
             int recordCount = 0;
             int totalRecords = 0;
 
-            ExcelWorkbookBuilder builder = createExcelWorkbookBuilder();
+            // the legacy .xls format is kept for files named so, the default is .xlsx
+            builder = createExcelWorkbookBuilder(
+                    new File(((DataTransferObject) files.elementAt(0)).getFileName()));
 
             String[][] sheetNames = _parent.getSheetNameValues();
 
@@ -185,7 +190,10 @@ public class ExportExcelWorker extends AbstractImportExportWorker
                 columnCount = columns.size();
 
                 // initialise the output stream
-                outputStream = createOutputStream(exportFile);
+                if (outputStream == null) {
+
+                    outputStream = createOutputStream(exportFile);
+                }
 
                 String sheetName = tablesArray[i];
                 if (!isSingleTable) {
@@ -241,6 +249,8 @@ public class ExportExcelWorker extends AbstractImportExportWorker
                 if (isSingleTable || fileFormat == ImportExportDataProcess.MULTIPLE_FILE) {
 
                     builder.writeTo(outputStream);
+                    outputStream.close();
+                    outputStream = null;
                 }
 
                 setProgressStatus(totalRecords);
@@ -300,6 +310,13 @@ public class ExportExcelWorker extends AbstractImportExportWorker
                 }
             }
 
+            if (builder != null) {
+                try {
+                    builder.close();
+                } catch (IOException e) {
+                }
+            }
+
             finish();
             setTableCount(tableCount);
             setRecordCount(totalRecordCount + errorCount);
@@ -314,9 +331,14 @@ public class ExportExcelWorker extends AbstractImportExportWorker
         return new FileOutputStream(path, false);
     }
 
-    private ExcelWorkbookBuilder createExcelWorkbookBuilder() {
+    private ExcelWorkbookBuilder createExcelWorkbookBuilder(File file) {
+
+        if (file.getName().toLowerCase().endsWith(".xls")) {
+
+            return new DefaultExcelWorkbookBuilder();
+        }
 
-        return new DefaultExcelWorkbookBuilder();
+        return new StreamingExcelWorkbookBuilder();
     }
 
     private void logException(Throwable e) {
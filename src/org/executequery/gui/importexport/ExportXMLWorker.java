@@ -27,6 +27,7 @@ import org.executequery.log.Log;
 import org.executequery.util.Base64;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.MiscUtils;
 import org.xml.sax.*;
 import org.xml.sax.helpers.AttributesImpl;
@@ -93,7 +94,7 @@ public class ExportXMLWorker extends AbstractImportExportWorker
     private void transferData() {
         reset();
 
-        worker = new SwingWorker() {
+        worker = new SwingWorker(TaskScheduler.Workload.IO) {
             public Object construct() {
                 return doWork();
             }
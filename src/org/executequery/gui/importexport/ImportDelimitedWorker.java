@@ -25,6 +25,7 @@ import org.executequery.GUIUtilities;
 import org.executequery.gui.browser.ColumnData;
 import org.executequery.log.Log;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.underworldlabs.util.MiscUtils;
 
 import javax.swing.*;
@@ -37,8 +38,6 @@ import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author Takis Diakoumis
@@ -55,6 +54,11 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
      */
     private boolean haltOnError;
 
+    /**
+     * The pipeline importing the files in parallel
+     */
+    private DelimitedImportPipeline pipeline;
+
     /**
      * Constructs a new instance with the specified parent object - an
      * instance of <code>ImportExportDelimitedPanel</code>.
@@ -69,7 +73,7 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
 
     private void transferData() {
         reset();
-        worker = new SwingWorker() {
+        worker = new SwingWorker(TaskScheduler.Workload.IO) {
             public Object construct() {
                 return doWork();
             }
@@ -134,7 +138,6 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
         int rollbackSize = getParent().getRollbackSize();
         int rollbackCount = 0;
 
-        FileReader fileReader = null;
         BufferedReader reader = null;
         DateFormat dateFormat = null;
 
@@ -146,31 +149,17 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
             // whether to trim whitespace
             boolean trimWhitespace = getParent().trimWhitespace();
 
-            // whether this table has a date/time field
-            boolean hasDate = false;
-
             // whether we are parsing date formats
             boolean parsingDates = parseDateValues();
 
             // column names are first row
             boolean hasColumnNames = getParent().includeColumnNames();
 
-            // currently bound variables in the prepared statement
-            Map<ColumnData, String> boundVariables = null;
-
-            // ignored indexes of columns from the file
-            List<Integer> ignoredIndexes = null;
-
             if (hasColumnNames) {
-                boundVariables = new HashMap<ColumnData, String>();
-                ignoredIndexes = new ArrayList<Integer>();
                 appendProgressText(
                         "Using column names from input file's first row.");
             }
 
-            // columns to be imported that are in the file
-            Map<ColumnData, String> fileImportedColumns = new HashMap<ColumnData, String>();
-
             // whether the data format failed (switch structure)
             boolean failed = false;
 
@@ -181,9 +170,6 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
             // --- initialise counters ---
             // ---------------------------
 
-            // the table's column count
-            int columnCount = -1;
-
             // the length of each line in the file
             int rowLength = -1;
 
@@ -217,47 +203,94 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
             // record the start time
             start();
 
-            // setup the regex matcher for delims
-
             // ----------------------------------------------------------------
-            // below was the original pattern from oreilly book.
-            // discovered issues when parsing values with quotes
-            // in them - not only around them.
-            /*
-            String regex =
-                    "(?:^|\\" +
-                    delim +
-                    ") (?: \" ( (?> [^\"]*+ ) (?> \"\" [^\"]*+ )*+ ) \" | ( [^\"\\" +
-                    delim + "]*+ ) )";
-            Matcher matcher = Pattern.compile(regex, Pattern.COMMENTS).matcher("");
-            Matcher qMatcher = Pattern.compile("\"\"", Pattern.COMMENTS).matcher("");
-            */
+            // when committing after a number of rows the files are imported
+            // by a pipeline of reader, parser and writer threads - each writer
+            // using its own connection. a transaction for a whole file or for
+            // all files needs a single connection and is imported below.
             // ----------------------------------------------------------------
 
-            // modified above to regex below
-            // added the look-ahead after the close quote
-            // and removed the quote from the last regex pattern
+            if (rollbackSize > 0) {
 
-            String escapedDelim = escapeDelim(delim);
+                List<DelimitedImportPipeline.Source> sources = new ArrayList<DelimitedImportPipeline.Source>();
+                for (int i = 0; i < fileCount; i++) {
 
-            String regex =
-                    "(?:^|" +
-                            escapedDelim +
-                            ") (?: \" ( (?> [^\"]*+ ) (?> \"\" [^\"]*+ )*+ ) \"(?=" +
-                            escapedDelim +
-                            "?) | ( [^" +
-                            escapedDelim + "]*+ ) )";
+                    if (Thread.interrupted()) {
+                        setProgressStatus(100);
+                        throw new InterruptedException();
+                    }
 
-            // ----------------------------------------------------------------
-            // changed above to the following - seems to work for now
-            // regex pattern in full - where <delim> is the delimiter to use
-            //      \"([^\"]+?)\"<delim>?|([^<delim>]+)<delim>?|<delim>
-            //
-            // fixed oreilly one - not running this one
-            // ----------------------------------------------------------------
+                    tableCount++;
+
+                    DataTransferObject dto = (DataTransferObject) files.elementAt(i);
+                    File inputFile = new File(dto.getFileName());
+
+                    String firstLine = null;
+                    if (hasColumnNames) {
+                        reader = new BufferedReader(new FileReader(inputFile));
+                        firstLine = reader.readLine();
+                        reader.close();
+                        reader = null;
+                    }
+
+                    DelimitedImportPipeline.Source source =
+                            bindColumns(dto, inputFile, hasColumnNames, firstLine, delim);
+                    if (source == null) {
+                        continue;
+                    }
 
-            Matcher matcher = Pattern.compile(regex, Pattern.COMMENTS).matcher("");
-            Matcher qMatcher = Pattern.compile("\"\"", Pattern.COMMENTS).matcher("");
+                    if (parsingDates && dateFormat == null && source.hasDateColumn()) {
+
+                        String pattern = verifyDate();
+                        if (StringUtils.isNotBlank(pattern)) {
+                            setProgressStatus(100);
+                            throw new InterruptedException();
+                        }
+                        dateFormat = createDateFormatter(pattern);
+                    }
+
+                    source.setInsertStatement(insertStatement(dto.getTableName(), source.getColumns()));
+                    sources.add(source);
+                }
+
+                pipeline = new DelimitedImportPipeline(getParent().getDatabaseConnection(), progress,
+                        sources, delim, dateFormat, trimWhitespace, isBatch, haltOnError, rollbackSize);
+
+                appendProgressText("Importing " + sources.size() + " file(s) using "
+                        + pipeline.getThreadCount() + " threads");
+
+                final DelimitedImportPipeline currentPipeline = pipeline;
+                javax.swing.Timer progressTimer = new javax.swing.Timer(500, e -> setProgressStatus(currentPipeline.getProgress()));
+                progressTimer.start();
+
+                boolean completed;
+                try {
+
+                    completed = pipeline.run();
+
+                } finally {
+
+                    progressTimer.stop();
+                    totalRecordCount = (int) pipeline.getRecordCount();
+                    totalInsertCount = (int) pipeline.getInsertCount();
+                    errorCount = (int) pipeline.getErrorCount();
+                }
+
+                for (DelimitedImportPipeline.Source source : sources) {
+                    printTableResult((int) source.getRecordCount(),
+                            (int) source.getInsertCount(), source.getTableName());
+                }
+
+                if (!completed) {
+                    processResult = FAILED;
+                    getParent().cancelTransfer();
+                    throw new InterruptedException();
+                }
+
+                setProgressStatus(100);
+                processResult = (totalRecordCount == 0 || errorCount > 0) ? FAILED : SUCCESS;
+                return processResult;
+            }
 
             // ----------------------------------------
             // --- begin looping through the tables ---
@@ -267,12 +300,11 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
             conn = getConnection();
             conn.setAutoCommit(false);
 
+            DelimitedLineScanner scanner = new DelimitedLineScanner(delim);
+
             int currentRowLength = 0;
             boolean insertLine = false;
 
-            // the number of columns actually available in the file
-            int filesColumnCount = 0;
-
             for (int i = 0; i < fileCount; i++) {
 
                 lineNumber = 0;
@@ -301,13 +333,7 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                 appendProgressText(outputBuffer);
 
                 // setup the reader objects
-                fileReader = new FileReader(inputFile);
-                reader = new BufferedReader(fileReader);
-
-                // retrieve the columns to be imported (or all)
-                Vector<ColumnData> columns = getColumns(dto.getTableName());
-                columnCount = columns.size();
-                filesColumnCount = columnCount;
+                reader = new BufferedReader(new FileReader(inputFile));
 
                 // the wntire row read
                 String row = null;
@@ -315,179 +341,47 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                 // the current delimited value
                 String value = null;
 
-                // the ignored column count
-                int ignoredCount = 0;
-
-                // clear the file columns cache
-                fileImportedColumns.clear();
-
                 // if the first row in the file has the column
                 // names compare these with the columns selected
                 if (hasColumnNames) {
-
-                    // init the bound vars cache with the selected columns
-                    boundVariables.clear();
-
-                    for (int k = 0; k < columnCount; k++) {
-
-                        boundVariables.put(columns.get(k), VARIABLE_NOT_BOUND);
-                    }
-
                     row = reader.readLine();
                     lineNumber++;
-
-                    String[] _columns = MiscUtils.splitSeparatedValues(row, delim);
-                    if (_columns != null && _columns.length > 0) {
-
-                        filesColumnCount = _columns.length;
-
-                        // --------------------------------------
-                        // first determine if we have any columns in the
-                        // input file that were not selected for import
-
-                        // reset the ignored columns
-                        ignoredIndexes.clear();
-
-                        // set up another list to re-add the columns in
-                        // the order in which they appear in the file.
-                        // all other columns will be added to the end
-                        Vector<ColumnData> temp = new Vector<ColumnData>(columnCount);
-
-                        ColumnData cd = null;
-                        int ignoredIndex = -1;
-                        for (int j = 0; j < _columns.length; j++) {
-                            ignoredIndex = j;
-                            String column = _columns[j];
-
-                            for (int k = 0; k < columnCount; k++) {
-                                cd = columns.get(k);
-                                String _column = cd.getColumnName();
-
-                                if (_column.equalsIgnoreCase(column)) {
-                                    temp.add(cd);
-                                    fileImportedColumns.put(cd, INCLUDED_COLUMN);
-                                    ignoredIndex = -1;
-                                    break;
-                                }
-
-                            }
-
-                            if (ignoredIndex != -1) {
-
-                                ignoredIndexes.add(Integer.valueOf(ignoredIndex));
-                            }
-
-                        }
-                        ignoredCount = ignoredIndexes.size();
-
-                        // if we didn't find any columns at all, show warning
-                        if (temp.isEmpty()) {
-
-                            String message = "No matching column names were " +
-                                    "found within the specified file's first line.\n" +
-                                    "The current file will be ignored.";
-
-                            outputBuffer.append(message);
-                            appendProgressWarningText(outputBuffer);
-
-                            int yesNo = GUIUtilities.displayYesNoDialog(
-                                    message + "\nDo you wish to continue?",
-                                    "Warning");
-
-                            if (yesNo == JOptionPane.YES_OPTION) {
-                                continue;
-                            } else {
-                                throw new InterruptedException();
-                            }
-
-                        } else {
-
-                            // add any other selected columns to the
-                            // end of the temp list with the columns
-                            // available in the file
-                            boolean addColumn = false;
-                            for (int k = 0; k < columnCount; k++) {
-                                addColumn = false;
-                                cd = columns.get(k);
-                                for (int j = 0, n = temp.size(); j < n; j++) {
-                                    addColumn = true;
-                                    if (temp.get(j) == cd) {
-                                        addColumn = false;
-                                        break;
-                                    }
-                                }
-
-                                if (addColumn) {
-                                    temp.add(cd);
-                                }
-
-                            }
-                            columns = temp; // note: size should not have changed
-                        }
-
-                    }
                 }
-                // otherwise just populate the columns in the file
-                // with all the selected columns
-                else {
-
-                    for (int j = 0; j < columnCount; j++) {
-
-                        fileImportedColumns.put(columns.get(j), INCLUDED_COLUMN);
-                    }
 
+                DelimitedImportPipeline.Source source =
+                        bindColumns(dto, inputFile, hasColumnNames, row, delim);
+                if (source == null) {
+                    reader.close();
+                    continue;
                 }
 
-                /*
-                Log.debug("ignored count: " + ignoredCount);
-                for (int j = 0; j < columnCount; j++) {
-                    Log.debug("column: " + columns.get(j));
-                }
-                */
+                // the file value positions bound to the statement parameters
+                int[] parameterIndexes = source.getParameterIndexes();
+                int[] sqlTypes = source.getSqlTypes();
+                int filesColumnCount = source.getFileColumnCount();
+                int boundCount = source.getBoundCount();
+                int columnCount = sqlTypes.length;
+                String[] values = new String[filesColumnCount];
 
                 fileSize = inputFile.length();
                 progressStatus = 10;
                 progressCheck = (int) (fileSize / progressStatus);
 
                 // prepare the statement
-                prepareStatement(dto.getTableName(), columns);
+                prepareStatement(dto.getTableName(), source.getColumns());
 
-                if (parsingDates && dateFormat == null) {
+                if (parsingDates && dateFormat == null && source.hasDateColumn()) {
 
-                    // check for a date data type
-                    for (int j = 0; j < columnCount; j++) {
+                    String pattern = verifyDate();
 
-                        if (dateFormat == null && !hasDate) {
+                    if (StringUtils.isNotBlank(pattern)) {
 
-                            ColumnData cd = columns.get(j);
-
-                            if (fileImportedColumns.containsKey(cd)) {
-
-                                if (cd.isDateDataType()) {
-
-                                    hasDate = true;
-                                    break;
-                                }
-
-                            }
-
-                        }
-                    }
-
-                    if (hasDate && dateFormat == null) {
-
-                        String pattern = verifyDate();
-
-                        if (StringUtils.isNotBlank(pattern)) {
-
-                            fileReader.close();
-                            setProgressStatus(100);
-                            throw new InterruptedException();
-                        }
-
-                        dateFormat = createDateFormatter(pattern);
+                        reader.close();
+                        setProgressStatus(100);
+                        throw new InterruptedException();
                     }
 
+                    dateFormat = createDateFormatter(pattern);
                 }
 
                 rowLength = 0;
@@ -501,7 +395,7 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
 
                     if (Thread.interrupted()) {
 
-                        fileReader.close();
+                        reader.close();
                         printTableResult(tableRowCount,
                                 tableCommitCount, dto.getTableName());
 
@@ -539,111 +433,55 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                         rowLength = 0;
                     }
 
-                    // reset matcher with current row
-                    matcher.reset(row);
-
-                    int index = 0;
-                    int lastIndex = -1;
-                    int loopIgnoredCount = 0;
-
-                    //Log.debug(row);
-
-                    for (int j = 0; j < filesColumnCount; j++) {
-
-                        if (matcher.find(index)) {
+                    int valueCount = scanner.scan(row, values);
 
-                            String first = matcher.group(2);
+                    // not enough delims check - the last value may be missing when null
+                    if (valueCount < filesColumnCount - 1) {
 
-                            if (first != null) {
-
-                                value = first;
-
-                            } else {
-
-                                qMatcher.reset(matcher.group(1));
-                                value = qMatcher.replaceAll("\"");
-                            }
-
-                            index = matcher.end();
-
-                            // check if its an ignored column
-                            if (ignoredCount > 0) {
+                        outputBuffer.append("Insufficient number of column ");
+                        outputBuffer.append("values provided at line ");
+                        outputBuffer.append(lineNumber);
+                        appendProgressErrorText(outputBuffer);
 
-                                if (isIndexIgnored(ignoredIndexes, j)) {
+                        int yesNo = GUIUtilities.displayYesNoDialog(
+                                "Insufficient number of values provided from line " +
+                                        lineNumber + ".\n" +
+                                        "Do you wish to continue?",
+                                "Warning");
 
-                                    loopIgnoredCount++;
-                                    continue;
-                                }
+                        if (yesNo == JOptionPane.YES_OPTION) {
 
-                            }
+                            prepStmnt.clearParameters();
+                            continue;
 
                         } else {
 
-                            // not enough delims check
-                            if (j < (filesColumnCount - 1)
-                                    && index > (currentRowLength - 1)) {
-
-                                outputBuffer.append("Insufficient number of column ");
-                                outputBuffer.append("values provided at line ");
-                                outputBuffer.append(lineNumber);
-                                appendProgressErrorText(outputBuffer);
-
-                                int yesNo = GUIUtilities.displayYesNoDialog(
-                                        "Insufficient number of values provided from line " +
-                                                lineNumber + ".\n" +
-                                                "Do you wish to continue?",
-                                        "Warning");
-
-                                if (yesNo == JOptionPane.YES_OPTION) {
-
-                                    insertLine = false;
-                                    break;
-
-                                } else {
-
-                                    throw new InterruptedException();
-                                }
-
-                            } else {
-
-                                // check if we're on a delim the matcher didn't pick up
-
-                                int delimLength = delim.length();
-
-                                if (row.substring(index, index + delimLength).equals(delim)) {
-
-                                    // increment index
-                                    index++;
-                                    // assign as null value
-                                    value = null;
-                                }
+                            throw new InterruptedException();
+                        }
+                    }
 
-                            }
+                    for (int j = 0; j < filesColumnCount; j++) {
 
-                        }
+                        int parameterIndex = parameterIndexes[j];
 
-                        // check if we landed on the same index - likely null value
-                        if (index == lastIndex) {
-                            index++;
+                        // check if its an ignored column
+                        if (parameterIndex == -1) {
+                            continue;
                         }
-                        lastIndex = index;
 
+                        value = j < valueCount ? values[j] : null;
                         if (value != null && value.trim().length() == 0) {
                             value = null;
                         }
 
                         try {
-                            ColumnData cd = columns.get(j - loopIgnoredCount);
+
                             setValue(value,
-                                    getIndexOfColumn(columns, cd) + 1,
-                                    cd.getSQLType(),
+                                    parameterIndex + 1,
+                                    sqlTypes[parameterIndex],
                                     trimWhitespace,
                                     dateFormat);
 
-                            if (hasColumnNames) {
-                                boundVariables.put(cd, VARIABLE_BOUND);
-                            }
-
                         } catch (ParseException e) {
 
                             errorCount++;
@@ -655,6 +493,7 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                             outputBuffer.append(" at position ");
                             outputBuffer.append(j);
                             outputExceptionError(null, e);
+                            setNullFrom(parameterIndexes, sqlTypes, j);
                             break;
 
                         } catch (NumberFormatException e) {
@@ -668,17 +507,12 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                             outputBuffer.append(" at position ");
                             outputBuffer.append(j);
                             outputExceptionError(null, e);
+                            setNullFrom(parameterIndexes, sqlTypes, j);
                             break;
                         }
 
                     }
 
-                    if (!insertLine) {
-
-                        prepStmnt.clearParameters();
-                        continue;
-                    }
-
                     if (failed && haltOnError) {
 
                         processResult = FAILED;
@@ -688,25 +522,9 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                     // execute the statement
                     try {
 
-                        // check all variables are bound if we used
-                        // the column names from the first row
-                        if (hasColumnNames) {
-
-                            index = 0;
-                            // check all variables are bound - insert NULL otherwise
-
-                            for (Map.Entry<ColumnData, String> entry : boundVariables.entrySet()) {
-
-                                ColumnData cd = entry.getKey();
-
-                                if (VARIABLE_NOT_BOUND.equals(entry.getValue())) {
-
-                                    index = getIndexOfColumn(columns, cd);
-                                    prepStmnt.setNull(index + 1, cd.getSQLType());
-                                }
-
-                            }
-
+                        // the selected columns missing in the file are inserted as NULL
+                        for (int k = boundCount; k < columnCount; k++) {
+                            prepStmnt.setNull(k + 1, sqlTypes[k]);
                         }
 
                         if (isBatch) {
@@ -733,13 +551,6 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                             commitCount = 0;
                         }
 
-                        // reset bound variables
-                        if (hasColumnNames) {
-                            for (int k = 0; k < columnCount; k++) {
-                                boundVariables.put(columns.get(k), VARIABLE_NOT_BOUND);
-                            }
-                        }
-
                     } catch (SQLException e) {
                         logException(e);
                         errorCount++;
@@ -763,7 +574,6 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                     }
 
                 }
-
                 // ----------------------------
                 // file/table has ended here
 
@@ -850,7 +660,6 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                 setProgressStatus(100);
 
                 // reset the checks
-                hasDate = false;
                 failed = false;
 
             }
@@ -908,7 +717,9 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
             boolean doCommit = (yesNo == JOptionPane.YES_OPTION);
 
             try {
-                if (doCommit) {
+                if (conn == null) {
+                    // nothing to commit - the pipeline writers use their own connections
+                } else if (doCommit) {
                     conn.commit();
                     totalInsertCount += commitCount;
                 } else {
@@ -941,12 +752,6 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
                 } catch (IOException e) {
                 }
             }
-            if (fileReader != null) {
-                try {
-                    fileReader.close();
-                } catch (IOException e) {
-                }
-            }
             if (prepStmnt != null) {
                 try {
                     prepStmnt.close();
@@ -959,41 +764,123 @@ public class ImportDelimitedWorker extends AbstractImportExportWorker {
         return processResult;
     }
 
-    private String escapeDelim(String delim) {
+    private void logException(Throwable e) {
+        if (Log.isDebugEnabled()) {
+            Log.debug("Error on delimited import.", e);
+        }
+    }
+
+    /**
+     * Binds the values of a line of the file to the parameters of the
+     * insert statement. If the first line of the file holds the column
+     * names these are matched with the selected columns, the columns
+     * missing in the file are added to the end.
+     *
+     * @param dto            - the file and table to be imported
+     * @param inputFile      - the import file
+     * @param hasColumnNames - whether the first line holds the column names
+     * @param firstLine      - the first line of the file
+     * @param delim          - the delimiter
+     * @return the binding or null if the file is to be ignored
+     */
+    private DelimitedImportPipeline.Source bindColumns(DataTransferObject dto,
+                                                       File inputFile,
+                                                       boolean hasColumnNames,
+                                                       String firstLine,
+                                                       String delim)
+            throws SQLException, InterruptedException {
+
+        // retrieve the columns to be imported (or all)
+        Vector<ColumnData> columns = getColumns(dto.getTableName());
+        int columnCount = columns.size();
+
+        if (!hasColumnNames || firstLine == null) {
+
+            // the values of the file are the selected columns in order
+            int[] parameterIndexes = new int[columnCount];
+            for (int j = 0; j < columnCount; j++) {
+                parameterIndexes[j] = j;
+            }
+
+            return new DelimitedImportPipeline.Source(
+                    dto.getTableName(), inputFile, columns, parameterIndexes, hasColumnNames);
+        }
+
+        String[] _columns = MiscUtils.splitSeparatedValues(firstLine, delim);
+
+        Map<String, ColumnData> columnsByName = new HashMap<String, ColumnData>();
+        for (int k = columnCount - 1; k >= 0; k--) {
+            ColumnData cd = columns.get(k);
+            columnsByName.put(cd.getColumnName().toUpperCase(), cd);
+        }
+
+        // set up another list to re-add the columns in
+        // the order in which they appear in the file.
+        // all other columns will be added to the end
+        Vector<ColumnData> temp = new Vector<ColumnData>(columnCount);
+        int[] parameterIndexes = new int[_columns.length];
 
-        String escape = "\\";
+        for (int j = 0; j < _columns.length; j++) {
 
-        StringBuilder sb = new StringBuilder();
-        for (char i : delim.toCharArray()) {
+            ColumnData cd = columnsByName.get(_columns[j].toUpperCase());
+            if (cd != null && !temp.contains(cd)) {
 
-            sb.append(escape).append(i);
+                parameterIndexes[j] = temp.size();
+                temp.add(cd);
+
+            } else {
+
+                // columns of the file not selected for import
+                parameterIndexes[j] = -1;
+            }
         }
 
-        return sb.toString();
-    }
+        // if we didn't find any columns at all, show warning
+        if (temp.isEmpty()) {
 
-    private void logException(Throwable e) {
-        if (Log.isDebugEnabled()) {
-            Log.debug("Error on delimited import.", e);
+            String message = "No matching column names were " +
+                    "found within the specified file's first line.\n" +
+                    "The current file will be ignored.";
+
+            outputBuffer.append(message);
+            appendProgressWarningText(outputBuffer);
+
+            int yesNo = GUIUtilities.displayYesNoDialog(
+                    message + "\nDo you wish to continue?",
+                    "Warning");
+
+            if (yesNo == JOptionPane.YES_OPTION) {
+                return null;
+            } else {
+                throw new InterruptedException();
+            }
         }
-    }
 
-    private boolean isIndexIgnored(List<Integer> ignoredIndexes, int index) {
-        for (int i = 0, n = ignoredIndexes.size(); i < n; i++) {
-            if (index == ignoredIndexes.get(i).intValue()) {
-                return true;
+        // add any other selected columns to the
+        // end of the temp list with the columns
+        // available in the file
+        for (int k = 0; k < columnCount; k++) {
+            ColumnData cd = columns.get(k);
+            if (!temp.contains(cd)) {
+                temp.add(cd);
             }
         }
-        return false;
+
+        return new DelimitedImportPipeline.Source(
+                dto.getTableName(), inputFile, temp, parameterIndexes, true);
     }
 
-    private int getIndexOfColumn(Vector<ColumnData> columns, ColumnData cd) {
-        for (int i = 0, n = columns.size(); i < n; i++) {
-            if (columns.get(i) == cd) {
-                return i;
+    /**
+     * Sets the parameters of the values from the specified file position
+     * to NULL, used when a value of the line could not be parsed.
+     */
+    private void setNullFrom(int[] parameterIndexes, int[] sqlTypes, int position) throws SQLException {
+
+        for (int j = position; j < parameterIndexes.length; j++) {
+            if (parameterIndexes[j] != -1) {
+                prepStmnt.setNull(parameterIndexes[j] + 1, sqlTypes[parameterIndexes[j]]);
             }
         }
-        return -1;
     }
 
     /**
@@ -348,7 +348,7 @@ public class ImportExportPanel_3 extends JPanel {
                 if (transferFormat == ImportExportDataProcess.XML) {
                     defaultExtension = ".xml";
                 } else if (transferFormat == ImportExportDataProcess.EXCEL) {
-                    defaultExtension = ".xls";
+                    defaultExtension = ".xls".equalsIgnoreCase(fileExtension) ? ".xls" : ".xlsx";
                 }
 
                 if (defaultExtension != null &&
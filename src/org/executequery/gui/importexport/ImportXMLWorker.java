@@ -25,6 +25,7 @@ import org.executequery.GUIUtilities;
 import org.executequery.gui.browser.ColumnData;
 import org.executequery.log.Log;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -152,7 +153,7 @@ public class ImportXMLWorker extends AbstractImportExportWorker
         setIndeterminateProgress(true);
         reset();
 
-        worker = new SwingWorker() {
+        worker = new SwingWorker(TaskScheduler.Workload.IO) {
             public Object construct() {
                 return doWork();
             }
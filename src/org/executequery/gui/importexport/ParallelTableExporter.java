@@ -0,0 +1,656 @@
+/*
+ * ParallelTableExporter.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.importexport;
+
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.datasource.ConnectionManager;
+import org.executequery.log.Log;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports table data to files using several connections concurrently.
+ * <p>
+ * The data of every table is exported by one or more parts. Tables with
+ * a single integral primary key and many rows are split into ranges of
+ * the key exported in parallel. Every part is written into its own
+ * temporary file through a large buffer, and the files are then
+ * stitched in order. Files ending with <code>.gz</code> are compressed.
+ * Each part is a complete GZIP member, so the parts are concatenated
+ * without recompressing.
+ * <p>
+ * The row count of a table is estimated from the selectivity of its
+ * primary or unique key index instead of a full <code>COUNT(*)</code>.
+ *
+ * @author Takis Diakoumis
+ */
+public class ParallelTableExporter {
+
+    /**
+     * the minimum estimated number of rows of a range exported in parallel
+     */
+    private static final long RANGE_ROWS = 500_000;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int FETCH_SIZE = 10000;
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private static final String KEY_QUERY =
+            "select trim(s.rdb$field_name), f.rdb$field_type, coalesce(f.rdb$field_scale, 0)\n" +
+                    "from rdb$relation_constraints rc\n" +
+                    "join rdb$index_segments s on s.rdb$index_name = rc.rdb$index_name\n" +
+                    "join rdb$relation_fields rf on rf.rdb$relation_name = rc.rdb$relation_name\n" +
+                    "and rf.rdb$field_name = s.rdb$field_name\n" +
+                    "join rdb$fields f on f.rdb$field_name = rf.rdb$field_source\n" +
+                    "where rc.rdb$relation_name = ? and rc.rdb$constraint_type = 'PRIMARY KEY'";
+
+    private static final String STATISTICS_QUERY =
+            "select max(i.rdb$statistics)\n" +
+                    "from rdb$relation_constraints rc\n" +
+                    "join rdb$indices i on i.rdb$index_name = rc.rdb$index_name\n" +
+                    "where rc.rdb$relation_name = ?\n" +
+                    "and rc.rdb$constraint_type in ('PRIMARY KEY', 'UNIQUE')\n" +
+                    "and i.rdb$segment_count = 1";
+
+    /**
+     * Formats the current row of a result set.
+     */
+    public interface RowFormatter {
+
+        /**
+         * Appends the current row of the result set to the buffer,
+         * including the line separator.
+         */
+        void format(ResultSet resultSet, StringBuilder row) throws SQLException;
+
+    }
+
+    /**
+     * Creates the formatter of a part - formatters are used by one
+     * thread only.
+     */
+    public interface RowFormatterFactory {
+
+        RowFormatter create(ResultSetMetaData metaData) throws SQLException;
+
+    }
+
+    private final DatabaseConnection databaseConnection;
+
+    private final int threadCount;
+
+    private final List<ExportFile> files = new ArrayList<>();
+
+    private final List<Statement> activeStatements = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicLong exportedCount = new AtomicLong();
+
+    private boolean continueOnError;
+
+    private volatile boolean stopped;
+
+    public ParallelTableExporter(DatabaseConnection databaseConnection) {
+        this(databaseConnection, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    public ParallelTableExporter(DatabaseConnection databaseConnection, int threadCount) {
+        this.databaseConnection = databaseConnection;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Adds a file to be exported.
+     */
+    public void add(ExportFile file) {
+        files.add(file);
+    }
+
+    /**
+     * Sets whether the other parts continue when a part failed.
+     */
+    public void setContinueOnError(boolean continueOnError) {
+        this.continueOnError = continueOnError;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public long getExportedCount() {
+        return exportedCount.get();
+    }
+
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Exports all files blocking until finished.
+     *
+     * @throws SQLException if a part failed and the export does not continue on errors
+     */
+    public void run() throws InterruptedException, IOException, SQLException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+
+            private final AtomicInteger number = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "TableExport-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        List<Part> dataParts = new ArrayList<>();
+        try {
+
+            Connection connection = openConnection();
+            try {
+                for (ExportFile file : files) {
+                    file.plan(connection);
+                    for (Part part : file.parts) {
+                        if (part.query != null) {
+                            dataParts.add(part);
+                        }
+                    }
+                }
+            } finally {
+                connection.close();
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (Part part : dataParts) {
+                futures.add(executor.submit(new PartExport(part)));
+            }
+
+            SQLException firstError = null;
+            for (Future<?> future : futures) {
+
+                try {
+
+                    future.get();
+
+                } catch (ExecutionException e) {
+
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException && firstError == null) {
+                        firstError = (SQLException) cause;
+                    } else if (cause instanceof IOException) {
+                        stop();
+                        throw (IOException) cause;
+                    } else if (!(cause instanceof SQLException)) {
+                        stop();
+                        throw new IOException(cause);
+                    }
+                }
+            }
+
+            if (firstError != null && !continueOnError) {
+                throw firstError;
+            }
+
+            for (ExportFile file : files) {
+                file.stitch();
+            }
+
+        } catch (InterruptedException e) {
+
+            stop();
+            throw e;
+
+        } finally {
+
+            executor.shutdownNow();
+            for (Part part : dataParts) {
+                part.deleteTempFile();
+            }
+        }
+    }
+
+    /**
+     * Stops the export cancelling the executing statements.
+     */
+    public void stop() {
+
+        stopped = true;
+        synchronized (activeStatements) {
+            for (Statement statement : activeStatements) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    Log.debug("Error cancelling export statement", e);
+                }
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+
+        DataSource dataSource = ConnectionManager.getDataSource(databaseConnection);
+        if (dataSource == null) {
+            throw new SQLException("Connection " + databaseConnection.getName() + " is not open");
+        }
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Estimates the number of rows of a table from the selectivity of a
+     * single column primary or unique key index.
+     *
+     * @return the estimated row count or -1 if not available
+     */
+    public static long estimateRowCount(Connection connection, String tableName) {
+
+        try (PreparedStatement statement = connection.prepareStatement(STATISTICS_QUERY)) {
+
+            statement.setString(1, tableName);
+            try (ResultSet rs = statement.executeQuery()) {
+
+                if (rs.next()) {
+                    double selectivity = rs.getDouble(1);
+                    if (!rs.wasNull() && selectivity > 0) {
+                        return Math.round(1 / selectivity);
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+
+            Log.debug("Row count of table " + tableName + " could not be estimated", e);
+        }
+        return -1;
+    }
+
+    private static OutputStream openOutput(File file, boolean gzip, boolean append) throws IOException {
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file, append), BUFFER_SIZE);
+        return gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    /**
+     * Exports one part into its temporary file.
+     */
+    private class PartExport implements Callable<Void> {
+
+        private final Part part;
+
+        PartExport(Part part) {
+            this.part = part;
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            if (stopped) {
+                return null;
+            }
+
+            part.tempFile = File.createTempFile("export", ".part", part.file.file.getAbsoluteFile().getParentFile());
+            try (Connection connection = openConnection();
+                 Writer writer = new OutputStreamWriter(openOutput(part.tempFile, part.file.gzip, false), part.file.charset)) {
+
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+
+                try (Statement statement = connection.createStatement(
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                    statement.setFetchSize(FETCH_SIZE);
+                    activeStatements.add(statement);
+                    try {
+
+                        Log.info("Executing query for export: [ " + part.query + " ]");
+                        ResultSet rs = statement.executeQuery(part.query);
+                        RowFormatter formatter = part.formatterFactory.create(rs.getMetaData());
+
+                        StringBuilder row = new StringBuilder(1024);
+                        while (!stopped && rs.next()) {
+
+                            formatter.format(rs, row);
+                            writer.append(row);
+                            row.setLength(0);
+
+                            part.rowCount++;
+                            exportedCount.incrementAndGet();
+                        }
+                        rs.close();
+
+                    } finally {
+
+                        activeStatements.remove(statement);
+                    }
+                }
+                connection.commit();
+
+            } catch (SQLException e) {
+
+                if (!stopped) {
+                    failures.add(new Failure(part.tableName, e));
+                    if (!continueOnError) {
+                        stop();
+                    }
+                }
+                throw e;
+            }
+            return null;
+        }
+
+    } // class PartExport
+
+    /**
+     * A failed part of a table.
+     */
+    public static class Failure {
+
+        private final String tableName;
+
+        private final SQLException exception;
+
+        Failure(String tableName, SQLException exception) {
+            this.tableName = tableName;
+            this.exception = exception;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public SQLException getException() {
+            return exception;
+        }
+
+    } // class Failure
+
+    /**
+     * An output file made of text and table data parts written in
+     * the order they were added.
+     */
+    public static class ExportFile {
+
+        private final File file;
+
+        private final Charset charset;
+
+        private final boolean gzip;
+
+        private final List<Part> parts = new ArrayList<>();
+
+        public ExportFile(File file, Charset charset) {
+            this.file = file;
+            this.charset = charset;
+            this.gzip = file.getName().toLowerCase().endsWith(GZIP_EXTENSION);
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Adds text written to the file.
+         */
+        public void addText(String text) {
+            parts.add(new Part(this, text, false));
+        }
+
+        /**
+         * Adds text written only if the following table data is not empty.
+         */
+        public void addDataHeader(String text) {
+            parts.add(new Part(this, text, true));
+        }
+
+        /**
+         * Adds the data of a table.
+         *
+         * @param tableName        - the table name
+         * @param selectList       - the selected columns
+         * @param fromClause       - the table as used in the from clause
+         * @param estimatedRows    - the estimated row count or -1
+         * @param formatterFactory - creates the formatters of the rows
+         */
+        public void addTableData(String tableName, String selectList, String fromClause,
+                                 long estimatedRows, RowFormatterFactory formatterFactory) {
+
+            Part part = new Part(this, tableName, "SELECT " + selectList + " FROM " + fromClause, formatterFactory);
+            part.fromClause = fromClause;
+            part.estimatedRows = estimatedRows;
+            parts.add(part);
+        }
+
+        /**
+         * Returns the number of rows exported for the specified table.
+         */
+        public long getRowCount(String tableName) {
+
+            long count = 0;
+            for (Part part : parts) {
+                if (part.query != null && tableName.equals(part.tableName)) {
+                    count += part.rowCount;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Splits the table data of large tables into key ranges.
+         */
+        void plan(Connection connection) {
+
+            List<Part> planned = new ArrayList<>();
+            for (Part part : parts) {
+
+                if (part.query != null && part.estimatedRows > RANGE_ROWS) {
+                    planned.addAll(splitByPrimaryKey(connection, part));
+                } else {
+                    planned.add(part);
+                }
+            }
+            parts.clear();
+            parts.addAll(planned);
+        }
+
+        private List<Part> splitByPrimaryKey(Connection connection, Part part) {
+
+            try {
+
+                String keyColumn = null;
+                try (PreparedStatement statement = connection.prepareStatement(KEY_QUERY)) {
+
+                    statement.setString(1, part.tableName);
+                    try (ResultSet rs = statement.executeQuery()) {
+
+                        // only single column keys of SMALLINT, INTEGER or BIGINT
+                        if (rs.next()) {
+                            int type = rs.getInt(2);
+                            boolean integral = (type == 7 || type == 8 || type == 16) && rs.getInt(3) == 0;
+                            keyColumn = integral && !rs.next() ? rs.getString(1) : null;
+                        }
+                    }
+                }
+
+                if (keyColumn == null) {
+                    return Collections.singletonList(part);
+                }
+
+                // the lowest key is read navigating the ascending key index, the ranges
+                // assume dense keys - the last range is open so sparse keys are still
+                // exported completely, only less evenly distributed
+                String quotedKey = "\"" + keyColumn.replace("\"", "\"\"") + "\"";
+                long min;
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("select first 1 " + quotedKey
+                             + " from " + part.fromClause + " order by " + quotedKey)) {
+
+                    if (!rs.next()) {
+                        return Collections.singletonList(part);
+                    }
+                    min = rs.getLong(1);
+                }
+                connection.commit();
+
+                int rangeCount = (int) Math.min(64, (part.estimatedRows + RANGE_ROWS - 1) / RANGE_ROWS);
+                if (rangeCount < 2) {
+                    return Collections.singletonList(part);
+                }
+
+                List<Part> ranges = new ArrayList<>(rangeCount);
+                long step = part.estimatedRows / rangeCount;
+                for (int i = 0; i < rangeCount; i++) {
+
+                    String condition = quotedKey + " >= " + (min + i * step);
+                    if (i == 0) {
+                        condition = quotedKey + " < " + (min + step);
+                    } else if (i < rangeCount - 1) {
+                        condition += " AND " + quotedKey + " < " + (min + (i + 1) * step);
+                    }
+
+                    Part range = new Part(this, part.tableName, part.query + " WHERE " + condition,
+                            part.formatterFactory);
+                    ranges.add(range);
+                }
+                return ranges;
+
+            } catch (SQLException e) {
+
+                Log.debug("Table " + part.tableName + " could not be split into key ranges", e);
+                return Collections.singletonList(part);
+            }
+        }
+
+        /**
+         * Writes the parts into the file.
+         */
+        void stitch() throws IOException {
+
+            try (FileOutputStream out = new FileOutputStream(file);
+                 FileChannel target = out.getChannel()) {
+
+                for (int i = 0; i < parts.size(); i++) {
+
+                    Part part = parts.get(i);
+                    if (part.query != null) {
+
+                        if (part.tempFile != null) {
+                            try (FileChannel source = new FileInputStream(part.tempFile).getChannel()) {
+                                long position = 0;
+                                long size = source.size();
+                                while (position < size) {
+                                    position += source.transferTo(position, size - position, target);
+                                }
+                            }
+                        }
+
+                    } else if (!part.dataHeader || hasFollowingRows(i)) {
+
+                        // every text part is written as its own member of a compressed file
+                        OutputStream textOut = Channels.newOutputStream(target);
+                        if (gzip) {
+                            GZIPOutputStream gzipOut = new GZIPOutputStream(textOut);
+                            gzipOut.write(part.text.getBytes(charset));
+                            gzipOut.finish();
+                        } else {
+                            textOut.write(part.text.getBytes(charset));
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean hasFollowingRows(int index) {
+
+            for (int i = index + 1; i < parts.size() && parts.get(i).query != null; i++) {
+                if (parts.get(i).rowCount > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    } // class ExportFile
+
+    private static class Part {
+
+        final ExportFile file;
+
+        final String text;
+
+        final boolean dataHeader;
+
+        final String tableName;
+
+        final String query;
+
+        final RowFormatterFactory formatterFactory;
+
+        String fromClause;
+
+        long estimatedRows = -1;
+
+        volatile long rowCount;
+
+        File tempFile;
+
+        Part(ExportFile file, String text, boolean dataHeader) {
+            this.file = file;
+            this.text = text;
+            this.dataHeader = dataHeader;
+            this.tableName = null;
+            this.query = null;
+            this.formatterFactory = null;
+        }
+
+        Part(ExportFile file, String tableName, String query, RowFormatterFactory formatterFactory) {
+            this.file = file;
+            this.text = null;
+            this.dataHeader = false;
+            this.tableName = tableName;
+            this.query = query;
+            this.formatterFactory = formatterFactory;
+        }
+
+        void deleteTempFile() {
+
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+
+    } // class Part
+
+}
@@ -0,0 +1,568 @@
+/*
+ * StreamingExcelWorkbookBuilder.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.importexport;
+
+import org.executequery.log.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Excel workbook builder writing the Office Open XML (.xlsx) format.
+ * <p>
+ * Rows are not kept in memory - the XML of every sheet is written row
+ * by row into a temporary file and the files are copied into the zip
+ * package by {@link #writeTo(OutputStream)}, so the memory used does not
+ * depend on the number of exported rows. Sheets exceeding the row limit
+ * of Excel are continued on a new sheet repeating the header row.
+ * <p>
+ * Short repeated values are stored once in the shared string table up to
+ * a fixed number of entries, the other values are written inline.
+ *
+ * @author Takis Diakoumis
+ */
+public class StreamingExcelWorkbookBuilder implements ExcelWorkbookBuilder {
+
+    /**
+     * the maximum number of rows of a sheet
+     */
+    public static final int MAX_SHEET_ROWS = 1_048_576;
+
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+    private static final int MAX_CELL_LENGTH = 32767;
+
+    private static final int MAX_SHARED_STRINGS = 100_000;
+
+    private static final int MAX_SHARED_STRING_LENGTH = 64;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int DEFAULT_STYLE = 0;
+
+    private static final int HEADER_STYLE = 1;
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String RELATIONSHIPS_NAMESPACE =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private final int maxSheetRows;
+
+    private final List<Sheet> sheets = new ArrayList<>();
+
+    private final Set<String> sheetNames = new HashSet<>();
+
+    private final Map<String, Integer> sharedStrings = new HashMap<>();
+
+    private final StringBuilder cellBuffer = new StringBuilder();
+
+    private File sharedStringsFile;
+
+    private Writer sharedStringsWriter;
+
+    private Sheet currentSheet;
+
+    private String baseSheetName;
+
+    private List<String> header;
+
+    private int currentRow;
+
+    private String[] columnNames = new String[0];
+
+    public StreamingExcelWorkbookBuilder() {
+        this(MAX_SHEET_ROWS);
+    }
+
+    public StreamingExcelWorkbookBuilder(int maxSheetRows) {
+        this.maxSheetRows = Math.max(2, Math.min(maxSheetRows, MAX_SHEET_ROWS));
+    }
+
+    public void reset() {
+
+        currentRow = 0;
+        currentSheet = null;
+        header = null;
+    }
+
+    public void createSheet(String sheetName) throws IOException {
+
+        baseSheetName = sheetName;
+        header = null;
+        startSheet(uniqueSheetName(sheetName, 1));
+    }
+
+    public void addRowHeader(List<String> values) throws IOException {
+
+        // a header following rows is separated from them by an empty row
+        if (currentRow > 0) {
+
+            currentRow++;
+        }
+
+        header = new ArrayList<>(values);
+        writeRow(values, HEADER_STYLE);
+    }
+
+    public void addRow(List<String> values) throws IOException {
+
+        if (currentRow >= maxSheetRows) {
+
+            rollOver();
+        }
+
+        writeRow(values, DEFAULT_STYLE);
+    }
+
+    /**
+     * Writes the sheets created since the last call into the output
+     * stream as a complete workbook.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+
+        if (currentSheet == null && sheets.isEmpty()) {
+
+            createSheet("Sheet");
+        }
+
+        try {
+
+            for (Sheet sheet : sheets) {
+
+                sheet.close();
+            }
+            if (sharedStringsWriter != null) {
+
+                sharedStringsWriter.close();
+                sharedStringsWriter = null;
+            }
+
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+            Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+
+            putEntry(zip, writer, "[Content_Types].xml", contentTypes());
+            putEntry(zip, writer, "_rels/.rels", packageRelationships());
+            putEntry(zip, writer, "xl/workbook.xml", workbook());
+            putEntry(zip, writer, "xl/_rels/workbook.xml.rels", workbookRelationships());
+            putEntry(zip, writer, "xl/styles.xml", styles());
+
+            zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+            writer.write(XML_HEADER);
+            writer.write("<sst xmlns=\"" + MAIN_NAMESPACE + "\" uniqueCount=\"" + sharedStrings.size() + "\">");
+            writer.flush();
+            if (sharedStringsFile != null) {
+
+                copy(sharedStringsFile, zip);
+            }
+            writer.write("</sst>");
+            writer.flush();
+            zip.closeEntry();
+
+            for (int i = 0; i < sheets.size(); i++) {
+
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + (i + 1) + ".xml"));
+                copy(sheets.get(i).file, zip);
+                zip.closeEntry();
+            }
+
+            zip.finish();
+            zip.flush();
+
+        } finally {
+
+            discard();
+        }
+    }
+
+    private void startSheet(String name) throws IOException {
+
+        currentSheet = new Sheet(name);
+        sheets.add(currentSheet);
+        currentRow = 0;
+    }
+
+    private void rollOver() throws IOException {
+
+        String name = uniqueSheetName(baseSheetName, 2);
+        Log.info("Sheet row limit reached - continuing on sheet " + name);
+        startSheet(name);
+
+        if (header != null) {
+
+            writeRow(header, HEADER_STYLE);
+        }
+    }
+
+    private String uniqueSheetName(String sheetName, int number) {
+
+        String name = sheetName == null ? "Sheet" : sheetName.replaceAll("[\\[\\]:*?/\\\\]", "_");
+        if (name.isEmpty()) {
+
+            name = "Sheet";
+        }
+
+        for (int i = number; ; i++) {
+
+            String suffix = i > 1 ? " (" + i + ")" : "";
+            String candidate = name.length() + suffix.length() > MAX_SHEET_NAME_LENGTH
+                    ? name.substring(0, MAX_SHEET_NAME_LENGTH - suffix.length()) + suffix
+                    : name + suffix;
+
+            if (sheetNames.add(candidate.toLowerCase())) {
+
+                return candidate;
+            }
+        }
+    }
+
+    private void writeRow(List<String> values, int style) throws IOException {
+
+        if (currentSheet == null) {
+
+            createSheet("Sheet");
+        }
+
+        int rowNumber = ++currentRow;
+        StringBuilder sb = cellBuffer;
+        sb.setLength(0);
+        sb.append("<row r=\"").append(rowNumber).append("\">");
+
+        for (int i = 0, n = values.size(); i < n; i++) {
+
+            String value = values.get(i);
+            if (value == null || value.isEmpty()) {
+
+                continue;
+            }
+
+            if (value.length() > MAX_CELL_LENGTH) {
+
+                value = value.substring(0, MAX_CELL_LENGTH);
+            }
+
+            sb.append("<c r=\"").append(columnName(i)).append(rowNumber).append('"');
+            if (style != DEFAULT_STYLE) {
+
+                sb.append(" s=\"").append(style).append('"');
+            }
+
+            int index = sharedStringIndex(value);
+            if (index >= 0) {
+
+                sb.append(" t=\"s\"><v>").append(index).append("</v></c>");
+
+            } else {
+
+                sb.append(" t=\"inlineStr\"><is>");
+                appendText(sb, value);
+                sb.append("</is></c>");
+            }
+        }
+
+        sb.append("</row>");
+        currentSheet.writer.append(sb);
+    }
+
+    private int sharedStringIndex(String value) throws IOException {
+
+        Integer index = sharedStrings.get(value);
+        if (index != null) {
+
+            return index;
+        }
+
+        if (value.length() > MAX_SHARED_STRING_LENGTH || sharedStrings.size() >= MAX_SHARED_STRINGS) {
+
+            return -1;
+        }
+
+        if (sharedStringsWriter == null) {
+
+            sharedStringsFile = File.createTempFile("sst", ".xml");
+            sharedStringsWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(sharedStringsFile), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        sb.append("<si>");
+        appendText(sb, value);
+        sb.append("</si>");
+        sharedStringsWriter.append(sb);
+
+        int newIndex = sharedStrings.size();
+        sharedStrings.put(value, newIndex);
+        return newIndex;
+    }
+
+    private static void appendText(StringBuilder sb, String value) {
+
+        boolean preserve = Character.isWhitespace(value.charAt(0))
+                || Character.isWhitespace(value.charAt(value.length() - 1));
+
+        sb.append(preserve ? "<t xml:space=\"preserve\">" : "<t>");
+        appendEscaped(sb, value);
+        sb.append("</t>");
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+
+        for (int i = 0, n = value.length(); i < n; i++) {
+
+            char c = value.charAt(i);
+            switch (c) {
+
+                case '&':
+                    sb.append("&amp;");
+                    break;
+
+                case '<':
+                    sb.append("&lt;");
+                    break;
+
+                case '>':
+                    sb.append("&gt;");
+                    break;
+
+                case '"':
+                    sb.append("&quot;");
+                    break;
+
+                default:
+                    // control characters are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
+    private String columnName(int index) {
+
+        if (index >= columnNames.length) {
+
+            columnNames = Arrays.copyOf(columnNames, Math.max(index + 1, columnNames.length * 2));
+        }
+
+        String name = columnNames[index];
+        if (name == null) {
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+
+                sb.insert(0, (char) ('A' + (i - 1) % 26));
+            }
+            name = sb.toString();
+            columnNames[index] = name;
+        }
+        return name;
+    }
+
+    private String contentTypes() {
+
+        StringBuilder sb = new StringBuilder(XML_HEADER);
+        sb.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        sb.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        sb.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        sb.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        sb.append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        sb.append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        for (int i = 1; i <= sheets.size(); i++) {
+
+            sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        sb.append("</Types>");
+        return sb.toString();
+    }
+
+    private String packageRelationships() {
+
+        return XML_HEADER
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIPS_NAMESPACE
+                + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>";
+    }
+
+    private String workbook() {
+
+        StringBuilder sb = new StringBuilder(XML_HEADER);
+        sb.append("<workbook xmlns=\"").append(MAIN_NAMESPACE)
+                .append("\" xmlns:r=\"").append(RELATIONSHIPS_NAMESPACE).append("\"><sheets>");
+        for (int i = 1; i <= sheets.size(); i++) {
+
+            sb.append("<sheet name=\"");
+            appendEscaped(sb, sheets.get(i - 1).name);
+            sb.append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        sb.append("</sheets></workbook>");
+        return sb.toString();
+    }
+
+    private String workbookRelationships() {
+
+        int count = sheets.size();
+        StringBuilder sb = new StringBuilder(XML_HEADER);
+        sb.append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= count; i++) {
+
+            sb.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(RELATIONSHIPS_NAMESPACE)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        sb.append("<Relationship Id=\"rId").append(count + 1).append("\" Type=\"").append(RELATIONSHIPS_NAMESPACE)
+                .append("/styles\" Target=\"styles.xml\"/>");
+        sb.append("<Relationship Id=\"rId").append(count + 2).append("\" Type=\"").append(RELATIONSHIPS_NAMESPACE)
+                .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        sb.append("</Relationships>");
+        return sb.toString();
+    }
+
+    private String styles() {
+
+        // cell formats - 0: default, 1: bold header
+        return XML_HEADER
+                + "<styleSheet xmlns=\"" + MAIN_NAMESPACE + "\">"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+                + "</styleSheet>";
+    }
+
+    private static void putEntry(ZipOutputStream zip, Writer writer, String name, String content) throws IOException {
+
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private static void copy(File file, OutputStream out) throws IOException {
+
+        try (InputStream in = new FileInputStream(file)) {
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Removes the temporary files of the sheets not written yet,
+     * e.g. when the export failed.
+     */
+    public void close() {
+
+        discard();
+    }
+
+    /**
+     * Removes the temporary files of the written sheets.
+     */
+    private void discard() {
+
+        for (Sheet sheet : sheets) {
+
+            sheet.delete();
+        }
+        sheets.clear();
+        sheetNames.clear();
+        sharedStrings.clear();
+
+        if (sharedStringsWriter != null) {
+
+            try {
+                sharedStringsWriter.close();
+            } catch (IOException e) {
+            }
+            sharedStringsWriter = null;
+        }
+        if (sharedStringsFile != null) {
+
+            sharedStringsFile.delete();
+            sharedStringsFile = null;
+        }
+
+        reset();
+    }
+
+    /**
+     * A sheet written into a temporary file.
+     */
+    private static class Sheet {
+
+        private final String name;
+
+        private final File file;
+
+        private Writer writer;
+
+        Sheet(String name) throws IOException {
+
+            this.name = name;
+            this.file = File.createTempFile("sheet", ".xml");
+            this.writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+            writer.write(XML_HEADER);
+            writer.write("<worksheet xmlns=\"" + MAIN_NAMESPACE + "\"><sheetData>");
+        }
+
+        void close() throws IOException {
+
+            if (writer != null) {
+
+                writer.write("</sheetData></worksheet>");
+                writer.close();
+                writer = null;
+            }
+        }
+
+        void delete() {
+
+            if (writer != null) {
+
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+                writer = null;
+            }
+            file.delete();
+        }
+
+    } // class Sheet
+
+}
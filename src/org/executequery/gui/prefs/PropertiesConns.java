@@ -69,6 +69,13 @@ public class PropertiesConns extends AbstractPropertiesBasePanel {
                 bundledString("Connection.shutdown.timeout"),
                 Integer.valueOf(SystemProperties.getProperty("user", key))));
 
+        key = "connection.heartbeat.interval";
+        list.add(new UserPreference(
+                UserPreference.INTEGER_TYPE,
+                key,
+                bundledString("Connection.heartbeat.interval"),
+                Integer.valueOf(SystemProperties.getProperty("user", key))));
+
         key = "startup.connection.name";
         list.add(new UserPreference(
                 UserPreference.STRING_TYPE,
@@ -128,6 +128,20 @@ public class PropertiesEditorGeneral extends AbstractPropertiesBasePanel {
                 bundledString("RemoveCommentsForExecution"),
                 Boolean.valueOf(stringUserProperty(key))));
 
+        key = "editor.execute.plan.history";
+        list.add(new UserPreference(
+                UserPreference.BOOLEAN_TYPE,
+                key,
+                bundledString("RecordPlanHistory"),
+                Boolean.valueOf(stringUserProperty(key))));
+
+        key = "editor.execute.plan.dml";
+        list.add(new UserPreference(
+                UserPreference.BOOLEAN_TYPE,
+                key,
+                bundledString("PrintPlanOfDML"),
+                Boolean.valueOf(stringUserProperty(key))));
+
         key = "editor.max.records";
         list.add(new UserPreference(
                 UserPreference.INTEGER_TYPE,
@@ -20,11 +20,21 @@
 
 package org.executequery.gui.resultset;
 
+import org.executequery.log.Log;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteArraySource;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSource;
+
+import java.io.IOException;
+
 public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
         implements LobRecordDataItem {
 
     private byte[] data;
 
+    private ByteSource lobSource;
+
+    private ByteSource newValueSource;
+
     public AbstractLobRecordDataItem(String name, int dataType, String dataTypeName) {
 
         super(name, dataType, dataTypeName);
@@ -36,6 +46,51 @@ public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
         return (data == null ? 0 : data.length);
     }
 
+    @Override
+    public long getLength() {
+
+        ByteSource source = getByteSource();
+        if (source == null) {
+            return 0;
+        }
+
+        try {
+            return source.length();
+        } catch (IOException e) {
+            Log.error("Error reading LOB length: " + e.getMessage(), e);
+            return length();
+        }
+    }
+
+    @Override
+    public ByteSource getByteSource() {
+
+        if (newValueSource != null) {
+            return newValueSource;
+        }
+
+        if (data != null) {
+            return new ByteArraySource(data);
+        }
+
+        if (isNew() || changed || isValueNull()) {
+            return null;
+        }
+
+        if (lobSource == null) {
+            lobSource = createByteSource();
+        }
+        return lobSource;
+    }
+
+    @Override
+    public void setNewValueSource(ByteSource source) {
+
+        newValueSource = source;
+        data = null;
+        changed = true;
+    }
+
     @Override
     public byte[] getData() {
 
@@ -50,7 +105,7 @@ public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
     public void valueChanged(Object newValue) {
 
         byte[] bytes = (byte[]) newValue;
-        if (valuesEqual(this.getData(), bytes)) {
+        if (newValueSource == null && valuesEqual(this.getData(), bytes)) {
 
             changed = false;
             return;
@@ -65,6 +120,7 @@ public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
     @Override
     public void setData(byte[] data) {
 
+        newValueSource = null;
         if (data != null)
             this.data = data.clone();
         else this.data = null;
@@ -72,6 +128,8 @@ public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
 
     @Override
     public boolean isNewValueNull() {
+        if (newValueSource != null)
+            return false;
         if (isNew())
             return data == null;
         else
@@ -80,10 +138,71 @@ public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
 
     @Override
     public boolean isDisplayValueNull() {
-        return data == null && isValueNull() || isNewValueNull();
+        return data == null && newValueSource == null && isValueNull() || isNewValueNull();
     }
 
-    abstract byte[] readLob();
+    /**
+     * Creates the source reading the pages of the LOB value
+     * as they are accessed.
+     */
+    abstract ByteSource createByteSource();
+
+    /**
+     * Reads the complete LOB value from its source.
+     */
+    protected byte[] readLob() {
+
+        ByteSource source = getByteSource();
+        if (source == null) {
+            return null;
+        }
+
+        try {
+
+            long length = source.length();
+            if (length > Integer.MAX_VALUE - 256) {
+                throw new IOException("LOB value of " + length + " bytes is too large to load");
+            }
+
+            byte[] bytes = readBytes(source, (int) length);
+            source.close();
+            return bytes;
+
+        } catch (IOException e) {
+
+            if (Log.isDebugEnabled()) {
+
+                Log.debug("Error reading LOB data", e);
+            }
+
+            return String.valueOf(e.getMessage()).getBytes();
+        }
+    }
+
+    /**
+     * Reads up to the specified number of bytes from the start of the source.
+     */
+    static byte[] readBytes(ByteSource source, int count) throws IOException {
+
+        byte[] bytes = new byte[count];
+        int done = 0;
+        while (done < count) {
+
+            int read = source.read(done, bytes, done, count - done);
+            if (read < 0) {
+                break;
+            }
+            done += read;
+        }
+
+        if (done < count) {
+
+            byte[] result = new byte[done];
+            System.arraycopy(bytes, 0, result, 0, done);
+            return result;
+        }
+        return bytes;
+    }
 
     @Override
     public String asBinaryString() {
@@ -92,6 +211,18 @@ public abstract class AbstractLobRecordDataItem extends AbstractRecordDataItem
         String stripPrefix = "ffffff";
 
         int defaultBytesToProcess = 496;
+
+        byte[] data = this.data;
+        if (data == null) {
+
+            ByteSource source = getByteSource();
+            try {
+                data = source != null ? readBytes(source, defaultBytesToProcess) : new byte[0];
+            } catch (IOException e) {
+                Log.error("Error reading LOB data: " + e.getMessage(), e);
+                data = new byte[0];
+            }
+        }
         int bytesToProcess = Math.min(data.length, defaultBytesToProcess);
 
         StringBuilder sb = new StringBuilder();
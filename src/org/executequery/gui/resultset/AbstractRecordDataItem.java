@@ -29,6 +29,7 @@ import org.underworldlabs.jdbc.DataSourceException;
 import java.math.BigDecimal;
 import java.sql.Types;
 import java.time.*;
+import java.util.function.Predicate;
 
 
 /**
@@ -117,6 +118,44 @@ public abstract class AbstractRecordDataItem implements RecordDataItem {
         return StringUtils.containsIgnoreCase(getValue().toString(), pattern);
     }
 
+    @Override
+    public boolean valueMatches(Predicate<String> matcher) {
+
+        if (isLob() || isValueNull()) {
+
+            return false;
+        }
+        return matcher.test(getValue().toString());
+    }
+
+    /**
+     * Creates a case insensitive contains test for the pattern with
+     * the case folding of the pattern done once.
+     */
+    public static Predicate<String> containsIgnoreCase(String pattern) {
+
+        int length = pattern.length();
+        if (length == 0) {
+            return value -> true;
+        }
+
+        char first = Character.toLowerCase(Character.toUpperCase(pattern.charAt(0)));
+        return value -> {
+
+            for (int i = 0, n = value.length() - length; i <= n; i++) {
+
+                char c = value.charAt(i);
+                if ((c == first || Character.toLowerCase(Character.toUpperCase(c)) == first)
+                        && value.regionMatches(true, i, pattern, 0, length)) {
+
+                    return true;
+                }
+
+            }
+            return false;
+        };
+    }
+
     @Override
     public void valueChanged(Object newValue) {
 
@@ -20,14 +20,15 @@
 
 package org.executequery.gui.resultset;
 
-import biz.redsoft.IFBBlob;
 import org.executequery.log.Log;
 import org.executequery.util.mime.MimeType;
 import org.executequery.util.mime.MimeTypes;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteArraySource;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSource;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSourceInputStream;
+import org.underworldlabs.swing.hexeditor.bdoc.PagedByteSource;
 
-import java.io.ByteArrayInputStream;
-import java.sql.Blob;
-import java.sql.SQLException;
+import java.io.IOException;
 
 public class BlobRecordDataItem extends AbstractLobRecordDataItem {
 
@@ -48,13 +49,15 @@ public class BlobRecordDataItem extends AbstractLobRecordDataItem {
 
     @Override
     public Object getNewValue() {
-        return new ByteArrayInputStream(getData());
+
+        ByteSource source = getByteSource();
+        return source != null ? new ByteSourceInputStream(source) : null;
     }
 
     @Override
     public String getLobRecordItemName() {
 
-        MimeType mimeType = mimeTypeFromByteArray(getData());
+        MimeType mimeType = mimeTypeFromByteArray(readHead());
         if (mimeType != null) {
 
             return mimeType.getName();
@@ -81,49 +84,37 @@ public class BlobRecordDataItem extends AbstractLobRecordDataItem {
     }
 
     @Override
-    protected byte[] readLob() {
+    ByteSource createByteSource() {
 
-        if (isValueNull())
-            return null;
         Object value = getValue();
         if (value instanceof String) { // eg. oracle RAW type
 
-            return ((String) getValue()).getBytes();
+            return new ByteArraySource(((String) value).getBytes());
 
         } else if (value instanceof byte[]) {
 
-            return (byte[]) value;
+            return new ByteArraySource((byte[]) value);
         }
 
-        byte[] blobBytes = new byte[0];
-
-        if (value.getClass().getName().contains("FBBlobImpl")) {
-            IFBBlob ifbBlob = (IFBBlob) value;
-            try {
-                blobBytes = ifbBlob.getBytes(1, (int) ifbBlob.lenght());
-                ifbBlob.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        } else {
-            Blob blob = (Blob) value;
-            try {
-
-                blobBytes = blob.getBytes(1, (int) blob.length());
-                //executor.releaseResources();
-
-            } catch (SQLException e) {
-
-                if (Log.isDebugEnabled()) {
+        return LobByteSource.forBlob(value);
+    }
 
-                    Log.debug("Error reading BLOB data", e);
-                }
+    /**
+     * Reads the first page of the value to detect its type.
+     */
+    private byte[] readHead() {
 
-                return e.getMessage().getBytes();
+        ByteSource source = getByteSource();
+        if (source == null) {
+            return null;
+        }
 
-            }
+        try {
+            return readBytes(source, PagedByteSource.DEFAULT_PAGE_SIZE);
+        } catch (IOException e) {
+            Log.error("Error reading BLOB data: " + e.getMessage(), e);
+            return null;
         }
-        return blobBytes;
     }
 
     private MimeType mimeTypeFromByteArray(byte[] data) {
@@ -20,19 +20,17 @@
 
 package org.executequery.gui.resultset;
 
-import biz.redsoft.IFBClob;
 import org.apache.commons.lang.CharUtils;
 import org.executequery.Constants;
 import org.executequery.gui.table.CreateTableSQLSyntax;
 import org.executequery.log.Log;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteArraySource;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSource;
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSourceInputStream;
 import org.underworldlabs.util.SystemProperties;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.sql.Clob;
-import java.sql.SQLException;
 import java.util.Objects;
 
 public class ClobRecordDataItem extends AbstractLobRecordDataItem {
@@ -111,7 +109,9 @@ public class ClobRecordDataItem extends AbstractLobRecordDataItem {
 
     @Override
     public Object getNewValue() {
-        return new ByteArrayInputStream(getData());
+
+        ByteSource source = getByteSource();
+        return source != null ? new ByteSourceInputStream(source) : null;
     }
 
     @Override
@@ -122,153 +122,41 @@ public class ClobRecordDataItem extends AbstractLobRecordDataItem {
 
 
     @Override
-    protected byte[] readLob() {
-
-        if (isValueNull())
-            return null;
+    ByteSource createByteSource() {
 
         Object value = getValue();
         if (value instanceof String) {
 
-            return ((String) value).getBytes();
+            return new ByteArraySource(((String) value).getBytes());
         }
 
-        if (value.getClass().getName().contains("FBClobImpl")) {
-            IFBClob ifbClob = (IFBClob) value;
-            InputStream as;
-            try {
-                as = ifbClob.open();
-                byte[] b = new byte[1024];
-                ByteArrayOutputStream result = new ByteArrayOutputStream();
-                int length;
-                while ((length = as.read(b)) != -1) {
-                    result.write(b, 0, length);
-                }
-                as.close();
-                ifbClob.close();
-                return result.toByteArray();
-
-
-                //reader = clob.getCharacterStream();
-
-            } catch (SQLException e) {
-
-                if (Log.isDebugEnabled()) {
-
-                    Log.debug("Error reading CLOB data", e);
-                }
-
-                return e.getMessage().getBytes();
-            } catch (Exception e) {
-                Log.error("Error reading CLOB data:" + e.getMessage());
-                return "Error reading CLOB data:".getBytes();
-            }
-        } else {
-
-            Clob clob = (Clob) value;
-            InputStream as;
-            try {
-                as = clob.getAsciiStream();
-                byte[] b = new byte[1024];
-                ByteArrayOutputStream result = new ByteArrayOutputStream();
-                int length;
-                while ((length = as.read(b)) != -1) {
-                    result.write(b, 0, length);
-                }
-                return result.toByteArray();
-
-
-                //reader = clob.getCharacterStream();
-
-            } catch (SQLException e) {
-
-                if (Log.isDebugEnabled()) {
-
-                    Log.debug("Error reading CLOB data", e);
-                }
-
-                return e.getMessage().getBytes();
-            } catch (Exception e) {
-                Log.error("Error reading CLOB data:" + e.getMessage());
-                return "Error reading CLOB data:".getBytes();
-            }
-        }
+        return LobByteSource.forClob(value);
     }
 
+    /**
+     * Reads the displayed start of the value - the stream of
+     * the CLOB is released once read.
+     */
     protected byte[] readLob(int displayLength) {
 
-        if (isValueNull())
+        ByteSource source = getByteSource();
+        if (source == null)
             return null;
 
-        Object value = getValue();
-        if (value instanceof String) {
-
-            return ((String) value).getBytes();
-        }
-
-        if (value.getClass().getName().contains("FBClobImpl")) {
-            IFBClob ifbClob = (IFBClob) value;
-            InputStream as;
-            try {
-                as = ifbClob.open();
-                byte[] b = new byte[1024];
-                ByteArrayOutputStream result = new ByteArrayOutputStream();
-                int length;
-                int i = 0;
-                while ((length = as.read(b)) != -1 && i < displayLength) {
-                    result.write(b, 0, length);
-                    i += length;
-                }
-                as.close();
-                ifbClob.close();
-                return result.toByteArray();
+        try {
 
+            byte[] bytes = readBytes(source, displayLength);
+            source.close();
+            return bytes;
 
-                //reader = clob.getCharacterStream();
+        } catch (IOException e) {
 
-            } catch (SQLException e) {
+            if (Log.isDebugEnabled()) {
 
-                if (Log.isDebugEnabled()) {
-
-                    Log.debug("Error reading CLOB data", e);
-                }
-
-                return e.getMessage().getBytes();
-            } catch (Exception e) {
-                Log.error("Error reading CLOB data:" + e.getMessage());
-                return "Error reading CLOB data:".getBytes();
+                Log.debug("Error reading CLOB data", e);
             }
-        } else {
-
-            Clob clob = (Clob) value;
-            InputStream as;
-            try {
-                as = clob.getAsciiStream();
-                byte[] b = new byte[1024];
-                ByteArrayOutputStream result = new ByteArrayOutputStream();
-                int i = 0;
-                int length;
-                while ((length = as.read(b)) != -1 && i < displayLength) {
-                    result.write(b, 0, length);
-                    i += length;
-                }
-                return result.toByteArray();
-
-
-                //reader = clob.getCharacterStream();
-
-            } catch (SQLException e) {
 
-                if (Log.isDebugEnabled()) {
-
-                    Log.debug("Error reading CLOB data", e);
-                }
-
-                return e.getMessage().getBytes();
-            } catch (Exception e) {
-                Log.error("Error reading CLOB data:" + e.getMessage());
-                return "Error reading CLOB data:".getBytes();
-            }
+            return String.valueOf(e.getMessage()).getBytes();
         }
     }
 
@@ -0,0 +1,184 @@
+/*
+ * ForeignKeyComboBox.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.resultset;
+
+import org.underworldlabs.swing.util.SwingWorker;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Editable combo box offering the values of a foreign key.
+ * <p>
+ * Typed text is used as a prefix filter and the matching values
+ * are fetched in the background from the {@link ForeignKeyLookup}.
+ *
+ * @author Takis Diakoumis
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class ForeignKeyComboBox extends JComboBox {
+
+    private static final int FILTER_DELAY = 300;
+
+    private final ForeignKeyLookup lookup;
+
+    private final Timer filterTimer;
+
+    private boolean updatingModel;
+
+    private String lastFilter;
+
+    public ForeignKeyComboBox(ForeignKeyLookup lookup) {
+
+        super();
+        this.lookup = lookup;
+
+        setEditable(true);
+        setRenderer(new LookupRowRenderer());
+        setPrototypeDisplayValue(new ForeignKeyLookup.Row("XXXXXXXXXXXXXXXX", null));
+
+        filterTimer = new Timer(FILTER_DELAY, e -> reload(getEditorText()));
+        filterTimer.setRepeats(false);
+
+        JTextComponent editorComponent = (JTextComponent) getEditor().getEditorComponent();
+        editorComponent.getDocument().addDocumentListener(new DocumentListener() {
+
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        reload("");
+    }
+
+    /**
+     * Returns the selected key value or the typed text if no
+     * value from the list was selected, null for an empty value.
+     */
+    public Object getSelectedKey() {
+
+        Object selected = getSelectedItem();
+        if (selected instanceof ForeignKeyLookup.Row)
+            return ((ForeignKeyLookup.Row) selected).getKey();
+
+        String text = selected != null ? selected.toString() : getEditorText();
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Sets the current key value without triggering a lookup.
+     */
+    public void setSelectedKey(Object key) {
+
+        updatingModel = true;
+        try {
+            setSelectedItem(key != null ? key.toString() : "");
+        } finally {
+            updatingModel = false;
+        }
+    }
+
+    private String getEditorText() {
+
+        return ((JTextComponent) getEditor().getEditorComponent()).getText();
+    }
+
+    private void filterChanged() {
+
+        if (!updatingModel)
+            filterTimer.restart();
+    }
+
+    private void reload(final String filter) {
+
+        if (filter.equals(lastFilter))
+            return;
+        lastFilter = filter;
+
+        SwingWorker worker = new SwingWorker() {
+
+            @Override
+            public Object construct() {
+                return lookup.find(filter);
+            }
+
+            @Override
+            public void finished() {
+
+                // a newer filter was typed while loading
+                if (!filter.equals(lastFilter))
+                    return;
+
+                List<ForeignKeyLookup.Row> rows = (List<ForeignKeyLookup.Row>) get();
+                String text = getEditorText();
+
+                updatingModel = true;
+                try {
+
+                    DefaultComboBoxModel model = new DefaultComboBoxModel(rows.toArray());
+                    model.setSelectedItem(text);
+                    setModel(model);
+                    ((JTextComponent) getEditor().getEditorComponent()).setText(text);
+
+                } finally {
+                    updatingModel = false;
+                }
+
+                if (isShowing() && !rows.isEmpty() && !filter.isEmpty())
+                    showPopup();
+            }
+        };
+        worker.start();
+    }
+
+    class LookupRowRenderer extends DefaultListCellRenderer {
+
+        @Override
+        public Component getListCellRendererComponent(JList list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+
+            if (value instanceof ForeignKeyLookup.Row) {
+
+                ForeignKeyLookup.Row row = (ForeignKeyLookup.Row) value;
+                if (row.getDisplay() != null)
+                    value = row.getKey() + "  |  " + row.getDisplay();
+            }
+
+            return super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+        }
+
+    } // class LookupRowRenderer
+
+}
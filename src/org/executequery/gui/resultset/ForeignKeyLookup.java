@@ -0,0 +1,341 @@
+/*
+ * ForeignKeyLookup.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.resultset;
+
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.databasemediators.QueryTypes;
+import org.executequery.databasemediators.spi.DefaultStatementExecutor;
+import org.executequery.databaseobjects.impl.ColumnConstraint;
+import org.executequery.log.Log;
+import org.underworldlabs.util.MiscUtils;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server side lookup of the values available for a foreign key column.
+ * <p>
+ * Instead of loading the whole referenced table, values are fetched in
+ * small pages filtered by the key - by a prefix of character keys, by
+ * the value of numeric and date keys so the key index is used - or by
+ * a prefix of a display column of the referenced table. Pages are cached per prefix and lookups are
+ * shared per foreign key for the session.
+ *
+ * @author Takis Diakoumis
+ */
+public class ForeignKeyLookup {
+
+    /**
+     * the default number of rows fetched for one lookup
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * the number of cached prefixes per foreign key
+     */
+    private static final int MAX_CACHED_PAGES = 64;
+
+    /**
+     * the RDB$FIELD_TYPE values of the character and numeric columns
+     */
+    private static final List<Integer> CHARACTER_TYPES = Arrays.asList(14, 37);
+    private static final List<Integer> NUMERIC_TYPES = Arrays.asList(7, 8, 10, 16, 24, 25, 26, 27);
+
+    private static final Map<String, ForeignKeyLookup> LOOKUPS = new ConcurrentHashMap<>();
+
+    private final DatabaseConnection databaseConnection;
+    private final String referencedTable;
+    private final String keyColumn;
+    private final int pageSize;
+
+    private String displayColumn;
+    private boolean displayColumnLoaded;
+
+    /**
+     * the RDB$FIELD_TYPE of the key column, 0 if unknown
+     */
+    private int keyType;
+
+    private final Map<String, List<Row>> pages;
+
+    private ForeignKeyLookup(DatabaseConnection databaseConnection,
+                             String referencedTable, String keyColumn, int pageSize) {
+
+        this.databaseConnection = databaseConnection;
+        this.referencedTable = referencedTable;
+        this.keyColumn = keyColumn;
+        this.pageSize = pageSize;
+
+        pages = new LinkedHashMap<String, List<Row>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Row>> eldest) {
+                return size() > MAX_CACHED_PAGES;
+            }
+        };
+    }
+
+    /**
+     * Returns the session wide lookup for the specified foreign key.
+     *
+     * @param databaseConnection the connection of the table holding the key
+     * @param key                the foreign key constraint
+     * @return the lookup for the key
+     */
+    public static ForeignKeyLookup forKey(DatabaseConnection databaseConnection, ColumnConstraint key) {
+
+        String id = lookupId(databaseConnection, key.getReferencedTable(), key.getReferencedColumn());
+        return LOOKUPS.computeIfAbsent(id, k -> new ForeignKeyLookup(databaseConnection,
+                key.getReferencedTable(), key.getReferencedColumn(), DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * Drops all cached lookups of the specified connection - called
+     * once the connection is closed.
+     */
+    public static void clearCache(DatabaseConnection databaseConnection) {
+
+        String prefix = databaseConnection.getId() + ".";
+        LOOKUPS.keySet().removeIf(id -> id.startsWith(prefix));
+    }
+
+    private static String lookupId(DatabaseConnection databaseConnection, String table, String column) {
+
+        return databaseConnection.getId() + "." + table + "." + column;
+    }
+
+    /**
+     * Returns the first page of the referenced values where the key
+     * matches the specified prefix - starts with it for character keys,
+     * equals it for other keys - or the display column starts with it.
+     *
+     * @param prefix the value prefix, empty or null for all values
+     * @return the matching rows limited to the page size
+     */
+    public synchronized List<Row> find(String prefix) {
+
+        String filter = prefix != null ? prefix.trim() : "";
+        List<Row> rows = pages.get(filter);
+        if (rows == null) {
+
+            rows = load(filter);
+            pages.put(filter, rows);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Drops the cached pages of this lookup.
+     */
+    public synchronized void refresh() {
+
+        pages.clear();
+        displayColumnLoaded = false;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public synchronized String getDisplayColumn() {
+
+        if (!displayColumnLoaded) {
+
+            displayColumn = findDisplayColumn();
+            keyType = findKeyType();
+            displayColumnLoaded = true;
+        }
+        return displayColumn;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    private List<Row> load(String filter) {
+
+        String display = getDisplayColumn();
+        String key = MiscUtils.getFormattedObject(keyColumn);
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        if (!filter.isEmpty()) {
+
+            if (keyType == 0 || CHARACTER_TYPES.contains(keyType)) {
+
+                conditions.add(key + " STARTING WITH ?");
+                parameters.add(filter);
+
+            } else if (NUMERIC_TYPES.contains(keyType)) {
+
+                try {
+                    parameters.add(new BigDecimal(filter));
+                    conditions.add(key + " = ?");
+                } catch (NumberFormatException e) {
+                    // not a number - only the display column may match
+                }
+
+            } else {
+
+                // dates and times converted from the string by the server
+                conditions.add(key + " = ?");
+                parameters.add(filter);
+            }
+
+            if (display != null) {
+
+                conditions.add(MiscUtils.getFormattedObject(display) + " STARTING WITH ?");
+                parameters.add(filter);
+            }
+
+            if (conditions.isEmpty())
+                return Collections.emptyList();
+        }
+
+        StringBuilder query = new StringBuilder("SELECT FIRST ").append(pageSize).append(" ").append(key);
+        if (display != null)
+            query.append(", ").append(MiscUtils.getFormattedObject(display));
+        query.append(" FROM ").append(MiscUtils.getFormattedObject(referencedTable));
+        if (!conditions.isEmpty())
+            query.append(" WHERE ").append(String.join(" OR ", conditions));
+        query.append(" ORDER BY 1");
+
+        List<Row> rows = new ArrayList<>();
+        DefaultStatementExecutor executor = new DefaultStatementExecutor(databaseConnection, true);
+        try {
+
+            PreparedStatement statement = executor.getPreparedStatement(query.toString());
+            for (int i = 0; i < parameters.size(); i++)
+                statement.setObject(i + 1, parameters.get(i));
+
+            ResultSet rs = executor.execute(QueryTypes.SELECT, statement, pageSize).getResultSet();
+            if (rs != null) {
+
+                while (rs.next())
+                    rows.add(new Row(rs.getObject(1), display != null ? rs.getObject(2) : null));
+                rs.close();
+            }
+
+        } catch (SQLException e) {
+
+            Log.error("Error get Foreign keys:" + e.getMessage());
+
+        } finally {
+
+            executor.releaseResources();
+        }
+
+        return Collections.unmodifiableList(rows);
+    }
+
+    private int findKeyType() {
+
+        String query = "select F.RDB$FIELD_TYPE from RDB$RELATION_FIELDS R, RDB$FIELDS F"
+                + " where F.RDB$FIELD_NAME = R.RDB$FIELD_SOURCE and R.RDB$RELATION_NAME = ?"
+                + " and R.RDB$FIELD_NAME = ?";
+
+        DefaultStatementExecutor executor = new DefaultStatementExecutor(databaseConnection, true);
+        try {
+
+            PreparedStatement statement = executor.getPreparedStatement(query);
+            statement.setString(1, referencedTable);
+            statement.setString(2, keyColumn);
+
+            ResultSet rs = executor.execute(QueryTypes.SELECT, statement).getResultSet();
+            if (rs != null && rs.next())
+                return rs.getInt(1);
+
+        } catch (SQLException e) {
+
+            Log.error("Error get Foreign keys:" + e.getMessage());
+
+        } finally {
+
+            executor.releaseResources();
+        }
+
+        return 0;
+    }
+
+    private String findDisplayColumn() {
+
+        // first character column of the referenced table other than the key
+        String query = "select first 1 trim(R.RDB$FIELD_NAME) from RDB$RELATION_FIELDS R, RDB$FIELDS F"
+                + " where F.RDB$FIELD_NAME = R.RDB$FIELD_SOURCE and R.RDB$RELATION_NAME = ?"
+                + " and R.RDB$FIELD_NAME <> ? and F.RDB$FIELD_TYPE in (14, 37)"
+                + " order by R.RDB$FIELD_POSITION";
+
+        DefaultStatementExecutor executor = new DefaultStatementExecutor(databaseConnection, true);
+        try {
+
+            PreparedStatement statement = executor.getPreparedStatement(query);
+            statement.setString(1, referencedTable);
+            statement.setString(2, keyColumn);
+
+            ResultSet rs = executor.execute(QueryTypes.SELECT, statement).getResultSet();
+            if (rs != null && rs.next())
+                return rs.getString(1);
+
+        } catch (SQLException e) {
+
+            Log.error("Error get Foreign keys:" + e.getMessage());
+
+        } finally {
+
+            executor.releaseResources();
+        }
+
+        return null;
+    }
+
+    /**
+     * One referenced row - the key value and an optional display value.
+     */
+    public static class Row {
+
+        private final Object key;
+        private final Object display;
+
+        public Row(Object key, Object display) {
+            this.key = key;
+            this.display = display;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public Object getDisplay() {
+            return display;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(key);
+        }
+
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * LobByteSource.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.resultset;
+
+import biz.redsoft.IFBBlob;
+import biz.redsoft.IFBClob;
+import org.underworldlabs.swing.hexeditor.bdoc.PagedByteSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+/**
+ * Paged access to the bytes of a BLOB or CLOB value - pages are read
+ * from the database as they are accessed.
+ * <p>
+ * BLOBs are read at any position. CLOBs are read as a stream which
+ * is opened again for positions before the current one, their length
+ * is only known once the stream was read to the end.
+ *
+ * @author Takis Diakoumis
+ */
+abstract class LobByteSource extends PagedByteSource {
+
+    static LobByteSource forBlob(Object value) {
+
+        if (value instanceof IFBBlob) {
+            return new FirebirdBlobSource((IFBBlob) value);
+        }
+        return new BlobSource((Blob) value);
+    }
+
+    static LobByteSource forClob(Object value) {
+
+        if (value instanceof IFBClob) {
+            return new FirebirdClobSource((IFBClob) value);
+        }
+        return new ClobSource((Clob) value);
+    }
+
+    protected static IOException asIOException(SQLException e) {
+        return new IOException(e.getMessage(), e);
+    }
+
+    private static class BlobSource extends LobByteSource {
+
+        private final Blob blob;
+
+        BlobSource(Blob blob) {
+            this.blob = blob;
+        }
+
+        @Override
+        public long length() throws IOException {
+
+            try {
+                return blob.length();
+            } catch (SQLException e) {
+                throw asIOException(e);
+            }
+        }
+
+        @Override
+        protected int readPage(long position, byte[] page, int len) throws IOException {
+
+            int count = (int) Math.min(len, length() - position);
+            if (count <= 0) {
+                return -1;
+            }
+
+            try {
+                byte[] bytes = blob.getBytes(position + 1, count);
+                System.arraycopy(bytes, 0, page, 0, bytes.length);
+                return bytes.length;
+            } catch (SQLException e) {
+                throw asIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            // the blob stays valid with the result set
+        }
+
+    } // class BlobSource
+
+    /**
+     * A detached Firebird BLOB reading in its own transaction - the
+     * transaction is committed on close and started again once read.
+     */
+    private static class FirebirdBlobSource extends LobByteSource {
+
+        private final IFBBlob blob;
+
+        private boolean opened;
+
+        FirebirdBlobSource(IFBBlob blob) {
+            this.blob = blob;
+        }
+
+        @Override
+        public long length() {
+            return blob.lenght();
+        }
+
+        @Override
+        protected synchronized int readPage(long position, byte[] page, int len) throws IOException {
+
+            int count = (int) Math.min(len, length() - position);
+            if (count <= 0) {
+                return -1;
+            }
+
+            try {
+                opened = true;
+                byte[] bytes = blob.getBytes(position + 1, count);
+                System.arraycopy(bytes, 0, page, 0, bytes.length);
+                return bytes.length;
+            } catch (SQLException e) {
+                throw asIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+
+            if (!opened) {
+                return;
+            }
+
+            opened = false;
+            try {
+                blob.close();
+            } catch (SQLException e) {
+                throw asIOException(e);
+            }
+        }
+
+    } // class FirebirdBlobSource
+
+    private abstract static class StreamSource extends LobByteSource {
+
+        private InputStream stream;
+
+        private long streamPosition;
+
+        private long length = -1;
+
+        abstract InputStream open() throws SQLException;
+
+        abstract void release() throws SQLException;
+
+        @Override
+        public synchronized long length() throws IOException {
+
+            if (length < 0) {
+
+                // skipping reads the remaining stream without keeping it
+                if (stream == null) {
+                    reopen();
+                }
+                skipFully(Long.MAX_VALUE);
+                length = streamPosition;
+            }
+            return length;
+        }
+
+        @Override
+        protected synchronized int readPage(long position, byte[] page, int len) throws IOException {
+
+            if (stream == null || position < streamPosition) {
+                reopen();
+            }
+
+            skipFully(position - streamPosition);
+            if (streamPosition < position) {
+                return -1;
+            }
+
+            int done = 0;
+            while (done < len) {
+
+                int read = stream.read(page, done, len - done);
+                if (read < 0) {
+
+                    length = position + done;
+                    break;
+                }
+                done += read;
+            }
+
+            streamPosition += done;
+            return done;
+        }
+
+        private void skipFully(long count) throws IOException {
+
+            byte[] buffer = null;
+            while (count > 0) {
+
+                long skipped = stream.skip(count);
+                if (skipped <= 0) {
+
+                    // not all streams skip - read instead
+                    if (buffer == null) {
+                        buffer = new byte[DEFAULT_PAGE_SIZE];
+                    }
+                    int read = stream.read(buffer, 0, (int) Math.min(buffer.length, count));
+                    if (read < 0) {
+                        return;
+                    }
+                    skipped = read;
+                }
+
+                count -= skipped;
+                streamPosition += skipped;
+            }
+        }
+
+        private void reopen() throws IOException {
+
+            close();
+            try {
+                stream = open();
+                streamPosition = 0;
+            } catch (SQLException e) {
+                throw asIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+
+            if (stream == null) {
+                return;
+            }
+
+            try {
+                stream.close();
+                release();
+            } catch (SQLException e) {
+                throw asIOException(e);
+            } finally {
+                stream = null;
+            }
+        }
+
+    } // class StreamSource
+
+    private static class ClobSource extends StreamSource {
+
+        private final Clob clob;
+
+        ClobSource(Clob clob) {
+            this.clob = clob;
+        }
+
+        @Override
+        InputStream open() throws SQLException {
+            return clob.getAsciiStream();
+        }
+
+        @Override
+        void release() {
+            // the clob stays valid with the result set
+        }
+
+    } // class ClobSource
+
+    /**
+     * A detached Firebird CLOB - the transaction of the stream is
+     * committed on close.
+     */
+    private static class FirebirdClobSource extends StreamSource {
+
+        private final IFBClob clob;
+
+        FirebirdClobSource(IFBClob clob) {
+            this.clob = clob;
+        }
+
+        @Override
+        InputStream open() throws SQLException {
+            return clob.open();
+        }
+
+        @Override
+        void release() throws SQLException {
+            clob.close();
+        }
+
+    } // class FirebirdClobSource
+
+}
@@ -20,11 +20,29 @@
 
 package org.executequery.gui.resultset;
 
+import org.underworldlabs.swing.hexeditor.bdoc.ByteSource;
 
 public interface LobRecordDataItem extends RecordDataItem {
 
     int length();
 
+    /**
+     * Returns the length of the value without reading it completely.
+     */
+    long getLength();
+
+    /**
+     * Returns the source of the current value reading the LOB
+     * as accessed, or null for a null value.
+     */
+    ByteSource getByteSource();
+
+    /**
+     * Sets the new value to the content of the specified source
+     * streamed on update.
+     */
+    void setNewValueSource(ByteSource source);
+
     byte[] getData();
 
     String getLobRecordItemName();
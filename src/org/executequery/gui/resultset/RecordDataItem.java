@@ -22,6 +22,8 @@ package org.executequery.gui.resultset;
 
 import org.underworldlabs.swing.table.TableCellValue;
 
+import java.util.function.Predicate;
+
 /**
  * @author Takis Diakoumis
  */
@@ -73,6 +75,13 @@ public interface RecordDataItem extends TableCellValue, Comparable {
 
     boolean valueContains(String pattern);
 
+    /**
+     * Tests the value - other than a LOB or null - with the specified
+     * matcher, e.g. one created once for many values with
+     * {@link AbstractRecordDataItem#containsIgnoreCase(String)}.
+     */
+    boolean valueMatches(Predicate<String> matcher);
+
 }
 
 
@@ -33,16 +33,12 @@ import org.underworldlabs.util.MiscUtils;
 import org.underworldlabs.util.SystemProperties;
 
 import javax.swing.*;
-import javax.swing.event.PopupMenuEvent;
-import javax.swing.event.PopupMenuListener;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.sql.Types;
-import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.*;
 import java.util.List;
-import java.util.Vector;
 
 /**
  * @author Takis Diakoumis
@@ -126,6 +122,9 @@ public class ResultSetTable extends JTable implements StandardTable {
     private void setDefaultColumnOptions() {
 
         comboboxColumns = new ArrayList<>();
+        if (foreignKeyLookups != null) {
+            foreignKeyLookups.clear();
+        }
         int cols = dataModel.getColumnCount();
         if (columnModel != null) {
             columnModel.init_tcs(cols);
@@ -456,157 +455,22 @@ public class ResultSetTable extends JTable implements StandardTable {
         return cellRenderer;
     }
 
-    private final ArrayList<DefaultTableModel> dtm = new ArrayList<DefaultTableModel>();
-    private final ArrayList<Integer> foreignIndex = new ArrayList<Integer>();
-    private final ArrayList<Vector<Object>> foreignKeys = new ArrayList<Vector<Object>>();
+    private final Map<Integer, ForeignKeyLookup> foreignKeyLookups = new HashMap<>();
 
 
     public TableCellEditor getCellEditor(int row, int column) {
 
-        int columnIndex = 0;
-
-
-        for (int i = 0; i < foreignIndex.size(); i++) {
-            if (foreignIndex.get(i) == column) {
-                columnIndex = i;
-            }
-        }
-
-        ArrayList<DefaultTableModel> rowTabelModelsList = new ArrayList<DefaultTableModel>();
-
-        class ComboBoxRenderer extends JTable implements ListCellRenderer {
-            @Override
-            public Component getListCellRendererComponent(JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
-                if (isSelected) {
-                    setBackground(list.getSelectionBackground());
-                    setForeground(list.getSelectionForeground());
-                } else {
-                    setBackground(list.getBackground());
-                    setForeground(list.getForeground());
-                }
-
-                if (index == 0) {
-                    setBackground(list.getSelectionBackground());
-                }
-
-                setFont(list.getFont());
-                setModel(rowTabelModelsList.get(index));
-                return this;
-            }
-        }
-
         RecordDataItem value = (RecordDataItem) getValueAt(row, column);
-        if (isComboColumn(column)) {
-            class SampleJComboBoxWithScrollBar extends JComboBox {
-
-                SampleJComboBoxWithScrollBar() {
-                    super();
-                    this.addPopupMenuListener(this.getPopupMenuListener());
-                    this.adjustScrollBar();
-                }
-
-                private void adjustPopupWidth() {
-                    if (getItemCount() == 0) {
-                        return;
-                    }
-                    Object comp = getUI().getAccessibleChild(this, 0);
-                    if (!(comp instanceof JPopupMenu)) {
-                        return;
-                    }
-                    JPopupMenu popup = (JPopupMenu) comp;
-                    JScrollPane scrollPane = (JScrollPane) popup.getComponent(0);
-                    Object value = getItemAt(0);
-                    Component rendererComp = getRenderer().getListCellRendererComponent(new JList(), value, 0, false, false);
-                    if (rendererComp instanceof JTable) {
-                        scrollPane.setColumnHeaderView(((JTable) rendererComp).getTableHeader());
-                    }
-                    Dimension prefSize = rendererComp.getPreferredSize();
-                    Dimension size = scrollPane.getPreferredSize();
-                    size.width = Math.max(size.width, prefSize.width);
-                    scrollPane.setPreferredSize(size);
-                    scrollPane.setMaximumSize(size);
-                    scrollPane.revalidate();
-                }
-
-                private void adjustScrollBar() {
-                    if (getItemCount() == 0) {
-                        return;
-                    }
-                    Object comp = getUI().getAccessibleChild(this, 0);
-                    if (!(comp instanceof JPopupMenu)) {
-                        return;
-                    }
-                    JPopupMenu popup = (JPopupMenu) comp;
-                    JScrollPane scrollPane = (JScrollPane) popup.getComponent(0);
-                    scrollPane.setHorizontalScrollBar(new JScrollBar(JScrollBar.HORIZONTAL));
-                    scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-                }
-
-                private PopupMenuListener getPopupMenuListener() {
-
-                    return new PopupMenuListener() {
-
-                        @Override
-                        public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
-                            //adjustPopupWidth();
-                            adjustScrollBar();
-                        }
+        if (isComboColumn(column) && foreignKeyLookups.containsKey(column)) {
 
-                        @Override
-                        public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
-                        }
+            final ForeignKeyComboBox comboBox = new ForeignKeyComboBox(foreignKeyLookups.get(column));
+            comboBox.setSelectedKey(value.getValue());
 
-                        @Override
-                        public void popupMenuCanceled(PopupMenuEvent e) {
-                        }
-                    };
+            return new DefaultCellEditor(comboBox) {
+                public Object getCellEditorValue() {
+                    return comboBox.getSelectedKey();
                 }
-            }
-
-            SampleJComboBoxWithScrollBar comboBox = new SampleJComboBoxWithScrollBar();
-            comboBox.setEditable(true);
-
-            comboBox.addItem(foreignKeys.get(columnIndex).get(0));
-
-            for (int i = -1; i < dtm.get(columnIndex).getRowCount(); i++) {
-                DefaultTableModel rowTableModel = new DefaultTableModel();
-                for (int j = 0; j < dtm.get(columnIndex).getColumnCount(); j++) {
-                    rowTableModel.addColumn("");
-                }
-                rowTableModel.insertRow(0, new Object[] {});
-                if (i != -1) {
-                    for (int j = 0; j < dtm.get(columnIndex).getColumnCount(); j++) {
-                        rowTableModel.setValueAt(dtm.get(columnIndex).getValueAt(i, j), 0, j);
-                    }
-                }
-                else {
-                    for (int j = 0; j < dtm.get(columnIndex).getColumnCount(); j++) {
-                        rowTableModel.setValueAt(dtm.get(columnIndex).getColumnName(j), 0, j);
-                    }
-                }
-
-                rowTabelModelsList.add(rowTableModel);
-
-                if (i == -1) {
-                    continue;
-                }
-
-                comboBox.addItem(foreignKeys.get(columnIndex).get(i));
-
-
-            }
-
-            ComboBoxRenderer renderer = new ComboBoxRenderer();
-            comboBox.setRenderer(renderer);
-
-            TableCellEditor editor = new DefaultCellEditor(comboBox);
-
-            if (value.getValue() == null)
-                comboBox.setSelectedIndex(0);
-            else
-                comboBox.setSelectedItem(value.getValue());
-
-            return editor;
+            };
         }
 
         int sqlType = value.getDataType();
@@ -679,26 +543,9 @@ public class ResultSetTable extends JTable implements StandardTable {
         columnModel.setColumn(column, ind);
     }
 
-    public void setComboboxTable(int ind, DefaultTableModel defaultTableModel, Vector<Object> items) {
+    public void setForeignKeyLookup(int ind, ForeignKeyLookup lookup) {
         comboboxColumns.add(ind);
-        TableColumn column = new TableColumn();
-        JComboBox comboBox = new JComboBox();
-        dtm.add(defaultTableModel);
-        foreignIndex.add(ind);
-        foreignKeys.add(items);
-        class ComboBoxRenderer extends JTable implements ListCellRenderer {
-            public DefaultTableModel rowTabelModel;
-
-            @Override
-            public Component getListCellRendererComponent(JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
-                setModel(rowTabelModel);
-                return this;
-            }
-        }
-        ComboBoxRenderer renderer = new ComboBoxRenderer();
-        comboBox.setRenderer(renderer);
-        column.setCellEditor(new DefaultCellEditor(comboBox));
-        columnModel.setColumn(column, ind);
+        foreignKeyLookups.put(ind, lookup);
     }
 
     class ResultsTableColumnModel extends DefaultTableColumnModel {
@@ -92,6 +92,11 @@ public class ResultSetTableModel extends AbstractSortableTableModel {
 
     private String query;
 
+    /**
+     * the connection the query was executed on
+     */
+    private DatabaseConnection databaseConnection;
+
     private List<ColumnData> columnDataList;
 
     boolean isTable;
@@ -158,6 +163,14 @@ public class ResultSetTableModel extends AbstractSortableTableModel {
         return list;
     }
 
+    public DatabaseConnection getDatabaseConnection() {
+        return databaseConnection;
+    }
+
+    public void setDatabaseConnection(DatabaseConnection databaseConnection) {
+        this.databaseConnection = databaseConnection;
+    }
+
     public String getQuery() {
         return query;
     }
@@ -356,6 +369,7 @@ public class ResultSetTableModel extends AbstractSortableTableModel {
         if (executor != null)
             executor.releaseResources();
         executor = new DefaultStatementExecutor(dc, true);
+        databaseConnection = dc;
 
         try {
             resetMetaData();
@@ -418,6 +432,7 @@ public class ResultSetTableModel extends AbstractSortableTableModel {
 
             }
             sql += " FROM " + tableName;
+            query = sql;
             resultSet = executor.execute(QueryTypes.SELECT, sql).getResultSet();
             getDataForTable(resultSet, count, columnDataList);
 
@@ -922,6 +937,19 @@ public class ResultSetTableModel extends AbstractSortableTableModel {
         }
     }
 
+    /**
+     * Returns the index within the row data of each visible column.
+     */
+    public int[] getVisibleColumnIndices() {
+
+        int[] indices = new int[getColumnCount()];
+        for (int i = 0; i < indices.length; i++) {
+
+            indices[i] = asVisibleColumnIndex(i);
+        }
+        return indices;
+    }
+
     private int asVisibleColumnIndex(int column) {
 
         ResultSetColumnHeader columnHeader = visibleColumnHeaders.get(column);
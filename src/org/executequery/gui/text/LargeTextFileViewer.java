@@ -0,0 +1,173 @@
+/*
+ * LargeTextFileViewer.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.gui.text;
+
+import org.executequery.localization.Bundles;
+import org.underworldlabs.swing.actions.ReflectiveAction;
+import org.underworldlabs.swing.menu.SimpleTextComponentPopUpMenu;
+import org.underworldlabs.util.MappedTextFile;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+
+/**
+ * Read-only view of a text file too large for the editor - one page
+ * of lines is decoded from the mapped file at a time.
+ *
+ * @author Takis Diakoumis
+ */
+public class LargeTextFileViewer extends JPanel {
+
+    private static final int PAGE_LINES = 1000;
+
+    /**
+     * the most bytes shown on a page - a longer line is cut
+     */
+    private static final int PAGE_BYTES = 1024 * 1024;
+
+    private final MappedTextFile textFile;
+
+    private long firstLine;
+
+    private long nextLine;
+
+    private JTextArea textArea;
+
+    private JButton previousPageButton;
+
+    private JButton nextPageButton;
+
+    private JLabel pageLabel;
+
+    private JTextField lineField;
+
+    public LargeTextFileViewer(MappedTextFile textFile) {
+
+        super(new BorderLayout());
+        this.textFile = textFile;
+
+        init();
+        showPage(0);
+    }
+
+    private void init() {
+
+        ReflectiveAction action = new ReflectiveAction(this);
+
+        textArea = new JTextArea();
+        new SimpleTextComponentPopUpMenu(textArea);
+
+        textArea.setEditable(false);
+        textArea.setLineWrap(false);
+        textArea.setFont(new Font("monospaced", 0, 12));
+        textArea.setMargin(new Insets(3, 3, 3, 3));
+
+        previousPageButton = new JButton("<");
+        previousPageButton.setActionCommand("previousPage");
+        previousPageButton.addActionListener(action);
+
+        nextPageButton = new JButton(">");
+        nextPageButton.setActionCommand("nextPage");
+        nextPageButton.addActionListener(action);
+
+        pageLabel = new JLabel();
+
+        lineField = new JTextField(8);
+        lineField.setActionCommand("goToLine");
+        lineField.addActionListener(action);
+
+        JPanel pagePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 2, 2));
+        pagePanel.add(previousPageButton);
+        pagePanel.add(nextPageButton);
+        pagePanel.add(pageLabel);
+        pagePanel.add(Box.createHorizontalStrut(10));
+        pagePanel.add(new JLabel(bundleString("GoToLine")));
+        pagePanel.add(lineField);
+
+        add(new JScrollPane(textArea), BorderLayout.CENTER);
+        add(pagePanel, BorderLayout.SOUTH);
+    }
+
+    public MappedTextFile getTextFile() {
+        return textFile;
+    }
+
+    public void previousPage(ActionEvent e) {
+
+        showPage(Math.max(0, firstLine - PAGE_LINES));
+    }
+
+    public void nextPage(ActionEvent e) {
+
+        if (nextLine < textFile.getLineCount()) {
+
+            showPage(nextLine);
+        }
+    }
+
+    public void goToLine(ActionEvent e) {
+
+        try {
+
+            long line = Long.parseLong(lineField.getText().trim()) - 1;
+            showPage(Math.max(0, Math.min(line, textFile.getLineCount() - 1)));
+
+        } catch (NumberFormatException ex) {
+
+            Toolkit.getDefaultToolkit().beep();
+        }
+    }
+
+    /**
+     * Shows the lines from the one specified up to the page size or
+     * the most bytes shown.
+     */
+    private void showPage(long line) {
+
+        long lineCount = textFile.getLineCount();
+        long start = textFile.getLineOffset(line);
+
+        long end = Math.min(line + PAGE_LINES, lineCount);
+        while (end > line + 1 && textFile.getLineOffset(end) - start > PAGE_BYTES) {
+
+            end = line + (end - line) / 2;
+        }
+
+        long endOffset = Math.min(textFile.getLineOffset(end), start + PAGE_BYTES);
+        textArea.setText(textFile.getText(start, endOffset));
+        textArea.setCaretPosition(0);
+
+        firstLine = line;
+        nextLine = end;
+
+        previousPageButton.setEnabled(firstLine > 0);
+        nextPageButton.setEnabled(nextLine < lineCount);
+        pageLabel.setText(bundleString("PageLines",
+                lineCount > 0 ? firstLine + 1 : 0, nextLine, lineCount, textFile.getCharset().name()));
+    }
+
+    private String bundleString(String key, Object... args) {
+
+        return Bundles.get(LargeTextFileViewer.class, key, args);
+    }
+
+}
@@ -22,6 +22,7 @@ package org.executequery.listeners;
 
 import org.executequery.GUIUtilities;
 import org.executequery.components.StatusBarPanel;
+import org.executequery.databasemediators.DatabaseConnection;
 import org.executequery.databaseobjects.NamedObject;
 import org.executequery.datasource.ConnectionManager;
 import org.executequery.event.ApplicationEvent;
@@ -29,13 +30,17 @@ import org.executequery.event.ConnectionEvent;
 import org.executequery.event.ConnectionListener;
 import org.executequery.gui.browser.ConnectionsTreePanel;
 import org.executequery.gui.browser.nodes.DatabaseObjectNode;
+import org.executequery.gui.resultset.ForeignKeyLookup;
 import org.executequery.localization.Bundles;
 import org.executequery.log.Log;
+import org.executequery.sql.PlanHistory;
+import org.executequery.sql.PsqlSourceIndex;
 import org.underworldlabs.jdbc.DataSourceException;
 import org.underworldlabs.swing.util.SwingWorker;
 import org.underworldlabs.util.SystemProperties;
 
 import javax.swing.tree.TreeNode;
+import java.sql.SQLException;
 import java.util.Enumeration;
 
 public class DefaultConnectionListener implements ConnectionListener {
@@ -56,6 +61,7 @@ public class DefaultConnectionListener implements ConnectionListener {
                         Log.info("Connection was closed");
                     else e.printStackTrace();
                 }
+                indexSources(connectionEvent.getDatabaseConnection());
                 return null;
             }
         };
@@ -64,9 +70,29 @@ public class DefaultConnectionListener implements ConnectionListener {
 
     public void disconnected(ConnectionEvent connectionEvent) {
 
+        PsqlSourceIndex.release(connectionEvent.getDatabaseConnection());
+        PlanHistory.release(connectionEvent.getDatabaseConnection());
+        ForeignKeyLookup.clearCache(connectionEvent.getDatabaseConnection());
         updateStatusBarDataSourceCounter();
     }
 
+    /**
+     * Loads the saved source index of the connection and refreshes
+     * it with the sources changed since.
+     */
+    private void indexSources(DatabaseConnection databaseConnection) {
+
+        if (!databaseConnection.isConnected()) {
+            return;
+        }
+
+        try {
+            PsqlSourceIndex.getInstance(databaseConnection).refreshIfStale();
+        } catch (SQLException e) {
+            Log.warning("Error indexing sources of " + databaseConnection.getName() + ": " + e.getMessage());
+        }
+    }
+
     public boolean canHandleEvent(ApplicationEvent event) {
 
         return (event instanceof ConnectionEvent);
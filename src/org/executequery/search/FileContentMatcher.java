@@ -0,0 +1,216 @@
+/*
+ * FileContentMatcher.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the matches of the search pattern in a file. Files are read
+ * into a buffer reused by the searching thread - only very large files
+ * are memory mapped - and the raw bytes are scanned for a literal part of
+ * the search text first (Boyer-Moore-Horspool) and only files
+ * containing it are decoded and matched with the pattern.
+ *
+ * @author Takis Diakoumis
+ */
+class FileContentMatcher {
+
+    /**
+     * the size of the buffer kept by each searching thread - larger
+     * files are read into a buffer of their own
+     */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * files of this size and larger are mapped instead of read
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024 * 1024;
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final Pattern pattern;
+
+    /**
+     * the literal every match contains or null to match the pattern only
+     */
+    private final byte[] literal;
+
+    private final boolean ignoreCase;
+
+    /**
+     * the bad character shifts of the literal
+     */
+    private final int[] shifts;
+
+    private final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    FileContentMatcher(String searchText, boolean usingRegex,
+                       boolean findWholeWords, boolean matchingCase) {
+
+        String regexPattern = usingRegex ? searchText
+                : TextAreaSearch.formatRegularExpression(searchText, findWholeWords);
+
+        pattern = matchingCase ? Pattern.compile(regexPattern)
+                : Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
+
+        ignoreCase = !matchingCase;
+        literal = usingRegex ? null : literalOf(searchText);
+        shifts = literal != null ? shiftsOf(literal) : null;
+    }
+
+    Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the number of matches in the file.
+     */
+    int count(File file) throws IOException {
+
+        long size = file.length();
+        if (size == 0) {
+            return 0;
+        }
+
+        ByteBuffer content = read(file, size);
+        if (literal != null && indexOf(content) < 0) {
+            return 0;
+        }
+
+        int count = 0;
+        Matcher matcher = pattern.matcher(decode(content));
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    static CharBuffer decode(ByteBuffer content) {
+        return CHARSET.decode(content.duplicate());
+    }
+
+    private ByteBuffer read(File file, long size) throws IOException {
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The file " + file + " is too large to be searched");
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            ByteBuffer buffer = size <= BUFFER_SIZE ? buffers.get() : ByteBuffer.allocate((int) size);
+            buffer.clear();
+            buffer.limit((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Returns the offset of the literal in the content or -1.
+     */
+    int indexOf(ByteBuffer content) {
+
+        int length = literal.length;
+        int last = length - 1;
+        int end = content.limit() - length;
+
+        int i = 0;
+        while (i <= end) {
+
+            int j = last;
+            while (j >= 0 && fold(content.get(i + j)) == literal[j]) {
+                j--;
+            }
+
+            if (j < 0) {
+                return i;
+            }
+            i += shifts[fold(content.get(i + last)) & 0xFF];
+        }
+        return -1;
+    }
+
+    /**
+     * Folds ASCII letters like the case insensitive pattern does.
+     */
+    private byte fold(byte b) {
+        return ignoreCase && b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Returns the longest part of the text without spaces - spaces
+     * of the search text match any white space.
+     */
+    private byte[] literalOf(String searchText) {
+
+        if (!Arrays.equals("azAZ09".getBytes(CHARSET), "azAZ09".getBytes(Charset.forName("US-ASCII")))) {
+            return null;
+        }
+
+        String longest = "";
+        for (String part : searchText.split("\\s+")) {
+
+            if (part.length() > longest.length()) {
+                longest = part;
+            }
+        }
+
+        if (longest.isEmpty()) {
+            return null;
+        }
+
+        byte[] bytes = longest.getBytes(CHARSET);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = fold(bytes[i]);
+        }
+        return bytes;
+    }
+
+    private static int[] shiftsOf(byte[] literal) {
+
+        int[] shifts = new int[256];
+        Arrays.fill(shifts, literal.length);
+        for (int i = 0; i < literal.length - 1; i++) {
+            shifts[literal[i] & 0xFF] = literal.length - 1 - i;
+        }
+        return shifts;
+    }
+
+}
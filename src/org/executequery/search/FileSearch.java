@@ -21,15 +21,31 @@
 package org.executequery.search;
 
 import org.executequery.GUIUtilities;
+import org.executequery.log.Log;
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 
+import javax.swing.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
+ * Searches the content of the files of a directory tree. Directories
+ * are walked by the tasks of a work-stealing pool and the results are
+ * passed to the view as they are found.
+ *
  * @author Takis Diakoumis
  */
 public class FileSearch {
@@ -50,11 +66,23 @@ public class FileSearch {
     /**
      * Total find count
      */
-    private int totalFindCount;
+    private final AtomicInteger totalFindCount;
     /**
      * Total file count
      */
-    private int fileCount;
+    private final AtomicInteger fileCount;
+    /**
+     * Results found and not yet passed to the view
+     */
+    private final Queue<Object> pendingResults;
+    /**
+     * Whether passing the pending results to the view is scheduled
+     */
+    private final AtomicBoolean flushScheduled;
+    /**
+     * Whether the running search was cancelled
+     */
+    private volatile boolean cancelled;
 
     // --------------------------------------
     // -------- Saved search details --------
@@ -118,14 +146,17 @@ public class FileSearch {
     private static final String NEW_LINE = "\n";
 
     /**
-     * The search pattern
+     * The matcher of the running search
      */
-    private Pattern pattern;
+    private FileContentMatcher contentMatcher;
 
     public FileSearch(FileSearchView searchView) {
         this.searchView = searchView;
 
-        pattern = null;
+        totalFindCount = new AtomicInteger();
+        fileCount = new AtomicInteger();
+        pendingResults = new ConcurrentLinkedQueue<>();
+        flushScheduled = new AtomicBoolean();
 
         if (pathValues == null)
             pathValues = new Vector();
@@ -137,145 +168,195 @@ public class FileSearch {
 
     }
 
-    private void addToList(File file) {
-        if (searchResults == null) {
-            searchResults = new Vector();
+    /**
+     * Queues the result and schedules passing it to the view.
+     */
+    private void publish(Object result) {
+        pendingResults.add(result);
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    flushResults();
+                }
+            });
         }
-        searchResults.add(file);
-        searchView.setListData(searchResults);
     }
 
-    private void addToList(String text) {
-        if (searchResults == null) {
-            searchResults = new Vector();
+    private void flushResults() {
+        flushScheduled.set(false);
+
+        boolean added = false;
+        Object result;
+        while ((result = pendingResults.poll()) != null) {
+            searchResults.add(result);
+            added = true;
+        }
+
+        if (added) {
+            searchView.setListData(searchResults);
         }
-        searchResults.add(text);
-        searchView.setListData(searchResults);
     }
 
     public void doSearch() {
-        worker = new SwingWorker() {
+        clearResults();
+        int extLength = searchExtension.length();
+        if (extLength > 0 && searchExtension.charAt(0) == '*') {
+            searchExtension = searchExtension.substring(1);
+        }
+
+        try {
+            contentMatcher = new FileContentMatcher(
+                    searchText, usingRegex, findWholeWords, matchingCase);
+        } catch (PatternSyntaxException pExc) {
+            GUIUtilities.displayErrorMessage(
+                    "The regular expression search pattern is invalid.");
+            searchView.finished();
+            return;
+        }
+
+        cancelled = false;
+        worker = new SwingWorker(TaskScheduler.Workload.IO) {
             public Object construct() {
-                clearResults();
-                int extLength = searchExtension.length();
-                if (extLength > 0 && searchExtension.charAt(0) == '*') {
-                    searchExtension = searchExtension.substring(1);
+                ForkJoinPool pool = new ForkJoinPool();
+                try {
+                    pool.invoke(new SearchTask(new File(searchPath)));
+                } finally {
+                    pool.shutdown();
                 }
-
-                return startFind(new File(searchPath));
+                return "done";
             }
 
             public void finished() {
+                flushResults();
                 searchView.setListData(searchResults);
                 searchView.finished();
 
-                if (replacingText) {
-                    searchView.setResultsSummary("Replaced " + totalFindCount +
-                            " occurrences in " + fileCount + " files.");
-                } else {
-                    searchView.setResultsSummary("Found " + totalFindCount +
-                            " occurrences in " + fileCount + " files.");
+                String summary = (replacingText ? "Replaced " : "Found ") + totalFindCount.get() +
+                        " occurrences in " + fileCount.get() + " files.";
+                if (cancelled) {
+                    summary = "Search cancelled. " + summary;
                 }
+                searchView.setResultsSummary(summary);
 
-                pattern = null;
+                contentMatcher = null;
                 GUIUtilities.scheduleGC();
             }
         };
         worker.start();
     }
 
-    private String startFind(File file) {
+    /**
+     * Stops the running search - the results found so far are kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Searches the files of a directory and forks a task for each
+     * subdirectory, idle workers steal the forked tasks.
+     */
+    private class SearchTask extends RecursiveAction {
+
+        private final File file;
+
+        SearchTask(File file) {
+            this.file = file;
+        }
+
+        protected void compute() {
 
-        if (file.isDirectory()) {
+            if (cancelled) {
+                return;
+            }
+
+            if (!file.isDirectory()) {
+                searchFile(file);
+                return;
+            }
 
             File[] files = file.listFiles();
-            for (int i = 0; i < files.length; i++) {
+            if (files == null) {
+                return;
+            }
 
-                if (files[i].isDirectory()) {
+            List<SearchTask> subdirs = new ArrayList<>();
+            for (File child : files) {
+                if (child.isDirectory() && searchingSubdirs) {
+                    SearchTask task = new SearchTask(child);
+                    task.fork();
+                    subdirs.add(task);
+                }
+            }
 
-                    if (searchingSubdirs) {
-                        startFind(files[i]);
-                    } else {
-                        continue;
-                    }
+            for (File child : files) {
 
-                } else {
+                if (cancelled) {
+                    break;
+                }
 
-                    if (!searchExtension.equals(WILDCARD)) {
-                        if (!files[i].getName().endsWith(searchExtension)) {
-                            continue;
-                        }
-                    }
+                if (child.isDirectory()) {
+                    continue;
+                }
 
-                    fileCount++;
-                    searchFile(files[i]);
+                if (!searchExtension.equals(WILDCARD)) {
+                    if (!child.getName().endsWith(searchExtension)) {
+                        continue;
+                    }
                 }
 
+                searchFile(child);
             }
 
-        } else {
-            fileCount++;
-            searchFile(file);
+            for (SearchTask task : subdirs) {
+                task.join();
+            }
         }
 
-        return "done";
-
-    }
+    } // class SearchTask
 
     private void searchFile(File file) {
 
-        Matcher matcher = null;
-        StringBuffer fileText = readFile(file);
-
-        int findCount = 0;
-
+        fileCount.incrementAndGet();
         try {
 
-            if (pattern == null) {
-                String regexPattern = null;
-                if (!usingRegex) {
-                    regexPattern = TextAreaSearch.formatRegularExpression(searchText,
-                            findWholeWords);
-                } else {
-                    regexPattern = searchText;
-                }
+            int findCount = replacingText ? replaceInFile(file) : contentMatcher.count(file);
+            if (findCount > 0) {
 
-                if (matchingCase) {
-                    pattern = Pattern.compile(regexPattern);
+                totalFindCount.addAndGet(findCount);
+                if (!replacingText) {
+                    publish(file);
                 } else {
-                    pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
+                    publish("Replaced " + findCount + " occurrences in " +
+                            file.getAbsolutePath());
                 }
-                regexPattern = null;
             }
 
-            matcher = pattern.matcher(fileText);
-            while (matcher.find()) {
-                findCount++;
+        } catch (IOException | OutOfMemoryError e) {
+
+            if (Log.isDebugEnabled()) {
+                Log.debug("Error searching file " + file, e);
             }
+        }
 
-            if (findCount > 0) {
+    }
 
-                if (!replacingText) {
-                    addToList(file);
-                } else {
-                    String text = "Replaced " + findCount + " occurrences in " +
-                            file.getAbsolutePath();
-                    addToList(text);
-                }
-            }
+    private int replaceInFile(File file) throws IOException {
 
-            if (replacingText) {
-                String newText = matcher.replaceAll(replaceText);
-                writeFile(file, newText);
-            }
-            totalFindCount += findCount;
-        } catch (PatternSyntaxException pExc) {
-            if (usingRegex) {
-                GUIUtilities.displayErrorMessage(
-                        "The regular expression search pattern is invalid.");
-            }
+        // read fully - a mapped file can not be written on all platforms
+        CharSequence fileText = FileContentMatcher.decode(
+                ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+
+        int findCount = 0;
+        Matcher matcher = contentMatcher.getPattern().matcher(fileText);
+        while (matcher.find()) {
+            findCount++;
         }
 
+        if (findCount > 0) {
+            writeFile(file, matcher.replaceAll(replaceText));
+        }
+        return findCount;
     }
 
     private void writeFile(File file, String text) {
@@ -293,35 +374,6 @@ public class FileSearch {
         }
     }
 
-    private StringBuffer readFile(File file) {
-        StringBuffer sb = null;
-        String text = null;
-
-        try {
-            FileInputStream input = new FileInputStream(file);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-            sb = new StringBuffer(10000);
-
-            char newLine = '\n';
-
-            while ((text = reader.readLine()) != null) {
-                sb.append(text).append(newLine);
-            }
-
-            reader.close();
-            input.close();
-            return sb;
-        } catch (OutOfMemoryError e) {
-            e.printStackTrace();
-            sb = null;
-            text = null;
-            return null;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-
     private void addToValues(Vector values, String text) {
         if (values.size() == 5) {
             values.removeElementAt(4);
@@ -333,8 +385,9 @@ public class FileSearch {
     }
 
     private void clearResults() {
-        totalFindCount = 0;
-        fileCount = 0;
+        totalFindCount.set(0);
+        fileCount.set(0);
+        pendingResults.clear();
 
         if (searchResults == null) {
             searchResults = new Vector();
@@ -95,6 +95,16 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
      */
     private FileSearch fileSearch;
 
+    /**
+     * The find button
+     */
+    private JButton findButton;
+
+    /**
+     * The stop button of a running search
+     */
+    private JButton stopButton;
+
     public SearchFilesDialog() {
 
         super(GUIUtilities.getParentFrame(), "Search Files", false);
@@ -160,7 +170,9 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
         browseButton.setMargin(new Insets(0, 0, 0, 0));
         browseButton.setPreferredSize(new Dimension(85, 22));
 
-        JButton findButton = new DefaultPanelButton("Find");
+        findButton = new DefaultPanelButton("Find");
+        stopButton = new DefaultPanelButton("Stop");
+        stopButton.setEnabled(false);
         JButton cancelButton = new DefaultPanelButton(Bundles.get("common.close.button"));
 
         resultsList = new JList();
@@ -244,7 +256,10 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
         gbc.insets.top = 0;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 1.0;
-        panel.add(findButton, gbc);
+        JPanel searchButtonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        searchButtonsPanel.add(findButton);
+        searchButtonsPanel.add(stopButton);
+        panel.add(searchButtonsPanel, gbc);
         gbc.gridx = 2;
         gbc.insets.left = 0;
         gbc.weightx = 0;
@@ -277,6 +292,7 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
 
         browseButton.addActionListener(buttonListener);
         findButton.addActionListener(buttonListener);
+        stopButton.addActionListener(buttonListener);
         cancelButton.addActionListener(buttonListener);
 
         fileSearch = new FileSearch(this);
@@ -301,6 +317,9 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
 
     public void finished() {
 
+        findButton.setEnabled(true);
+        stopButton.setEnabled(false);
+
         if (replaceCheck.isSelected()) {
             //      resultsScroll.getViewport().setViewPosition(new Point (0, resultsList.getHeight()));
             //    JScrollBar verticalScrollBar = resultsScroll.getVerticalScrollBar();
@@ -371,7 +390,11 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
             fileSearch.setSearchPath(file.getAbsolutePath());
             pathCombo.setModel(new DefaultComboBoxModel(fileSearch.getPathValues()));
 
+        } else if (command.equals("Stop")) {
+            fileSearch.cancel();
+
         } else if (command.equals("Close")) {
+            fileSearch.cancel();
             dispose();
         } else if (command.equals("Find")) {
             String searchText = findTextArea.getText();
@@ -440,6 +463,8 @@ public class SearchFilesDialog extends AbstractBaseDialog implements FileSearchV
             fileSearch.setSearchingSubdirs(searchSubdirsCheck.isSelected());
             fileSearch.setMatchingCase(matchCaseCheck.isSelected());
 
+            findButton.setEnabled(false);
+            stopButton.setEnabled(true);
             fileSearch.doSearch();
 
         }
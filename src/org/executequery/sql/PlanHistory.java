@@ -0,0 +1,1010 @@
+/*
+ * PlanHistory.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.sql;
+
+import biz.redsoft.IFBPerformanceInfo;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.log.Log;
+import org.executequery.util.SystemResources;
+import org.underworldlabs.sqlLexer.SqlLexer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The history of the plans, execution times and performance counters
+ * of the statements executed on a connection.
+ * <p>
+ * Statements are identified by their fingerprint - the statement with
+ * comments removed, white space collapsed and literals replaced by
+ * parameters - so executions differing in their values only share
+ * one history. Recording an execution checks it against the history
+ * for a changed plan or a regressed cost, as after an index rebuild,
+ * a statistics update or a server upgrade.
+ * <p>
+ * The history is appended to a file per connection in the user
+ * settings directory and compacted to the latest executions of each
+ * statement once it grows. The files of all connections are written
+ * on one background thread, see {@link Appender}.
+ *
+ * @author Takis Diakoumis
+ */
+public final class PlanHistory {
+
+    private static final String DIRECTORY = "plan-history";
+
+    private static final int FILE_VERSION = 1;
+
+    private static final byte STATEMENT_RECORD = 1;
+    private static final byte PLAN_RECORD = 2;
+    private static final byte EXECUTION_RECORD = 3;
+
+    /**
+     * the executions kept per statement
+     */
+    private static final int MAX_EXECUTIONS = 50;
+
+    /**
+     * the statements kept - the least recently executed are dropped
+     */
+    private static final int MAX_STATEMENTS = 2000;
+
+    /**
+     * the latest executions a new one is compared with
+     */
+    private static final int COMPARED_EXECUTIONS = 20;
+
+    private static final int MIN_COMPARED_EXECUTIONS = 3;
+
+    private static final int REGRESSION_FACTOR = 2;
+
+    private static final long MIN_TIME_INCREASE = 100;
+
+    private static final long MIN_FETCHES_INCREASE = 1000;
+
+    private static final Map<String, PlanHistory> HISTORIES = new HashMap<>();
+
+    private static final Appender APPENDER = new Appender();
+
+    private final DatabaseConnection databaseConnection;
+
+    /**
+     * the statements by the hash of their fingerprint in the order of
+     * their last execution
+     */
+    private final LinkedHashMap<Long, StatementHistory> statements = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final Map<Long, String> plans = new HashMap<>();
+
+    private boolean loaded;
+
+    /**
+     * the records in the file beyond the ones kept - the file is
+     * compacted once they outnumber the executions kept
+     */
+    private int droppedRecords;
+
+    /**
+     * the server version of the connection recorded with the executions
+     */
+    private volatile String serverVersion;
+
+    private PlanHistory(DatabaseConnection databaseConnection) {
+        this.databaseConnection = databaseConnection;
+    }
+
+    /**
+     * Returns the history of the specified connection.
+     */
+    public static PlanHistory getInstance(DatabaseConnection databaseConnection) {
+
+        synchronized (HISTORIES) {
+
+            PlanHistory history = HISTORIES.get(databaseConnection.getId());
+            if (history == null) {
+
+                history = new PlanHistory(databaseConnection);
+                HISTORIES.put(databaseConnection.getId(), history);
+            }
+            return history;
+        }
+    }
+
+    /**
+     * Releases the history of the specified connection - the saved
+     * history is kept for the next connect.
+     */
+    public static void release(DatabaseConnection databaseConnection) {
+
+        synchronized (HISTORIES) {
+            HISTORIES.remove(databaseConnection.getId());
+        }
+    }
+
+    /**
+     * Returns the server version recorded with the executions or null
+     * if not set since the connection was opened.
+     */
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public void setServerVersion(String serverVersion) {
+        this.serverVersion = serverVersion;
+    }
+
+    /**
+     * Records an execution of the statement and checks it against the
+     * previous executions.
+     *
+     * @param query    the statement executed
+     * @param plan     the plan of the statement or null if not available
+     * @param time     the execution time in millis or -1 if the
+     *                 statement was prepared only
+     * @param counters the performance counters of the execution or null
+     * @return the result of the check
+     */
+    public synchronized Check record(String query, String plan, long time, IFBPerformanceInfo counters) {
+
+        load();
+
+        String fingerprint = fingerprint(query);
+        long key = hash(fingerprint);
+        List<byte[]> records = new ArrayList<>(3);
+
+        StatementHistory statement = statements.get(key);
+        if (statement == null) {
+
+            statement = new StatementHistory(key, fingerprint);
+            statements.put(key, statement);
+            records.add(statement.toRecord());
+        }
+
+        long planKey = 0;
+        plan = normalizePlan(plan);
+        if (plan != null) {
+
+            planKey = hash(plan);
+            if (!plans.containsKey(planKey)) {
+
+                plans.put(planKey, plan);
+                records.add(planRecord(planKey, plan));
+            }
+        }
+
+        Execution execution = counters != null
+                ? new Execution(System.currentTimeMillis(), time, counters.getPerfReads(),
+                counters.getPerfFetches(), counters.getPerfWrites(), counters.getPerfMarks(), planKey, serverVersion)
+                : new Execution(System.currentTimeMillis(), time, -1, -1, -1, -1, planKey, serverVersion);
+
+        Check check = statement.check(execution);
+        if (check.previousPlanKey != 0) {
+            check.previousPlan = plans.get(check.previousPlanKey);
+        }
+        droppedRecords += statement.add(execution);
+        records.add(execution.toRecord(key));
+        dropLeastRecent();
+
+        if (droppedRecords > MAX_EXECUTIONS && droppedRecords > executionCount()) {
+            save();
+        } else {
+            append(records);
+        }
+
+        return check;
+    }
+
+    /**
+     * Returns the recorded executions of the statement - the latest
+     * first.
+     */
+    public synchronized List<Execution> getExecutions(String query) {
+
+        load();
+
+        StatementHistory statement = statements.get(hash(fingerprint(query)));
+        if (statement == null) {
+            return Collections.emptyList();
+        }
+
+        List<Execution> executions = new ArrayList<>(statement.executions);
+        Collections.reverse(executions);
+        return executions;
+    }
+
+    /**
+     * Returns the plan of the execution or null if none was recorded.
+     */
+    public synchronized String getPlan(Execution execution) {
+
+        return execution.planKey != 0 ? plans.get(execution.planKey) : null;
+    }
+
+    private void dropLeastRecent() {
+
+        Iterator<StatementHistory> iterator = statements.values().iterator();
+        while (statements.size() > MAX_STATEMENTS && iterator.hasNext()) {
+
+            droppedRecords += iterator.next().executions.size() + 1;
+            iterator.remove();
+        }
+    }
+
+    private int executionCount() {
+
+        int count = 0;
+        for (StatementHistory statement : statements.values()) {
+            count += statement.executions.size();
+        }
+        return count;
+    }
+
+    // ------------------------------------------------
+    // fingerprints
+    // ------------------------------------------------
+
+    /**
+     * Returns the statement with comments removed, the tokens separated
+     * by single spaces, the keywords and unquoted names in upper case
+     * and the literals and parameters replaced by ? - a list of values
+     * collapses into one.
+     */
+    public static String fingerprint(String query) {
+
+        SqlLexer lexer = new SqlLexer(CharStreams.fromString(query));
+        lexer.removeErrorListeners();
+
+        List<String> tokens = new ArrayList<>();
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+
+            String text = token.getText();
+            switch (token.getType()) {
+
+                case SqlLexer.NUMERIC_LITERAL:
+                case SqlLexer.STRING_LITERAL:
+                case SqlLexer.BIND_PARAMETER:
+                    addParameter(tokens);
+                    break;
+
+                case SqlLexer.LINTERAL_VALUE:
+                    if (text.length() > 1 && text.charAt(1) == '\'') {
+                        addParameter(tokens);
+                    } else {
+                        tokens.add(text.toUpperCase());
+                    }
+                    break;
+
+                default:
+                    tokens.add(text.indexOf('"') == -1 ? text.toUpperCase() : text);
+            }
+        }
+
+        int last = tokens.size() - 1;
+        if (last >= 0 && ";".equals(tokens.get(last))) {
+            tokens.remove(last);
+        }
+        return String.join(" ", tokens);
+    }
+
+    private static void addParameter(List<String> tokens) {
+
+        int size = tokens.size();
+        if (size > 1 && ",".equals(tokens.get(size - 1)) && "?".equals(tokens.get(size - 2))) {
+
+            tokens.remove(size - 1);
+            return;
+        }
+        tokens.add("?");
+    }
+
+    /**
+     * Returns the plan with its lines trimmed or null if empty.
+     */
+    static String normalizePlan(String plan) {
+
+        if (plan == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(plan.length());
+        for (String line : plan.split("\r?\n")) {
+
+            String trimmed = line.replaceAll("\\s+$", "");
+            if (!trimmed.trim().isEmpty()) {
+                sb.append(trimmed).append('\n');
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    private static long hash(String value) {
+
+        return ((long) value.length() << 32) | (value.hashCode() & 0xffffffffL);
+    }
+
+    // ------------------------------------------------
+    // storage
+    // ------------------------------------------------
+
+    private File historyFile() {
+
+        return new File(SystemResources.userSettingsDirectoryForCurrentBuild()
+                + DIRECTORY + File.separator + databaseConnection.getId().replaceAll("[^A-Za-z0-9_.-]", "_")
+                + ".history");
+    }
+
+    private void load() {
+
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        File file = historyFile();
+        if (!file.exists()) {
+            return;
+        }
+
+        // the records of a previous connect may be still waiting
+        APPENDER.await();
+
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+            if (in.readInt() != FILE_VERSION) {
+
+                droppedRecords = Integer.MAX_VALUE;
+                return;
+            }
+
+            int type;
+            while ((type = in.read()) != -1) {
+
+                records++;
+                switch (type) {
+
+                    case STATEMENT_RECORD:
+                        StatementHistory statement = StatementHistory.read(in);
+                        statements.putIfAbsent(statement.key, statement);
+                        break;
+
+                    case PLAN_RECORD:
+                        plans.put(in.readLong(), readString(in));
+                        break;
+
+                    case EXECUTION_RECORD:
+                        long key = in.readLong();
+                        Execution execution = Execution.read(in);
+                        StatementHistory history = statements.get(key);
+                        if (history != null) {
+                            history.add(execution);
+                        }
+                        break;
+
+                    default:
+                        throw new IOException("Unknown record type " + type);
+                }
+            }
+
+        } catch (EOFException e) {
+
+            // a record cut off when the application was terminated
+            records = Integer.MAX_VALUE;
+
+        } catch (IOException e) {
+
+            Log.warning("Error reading plan history of " + databaseConnection.getName() + ": " + e.getMessage());
+            records = Integer.MAX_VALUE;
+        }
+
+        dropLeastRecent();
+        int kept = executionCount() + statements.size() + plans.size();
+        droppedRecords = records - kept;
+
+        if (droppedRecords > MAX_EXECUTIONS && droppedRecords > executionCount()) {
+            save();
+        }
+    }
+
+    private void append(List<byte[]> records) {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] record : records) {
+            bytes.write(record, 0, record.length);
+        }
+        APPENDER.append(historyFile(), bytes.toByteArray());
+    }
+
+    /**
+     * Rewrites the file with the statements, plans and executions kept.
+     */
+    private void save() {
+
+        Set<Long> usedPlans = new HashSet<>();
+        for (StatementHistory statement : statements.values()) {
+            for (Execution execution : statement.executions) {
+                usedPlans.add(execution.planKey);
+            }
+        }
+        plans.keySet().retainAll(usedPlans);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+
+            out.writeInt(FILE_VERSION);
+            for (Map.Entry<Long, String> entry : plans.entrySet()) {
+                out.write(planRecord(entry.getKey(), entry.getValue()));
+            }
+
+            // least recent first to be read back in the same order
+            for (StatementHistory statement : statements.values()) {
+
+                out.write(statement.toRecord());
+                for (Execution execution : statement.executions) {
+                    out.write(execution.toRecord(statement.key));
+                }
+            }
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        APPENDER.rewrite(historyFile(), bytes.toByteArray());
+        droppedRecords = 0;
+    }
+
+    private static byte[] planRecord(long key, String plan) {
+
+        try {
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(PLAN_RECORD);
+            out.writeLong(key);
+            writeString(out, plan);
+            return bytes.toByteArray();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the history files of all connections on one background
+     * thread in the order requested. The file written last is kept open
+     * with its records buffered while more are waiting and closed once
+     * no records were requested for a moment.
+     */
+    private static final class Appender implements Runnable {
+
+        /**
+         * the seconds an idle file is kept open
+         */
+        private static final int IDLE_SECONDS = 2;
+
+        private final BlockingQueue<Write> writes = new LinkedBlockingQueue<>();
+
+        private Thread thread;
+
+        private File openFile;
+
+        private DataOutputStream out;
+
+        void append(File file, byte[] records) {
+            submit(new Write(file, records, false, null));
+        }
+
+        /**
+         * Replaces the content of the file once the records waiting
+         * for it are written.
+         */
+        void rewrite(File file, byte[] content) {
+            submit(new Write(file, content, true, null));
+        }
+
+        /**
+         * Waits for the writes requested so far.
+         */
+        void await() {
+
+            CountDownLatch written = new CountDownLatch(1);
+            submit(new Write(null, null, false, written));
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized void submit(Write write) {
+
+            if (thread == null) {
+
+                thread = new Thread(this, "PlanHistoryAppender");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            writes.add(write);
+        }
+
+        @Override
+        public void run() {
+
+            while (true) {
+
+                try {
+
+                    Write write = writes.poll(IDLE_SECONDS, TimeUnit.SECONDS);
+                    if (write == null) {
+
+                        close();
+                        write = writes.take();
+                    }
+
+                    write(write);
+                    if (writes.isEmpty() && out != null) {
+                        out.flush();
+                    }
+
+                } catch (InterruptedException e) {
+
+                    close();
+                    return;
+
+                } catch (IOException e) {
+
+                    Log.warning("Error writing plan history file " + openFile + ": " + e.getMessage());
+                    close();
+                }
+            }
+        }
+
+        private void write(Write write) throws IOException {
+
+            if (write.written != null) {
+
+                if (out != null) {
+                    out.flush();
+                }
+                write.written.countDown();
+                return;
+            }
+
+            if (!write.file.equals(openFile) || write.rewrite) {
+                close();
+            }
+
+            File directory = write.file.getParentFile();
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create directory " + directory);
+            }
+
+            if (write.rewrite) {
+
+                File temp = new File(write.file.getPath() + ".tmp");
+                try (OutputStream tempOut = new FileOutputStream(temp)) {
+                    tempOut.write(write.content);
+                }
+
+                if (write.file.exists() && !write.file.delete() || !temp.renameTo(write.file)) {
+
+                    temp.delete();
+                    throw new IOException("Unable to replace plan history file " + write.file);
+                }
+                return;
+            }
+
+            if (out == null) {
+
+                boolean exists = write.file.exists();
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(write.file, true)));
+                openFile = write.file;
+                if (!exists) {
+                    out.writeInt(FILE_VERSION);
+                }
+            }
+            out.write(write.content);
+        }
+
+        private void close() {
+
+            if (out != null) {
+
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.warning("Error closing plan history file " + openFile + ": " + e.getMessage());
+                }
+                out = null;
+            }
+            openFile = null;
+        }
+
+    } // class Appender
+
+    /**
+     * A write of the appender - records appended to the file, the
+     * content replacing the file or the notification of the writes
+     * requested before.
+     */
+    private static final class Write {
+
+        private final File file;
+
+        private final byte[] content;
+
+        private final boolean rewrite;
+
+        private final CountDownLatch written;
+
+        Write(File file, byte[] content, boolean rewrite, CountDownLatch written) {
+            this.file = file;
+            this.content = content;
+            this.rewrite = rewrite;
+            this.written = written;
+        }
+
+    } // class Write
+
+    /**
+     * The executions recorded for one statement fingerprint - the
+     * oldest first.
+     */
+    private static final class StatementHistory {
+
+        private final long key;
+
+        private final String fingerprint;
+
+        private final ArrayDeque<Execution> executions = new ArrayDeque<>();
+
+        StatementHistory(long key, String fingerprint) {
+
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Adds the execution and returns the number of executions
+         * dropped.
+         */
+        int add(Execution execution) {
+
+            executions.addLast(execution);
+            if (executions.size() > MAX_EXECUTIONS) {
+
+                executions.removeFirst();
+                return 1;
+            }
+            return 0;
+        }
+
+        Check check(Execution execution) {
+
+            Check check = new Check();
+
+            Iterator<Execution> iterator = executions.descendingIterator();
+            Execution last = iterator.hasNext() ? executions.getLast() : null;
+            if (last != null && last.serverVersion != null && execution.serverVersion != null
+                    && !last.serverVersion.equals(execution.serverVersion)) {
+
+                check.previousServerVersion = last.serverVersion;
+            }
+
+            List<Long> times = new ArrayList<>();
+            List<Long> fetches = new ArrayList<>();
+            boolean planCompared = execution.planKey == 0;
+
+            while (iterator.hasNext()) {
+
+                Execution previous = iterator.next();
+                if (!planCompared && previous.planKey != 0) {
+
+                    planCompared = true;
+                    if (previous.planKey != execution.planKey) {
+
+                        check.previousPlanKey = previous.planKey;
+                        check.previousPlanExecuted = previous.executed;
+                    }
+                }
+
+                if (previous.time >= 0 && times.size() < COMPARED_EXECUTIONS) {
+                    times.add(previous.time);
+                }
+                if (previous.fetches >= 0 && fetches.size() < COMPARED_EXECUTIONS) {
+                    fetches.add(previous.fetches);
+                }
+            }
+
+            if (execution.time >= 0 && times.size() >= MIN_COMPARED_EXECUTIONS) {
+
+                long median = median(times);
+                check.medianTime = median;
+                check.timeRegressed = execution.time > median * REGRESSION_FACTOR
+                        && execution.time - median >= MIN_TIME_INCREASE;
+            }
+
+            if (execution.fetches >= 0 && fetches.size() >= MIN_COMPARED_EXECUTIONS) {
+
+                long median = median(fetches);
+                check.medianFetches = median;
+                check.fetchesRegressed = execution.fetches > median * REGRESSION_FACTOR
+                        && execution.fetches - median >= MIN_FETCHES_INCREASE;
+            }
+
+            return check;
+        }
+
+        private static long median(List<Long> values) {
+
+            Collections.sort(values);
+            return values.get(values.size() / 2);
+        }
+
+        byte[] toRecord() {
+
+            try {
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(STATEMENT_RECORD);
+                out.writeLong(key);
+                writeString(out, fingerprint);
+                return bytes.toByteArray();
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static StatementHistory read(DataInputStream in) throws IOException {
+
+            long key = in.readLong();
+            return new StatementHistory(key, readString(in));
+        }
+
+    } // class StatementHistory
+
+    /**
+     * One recorded execution of a statement.
+     */
+    public static final class Execution {
+
+        private final long executed;
+
+        private final long time;
+
+        private final long reads;
+
+        private final long fetches;
+
+        private final long writes;
+
+        private final long marks;
+
+        private final long planKey;
+
+        private final String serverVersion;
+
+        Execution(long executed, long time, long reads, long fetches,
+                  long writes, long marks, long planKey, String serverVersion) {
+
+            this.executed = executed;
+            this.time = time;
+            this.reads = reads;
+            this.fetches = fetches;
+            this.writes = writes;
+            this.marks = marks;
+            this.planKey = planKey;
+            this.serverVersion = serverVersion;
+        }
+
+        public long getExecuted() {
+            return executed;
+        }
+
+        /**
+         * Returns the execution time in millis or -1 if the statement
+         * was prepared only.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the page reads or -1 if not available - as the other
+         * performance counters.
+         */
+        public long getReads() {
+            return reads;
+        }
+
+        public long getFetches() {
+            return fetches;
+        }
+
+        public long getWrites() {
+            return writes;
+        }
+
+        public long getMarks() {
+            return marks;
+        }
+
+        /**
+         * Returns the key identifying the plan of the execution or 0 if
+         * no plan was recorded.
+         */
+        public long getPlanKey() {
+            return planKey;
+        }
+
+        public String getServerVersion() {
+            return serverVersion;
+        }
+
+        byte[] toRecord(long statementKey) {
+
+            try {
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(80);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(EXECUTION_RECORD);
+                out.writeLong(statementKey);
+                out.writeLong(executed);
+                out.writeLong(time);
+                out.writeLong(reads);
+                out.writeLong(fetches);
+                out.writeLong(writes);
+                out.writeLong(marks);
+                out.writeLong(planKey);
+                writeString(out, serverVersion != null ? serverVersion : "");
+                return bytes.toByteArray();
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static Execution read(DataInputStream in) throws IOException {
+
+            long executed = in.readLong();
+            long time = in.readLong();
+            long reads = in.readLong();
+            long fetches = in.readLong();
+            long writes = in.readLong();
+            long marks = in.readLong();
+            long planKey = in.readLong();
+            String serverVersion = readString(in);
+
+            return new Execution(executed, time, reads, fetches, writes, marks, planKey,
+                    serverVersion.isEmpty() ? null : serverVersion);
+        }
+
+    } // class Execution
+
+    /**
+     * The differences of an execution from the previous executions of
+     * its statement.
+     */
+    public static final class Check {
+
+        private long previousPlanKey;
+
+        private String previousPlan;
+
+        private long previousPlanExecuted;
+
+        private String previousServerVersion;
+
+        private long medianTime = -1;
+
+        private long medianFetches = -1;
+
+        private boolean timeRegressed;
+
+        private boolean fetchesRegressed;
+
+        private Check() {
+        }
+
+        public boolean isPlanChanged() {
+            return previousPlanKey != 0;
+        }
+
+        /**
+         * Returns the plan of the latest previous execution with a
+         * different plan.
+         */
+        public String getPreviousPlan() {
+            return previousPlan;
+        }
+
+        /**
+         * Returns when the previous plan was last executed.
+         */
+        public long getPreviousPlanExecuted() {
+            return previousPlanExecuted;
+        }
+
+        public boolean isServerVersionChanged() {
+            return previousServerVersion != null;
+        }
+
+        public String getPreviousServerVersion() {
+            return previousServerVersion;
+        }
+
+        public boolean isTimeRegressed() {
+            return timeRegressed;
+        }
+
+        /**
+         * Returns the median time of the latest executions compared or
+         * -1 if too few were recorded.
+         */
+        public long getMedianTime() {
+            return medianTime;
+        }
+
+        public boolean isFetchesRegressed() {
+            return fetchesRegressed;
+        }
+
+        public long getMedianFetches() {
+            return medianFetches;
+        }
+
+        /**
+         * Returns whether the plan changed or the cost regressed.
+         */
+        public boolean isRegression() {
+            return isPlanChanged() || timeRegressed || fetchesRegressed;
+        }
+
+    } // class Check
+
+}
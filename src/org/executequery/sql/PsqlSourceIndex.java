@@ -0,0 +1,701 @@
+/*
+ * PsqlSourceIndex.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.sql;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.databasemediators.spi.DefaultStatementExecutor;
+import org.executequery.databaseobjects.NamedObject;
+import org.executequery.log.Log;
+import org.executequery.util.SystemResources;
+import org.underworldlabs.sqlLexer.SqlLexer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Inverted index of the identifiers used in the PSQL source of the
+ * procedures, functions, triggers, packages and views of one
+ * database connection.
+ * <p>
+ * The sources are fetched with one query per object kind and split
+ * into tokens with the SQL lexer of the editor - for every identifier
+ * the lines using it are kept per object. Qualified names are indexed
+ * as a whole and as their single parts, so looking up a column finds
+ * both the qualified and the unqualified uses.
+ * <p>
+ * The index is saved in the user settings directory and loaded again
+ * on the next connect. A refresh fetches all sources again but only
+ * objects whose source changed are tokenized.
+ *
+ * @author Takis Diakoumis
+ */
+public final class PsqlSourceIndex {
+
+    private static final String DIRECTORY = "psql-index";
+
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * the trigger type bits of database and DDL triggers
+     */
+    private static final int TRIGGER_KIND_MASK = 0x6000;
+    private static final int DATABASE_TRIGGER_KIND = 0x2000;
+    private static final int DDL_TRIGGER_KIND = 0x4000;
+
+    private static final String PROCEDURES_QUERY =
+            "select RDB$PROCEDURE_NAME, RDB$PROCEDURE_SOURCE from RDB$PROCEDURES\n" +
+                    "where coalesce(RDB$SYSTEM_FLAG, 0) = 0";
+
+    private static final String PACKAGE_CONDITION = "\nand RDB$PACKAGE_NAME is null";
+
+    private static final String FUNCTIONS_QUERY =
+            "select RDB$FUNCTION_NAME, RDB$FUNCTION_SOURCE from RDB$FUNCTIONS\n" +
+                    "where coalesce(RDB$SYSTEM_FLAG, 0) = 0 and RDB$PACKAGE_NAME is null\n" +
+                    "and RDB$FUNCTION_SOURCE is not null";
+
+    private static final String TRIGGERS_QUERY =
+            "select RDB$TRIGGER_NAME, RDB$TRIGGER_SOURCE, RDB$TRIGGER_TYPE from RDB$TRIGGERS\n" +
+                    "where coalesce(RDB$SYSTEM_FLAG, 0) = 0";
+
+    private static final String PACKAGES_QUERY =
+            "select RDB$PACKAGE_NAME, RDB$PACKAGE_HEADER_SOURCE, RDB$PACKAGE_BODY_SOURCE from RDB$PACKAGES\n" +
+                    "where coalesce(RDB$SYSTEM_FLAG, 0) = 0";
+
+    private static final String VIEWS_QUERY =
+            "select RDB$RELATION_NAME, RDB$VIEW_SOURCE from RDB$RELATIONS\n" +
+                    "where coalesce(RDB$SYSTEM_FLAG, 0) = 0 and RDB$VIEW_BLR is not null";
+
+    private static final Map<String, PsqlSourceIndex> INDEXES = new HashMap<>();
+
+    private final DatabaseConnection databaseConnection;
+
+    /**
+     * the indexed objects and the objects using each identifier
+     */
+    private volatile Snapshot snapshot = new Snapshot(new LinkedHashMap<>());
+
+    private volatile boolean loaded;
+
+    private volatile boolean stale = true;
+
+    private volatile long refreshTime;
+
+    private PsqlSourceIndex(DatabaseConnection databaseConnection) {
+        this.databaseConnection = databaseConnection;
+    }
+
+    /**
+     * Returns the index of the specified connection.
+     */
+    public static PsqlSourceIndex getInstance(DatabaseConnection databaseConnection) {
+
+        synchronized (INDEXES) {
+
+            PsqlSourceIndex index = INDEXES.get(databaseConnection.getId());
+            if (index == null) {
+
+                index = new PsqlSourceIndex(databaseConnection);
+                INDEXES.put(databaseConnection.getId(), index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Marks the index of the specified connection for refresh - called
+     * once objects with source were changed.
+     */
+    public static void invalidate(DatabaseConnection databaseConnection) {
+
+        synchronized (INDEXES) {
+
+            PsqlSourceIndex index = INDEXES.get(databaseConnection.getId());
+            if (index != null) {
+                index.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Releases the index of the specified connection - the saved
+     * index is kept for the next connect.
+     */
+    public static void release(DatabaseConnection databaseConnection) {
+
+        synchronized (INDEXES) {
+            INDEXES.remove(databaseConnection.getId());
+        }
+    }
+
+    /**
+     * Returns whether objects of the specified type have source
+     * indexed here.
+     */
+    public static boolean isIndexedType(int type) {
+
+        return type == NamedObject.PROCEDURE
+                || type == NamedObject.FUNCTION
+                || type == NamedObject.PACKAGE
+                || type == NamedObject.TRIGGER
+                || type == NamedObject.DDL_TRIGGER
+                || type == NamedObject.DATABASE_TRIGGER
+                || type == NamedObject.VIEW;
+    }
+
+    public DatabaseConnection getDatabaseConnection() {
+        return databaseConnection;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Returns the time of the last refresh or 0 if the index was only
+     * loaded from disk so far.
+     */
+    public long getRefreshTime() {
+        return refreshTime;
+    }
+
+    public int getObjectCount() {
+        return snapshot.objects.size();
+    }
+
+    /**
+     * Loads the saved index if not loaded yet.
+     */
+    public synchronized void load() {
+
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        File file = indexFile();
+        if (!file.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+
+            if (in.readInt() != FILE_VERSION) {
+                return;
+            }
+
+            int count = in.readInt();
+            Map<String, SourceObject> objects = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+
+                SourceObject object = SourceObject.read(in);
+                objects.put(object.key(), object);
+            }
+            snapshot = new Snapshot(objects);
+
+        } catch (IOException e) {
+
+            Log.warning("Error reading source index of " + databaseConnection.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Refreshes the index if marked for refresh.
+     */
+    public void refreshIfStale() throws SQLException {
+
+        if (stale) {
+            refresh();
+        }
+    }
+
+    /**
+     * Fetches the sources of all objects and tokenizes the new and
+     * changed ones - the index is saved if anything changed.
+     */
+    public synchronized void refresh() throws SQLException {
+
+        load();
+        stale = false;
+
+        Map<String, SourceObject> previous = snapshot.objects;
+        Map<String, SourceObject> objects = new LinkedHashMap<>(previous.size() * 2 + 16);
+        int[] tokenized = {0};
+
+        DefaultStatementExecutor querySender = new DefaultStatementExecutor(databaseConnection, true);
+        try {
+
+            boolean packages = databaseConnection.getServerVersion() >= 3;
+
+            read(querySender, packages ? PROCEDURES_QUERY + PACKAGE_CONDITION : PROCEDURES_QUERY, rs ->
+                    add(objects, previous, tokenized, NamedObject.PROCEDURE, false, rs.getString(1), rs.getString(2)));
+
+            read(querySender, TRIGGERS_QUERY, rs ->
+                    add(objects, previous, tokenized, triggerType(rs.getLong(3)), false, rs.getString(1), rs.getString(2)));
+
+            read(querySender, VIEWS_QUERY, rs ->
+                    add(objects, previous, tokenized, NamedObject.VIEW, false, rs.getString(1), rs.getString(2)));
+
+            if (packages) {
+
+                read(querySender, FUNCTIONS_QUERY, rs ->
+                        add(objects, previous, tokenized, NamedObject.FUNCTION, false, rs.getString(1), rs.getString(2)));
+
+                read(querySender, PACKAGES_QUERY, rs -> {
+
+                    String name = rs.getString(1);
+                    add(objects, previous, tokenized, NamedObject.PACKAGE, false, name, rs.getString(2));
+                    add(objects, previous, tokenized, NamedObject.PACKAGE, true, name, rs.getString(3));
+                });
+            }
+
+        } catch (SQLException e) {
+
+            stale = true;
+            throw e;
+
+        } finally {
+
+            querySender.releaseResources();
+        }
+
+        refreshTime = System.currentTimeMillis();
+        if (tokenized[0] == 0 && objects.keySet().equals(previous.keySet())) {
+            return;
+        }
+
+        snapshot = new Snapshot(objects);
+        Log.debug("Source index of " + databaseConnection.getName() + " refreshed - "
+                + tokenized[0] + " of " + objects.size() + " objects tokenized");
+        save(objects);
+    }
+
+    /**
+     * Returns the objects using the specified name with the lines of
+     * the uses. A qualified name <code>TABLE.COLUMN</code> finds the
+     * objects using both the table and the column - objects using the
+     * qualified name itself are marked as exact.
+     */
+    public List<Usage> findUsages(String name) {
+
+        Snapshot current = snapshot;
+        List<String> parts = splitName(name.trim());
+        if (parts.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String last = parts.get(parts.size() - 1);
+        String qualified = String.join(".", parts);
+
+        List<Usage> usages = new ArrayList<>();
+        for (SourceObject object : current.objectsUsing(last)) {
+
+            boolean usesAll = true;
+            for (int i = 0; i < parts.size() - 1 && usesAll; i++) {
+                usesAll = object.tokens.containsKey(parts.get(i));
+            }
+
+            if (usesAll) {
+                usages.add(new Usage(object, object.tokens.get(last), object.tokens.containsKey(qualified)));
+            }
+        }
+
+        usages.sort((u1, u2) -> Boolean.compare(u2.exact, u1.exact));
+        return usages;
+    }
+
+    private interface RowReader {
+
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    private void read(DefaultStatementExecutor querySender, String query, RowReader reader) throws SQLException {
+
+        SqlStatementResult result = querySender.getResultSet(query);
+        if (result.isException()) {
+            throw new SQLException(result.getErrorMessage());
+        }
+
+        try (ResultSet rs = result.getResultSet()) {
+
+            while (rs.next()) {
+                reader.read(rs);
+            }
+        }
+    }
+
+    private static void add(Map<String, SourceObject> objects, Map<String, SourceObject> previous,
+                            int[] tokenized, int type, boolean body, String name, String source) {
+
+        if (name == null || source == null) {
+            return;
+        }
+
+        name = name.trim();
+        long hash = hash(source);
+        String key = SourceObject.key(type, body, name);
+
+        SourceObject object = previous.get(key);
+        if (object == null || object.hash != hash) {
+
+            object = new SourceObject(type, body, name, hash, tokenize(source));
+            tokenized[0]++;
+        }
+        objects.put(key, object);
+    }
+
+    private static int triggerType(long triggerType) {
+
+        long kind = triggerType & TRIGGER_KIND_MASK;
+        if (kind == DATABASE_TRIGGER_KIND) {
+            return NamedObject.DATABASE_TRIGGER;
+        }
+        if (kind == DDL_TRIGGER_KIND) {
+            return NamedObject.DDL_TRIGGER;
+        }
+        return NamedObject.TRIGGER;
+    }
+
+    /**
+     * Returns the lines of each identifier used in the source.
+     */
+    static Map<String, int[]> tokenize(String source) {
+
+        Map<String, List<Integer>> lines = new HashMap<>();
+        SqlLexer lexer = new SqlLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+
+            String text = token.getText();
+            switch (token.getType()) {
+
+                case SqlLexer.IDENTIFIER:
+                case SqlLexer.KEYWORD:
+                    addToken(lines, normalize(text), token.getLine());
+                    break;
+
+                case SqlLexer.BIND_PARAMETER:
+                    if (text.length() > 1 && text.charAt(0) == ':') {
+                        addToken(lines, normalize(text.substring(1)), token.getLine());
+                    }
+                    break;
+
+                case SqlLexer.PART_OBJECT:
+                    List<String> parts = splitName(text);
+                    for (String part : parts) {
+                        addToken(lines, part, token.getLine());
+                    }
+                    addToken(lines, String.join(".", parts), token.getLine());
+                    break;
+            }
+        }
+
+        Map<String, int[]> tokens = new HashMap<>(lines.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : lines.entrySet()) {
+
+            List<Integer> tokenLines = entry.getValue();
+            int[] values = new int[tokenLines.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tokenLines.get(i);
+            }
+            tokens.put(entry.getKey(), values);
+        }
+        return tokens;
+    }
+
+    private static void addToken(Map<String, List<Integer>> lines, String token, int line) {
+
+        if (token.isEmpty()) {
+            return;
+        }
+
+        List<Integer> tokenLines = lines.computeIfAbsent(token, k -> new ArrayList<>(2));
+        if (tokenLines.isEmpty() || tokenLines.get(tokenLines.size() - 1) != line) {
+            tokenLines.add(line);
+        }
+    }
+
+    /**
+     * Splits a possibly qualified and quoted name into its normalized
+     * parts.
+     */
+    static List<String> splitName(String name) {
+
+        List<String> parts = new ArrayList<>(2);
+        int start = 0;
+        boolean quoted = false;
+
+        for (int i = 0; i < name.length(); i++) {
+
+            char c = name.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+
+            } else if (c == '.' && !quoted) {
+
+                addPart(parts, name.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addPart(parts, name.substring(start));
+
+        return parts;
+    }
+
+    private static void addPart(List<String> parts, String part) {
+
+        part = normalize(part.trim());
+        if (!part.isEmpty()) {
+            parts.add(part);
+        }
+    }
+
+    /**
+     * Returns the name as stored in the system tables - quoted names
+     * as written and other names in upper case.
+     */
+    static String normalize(String name) {
+
+        if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+            return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        return name.toUpperCase();
+    }
+
+    private static long hash(String source) {
+
+        return ((long) source.length() << 32) | (source.hashCode() & 0xffffffffL);
+    }
+
+    private File indexFile() {
+
+        return new File(SystemResources.userSettingsDirectoryForCurrentBuild()
+                + DIRECTORY + File.separator + fileName(databaseConnection.getId()) + ".idx");
+    }
+
+    private static String fileName(String id) {
+        return id.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private void save(Map<String, SourceObject> objects) {
+
+        File file = indexFile();
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+
+            Log.warning("Unable to create directory " + directory);
+            return;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(temp))))) {
+
+            out.writeInt(FILE_VERSION);
+            out.writeInt(objects.size());
+            for (SourceObject object : objects.values()) {
+                object.write(out);
+            }
+
+        } catch (IOException e) {
+
+            Log.warning("Error writing source index of " + databaseConnection.getName() + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+            Log.warning("Unable to replace source index file " + file);
+        }
+    }
+
+    /**
+     * The objects of one state of the index and the objects using
+     * each identifier - replaced as a whole on refresh.
+     */
+    private static final class Snapshot {
+
+        private final Map<String, SourceObject> objects;
+
+        private final Map<String, List<SourceObject>> postings = new HashMap<>();
+
+        Snapshot(Map<String, SourceObject> objects) {
+
+            this.objects = objects;
+            for (SourceObject object : objects.values()) {
+                for (String token : object.tokens.keySet()) {
+                    postings.computeIfAbsent(token, k -> new ArrayList<>()).add(object);
+                }
+            }
+        }
+
+        List<SourceObject> objectsUsing(String token) {
+
+            List<SourceObject> list = postings.get(token);
+            return list != null ? list : Collections.emptyList();
+        }
+
+    } // class Snapshot
+
+    /**
+     * An object with source and the lines of each of its identifiers.
+     */
+    public static final class SourceObject {
+
+        private final int type;
+        private final boolean body;
+        private final String name;
+        private final long hash;
+        private final Map<String, int[]> tokens;
+
+        SourceObject(int type, boolean body, String name, long hash, Map<String, int[]> tokens) {
+            this.type = type;
+            this.body = body;
+            this.name = name;
+            this.hash = hash;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Returns the type as defined in <code>NamedObject</code>.
+         */
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * Returns whether this is the body of a package.
+         */
+        public boolean isBody() {
+            return body;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        String key() {
+            return key(type, body, name);
+        }
+
+        static String key(int type, boolean body, String name) {
+            return type + (body ? "B:" : ":") + name;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+
+            out.writeInt(type);
+            out.writeBoolean(body);
+            writeString(out, name);
+            out.writeLong(hash);
+            out.writeInt(tokens.size());
+
+            for (Map.Entry<String, int[]> entry : tokens.entrySet()) {
+
+                writeString(out, entry.getKey());
+                int[] lines = entry.getValue();
+                out.writeInt(lines.length);
+                for (int line : lines) {
+                    out.writeInt(line);
+                }
+            }
+        }
+
+        static SourceObject read(DataInputStream in) throws IOException {
+
+            int type = in.readInt();
+            boolean body = in.readBoolean();
+            String name = readString(in);
+            long hash = in.readLong();
+
+            int count = in.readInt();
+            Map<String, int[]> tokens = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+
+                String token = readString(in);
+                int[] lines = new int[in.readInt()];
+                for (int j = 0; j < lines.length; j++) {
+                    lines[j] = in.readInt();
+                }
+                tokens.put(token, lines);
+            }
+
+            return new SourceObject(type, body, name, hash, tokens);
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+    } // class SourceObject
+
+    /**
+     * The lines of one object using a looked up name.
+     */
+    public static final class Usage {
+
+        private final SourceObject object;
+        private final int[] lines;
+        private final boolean exact;
+
+        Usage(SourceObject object, int[] lines, boolean exact) {
+            this.object = object;
+            this.lines = lines;
+            this.exact = exact;
+        }
+
+        public SourceObject getObject() {
+            return object;
+        }
+
+        public int[] getLines() {
+            return lines;
+        }
+
+        /**
+         * Returns whether the object uses the looked up name as
+         * written, qualified names included.
+         */
+        public boolean isExact() {
+            return exact;
+        }
+
+    } // class Usage
+
+}
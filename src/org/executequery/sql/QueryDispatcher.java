@@ -60,6 +60,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.sql.*;
+import java.text.DateFormat;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -76,6 +77,11 @@ public class QueryDispatcher {
      */
     private QueryDelegate delegate;
 
+    /**
+     * the output of the executing statements to the delegate
+     */
+    private QueryOutputChannel output;
+
     /**
      * thread worker object
      */
@@ -137,6 +143,7 @@ public class QueryDispatcher {
     public QueryDispatcher(QueryDelegate runner) {
         try {
             this.delegate = runner;
+            this.output = new QueryOutputChannel(runner, this::logOutput);
 
             transactionLevel = -1;
 
@@ -274,6 +281,7 @@ public class QueryDispatcher {
 
             public void finished() {
 
+                output.flush();
                 delegate.finished(duration);
 
                 if (statementCancelled) {
@@ -330,6 +338,7 @@ public class QueryDispatcher {
 
             public void finished() {
 
+                output.flush();
                 delegate.finished(duration);
 
                 if (statementCancelled) {
@@ -377,7 +386,11 @@ public class QueryDispatcher {
 
         try {
             Statement statement = querySender.getPreparedStatement(query);
-            printPlan(statement, explained);
+            String plan = printPlan(statement, explained);
+            if (plan != null && !explained
+                    && userProperties().getBooleanProperty("editor.execute.plan.history")) {
+                recordExecution(query, plan, -1, null);
+            }
         } catch (SQLException e) {
             setOutputMessage(SqlMessages.ERROR_MESSAGE, e.getMessage());
         } finally {
@@ -587,6 +600,11 @@ public class QueryDispatcher {
 
             List<DerivedQuery> queries = queryTokenizer.tokenize(sql);
             boolean removeQueryComments = userProperties().getBooleanProperty("editor.execute.remove.comments");
+            boolean printDmlPlans = userProperties().getBooleanProperty("editor.execute.plan.dml");
+
+            // the plan history of single statements only - not of scripts
+            boolean recordPlanHistory = queries.size() == 1
+                    && userProperties().getBooleanProperty("editor.execute.plan.history");
 
             for (DerivedQuery query : queries) {
 
@@ -601,6 +619,10 @@ public class QueryDispatcher {
                 end = 0l;
                 start = 0l;
 
+                String plan = null;
+                IFBPerformanceInfo counters = null;
+                boolean executed = false;
+
                 String derivedQueryString = query.getDerivedQuery();
                 String queryToExecute = removeQueryComments ? derivedQueryString : query.getOriginalQuery();
 
@@ -707,11 +729,12 @@ public class QueryDispatcher {
 
                         // Trying to get execution plan of firebird statement
 
-                        printPlan(rset);
+                        plan = printPlan(rset);
 
                         setResultSet(rset, query.getOriginalQuery());
 
-                        printExecutionPlan(before, after);
+                        counters = printExecutionPlan(before, after);
+                        executed = true;
                     }
 
                     end = System.currentTimeMillis();
@@ -763,7 +786,8 @@ public class QueryDispatcher {
                                     setStatusMessage(" " + result.getMessage());
                                 }
 
-                                printExecutionPlan(before, after);
+                                counters = printExecutionPlan(before, after);
+                                executed = true;
 
                             }
                         }
@@ -782,7 +806,8 @@ public class QueryDispatcher {
 
                         } else {
 
-                            printExecutionPlan(before, after);
+                            counters = printExecutionPlan(before, after);
+                            executed = true;
 
                             setOutputMessage(SqlMessages.PLAIN_MESSAGE, "Call executed successfully.");
                             int updateCount = result.getUpdateCount();
@@ -819,6 +844,19 @@ public class QueryDispatcher {
                 totalDuration += timeTaken;
                 logExecutionTime(timeTaken);
 
+                if (executed && isPlanned(query.getQueryType())) {
+
+                    if (plan == null && printDmlPlans && statement != null && !result.isResultSet()) {
+
+                        plan = printPlan(statement, false);
+                    }
+
+                    if (recordPlanHistory) {
+
+                        recordExecution(queryToExecute, plan, timeTaken, counters);
+                    }
+                }
+
             }
 
             statementExecuted(sql);
@@ -1292,7 +1330,11 @@ public class QueryDispatcher {
         return statement;
     }
 
-    private void printExecutionPlan(IFBPerformanceInfo before, IFBPerformanceInfo after) {
+    /**
+     * Prints the performance counters of the statement executed and
+     * returns them - null if not available.
+     */
+    private IFBPerformanceInfo printExecutionPlan(IFBPerformanceInfo before, IFBPerformanceInfo after) {
         // Trying to get execution plan of firebird statement
         DatabaseConnection databaseConnection = this.querySender.getDatabaseConnection();
         DefaultDriverLoader driverLoader = new DefaultDriverLoader();
@@ -1341,12 +1383,18 @@ public class QueryDispatcher {
                 IFBPerformanceInfo resultPerfomanceInfo = after.processInfo(before, after);
 
                 setOutputMessage(SqlMessages.PLAIN_MESSAGE, resultPerfomanceInfo.getPerformanceInfo());
+                return resultPerfomanceInfo;
             }
         }
 
+        return null;
     }
 
-    private void printPlan(ResultSet rs) {
+    /**
+     * Prints the plan of the result set's statement and returns it -
+     * null if not available.
+     */
+    private String printPlan(ResultSet rs) {
         try {
             DatabaseConnection databaseConnection = this.querySender.getDatabaseConnection();
             DefaultDriverLoader driverLoader = new DefaultDriverLoader();
@@ -1385,7 +1433,9 @@ public class QueryDispatcher {
                 IFBDatabasePerformance db = (IFBDatabasePerformance) odb;
                 try {
 
-                    setOutputMessage(SqlMessages.PLAIN_MESSAGE, db.getLastExecutedPlan(resultSet));
+                    String plan = db.getLastExecutedPlan(resultSet);
+                    setOutputMessage(SqlMessages.PLAIN_MESSAGE, plan);
+                    return plan;
 
                 } catch (SQLException e) {
                     e.printStackTrace();
@@ -1395,62 +1445,118 @@ public class QueryDispatcher {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        return null;
     }
 
-    private void printPlan(Statement st, boolean explained) {
+    /**
+     * Prints the plan of the statement and returns it - null if not
+     * available.
+     */
+    private String printPlan(Statement st, boolean explained) {
         try {
-            DatabaseConnection databaseConnection = this.querySender.getDatabaseConnection();
-            DefaultDriverLoader driverLoader = new DefaultDriverLoader();
-            Map<String, Driver> loadedDrivers = DefaultDriverLoader.getLoadedDrivers();
-            DatabaseDriver jdbcDriver = databaseConnection.getJDBCDriver();
-            Driver driver = loadedDrivers.get(jdbcDriver.getId() + "-" + jdbcDriver.getClassName());
 
-            if (driver.getClass().getName().contains("FBDriver")) {
-                Statement realST = ((PooledStatement) st).getStatement();
+            String plan = executedPlan(st, explained);
+            if (plan != null) {
+                setOutputMessage(SqlMessages.PLAIN_MESSAGE, plan, true);
+            }
+            return plan;
 
-                Statement statement = null;
-                try {
-                    statement = realST.unwrap(Statement.class);
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-                URL[] urls = new URL[0];
-                Class clazzdb = null;
-                Object odb = null;
-                try {
-                    urls = MiscUtils.loadURLs("./lib/fbplugin-impl.jar;../lib/fbplugin-impl.jar");
-                    ClassLoader cl = new URLClassLoader(urls, statement.getClass().getClassLoader());
-                    clazzdb = cl.loadClass("biz.redsoft.FBDatabasePerformanceImpl");
-                    odb = clazzdb.newInstance();
-                } catch (ClassNotFoundException e) {
-                    e.printStackTrace();
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                } catch (InstantiationException e) {
-                    e.printStackTrace();
-                } catch (MalformedURLException e) {
-                    e.printStackTrace();
-                }
+        return null;
+    }
 
-                IFBDatabasePerformance db = (IFBDatabasePerformance) odb;
-                try {
-                    String plan;
-                    if (explained)
-                        plan = db.getLastExplainExecutedPlan(statement);
-                    else plan = db.getLastExecutedPlan(statement);
-                    setOutputMessage(SqlMessages.PLAIN_MESSAGE, plan, true);
+    /**
+     * Returns the plan of the Firebird statement - null for other
+     * databases.
+     */
+    private String executedPlan(Statement st, boolean explained) throws Exception {
 
-                } catch (SQLException e) {
-                    e.printStackTrace();
+        DatabaseConnection databaseConnection = this.querySender.getDatabaseConnection();
+        Map<String, Driver> loadedDrivers = DefaultDriverLoader.getLoadedDrivers();
+        DatabaseDriver jdbcDriver = databaseConnection.getJDBCDriver();
+        Driver driver = loadedDrivers.get(jdbcDriver.getId() + "-" + jdbcDriver.getClassName());
+
+        if (!driver.getClass().getName().contains("FBDriver")) {
+            return null;
+        }
+
+        Statement statement = ((PooledStatement) st).getStatement().unwrap(Statement.class);
+        IFBDatabasePerformance db = (IFBDatabasePerformance)
+                DynamicLibraryLoader.loadingObjectFromClassLoader(statement, "FBDatabasePerformanceImpl");
+
+        return explained ? db.getLastExplainExecutedPlan(statement) : db.getLastExecutedPlan(statement);
+    }
+
+    /**
+     * Records the execution in the plan history of the connection and
+     * warns of a changed plan or a regressed cost.
+     *
+     * @param time the execution time in millis or -1 if the statement
+     *             was prepared only
+     */
+    private void recordExecution(String query, String plan, long time, IFBPerformanceInfo counters) {
+
+        try {
+
+            PlanHistory history = PlanHistory.getInstance(querySender.getDatabaseConnection());
+            if (history.getServerVersion() == null) {
+
+                history.setServerVersion(querySender.getConnection().getMetaData().getDatabaseProductVersion());
+            }
+
+            PlanHistory.Check check = history.record(query, plan, time, counters);
+
+            if (check.isPlanChanged()) {
+
+                StringBuilder sb = new StringBuilder("Plan changed since the previous execution on ")
+                        .append(DateFormat.getDateTimeInstance().format(check.getPreviousPlanExecuted()));
+                if (check.isServerVersionChanged()) {
+                    sb.append(" (server version was ").append(check.getPreviousServerVersion()).append(")");
                 }
+                sb.append(" - previous plan:\n").append(check.getPreviousPlan());
+
+                setOutputMessage(SqlMessages.WARNING_MESSAGE, sb.toString().trim(), false);
+            }
+
+            if (check.isTimeRegressed()) {
+
+                setOutputMessage(SqlMessages.WARNING_MESSAGE, "Execution time " + formatDuration(time)
+                        + " is more than twice the median " + formatDuration(check.getMedianTime())
+                        + " of the previous executions", false);
+            }
+
+            if (check.isFetchesRegressed()) {
+
+                setOutputMessage(SqlMessages.WARNING_MESSAGE, "Fetches " + counters.getPerfFetches()
+                        + " are more than twice the median " + check.getMedianFetches()
+                        + " of the previous executions", false);
             }
 
         } catch (Exception e) {
-            e.printStackTrace();
+
+            Log.debug("Error recording the plan history: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Returns whether statements of the type have a plan recorded in
+     * the plan history - queries, DML and procedure calls.
+     */
+    private boolean isPlanned(int type) {
+
+        return type == QueryTypes.SELECT
+                || type == QueryTypes.SELECT_INTO
+                || type == QueryTypes.INSERT
+                || type == QueryTypes.UPDATE
+                || type == QueryTypes.DELETE
+                || type == QueryTypes.EXECUTE
+                || type == QueryTypes.UNKNOWN;
+    }
+
     private String formatDuration(long totalDuration) {
 
         return MiscUtils.formatDuration(totalDuration);
@@ -1458,7 +1564,7 @@ public class QueryDispatcher {
 
     private void setResult(int updateCount, int type, String metaName) {
 
-        delegate.setResult(updateCount, type, metaName);
+        output.result(updateCount, type, metaName);
     }
 
     private void statementExecuted(String sql) {
@@ -1608,19 +1714,11 @@ public class QueryDispatcher {
     }
 
     private void setResultText(final int result, final int type, String metaName) {
-        ThreadUtils.invokeAndWait(new Runnable() {
-            public void run() {
-                delegate.setResult(result, type, metaName);
-            }
-        });
+        output.result(result, type, metaName);
     }
 
     private void setStatusMessage(final String text) {
-        ThreadUtils.invokeAndWait(new Runnable() {
-            public void run() {
-                delegate.setStatusMessage(text);
-            }
-        });
+        output.status(text);
     }
 
     private void setOutputMessage(final int type, final String text) {
@@ -1629,14 +1727,7 @@ public class QueryDispatcher {
     }
 
     private void setOutputMessage(final int type, final String text, final boolean selectTab) {
-        ThreadUtils.invokeAndWait(new Runnable() {
-            public void run() {
-                delegate.setOutputMessage(type, text, selectTab);
-                if (text != null) {
-                    logOutput(text);
-                }
-            }
-        });
+        output.output(type, text, selectTab);
     }
 
     private void setResultSet(final ResultSet rs, final String query) {
@@ -1651,6 +1742,8 @@ public class QueryDispatcher {
             }
         });
 */
+        // the output of the statement is displayed before its results
+        output.flush();
         try {
             delegate.setResultSet(rs, query);
         } catch (SQLException e) {
@@ -0,0 +1,207 @@
+/*
+ * QueryOutputChannel.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.sql;
+
+import org.executequery.util.ThreadUtils;
+
+import javax.swing.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Carries the output of an executing query to its delegate without
+ * blocking the execution thread.
+ * <p>
+ * Messages are queued by the execution thread and delivered on the
+ * event dispatch thread in batches - consecutive output messages of
+ * the same type are appended to the output pane as one insert.
+ * Messages posted on the event dispatch thread are delivered at once,
+ * after any still queued.
+ *
+ * @author Takis Diakoumis
+ */
+final class QueryOutputChannel {
+
+    /**
+     * messages delivered per event before yielding to other events
+     */
+    private static final int MESSAGES_PER_BATCH = 2000;
+
+    private static final int OUTPUT = 0;
+    private static final int STATUS = 1;
+    private static final int RESULT = 2;
+
+    private final QueryDelegate delegate;
+
+    private final Consumer<String> logger;
+
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final Runnable drain = this::drain;
+
+    /**
+     * the output being merged into one insert
+     */
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingType;
+    private boolean pendingSelectTab;
+
+    QueryOutputChannel(QueryDelegate delegate, Consumer<String> logger) {
+        this.delegate = delegate;
+        this.logger = logger;
+    }
+
+    void output(int type, String text, boolean selectTab) {
+        post(new Message(OUTPUT, type, text, selectTab, 0, null));
+    }
+
+    void status(String text) {
+        post(new Message(STATUS, 0, text, false, 0, null));
+    }
+
+    void result(int result, int type, String metaName) {
+        post(new Message(RESULT, type, null, false, result, metaName));
+    }
+
+    /**
+     * Delivers all queued messages before returning - used before the
+     * delegate is called directly so the output keeps its order.
+     */
+    void flush() {
+
+        if (SwingUtilities.isEventDispatchThread()) {
+            drainAll();
+
+        } else if (!queue.isEmpty()) {
+            ThreadUtils.invokeAndWait(this::drainAll);
+        }
+    }
+
+    private void post(Message message) {
+
+        queue.add(message);
+        if (SwingUtilities.isEventDispatchThread()) {
+            drainAll();
+
+        } else if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(drain);
+        }
+    }
+
+    private void drain() {
+
+        // cleared first so messages added while draining schedule again
+        drainScheduled.set(false);
+
+        Message message;
+        int count = 0;
+        while (count++ < MESSAGES_PER_BATCH && (message = queue.poll()) != null) {
+            deliver(message);
+        }
+        deliverPending();
+
+        if (!queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(drain);
+        }
+    }
+
+    private void drainAll() {
+
+        Message message;
+        while ((message = queue.poll()) != null) {
+            deliver(message);
+        }
+        deliverPending();
+    }
+
+    private void deliver(Message message) {
+
+        if (message.kind != OUTPUT) {
+
+            deliverPending();
+            if (message.kind == STATUS) {
+                delegate.setStatusMessage(message.text);
+            } else {
+                delegate.setResult(message.result, message.type, message.metaName);
+            }
+            return;
+        }
+
+        if (message.text != null) {
+            logger.accept(message.text);
+        }
+
+        if (pending.length() > 0
+                && (message.type != pendingType || message.selectTab != pendingSelectTab)) {
+            deliverPending();
+        }
+
+        if (message.text == null || message.text.trim().isEmpty()) {
+
+            // nothing is appended for blank text but the tab may be selected
+            deliverPending();
+            delegate.setOutputMessage(message.type, message.text, message.selectTab);
+            return;
+        }
+
+        // separated as individually appended messages are
+        if (pending.length() > 0) {
+            pending.append("\n\n");
+        }
+        pending.append(message.text);
+        pendingType = message.type;
+        pendingSelectTab = message.selectTab;
+    }
+
+    private void deliverPending() {
+
+        if (pending.length() > 0) {
+
+            delegate.setOutputMessage(pendingType, pending.toString(), pendingSelectTab);
+            pending.setLength(0);
+        }
+    }
+
+    private static final class Message {
+
+        private final int kind;
+        private final int type;
+        private final String text;
+        private final boolean selectTab;
+        private final int result;
+        private final String metaName;
+
+        Message(int kind, int type, String text, boolean selectTab, int result, String metaName) {
+            this.kind = kind;
+            this.type = type;
+            this.text = text;
+            this.selectTab = selectTab;
+            this.result = result;
+            this.metaName = metaName;
+        }
+
+    }
+
+}
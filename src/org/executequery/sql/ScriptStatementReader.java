@@ -0,0 +1,295 @@
+/*
+ * ScriptStatementReader.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.sql;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a script read from a stream into its statements one at a
+ * time, so a script of any size is executed without being held in
+ * memory.
+ * <p>
+ * The delimiter is recognised outside of quoted strings, identifiers
+ * and comments only, SET TERM changes it. As with the
+ * {@link QueryTokenizer}, the default delimiter does not end a
+ * statement within a BEGIN ... END block or after DECLARE VARIABLE.
+ *
+ * @author Takis Diakoumis
+ */
+public class ScriptStatementReader implements Closeable {
+
+    private static final Pattern SET_TERM = Pattern.compile("^\\s*set\\s+term\\s+(\\S+)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String DEFAULT_DELIMITER = ";";
+
+    private final BufferedReader reader;
+
+    private String delimiter = DEFAULT_DELIMITER;
+
+    private final StringBuilder query = new StringBuilder();
+
+    private final StringBuilder queryWithoutComments = new StringBuilder();
+
+    private final StringBuilder word = new StringBuilder();
+
+    private String lastWord;
+
+    private int blockDepth;
+
+    private boolean inDeclare;
+
+    private int next = -2;
+
+    public ScriptStatementReader(Reader reader) {
+
+        this.reader = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+    }
+
+    /**
+     * Returns the next statement of the script or null at its end.
+     */
+    public DerivedQuery nextQuery() throws IOException {
+
+        query.setLength(0);
+        queryWithoutComments.setLength(0);
+        word.setLength(0);
+        lastWord = null;
+        blockDepth = 0;
+        inDeclare = false;
+
+        int c;
+        while ((c = read()) != -1) {
+
+            if (c == '\'' || c == '"') {
+
+                endWord();
+                appendQuoted((char) c);
+
+            } else if (c == '-' && peek() == '-') {
+
+                endWord();
+                appendLineComment();
+
+            } else if (c == '/' && peek() == '*') {
+
+                endWord();
+                appendBlockComment();
+
+            } else {
+
+                append((char) c);
+                if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+
+                    word.append((char) c);
+                    continue;
+                }
+
+                endWord();
+                if (c == ';' && inDeclare && DEFAULT_DELIMITER.equals(delimiter)) {
+
+                    inDeclare = false;
+
+                } else if (endsWithDelimiter()) {
+
+                    DerivedQuery derivedQuery = endQuery();
+                    if (derivedQuery != null) {
+                        return derivedQuery;
+                    }
+                }
+            }
+        }
+
+        endWord();
+        if (query.toString().trim().isEmpty()) {
+            return null;
+        }
+
+        DerivedQuery derivedQuery = new DerivedQuery(query.toString());
+        derivedQuery.setQueryWithoutComments(queryWithoutComments.toString().trim());
+        return derivedQuery;
+    }
+
+    private boolean endsWithDelimiter() {
+
+        if (blockDepth > 0 && DEFAULT_DELIMITER.equals(delimiter)) {
+            return false;
+        }
+
+        int length = delimiter.length();
+        int start = queryWithoutComments.length() - length;
+        return start >= 0 && queryWithoutComments.indexOf(delimiter, start) == start;
+    }
+
+    /**
+     * Ends the statement at the delimiter - a SET TERM statement changes
+     * the delimiter and returns null.
+     */
+    private DerivedQuery endQuery() {
+
+        int length = delimiter.length();
+        query.setLength(query.length() - length);
+        queryWithoutComments.setLength(queryWithoutComments.length() - length);
+
+        String statement = queryWithoutComments.toString();
+        Matcher matcher = SET_TERM.matcher(statement);
+        if (matcher.find()) {
+
+            delimiter = matcher.group(1);
+
+        } else if (!statement.trim().isEmpty()) {
+
+            DerivedQuery derivedQuery = new DerivedQuery(query.toString());
+            derivedQuery.setQueryWithoutComments(statement.trim());
+            return derivedQuery;
+        }
+
+        query.setLength(0);
+        queryWithoutComments.setLength(0);
+        blockDepth = 0;
+        inDeclare = false;
+        return null;
+    }
+
+    /**
+     * Tracks the blocks of the words read.
+     */
+    private void endWord() {
+
+        if (word.length() == 0) {
+            return;
+        }
+
+        String value = word.toString().toUpperCase();
+        word.setLength(0);
+
+        switch (value) {
+
+            case "BEGIN":
+            case "CASE":
+                blockDepth++;
+                break;
+
+            case "END":
+                if (blockDepth > 0) {
+                    blockDepth--;
+                }
+                break;
+
+            case "VARIABLE":
+                if ("DECLARE".equals(lastWord)) {
+                    inDeclare = true;
+                }
+                break;
+        }
+        lastWord = value;
+    }
+
+    private void appendQuoted(char quote) throws IOException {
+
+        append(quote);
+
+        int c;
+        while ((c = read()) != -1) {
+
+            append((char) c);
+            if (c == quote) {
+
+                // a doubled quote is part of the value
+                if (peek() != quote) {
+                    return;
+                }
+                append((char) read());
+            }
+        }
+    }
+
+    private void appendLineComment() throws IOException {
+
+        query.append('-');
+
+        int c;
+        while ((c = read()) != -1) {
+
+            if (c == '\n' || c == '\r') {
+
+                append((char) c);
+                return;
+            }
+            query.append((char) c);
+        }
+    }
+
+    private void appendBlockComment() throws IOException {
+
+        query.append('/').append((char) read());
+        queryWithoutComments.append(' ');
+
+        int c;
+        while ((c = read()) != -1) {
+
+            query.append((char) c);
+            if (c == '*' && peek() == '/') {
+
+                query.append((char) read());
+                return;
+            }
+        }
+    }
+
+    private void append(char c) {
+
+        query.append(c);
+        queryWithoutComments.append(c);
+    }
+
+    private int read() throws IOException {
+
+        if (next != -2) {
+
+            int c = next;
+            next = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+
+        if (next == -2) {
+            next = reader.read();
+        }
+        return next;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        reader.close();
+    }
+
+}
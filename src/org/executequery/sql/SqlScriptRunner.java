@@ -33,6 +33,8 @@ import org.executequery.log.Log;
 import org.underworldlabs.util.MiscUtils;
 
 import javax.resource.ResourceException;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -74,6 +76,34 @@ public class SqlScriptRunner {
     public SqlStatementResult execute(DatabaseConnection databaseConnection,
                                       String script, ActionOnError actionOnError) {
 
+        return execute(databaseConnection, new TokenizedScript(script), actionOnError);
+    }
+
+    /**
+     * Executes the script read from the reader one statement at a time,
+     * the script is never held in memory as a whole.
+     */
+    public SqlStatementResult execute(DatabaseConnection databaseConnection,
+                                      Reader script, ActionOnError actionOnError) {
+
+        ScriptStatementReader reader = new ScriptStatementReader(script);
+        try {
+
+            return execute(databaseConnection, reader::nextQuery, actionOnError);
+
+        } finally {
+
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.debug("Error closing the script: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private SqlStatementResult execute(DatabaseConnection databaseConnection,
+                                       QuerySource queries, ActionOnError actionOnError) {
+
         int count = 0;
         int result = 0;
 
@@ -87,7 +117,6 @@ public class SqlScriptRunner {
             cancel = false;
 
             executionController.message("Scanning and tokenizing queries...");
-            QueryTokenizer queryTokenizer = new QueryTokenizer();
             //List<DerivedQuery> queries =
 
             close();
@@ -98,7 +127,6 @@ public class SqlScriptRunner {
             List<DerivedQuery> executableQueries = new ArrayList<DerivedQuery>();
             DerivedQuery createDBQuery = null;
             String sqlDialect = "3";
-            String delimiter = ";";
             //queries.clear();
 
 
@@ -114,19 +142,9 @@ public class SqlScriptRunner {
             long end = 0L;
             int thisResult = 0;
             boolean logOutput = executionController.logOutput();
-            int startIndex = 0;
-            String lowQuery = script.toLowerCase();
-            executionController.message("Start extracting comments and String constants");
-            queryTokenizer.extractTokens(script);
-            executionController.message("Finish extracting comments and String constants");
-            while (script!=null &&!script.isEmpty()) {
-                QueryTokenizer.QueryTokenized fquery=queryTokenizer.tokenizeFirstQuery(script,lowQuery,startIndex,delimiter);
-                script= fquery.script;
-                delimiter = fquery.delimiter;
-                DerivedQuery query =  fquery.query;
-                lowQuery = fquery.lowScript;
-                startIndex = fquery.startIndex;
-                if(query==null||!query.isExecutable())
+            DerivedQuery query;
+            while ((query = queries.next()) != null) {
+                if (!query.isExecutable())
                     continue;
                 if (shouldNotContinue()) {
 
@@ -213,6 +231,10 @@ public class SqlScriptRunner {
 
             sqlStatementResult.setOtherException(e);
 
+        } catch (IOException e) {
+
+            sqlStatementResult.setOtherException(e);
+
         } catch (org.underworldlabs.util.InterruptedException e) {
 
             sqlStatementResult.setOtherException(e);
@@ -234,6 +256,59 @@ public class SqlScriptRunner {
         return sqlStatementResult;
     }
 
+    private interface QuerySource {
+
+        /**
+         * Returns the next statement of the script or null at its end.
+         */
+        DerivedQuery next() throws IOException;
+    }
+
+    /**
+     * The statements of a script held as a string - the comments and
+     * strings of the whole script are extracted before the first one.
+     */
+    private class TokenizedScript implements QuerySource {
+
+        private final QueryTokenizer queryTokenizer = new QueryTokenizer();
+
+        private String script;
+
+        private String lowQuery;
+
+        private String delimiter = ";";
+
+        private int startIndex;
+
+        TokenizedScript(String script) {
+            this.script = script;
+        }
+
+        public DerivedQuery next() {
+
+            if (lowQuery == null) {
+
+                lowQuery = script.toLowerCase();
+                executionController.message("Start extracting comments and String constants");
+                queryTokenizer.extractTokens(script);
+                executionController.message("Finish extracting comments and String constants");
+            }
+
+            while (script != null && !script.isEmpty()) {
+
+                QueryTokenizer.QueryTokenized fquery = queryTokenizer.tokenizeFirstQuery(script, lowQuery, startIndex, delimiter);
+                script = fquery.script;
+                delimiter = fquery.delimiter;
+                lowQuery = fquery.lowScript;
+                startIndex = fquery.startIndex;
+                if (fquery.query != null)
+                    return fquery.query;
+            }
+            return null;
+        }
+
+    } // class TokenizedScript
+
     public boolean isNeedCloseDatabase() {
         return needCloseDatabase;
     }
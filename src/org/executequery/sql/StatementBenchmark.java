@@ -0,0 +1,543 @@
+/*
+ * StatementBenchmark.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.executequery.sql;
+
+import biz.redsoft.IFBDatabasePerformance;
+import biz.redsoft.IFBPerformanceInfo;
+import org.executequery.databasemediators.DatabaseConnection;
+import org.executequery.datasource.ConnectionManager;
+import org.executequery.log.Log;
+import org.executequery.util.SystemResources;
+import org.underworldlabs.sqlParser.SqlParser;
+import org.underworldlabs.util.DynamicLibraryLoader;
+import org.underworldlabs.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Executes a statement repeatedly to measure its performance. After
+ * the warm-up runs, the time of every run and - for Firebird - the
+ * reads, fetches, writes, marks and memory of its performance info
+ * are recorded into a distribution per metric.
+ * <p>
+ * Every run is rolled back, so data changing statements measure the
+ * same work each time. The summaries of a result may be saved as the
+ * baseline of the statement to compare later results with.
+ *
+ * @author Takis Diakoumis
+ */
+public class StatementBenchmark {
+
+    private static final String DIRECTORY = "benchmarks";
+
+    public enum Metric {
+
+        TIME,
+        READS,
+        FETCHES,
+        WRITES,
+        MARKS,
+        MEMORY
+    }
+
+    /**
+     * Notified after each run from the thread of the benchmark.
+     */
+    public interface ProgressListener {
+
+        void runCompleted(int run, int runs);
+    }
+
+    private final DatabaseConnection databaseConnection;
+
+    private final String query;
+
+    private int runs = 100;
+
+    private int warmupRuns = 5;
+
+    private boolean fetchAll = true;
+
+    private List<List<String>> parameterSets = Collections.emptyList();
+
+    private volatile boolean cancelled;
+
+    public StatementBenchmark(DatabaseConnection databaseConnection, String query) {
+
+        this.databaseConnection = databaseConnection;
+        this.query = query;
+    }
+
+    public void setRuns(int runs) {
+        this.runs = runs;
+    }
+
+    public void setWarmupRuns(int warmupRuns) {
+        this.warmupRuns = warmupRuns;
+    }
+
+    /**
+     * Whether all rows of a result set are fetched in each run or the
+     * first row only.
+     */
+    public void setFetchAll(boolean fetchAll) {
+        this.fetchAll = fetchAll;
+    }
+
+    /**
+     * Sets the values of the parameters of the statement - the runs use
+     * the sets in turn, an empty value is bound as null.
+     */
+    public void setParameterSets(List<List<String>> parameterSets) {
+        this.parameterSets = parameterSets;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs the benchmark - a cancelled benchmark returns the runs
+     * completed so far.
+     */
+    public Result run(ProgressListener listener) throws SQLException {
+
+        cancelled = false;
+
+        SqlParser parser = new SqlParser(query);
+        int parameterCount = parser.getParameters().size();
+        if (parameterCount > 0 && parameterSets.isEmpty()) {
+
+            throw new SQLException("The statement has " + parameterCount
+                    + " parameters - at least one parameter set is required");
+        }
+
+        // a connection of its own - the runs are rolled back and must not
+        // touch the transaction of the shared connection of the editor
+        Connection connection = ConnectionManager.getTemporaryConnection(databaseConnection);
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+
+            connection.setAutoCommit(false);
+            IFBDatabasePerformance performance = performanceOf(connection);
+            Result result = new Result(performance != null);
+
+            try (PreparedStatement statement = connection.prepareStatement(parser.getProcessedSql())) {
+
+                int total = warmupRuns + runs;
+                for (int i = 0; i < total && !cancelled; i++) {
+
+                    if (parameterCount > 0) {
+                        bind(statement, parameterSets.get(i % parameterSets.size()), parameterCount);
+                    }
+
+                    IFBPerformanceInfo before = performance != null ? performance.getPerformanceInfo() : null;
+                    long start = System.nanoTime();
+                    execute(statement);
+                    long time = System.nanoTime() - start;
+                    IFBPerformanceInfo after = performance != null ? performance.getPerformanceInfo() : null;
+
+                    connection.rollback();
+                    if (i >= warmupRuns) {
+                        result.add(time, before, after);
+                    }
+
+                    if (listener != null) {
+                        listener.runCompleted(i + 1, total);
+                    }
+                }
+            }
+            return result;
+
+        } finally {
+
+            try {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                Log.debug("Error restoring the connection after the benchmark: " + e.getMessage(), e);
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                Log.debug("Error closing the benchmark connection: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void execute(PreparedStatement statement) throws SQLException {
+
+        if (!statement.execute()) {
+            return;
+        }
+
+        try (ResultSet resultSet = statement.getResultSet()) {
+
+            if (fetchAll) {
+
+                while (resultSet.next() && !cancelled) {
+                    // fetching only
+                }
+
+            } else {
+
+                resultSet.next();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, List<String> values, int parameterCount) throws SQLException {
+
+        for (int i = 0; i < parameterCount; i++) {
+
+            String value = i < values.size() ? values.get(i) : "";
+            if (value.isEmpty()) {
+                statement.setNull(i + 1, Types.VARCHAR);
+            } else {
+                statement.setString(i + 1, value);
+            }
+        }
+    }
+
+    /**
+     * Returns the performance info of a Firebird connection or null.
+     */
+    private static IFBDatabasePerformance performanceOf(Connection connection) {
+
+        try {
+
+            Connection unwrapped = connection.unwrap(Connection.class);
+            if (!unwrapped.getClass().getName().startsWith("org.firebirdsql")) {
+                return null;
+            }
+
+            IFBDatabasePerformance performance = (IFBDatabasePerformance)
+                    DynamicLibraryLoader.loadingObjectFromClassLoader(unwrapped, "FBDatabasePerformanceImpl");
+            performance.setConnection(unwrapped);
+            return performance;
+
+        } catch (ClassNotFoundException | SQLException e) {
+
+            Log.debug("Performance info not available: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // ------------------------------------------------
+    // baselines
+    // ------------------------------------------------
+
+    /**
+     * Saves the summaries of the result as the baseline of the statement.
+     */
+    public void saveBaseline(Result result) throws IOException {
+
+        File file = baselineFile();
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+
+        Properties properties = file.exists() ? FileUtils.loadProperties(file) : new Properties();
+        String key = statementKey();
+        for (Metric metric : result.getMetrics()) {
+            properties.setProperty(key + "." + metric.name(), result.getDistribution(metric).summarize().toString());
+        }
+        properties.setProperty(key + ".saved", String.valueOf(System.currentTimeMillis()));
+
+        FileUtils.storeProperties(file, properties, "Red Expert - Statement Benchmark Baselines");
+    }
+
+    /**
+     * Returns the summaries of the saved baseline of the statement or
+     * null if none was saved.
+     */
+    public Baseline loadBaseline() {
+
+        File file = baselineFile();
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+
+            Properties properties = FileUtils.loadProperties(file);
+            String key = statementKey();
+            String saved = properties.getProperty(key + ".saved");
+            if (saved == null) {
+                return null;
+            }
+
+            Map<Metric, Summary> summaries = new EnumMap<>(Metric.class);
+            for (Metric metric : Metric.values()) {
+
+                String value = properties.getProperty(key + "." + metric.name());
+                if (value != null) {
+                    summaries.put(metric, Summary.parse(value));
+                }
+            }
+            return new Baseline(Long.parseLong(saved), summaries);
+
+        } catch (IOException | IllegalArgumentException e) {
+
+            Log.warning("Error reading the benchmark baselines " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Identifies the statement ignoring differences in white space.
+     */
+    private String statementKey() {
+
+        String normalized = query.trim().replaceAll("\\s+", " ");
+        return Integer.toHexString(normalized.hashCode()) + Integer.toHexString(normalized.length());
+    }
+
+    private File baselineFile() {
+
+        return new File(SystemResources.userSettingsDirectoryForCurrentBuild()
+                + DIRECTORY + File.separator + databaseConnection.getId().replaceAll("[^A-Za-z0-9_.-]", "_")
+                + ".properties");
+    }
+
+    /**
+     * The distributions of the metrics recorded over the runs.
+     */
+    public static final class Result {
+
+        private final Map<Metric, Distribution> distributions = new EnumMap<>(Metric.class);
+
+        Result(boolean withCounters) {
+
+            distributions.put(Metric.TIME, new Distribution());
+            if (withCounters) {
+
+                for (Metric metric : Metric.values()) {
+                    distributions.putIfAbsent(metric, new Distribution());
+                }
+            }
+        }
+
+        void add(long time, IFBPerformanceInfo before, IFBPerformanceInfo after) {
+
+            distributions.get(Metric.TIME).add(time);
+            if (before == null || after == null) {
+                return;
+            }
+
+            IFBPerformanceInfo delta = after.processInfo(before, after);
+            distributions.get(Metric.READS).add(delta.getPerfReads());
+            distributions.get(Metric.FETCHES).add(delta.getPerfFetches());
+            distributions.get(Metric.WRITES).add(delta.getPerfWrites());
+            distributions.get(Metric.MARKS).add(delta.getPerfMarks());
+            distributions.get(Metric.MEMORY).add(delta.getPerfDeltaMemory());
+        }
+
+        public int getRunCount() {
+            return distributions.get(Metric.TIME).getCount();
+        }
+
+        /**
+         * Returns the metrics recorded - the time only unless the
+         * connection provides performance info.
+         */
+        public List<Metric> getMetrics() {
+            return new ArrayList<>(distributions.keySet());
+        }
+
+        public Distribution getDistribution(Metric metric) {
+            return distributions.get(metric);
+        }
+
+    } // class Result
+
+    /**
+     * The values recorded for a metric. Runs are few enough for all
+     * values to be kept, so the percentiles are exact.
+     */
+    public static final class Distribution {
+
+        private long[] values = new long[64];
+
+        private int count;
+
+        private boolean sorted = true;
+
+        void add(long value) {
+
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+            sorted = false;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getMin() {
+            return getPercentile(0);
+        }
+
+        public long getMax() {
+            return getPercentile(100);
+        }
+
+        public long getMedian() {
+            return getPercentile(50);
+        }
+
+        /**
+         * Returns the nearest rank percentile or 0 if no values were
+         * recorded.
+         */
+        public long getPercentile(double percentile) {
+
+            if (count == 0) {
+                return 0;
+            }
+
+            if (!sorted) {
+                Arrays.sort(values, 0, count);
+                sorted = true;
+            }
+
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return values[Math.max(0, Math.min(count, rank) - 1)];
+        }
+
+        public Summary summarize() {
+
+            return new Summary(getMin(), getMedian(), getPercentile(95), getPercentile(99), getMax());
+        }
+
+    } // class Distribution
+
+    /**
+     * The minimum, median, 95th and 99th percentile and maximum of a
+     * distribution.
+     */
+    public static final class Summary {
+
+        private final long[] values;
+
+        Summary(long min, long median, long p95, long p99, long max) {
+            this.values = new long[]{min, median, p95, p99, max};
+        }
+
+        public long getMin() {
+            return values[0];
+        }
+
+        public long getMedian() {
+            return values[1];
+        }
+
+        public long getP95() {
+            return values[2];
+        }
+
+        public long getP99() {
+            return values[3];
+        }
+
+        public long getMax() {
+            return values[4];
+        }
+
+        static Summary parse(String value) {
+
+            String[] parts = value.split(",");
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Invalid summary " + value);
+            }
+
+            long[] values = new long[5];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Long.parseLong(parts[i].trim());
+            }
+            return new Summary(values[0], values[1], values[2], values[3], values[4]);
+        }
+
+        @Override
+        public String toString() {
+
+            StringBuilder sb = new StringBuilder();
+            for (long value : values) {
+
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(value);
+            }
+            return sb.toString();
+        }
+
+    } // class Summary
+
+    /**
+     * The summaries saved for a statement.
+     */
+    public static final class Baseline {
+
+        private final long savedTime;
+
+        private final Map<Metric, Summary> summaries;
+
+        Baseline(long savedTime, Map<Metric, Summary> summaries) {
+
+            this.savedTime = savedTime;
+            this.summaries = summaries;
+        }
+
+        public long getSavedTime() {
+            return savedTime;
+        }
+
+        /**
+         * Returns the summary of the metric or null if not saved.
+         */
+        public Summary getSummary(Metric metric) {
+            return summaries.get(metric);
+        }
+
+    } // class Baseline
+
+}
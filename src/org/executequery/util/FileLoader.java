@@ -25,6 +25,7 @@ import org.executequery.GUIUtilities;
 import org.executequery.components.OpenFileDialog;
 import org.executequery.event.DefaultFileIOEvent;
 import org.executequery.event.FileIOEvent;
+import org.executequery.gui.ExecuteSqlScriptPanel;
 import org.executequery.gui.ScratchPadPanel;
 import org.executequery.gui.editor.QueryEditor;
 import org.executequery.gui.erd.ErdSaveFileFormat;
@@ -141,6 +142,14 @@ public class FileLoader {
                 return;
             }
 
+            if (file.length() >= ExecuteSqlScriptPanel.MAX_LENGTH_TEXT_PANE) {
+
+                // too large for the editor - viewed and executed from the file
+                ExecuteSqlScriptPanel.openScript(file);
+                fireFileOpened(file);
+                return;
+            }
+
             String contents = FileUtils.loadFile(file);
 
             if (openWith == OpenFileDialog.NEW_EDITOR) {
@@ -21,14 +21,23 @@
 package org.executequery.util;
 
 import org.underworldlabs.swing.util.SwingWorker;
+import org.underworldlabs.swing.util.TaskScheduler;
 
 /**
- * Thread worker wrapper.
+ * Thread worker wrapper running on the query execution pool.
  *
  * @author Takis Diakoumis
  */
 public abstract class ThreadWorker extends SwingWorker {
 
+    public ThreadWorker() {
+        super(TaskScheduler.Workload.QUERY);
+    }
+
+    public ThreadWorker(TaskScheduler.Workload workload) {
+        super(workload);
+    }
+
 }
 
 
@@ -9,6 +9,9 @@ import org.underworldlabs.util.SystemProperties;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.util.Iterator;
 import java.util.LinkedList;
 
@@ -92,6 +95,21 @@ public class HexEditor extends JPanel implements BinaryEditor, Scrollable {
         gbc.insets.right = SPACER_WIDTH;
         gridbag.setConstraints(asciiEditor, gbc);
         add(asciiEditor);
+
+        InputMap inputMap = getInputMap(WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_MASK), "undo");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_MASK), "redo");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_MASK | InputEvent.SHIFT_MASK), "redo");
+        getActionMap().put("undo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        getActionMap().put("redo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
     }
 
 
@@ -101,6 +119,28 @@ public class HexEditor extends JPanel implements BinaryEditor, Scrollable {
 
     public void setData(byte[] data) {
         binaryDocument.setData(data);
+        updateAddresses();
+    }
+
+    /**
+     * Restores the document content before the last edit.
+     */
+    public void undo() {
+        BinaryDocument document = getDocument();
+        if (!document.isReadOnly() && document.undo())
+            updateAddresses();
+    }
+
+    /**
+     * Applies the last edit undone again.
+     */
+    public void redo() {
+        BinaryDocument document = getDocument();
+        if (!document.isReadOnly() && document.redo())
+            updateAddresses();
+    }
+
+    private void updateAddresses() {
         TextGridModelEvent gme = new TextGridModelEvent(addressComponent.getModel(),
                 TextGridModelEvent.FIRST_ROW,
                 TextGridModelEvent.FIRST_COLUMN,
@@ -1,20 +1,31 @@
 package org.underworldlabs.swing.hexeditor.bdoc;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 
+/**
+ * A binary document of a read-only original - a file read as needed,
+ * a byte array or another byte source - and a piece table of the
+ * edits. Opening a file does not read it and an edit does not move
+ * the bytes of the document.
+ */
 public class BinaryDocument extends Observable {
 
     // PRIVATE MEMBERS
     private File file;
     private boolean readOnly;
-    private boolean modified;
 
-    private byte[] data;
-    private int occupied;
+    // The original content and the edits.
+    private PieceTable pieces;
 
     // Used for O(1) access to positions.
     private HashMap anchor2Offset;
@@ -30,10 +41,8 @@ public class BinaryDocument extends Observable {
     public BinaryDocument() {
         file = null;
         readOnly = false;
-        modified = false;
 
-        data = new byte[256];
-        occupied = 0;
+        pieces = new PieceTable(new ByteArraySource(new byte[0]), 0);
 
         anchor2Offset = new HashMap();
     }
@@ -47,14 +56,7 @@ public class BinaryDocument extends Observable {
      * @param capacity The initial allocated capacity for the document.
      */
     public BinaryDocument(int capacity) {
-        file = null;
-        readOnly = false;
-        modified = false;
-
-        data = new byte[capacity];
-        occupied = 0;
-
-        anchor2Offset = new HashMap();
+        this();
     }
 
     /**
@@ -72,6 +74,7 @@ public class BinaryDocument extends Observable {
      * Construct a binary document from a file.
      * The document is opened read-only mode if readOnly is true.
      * Otherwise the document is opened in in read/write mode.
+     * The file is read as it is displayed.
      *
      * @param file     The file to open.
      * @param readOnly True if the document should be opened in read-only mode.
@@ -80,39 +83,92 @@ public class BinaryDocument extends Observable {
     public BinaryDocument(File file, boolean readOnly) throws IOException {
         this.file = file;
         this.readOnly = readOnly;
-        this.modified = false;
 
         anchor2Offset = new HashMap();
 
-        RandomAccessFile ioFile = new RandomAccessFile(file, "r");
-        occupied = (int) ioFile.length();
-        data = new byte[occupied + 256];
-        ioFile.read(data);
-        ioFile.close();
+        FileChannelByteSource source = new FileChannelByteSource(file);
+        pieces = new PieceTable(source, source.length());
     }
 
     public BinaryDocument(byte[] data, boolean readOnly) {
         this.file = null;
         this.readOnly = readOnly;
-        this.modified = false;
 
         anchor2Offset = new HashMap();
 
-        occupied = data.length;
-        this.data = data.clone();
+        pieces = new PieceTable(new ByteArraySource(data.clone()), data.length);
+    }
+
+    /**
+     * Construct a binary document reading its content from the source
+     * as it is displayed.
+     *
+     * @param source   The content of the document.
+     * @param readOnly True if the document should be opened in read-only mode.
+     * @throws IOException if an exception occurs while reading the source length.
+     */
+    public BinaryDocument(ByteSource source, boolean readOnly) throws IOException {
+        this.file = null;
+        this.readOnly = readOnly;
+
+        anchor2Offset = new HashMap();
+
+        pieces = new PieceTable(source, source.length());
     }
 
+    /**
+     * Returns the content of the document in a byte array.
+     *
+     * @throws BinaryDocumentException if the document is too large for an array.
+     */
     public byte[] getData() {
-        return Arrays.copyOfRange(data, 0, occupied);
+        long length = length();
+        if (length > Integer.MAX_VALUE - 8)
+            throw new BinaryDocumentException(this, "The document is too large to be copied");
+
+        byte[] data = new byte[(int) length];
+        int done = 0;
+        while (done < data.length)
+            done += read(createOffset(done), data, done, data.length - done);
+        return data;
     }
 
+    /**
+     * Replaces the content of the document - the replacement may be undone.
+     */
     public void setData(byte[] data) {
 
 
         anchor2Offset = new HashMap();
 
-        occupied = data.length;
-        this.data = data.clone();
+        pieces.replace(0, length(), data, 0, data.length);
+    }
+
+    /**
+     * Returns the original source the content is read from.
+     */
+    public ByteSource getSource() {
+        return pieces.getOriginal();
+    }
+
+    /**
+     * Returns the content of the document as a stream.
+     */
+    public InputStream getInputStream() {
+        return new ByteSourceInputStream(pieces);
+    }
+
+    /**
+     * Writes the content of the document to the stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[PagedByteSource.DEFAULT_PAGE_SIZE];
+        long position = 0;
+        int read;
+        while ((read = pieces.read(position, buffer, 0, buffer.length)) > 0) {
+            out.write(buffer, 0, read);
+            position += read;
+        }
     }
 
     // SAVE / CLOSE
@@ -122,9 +178,14 @@ public class BinaryDocument extends Observable {
      * This method saves the document back to the file from which it was
      * created. This method can not be called if the document is new or
      * read-only.
+     * <p>
+     * Only the changed regions are written while the edits did not move
+     * bytes of the file nor changed its length, otherwise the document is
+     * written to a temporary file replacing the file.
      *
      * @throws IOException           if an exception occured while writing the file.
-     * @throws DocumentSaveException if the document is read-only or if the document is new.
+     * @throws DocumentSaveException if the document is read-only, if the document is new
+     *                               or if the file can not be replaced - e.g. it is in use.
      */
     public void save() throws IOException {
         if (isReadOnly())
@@ -135,11 +196,14 @@ public class BinaryDocument extends Observable {
             throw new DocumentSaveException(this,
                     "Cannot call save() on a new document. Try saveAs(File).");
 
-        RandomAccessFile ioFile = new RandomAccessFile(file, "rw");
-        ioFile.write(data, 0, (int) length());
-        ioFile.close();
+        List<long[]> regions = isOpenedFrom(file) ? pieces.getChangedRegions() : null;
+        if (regions != null && length() == pieces.getOriginal().length()) {
+            saveRegions(regions);
+        } else {
+            replaceFile(file);
+        }
 
-        modified = false;
+        reopen(file);
     }
 
     /**
@@ -151,13 +215,21 @@ public class BinaryDocument extends Observable {
      * @throws IOException if an exception occured while writing the file.
      */
     public void saveAs(File file) throws IOException {
-        this.file = file;
+        if (isOpenedFrom(file)) {
+            this.file = file;
+            save();
+            return;
+        }
 
-        RandomAccessFile ioFile = new RandomAccessFile(file, "rw");
-        ioFile.write(data, 0, (int) length());
-        ioFile.close();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            writeTo(out);
+        } finally {
+            out.close();
+        }
 
-        modified = false;
+        this.file = file;
+        reopen(file);
     }
 
     /**
@@ -168,9 +240,53 @@ public class BinaryDocument extends Observable {
      * @throws IOException if an exception occured while closing the source file.
      */
     public void close() throws IOException {
-        data = null;
-        occupied = 0;
-        modified = false;
+        PieceTable pieces = this.pieces;
+        this.pieces = new PieceTable(new ByteArraySource(new byte[0]), 0);
+        pieces.close();
+    }
+
+    // UNDO / REDO
+
+    /**
+     * Returns true if there is an edit to undo.
+     */
+    public boolean canUndo() {
+        return pieces.canUndo();
+    }
+
+    /**
+     * Returns true if there is an undone edit to apply again.
+     */
+    public boolean canRedo() {
+        return pieces.canRedo();
+    }
+
+    /**
+     * Restores the content before the last edit.
+     *
+     * @return false if there was no edit to undo.
+     */
+    public boolean undo() {
+        PieceTable.Edit edit = pieces.undo();
+        if (edit == null)
+            return false;
+
+        editApplied(edit.offset, edit.inserted, edit.removed);
+        return true;
+    }
+
+    /**
+     * Applies the last edit undone again.
+     *
+     * @return false if there was no edit to apply.
+     */
+    public boolean redo() {
+        PieceTable.Edit edit = pieces.redo();
+        if (edit == null)
+            return false;
+
+        editApplied(edit.offset, edit.removed, edit.inserted);
+        return true;
     }
 
     // GETTERS
@@ -179,7 +295,7 @@ public class BinaryDocument extends Observable {
      * Returns the length of document.
      */
     public long length() {
-        return occupied;
+        return pieces.length();
     }
 
     /**
@@ -201,7 +317,7 @@ public class BinaryDocument extends Observable {
      * opened, or last saved.
      */
     public boolean isModified() {
-        return modified;
+        return pieces.isModified();
     }
 
     /**
@@ -280,19 +396,11 @@ public class BinaryDocument extends Observable {
     }
 
     public int read(Location loc, byte[] b, int off, int len) {
-        long offset = loc.getOffset();
-        int bytesRemaining = (int) (length() - offset);
-
-        if (len > bytesRemaining)
-            len = bytesRemaining;
-
-        if (len < 1)
-            return -1;
-
-        for (int i = 0; i < len; i++)
-            b[off + i] = data[(int) (offset + i)];
-
-        return len;
+        try {
+            return pieces.read(loc.getOffset(), b, off, len);
+        } catch (IOException e) {
+            throw new BinaryDocumentException(this, e.getMessage());
+        }
     }
 
     // WRITE OPERATIONS
@@ -307,24 +415,12 @@ public class BinaryDocument extends Observable {
     }
 
     public void write(Location loc, byte[] b, int off, int len) {
-        modified = true;
-
         long offset = loc.getOffset();
-        int bytesRemaining = (int) (length() - offset);
-
-        if (len > bytesRemaining) {
-            if ((int) offset + len >= data.length)
-                expandBuffer(((int) offset + len) - data.length);
-            occupied += len - bytesRemaining;
-        }
+        int bytesRemaining = (int) Math.min(len, length() - offset);
 
-        byte[] oldContent = new byte[len];
+        byte[] oldContent = readContent(offset, bytesRemaining);
 
-        for (int i = 0; i < len; i++)
-            oldContent[i] = data[(int) (offset + i)];
-
-        for (int i = 0; i < len; i++)
-            data[(int) offset + i] = b[off + i];
+        pieces.replace(offset, bytesRemaining, b, off, len);
 
         setChanged();
         notifyObservers(new ContentChangedEvent(this, new ByteSpan(loc, loc.addOffset(len - 1)),
@@ -344,33 +440,10 @@ public class BinaryDocument extends Observable {
     }
 
     public void insert(Location loc, byte[] b, int off, int len) {
-        modified = true;
-
         long offset = loc.getOffset();
-        int spaceRemaining = (int) (data.length - length());
-
-        if (spaceRemaining < len)
-            expandBuffer(len - spaceRemaining);
 
-        for (int i = (int) length() - 1; i >= (int) offset; i--)
-            data[i + len] = data[i];
-        occupied += len;
-
-        for (int i = 0; i < len; i++)
-            data[(int) offset + i] = b[off + i];
-
-        Vector anchors = new Vector(anchor2Offset.keySet());
-        HashMap anchor2Offset = new HashMap(2 * this.anchor2Offset.size() + 1);
-
-        for (int i = 0; i < anchors.size(); i++) {
-            PositionAnchor anchor = (PositionAnchor) anchors.get(i);
-            Long _offset = new Long(anchor.getOffset());
-            if (offset < _offset.longValue())
-                _offset = new Long(_offset.longValue() + len);
-            anchor2Offset.put(anchor, _offset);
-        }
-
-        this.anchor2Offset = anchor2Offset;
+        pieces.replace(offset, 0, b, off, len);
+        moveAnchors(offset, 0, len);
 
         setChanged();
         notifyObservers(new ContentChangedEvent(this, new ByteSpan(loc, loc.addOffset(len - 1)),
@@ -380,24 +453,40 @@ public class BinaryDocument extends Observable {
 
     // DELETE
     public int delete(Location loc, int len) {
-        modified = true;
-
         long offset = loc.getOffset();
         int bytesRemaining = (int) (length() - offset);
 
         if (len > bytesRemaining)
             len = bytesRemaining;
 
-        byte[] oldContent = new byte[len];
+        byte[] oldContent = readContent(offset, len);
 
-        for (int i = 0; i < len; i++)
-            oldContent[i] = data[(int) (offset + i)];
+        pieces.replace(offset, len, null, 0, 0);
+        moveAnchors(offset, len, 0);
 
-        occupied -= len;
+        setChanged();
+        notifyObservers(new ContentChangedEvent(this, new ByteSpan(loc, loc.addOffset(len - 1)),
+                ContentChangedEvent.DELETED, oldContent));
+        clearChanged();
+
+        return len;
+    }
+
+    ////// PRIVATE
 
-        for (int i = (int) offset; i < (int) length(); i++)
-            data[i] = data[i + len];
+    private byte[] readContent(long offset, int len) {
+        byte[] content = new byte[Math.max(0, len)];
+        int done = 0;
+        while (done < content.length)
+            done += read(createOffset(offset + done), content, done, content.length - done);
+        return content;
+    }
 
+    /**
+     * Moves the positions after the offset as the bytes removed there
+     * are replaced with the bytes inserted.
+     */
+    private void moveAnchors(long offset, long removed, long inserted) {
         Vector anchors = new Vector(anchor2Offset.keySet());
         HashMap anchor2Offset = new HashMap(2 * this.anchor2Offset.size() + 1);
 
@@ -405,8 +494,8 @@ public class BinaryDocument extends Observable {
             PositionAnchor anchor = (PositionAnchor) anchors.get(i);
             Long _offset = new Long(anchor.getOffset());
             if (offset < _offset.longValue()) {
-                if (len < _offset.longValue() - offset)
-                    _offset = new Long(_offset.longValue() - len);
+                if (removed < _offset.longValue() - offset)
+                    _offset = new Long(_offset.longValue() - removed + inserted);
                 else
                     _offset = new Long(offset);
             }
@@ -414,16 +503,97 @@ public class BinaryDocument extends Observable {
         }
 
         this.anchor2Offset = anchor2Offset;
+    }
 
+    /**
+     * Updates the positions and observers after an undo or redo
+     * replaced the bytes removed at the offset with the bytes inserted.
+     */
+    private void editApplied(long offset, long removed, long inserted) {
+        int type = ContentChangedEvent.WRITTEN;
+        if (removed != inserted) {
+            moveAnchors(offset, removed, inserted);
+            type = inserted > removed ? ContentChangedEvent.INSERTED : ContentChangedEvent.DELETED;
+        }
+
+        Location loc = createOffset(offset);
         setChanged();
-        notifyObservers(new ContentChangedEvent(this, new ByteSpan(loc, loc.addOffset(len - 1)),
-                ContentChangedEvent.DELETED, oldContent));
+        notifyObservers(new ContentChangedEvent(this,
+                new ByteSpan(loc, loc.addOffset(Math.max(removed, inserted) - 1)), type, null));
         clearChanged();
+    }
 
-        return len;
+    private boolean isOpenedFrom(File file) {
+        ByteSource source = pieces.getOriginal();
+        return source instanceof FileChannelByteSource
+                && ((FileChannelByteSource) source).getFile().getAbsoluteFile().equals(file.getAbsoluteFile());
+    }
+
+    /**
+     * Writes the changed regions into the file - the other bytes are
+     * the same in the file and the document.
+     */
+    private void saveRegions(List<long[]> regions) throws IOException {
+        byte[] buffer = new byte[PagedByteSource.DEFAULT_PAGE_SIZE];
+
+        RandomAccessFile ioFile = new RandomAccessFile(file, "rw");
+        try {
+            for (long[] region : regions) {
+                long position = region[0];
+                long end = region[0] + region[1];
+                while (position < end) {
+                    int read = pieces.read(position, buffer, 0, (int) Math.min(buffer.length, end - position));
+                    ioFile.seek(position);
+                    ioFile.write(buffer, 0, read);
+                    position += read;
+                }
+            }
+        } finally {
+            ioFile.close();
+        }
+    }
+
+    /**
+     * Writes the document to a temporary file replacing the file. The
+     * original is closed first so the file is not in use - if the file
+     * can not be replaced the document still reads the original.
+     */
+    private void replaceFile(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        File tempFile = File.createTempFile("." + file.getName() + ".", ".tmp", directory);
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try {
+                writeTo(out);
+            } finally {
+                out.close();
+            }
+
+            pieces.close();
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new DocumentSaveException(this,
+                        "Cannot replace the file " + file + ": " + e.getMessage());
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Opens the saved file as the original content - the edits
+     * can not be undone after a save.
+     */
+    private void reopen(File file) throws IOException {
+        pieces.close();
+
+        FileChannelByteSource source = new FileChannelByteSource(file);
+        pieces = new PieceTable(source, source.length());
     }
 
     ////// PACKAGE PROTECTED
+
     void removeAnchor(PositionAnchor anchor) {
         Long offset = (Long) anchor2Offset.get(anchor);
         anchor2Offset.remove(anchor);
@@ -435,15 +605,7 @@ public class BinaryDocument extends Observable {
         return offset.longValue();
     }
 
-    void expandBuffer(int minimum) {
-        int expandBy = (512 < minimum ? minimum : 512);
-        byte[] data = new byte[this.data.length + expandBy];
-        for (int i = 0; i < this.data.length; i++)
-            data[i] = this.data[i];
-        this.data = data;
-    }
-
     void rawPrint() {
-        System.out.println(new String(data));
+        System.out.println(new String(getData()));
     }
 }
@@ -0,0 +1,30 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+/**
+ * A byte source of bytes held in memory.
+ */
+public class ByteArraySource implements ByteSource {
+
+    private final byte[] data;
+
+    public ByteArraySource(byte[] data) {
+        this.data = data;
+    }
+
+    public long length() {
+        return data.length;
+    }
+
+    public int read(long position, byte[] b, int off, int len) {
+
+        if (position >= data.length)
+            return -1;
+
+        len = (int) Math.min(len, data.length - position);
+        System.arraycopy(data, (int) position, b, off, len);
+        return len;
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,27 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+import java.io.IOException;
+
+/**
+ * Random access to the bytes of a document content kept outside of
+ * the document - a file or a database LOB.
+ * <p>
+ * Closing a source releases the underlying resources only, a closed
+ * source opens them again once read.
+ */
+public interface ByteSource {
+
+    /**
+     * Returns the number of bytes of the source.
+     */
+    long length() throws IOException;
+
+    /**
+     * Reads up to len bytes at the specified position.
+     *
+     * @return the number of bytes read or -1 at the end of the source.
+     */
+    int read(long position, byte[] b, int off, int len) throws IOException;
+
+    void close() throws IOException;
+}
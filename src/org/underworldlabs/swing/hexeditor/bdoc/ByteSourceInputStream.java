@@ -0,0 +1,56 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a byte source from start to end as a stream.
+ */
+public class ByteSourceInputStream extends InputStream {
+
+    private final ByteSource source;
+
+    private long position;
+
+    private long mark;
+
+    public ByteSourceInputStream(ByteSource source) {
+        this.source = source;
+    }
+
+    public int read() throws IOException {
+
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : 0xFF & b[0];
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0)
+            return 0;
+
+        int read = source.read(position, b, off, len);
+        if (read > 0)
+            position += read;
+        return read;
+    }
+
+    public long skip(long n) throws IOException {
+
+        long skipped = Math.max(0, Math.min(n, source.length() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public synchronized void mark(int readLimit) {
+        mark = position;
+    }
+
+    public synchronized void reset() {
+        position = mark;
+    }
+}
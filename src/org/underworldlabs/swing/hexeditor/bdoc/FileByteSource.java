@@ -0,0 +1,52 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A byte source of a file read in pages.
+ */
+public class FileByteSource extends PagedByteSource {
+
+    private final File file;
+
+    private RandomAccessFile ioFile;
+
+    public FileByteSource(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long length() {
+        return file.length();
+    }
+
+    protected synchronized int readPage(long position, byte[] page, int len) throws IOException {
+
+        if (ioFile == null)
+            ioFile = new RandomAccessFile(file, "r");
+
+        ioFile.seek(position);
+        int done = 0;
+        while (done < len) {
+
+            int read = ioFile.read(page, done, len - done);
+            if (read < 0)
+                break;
+            done += read;
+        }
+        return done;
+    }
+
+    public synchronized void close() throws IOException {
+
+        if (ioFile != null) {
+            ioFile.close();
+            ioFile = null;
+        }
+    }
+}
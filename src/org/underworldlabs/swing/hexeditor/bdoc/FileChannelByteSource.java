@@ -0,0 +1,66 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A byte source of a file read with positional reads of its channel,
+ * so opening a file does not read it.
+ * <p>
+ * The file is opened on the first read and released as soon as the
+ * source is closed - unlike a mapped file, which stays in use until
+ * the mapping is garbage collected, a closed source does not keep the
+ * file from being replaced.
+ */
+public class FileChannelByteSource implements ByteSource {
+
+    private final File file;
+
+    private final long length;
+
+    private FileChannel channel;
+
+    public FileChannelByteSource(File file) throws IOException {
+        this.file = file;
+        if (!file.isFile())
+            throw new IOException("The file " + file + " does not exist");
+        this.length = file.length();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public synchronized int read(long position, byte[] b, int off, int len) throws IOException {
+
+        if (position >= length)
+            return -1;
+
+        if (channel == null)
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        len = (int) Math.min(len, length - position);
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - off) < 0)
+                throw new EOFException("The file " + file + " was truncated");
+        }
+        return len;
+    }
+
+    public synchronized void close() throws IOException {
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A byte source reading its content in pages of fixed size as they
+ * are accessed. The least recently used pages are dropped once more
+ * than the maximum number of pages are cached.
+ */
+public abstract class PagedByteSource implements ByteSource {
+
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_PAGE_COUNT = 32;
+
+    private final int pageSize;
+
+    private final Map<Long, byte[]> pages;
+
+    protected PagedByteSource() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+    }
+
+    protected PagedByteSource(int pageSize, final int pageCount) {
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Long, byte[]>(pageCount * 2, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > pageCount;
+            }
+        };
+    }
+
+    /**
+     * Reads the bytes of one page - fewer bytes than requested are
+     * read at the end of the source only.
+     *
+     * @return the number of bytes read, 0 or -1 at the end of the source.
+     */
+    protected abstract int readPage(long position, byte[] page, int len) throws IOException;
+
+    public synchronized int read(long position, byte[] b, int off, int len) throws IOException {
+
+        int done = 0;
+        while (done < len) {
+
+            long index = (position + done) / pageSize;
+            int pageOffset = (int) (position + done - index * pageSize);
+
+            byte[] page = page(index);
+            if (pageOffset >= page.length)
+                break;
+
+            int count = Math.min(len - done, page.length - pageOffset);
+            System.arraycopy(page, pageOffset, b, off + done, count);
+            done += count;
+
+            // a short page is the last one
+            if (page.length < pageSize)
+                break;
+        }
+
+        return done > 0 ? done : -1;
+    }
+
+    /**
+     * Drops all cached pages.
+     */
+    public synchronized void clearPages() {
+        pages.clear();
+    }
+
+    private byte[] page(long index) throws IOException {
+
+        byte[] page = pages.get(index);
+        if (page == null) {
+
+            byte[] buffer = new byte[pageSize];
+            int read = Math.max(0, readPage(index * pageSize, buffer, pageSize));
+            page = read < pageSize ? Arrays.copyOf(buffer, read) : buffer;
+            pages.put(index, page);
+        }
+        return page;
+    }
+}
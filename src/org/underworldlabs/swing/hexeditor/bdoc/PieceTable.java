@@ -0,0 +1,324 @@
+package org.underworldlabs.swing.hexeditor.bdoc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The content of a binary document as a sequence of pieces of the
+ * read-only original source and of an append-only buffer of the bytes
+ * added by edits.
+ * <p>
+ * The pieces are kept in a persistent treap ordered by document offset,
+ * so an edit copies O(log n) nodes and leaves the previous tree intact.
+ * Undo and redo switch between the trees of the edits.
+ */
+class PieceTable implements ByteSource {
+
+    private static final int ADD_CHUNK_SIZE = 64 * 1024;
+
+    private final ByteSource original;
+
+    private final List<byte[]> added;
+    private long addedLength;
+
+    private final Random random;
+
+    private Node root;
+    private Node savedRoot;
+
+    private final LinkedList<Edit> undoEdits;
+    private final LinkedList<Edit> redoEdits;
+
+    PieceTable(ByteSource original, long length) {
+        this.original = original;
+        this.added = new ArrayList<>();
+        this.random = new Random();
+        this.undoEdits = new LinkedList<>();
+        this.redoEdits = new LinkedList<>();
+
+        if (length > 0)
+            root = new Node(true, 0, length, random.nextInt(), null, null);
+        savedRoot = root;
+    }
+
+    ByteSource getOriginal() {
+        return original;
+    }
+
+    public long length() {
+        return size(root);
+    }
+
+    /**
+     * Returns true if the content differs from the last saved one.
+     */
+    boolean isModified() {
+        return root != savedRoot;
+    }
+
+    void markSaved() {
+        savedRoot = root;
+    }
+
+    // READ
+
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position >= length())
+            return -1;
+
+        return read(root, position, b, off, len);
+    }
+
+    private int read(Node node, long position, byte[] b, int off, int len) throws IOException {
+        if (node == null || len <= 0)
+            return 0;
+
+        int done = 0;
+        long leftSize = size(node.left);
+        if (position < leftSize)
+            done = read(node.left, position, b, off, len);
+
+        if (done < len && position + done < leftSize + node.length) {
+            long pieceOffset = position + done - leftSize;
+            int count = (int) Math.min(len - done, node.length - pieceOffset);
+            readPiece(node, pieceOffset, b, off + done, count);
+            done += count;
+        }
+
+        long rightPosition = position + done - leftSize - node.length;
+        if (done < len && rightPosition >= 0)
+            done += read(node.right, rightPosition, b, off + done, len - done);
+
+        return done;
+    }
+
+    private void readPiece(Node node, long pieceOffset, byte[] b, int off, int len) throws IOException {
+        long position = node.start + pieceOffset;
+        int done = 0;
+
+        if (node.fromOriginal) {
+            while (done < len) {
+                int read = original.read(position + done, b, off + done, len - done);
+                if (read < 0)
+                    throw new IOException("Unexpected end of the document source at " + (position + done));
+                done += read;
+            }
+            return;
+        }
+
+        while (done < len) {
+            int chunk = (int) ((position + done) / ADD_CHUNK_SIZE);
+            int chunkOffset = (int) ((position + done) % ADD_CHUNK_SIZE);
+            int count = Math.min(len - done, ADD_CHUNK_SIZE - chunkOffset);
+            System.arraycopy(added.get(chunk), chunkOffset, b, off + done, count);
+            done += count;
+        }
+    }
+
+    // EDIT
+
+    /**
+     * Replaces the specified number of bytes at the position with the
+     * bytes specified - an insert replaces no bytes, a delete inserts none.
+     */
+    void replace(long position, long removed, byte[] b, int off, int len) {
+        Node before = root;
+
+        Node[] head = split(root, position);
+        Node[] tail = split(head[1], removed);
+
+        Node middle = null;
+        if (len > 0)
+            middle = new Node(false, append(b, off, len), len, random.nextInt(), null, null);
+
+        root = merge(merge(head[0], middle), tail[1]);
+
+        undoEdits.push(new Edit(position, removed, len, before, root));
+        redoEdits.clear();
+    }
+
+    boolean canUndo() {
+        return !undoEdits.isEmpty();
+    }
+
+    boolean canRedo() {
+        return !redoEdits.isEmpty();
+    }
+
+    /**
+     * Restores the content before the last edit.
+     *
+     * @return the edit undone or null if there are no edits.
+     */
+    Edit undo() {
+        if (undoEdits.isEmpty())
+            return null;
+
+        Edit edit = undoEdits.pop();
+        redoEdits.push(edit);
+        root = edit.before;
+        return edit;
+    }
+
+    /**
+     * Applies the last edit undone again.
+     *
+     * @return the edit redone or null if no edit was undone.
+     */
+    Edit redo() {
+        if (redoEdits.isEmpty())
+            return null;
+
+        Edit edit = redoEdits.pop();
+        undoEdits.push(edit);
+        root = edit.after;
+        return edit;
+    }
+
+    /**
+     * Returns the regions of the content which differ from the original
+     * at the same offset, as pairs of offset and length - or null if
+     * bytes of the original were moved by inserts or deletes.
+     */
+    List<long[]> getChangedRegions() {
+        List<long[]> regions = new ArrayList<>();
+        return collectChangedRegions(root, 0, regions) ? regions : null;
+    }
+
+    private boolean collectChangedRegions(Node node, long offset, List<long[]> regions) {
+        if (node == null)
+            return true;
+
+        if (!collectChangedRegions(node.left, offset, regions))
+            return false;
+
+        long pieceOffset = offset + size(node.left);
+        if (node.fromOriginal) {
+            if (node.start != pieceOffset)
+                return false;
+
+        } else {
+            long[] last = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+            if (last != null && last[0] + last[1] == pieceOffset)
+                last[1] += node.length;
+            else
+                regions.add(new long[]{pieceOffset, node.length});
+        }
+
+        return collectChangedRegions(node.right, pieceOffset + node.length, regions);
+    }
+
+    public void close() throws IOException {
+        original.close();
+    }
+
+    // TREAP
+
+    private long append(byte[] b, int off, int len) {
+        long start = addedLength;
+
+        int done = 0;
+        while (done < len) {
+            int chunkOffset = (int) (addedLength % ADD_CHUNK_SIZE);
+            if (chunkOffset == 0)
+                added.add(new byte[ADD_CHUNK_SIZE]);
+
+            int count = Math.min(len - done, ADD_CHUNK_SIZE - chunkOffset);
+            System.arraycopy(b, off + done, added.get(added.size() - 1), chunkOffset, count);
+            done += count;
+            addedLength += count;
+        }
+        return start;
+    }
+
+    /**
+     * Splits the tree into the first count bytes and the rest, copying
+     * the nodes on the path only.
+     */
+    private static Node[] split(Node node, long count) {
+        if (node == null)
+            return new Node[2];
+
+        long leftSize = size(node.left);
+        if (count <= leftSize) {
+            Node[] parts = split(node.left, count);
+            return new Node[]{parts[0], node.with(parts[1], node.right)};
+        }
+
+        if (count >= leftSize + node.length) {
+            Node[] parts = split(node.right, count - leftSize - node.length);
+            return new Node[]{node.with(node.left, parts[0]), parts[1]};
+        }
+
+        // the split is inside of the piece
+        long pieceCount = count - leftSize;
+        return new Node[]{
+                new Node(node.fromOriginal, node.start, pieceCount, node.priority, node.left, null),
+                new Node(node.fromOriginal, node.start + pieceCount, node.length - pieceCount, node.priority, null, node.right)
+        };
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+
+        if (left.priority >= right.priority)
+            return left.with(left.left, merge(left.right, right));
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    private static long size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static final class Node {
+
+        final boolean fromOriginal;
+        final long start;
+        final long length;
+        final int priority;
+        final Node left;
+        final Node right;
+        final long size;
+
+        Node(boolean fromOriginal, long start, long length, int priority, Node left, Node right) {
+            this.fromOriginal = fromOriginal;
+            this.start = start;
+            this.length = length;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + length + size(right);
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(fromOriginal, start, length, priority, left, right);
+        }
+    }
+
+    /**
+     * An edit replacing the bytes removed at the offset with the
+     * bytes inserted.
+     */
+    static final class Edit {
+
+        final long offset;
+        final long removed;
+        final long inserted;
+        final Node before;
+        final Node after;
+
+        Edit(long offset, long removed, long inserted, Node before, Node after) {
+            this.offset = offset;
+            this.removed = removed;
+            this.inserted = inserted;
+            this.before = before;
+            this.after = after;
+        }
+    }
+}
@@ -27,6 +27,10 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
     public static final int UNDERLINE_LOW_DOTTED = 64;
     public static final int UNDERLINE_LOW_DOUBLE = 128;
 
+    // The height of the grid is capped - the rows of larger models are
+    // mapped onto it scaled, see viewToVirtual() and virtualToView().
+    public static final int MAX_VIEW_HEIGHT = 1 << 30;
+
     // MEMBERS
     protected int charHeight;
     protected int charWidth;
@@ -74,6 +78,7 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
         if (model != null)
             model.addTextGridModelListener(this);
 
+        updateScrollMode();
         revalidate();
         repaint();
     }
@@ -81,7 +86,27 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
     // model can change its column count, so this is now dynamic
     public Dimension getPreferredSize() {
         return new Dimension(leftMargin + model.getColumnCount() * charWidth,
-                topMargin + model.getRowCount() * charHeight);
+                (int) Math.min(getContentHeight(), MAX_VIEW_HEIGHT));
+    }
+
+    /**
+     * Returns the height all rows would take unscaled.
+     */
+    public long getContentHeight() {
+        return topMargin + (long) model.getRowCount() * charHeight;
+    }
+
+    /**
+     * Returns true if the rows do not fit the maximum height and are
+     * mapped onto it scaled.
+     */
+    public boolean isScaled() {
+        return getContentHeight() > MAX_VIEW_HEIGHT;
+    }
+
+    public void addNotify() {
+        super.addNotify();
+        updateScrollMode();
     }
 
     public Dimension getMinimumSize() {
@@ -121,7 +146,8 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
      * Convert a screen point to row and column position.
      */
     public Point viewToModel(Point p) {
-        int row = (p.y - topMargin) / charHeight;
+        long virtualRow = (viewToVirtual(p.y) - topMargin) / charHeight;
+        int row = (int) Math.max(Math.min(virtualRow, Integer.MAX_VALUE), Integer.MIN_VALUE);
         int col = (p.x - leftMargin) / charWidth;
         row = row < 0 ? 0 : row;
         row = row >= getRowCount() ? getRowCount() - 1 : row;
@@ -136,7 +162,99 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
      * Convert a row/column to a rectangle on the screen.
      */
     public Rectangle modelToView(int row, int col) {
-        return new Rectangle(col * charWidth + leftMargin, row * charHeight + topMargin, charWidth, charHeight);
+        return new Rectangle(col * charWidth + leftMargin,
+                virtualToView((long) row * charHeight + topMargin), charWidth, charHeight);
+    }
+
+    /**
+     * Converts a y coordinate of the grid to the position in the unscaled
+     * rows. Scaled, the visible rectangle is placed in the rows in
+     * proportion to its scroll position and the rows inside it keep their
+     * height.
+     */
+    protected long viewToVirtual(int y) {
+        if (!isScaled())
+            return y;
+
+        Rectangle visibleRect = getVisibleRect();
+        return virtualTop(visibleRect) + (y - visibleRect.y);
+    }
+
+    /**
+     * Converts a position in the unscaled rows to a y coordinate of the
+     * grid, rows far from the visible rectangle are clamped.
+     */
+    protected int virtualToView(long virtualY) {
+        if (!isScaled())
+            return (int) virtualY;
+
+        Rectangle visibleRect = getVisibleRect();
+        long y = visibleRect.y + (virtualY - virtualTop(visibleRect));
+        return (int) Math.max(Math.min(y, Integer.MAX_VALUE / 2), Integer.MIN_VALUE / 2);
+    }
+
+    private long virtualTop(Rectangle visibleRect) {
+        long range = getHeight() - visibleRect.height;
+        if (range <= 0)
+            return 0;
+
+        long virtualRange = getContentHeight() - visibleRect.height;
+        return Math.round(visibleRect.y * (double) virtualRange / range);
+    }
+
+    /**
+     * Scrolls the cell into view - also a cell far from the visible
+     * rectangle of a scaled grid, its view coordinates are clamped.
+     */
+    public void scrollToVisible(int row, int col) {
+        Rectangle r = modelToView(row, col);
+        if (isScaled())
+            scrollVirtualToVisible(r, (long) row * charHeight + topMargin);
+        else
+            scrollRectToVisible(r);
+    }
+
+    public void scrollRectToVisible(Rectangle r) {
+        if (isScaled())
+            scrollVirtualToVisible(r, viewToVirtual(r.y));
+        else
+            super.scrollRectToVisible(r);
+    }
+
+    /**
+     * Scrolls the unscaled position of the rectangle into view - scaled,
+     * the view moves by fewer pixels than the rows.
+     */
+    private void scrollVirtualToVisible(Rectangle r, long virtualY) {
+        Rectangle visibleRect = getVisibleRect();
+        long virtualTop = virtualTop(visibleRect);
+        if (visibleRect.height <= 0
+                || (virtualY >= virtualTop && virtualY + r.height <= virtualTop + visibleRect.height)) {
+            super.scrollRectToVisible(new Rectangle(r.x, visibleRect.y, r.width, visibleRect.height));
+            return;
+        }
+
+        long range = getHeight() - visibleRect.height;
+        long virtualRange = getContentHeight() - visibleRect.height;
+        boolean up = virtualY < virtualTop;
+        long top = up ? virtualY : virtualY + r.height - visibleRect.height;
+
+        // round towards the rectangle so it is not cut by the scaled step
+        double y = top * (double) range / virtualRange;
+        long viewY = up ? (long) Math.floor(y) : (long) Math.ceil(y);
+        viewY = Math.max(0, Math.min(viewY, range));
+
+        super.scrollRectToVisible(new Rectangle(r.x, (int) viewY, r.width, visibleRect.height));
+    }
+
+    /**
+     * Scaled, the content does not move with the viewport by the same
+     * number of pixels and must not be blitted.
+     */
+    private void updateScrollMode() {
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null && model != null && isScaled())
+            viewport.setScrollMode(JViewport.SIMPLE_SCROLL_MODE);
     }
 
     /**
@@ -169,6 +287,7 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
 
     // TEXT GRID MODEL LISTENER INTERFACE
     public void textGridUpdated(TextGridModelEvent e) {
+        updateScrollMode();
         revalidate();
         repaint();
     }
@@ -180,7 +299,11 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
 
     public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
         int result = 0;
-        if (orientation == SwingConstants.VERTICAL) {
+        if (orientation == SwingConstants.VERTICAL && isScaled()) {
+            long range = Math.max(1, getHeight() - visibleRect.height);
+            long virtualRange = getContentHeight() - visibleRect.height;
+            result = (int) Math.max(1, charHeight * range / virtualRange);
+        } else if (orientation == SwingConstants.VERTICAL) {
             if (direction < 0)
                 result = (visibleRect.y - topMargin) % charHeight;
             else
@@ -202,7 +325,11 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
     public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
         int result = 0;
 
-        if (orientation == SwingConstants.VERTICAL) {
+        if (orientation == SwingConstants.VERTICAL && isScaled()) {
+            long range = Math.max(1, getHeight() - visibleRect.height);
+            long virtualRange = getContentHeight() - visibleRect.height;
+            result = (int) Math.max(1, (visibleRect.height - charHeight) * range / virtualRange);
+        } else if (orientation == SwingConstants.VERTICAL) {
             result = visibleRect.height - charHeight;
             result += getScrollableUnitIncrement(new Rectangle(visibleRect.x,
                     result + visibleRect.y,
@@ -371,7 +498,7 @@ public class TextGrid extends JComponent implements TextGridModelListener, Scrol
         int offset = 0;
         if (cursor != null && cursor.isSelectionVisible()) {
             Point p = cursor.getSelectionStart();
-            offset = charHeight * p.y;
+            offset = modelToView(p.y, 0).y - topMargin;
         }
         return offset;
     }
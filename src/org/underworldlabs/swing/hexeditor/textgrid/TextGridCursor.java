@@ -148,7 +148,7 @@ public class TextGridCursor {
                     public void run() {
                         synchronized (TextGridCursor.this) {
                             // Scroll if necessary
-                            textGrid.scrollRectToVisible(getCaretRect());
+                            textGrid.scrollToVisible(getCurrentRow(), getCurrentColumn());
 
                             // Draw the new caret
                             if (!isMarkSet()) {
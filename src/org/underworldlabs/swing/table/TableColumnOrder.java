@@ -0,0 +1,336 @@
+/*
+ * TableColumnOrder.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.underworldlabs.swing.table;
+
+import javax.swing.table.TableModel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The sort order of a single table model column.
+ * <p>
+ * The column values are read once and reduced to dense integer
+ * ranks - equal values share a rank and null values rank lowest.
+ * Only the distinct values are compared, rows are then ordered by a
+ * counting sort on the ranks in linear time keeping the current order
+ * of rows with equal values. Reading the values, sorting the distinct
+ * values and ranking the rows run in parallel on the common fork/join
+ * pool.
+ *
+ * @author Takis Diakoumis
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class TableColumnOrder {
+
+    /**
+     * the rank of each model row - 0 for null values
+     */
+    private final int[] ranks;
+
+    /**
+     * the number of distinct ranks including null
+     */
+    private final int rankCount;
+
+    /**
+     * the model rows in ascending order
+     */
+    private final int[] ascending;
+
+    /**
+     * the model rows in descending order once requested
+     */
+    private volatile int[] descending;
+
+    private TableColumnOrder(int[] ranks, int rankCount) {
+
+        this.ranks = ranks;
+        this.rankCount = rankCount;
+
+        int[] rows = new int[ranks.length];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        this.ascending = sort(rows, TableSorter.ASCENDING);
+    }
+
+    /**
+     * Reads the values of the specified column and ranks them.
+     *
+     * @param model      the table model
+     * @param column     the model column
+     * @param comparator the comparator for the column values or null
+     *                   to compare by value type
+     * @return the column order
+     */
+    static TableColumnOrder create(TableModel model, int column, Comparator comparator) {
+
+        int rowCount = model.getRowCount();
+        Object[] values = new Object[rowCount];
+        IntStream.range(0, rowCount).parallel().forEach(row -> values[row] = valueAt(model, row, column));
+
+        if (comparator != null) {
+            return rankObjects(values, comparator);
+        }
+
+        if (model.getColumnClass(column) == String.class) {
+            return rankObjects(asStrings(values), Comparator.naturalOrder());
+        }
+
+        Class type = commonType(values);
+        if (type == null) {
+            return new TableColumnOrder(new int[rowCount], 1);
+
+        } else if (Number.class.isAssignableFrom(type)) {
+            return rankNumbers(values);
+
+        } else if (Date.class.isAssignableFrom(type)) {
+            return rankDates(values);
+
+        } else if (Comparable.class.isAssignableFrom(type)) {
+            return rankObjects(values, Comparator.naturalOrder());
+        }
+
+        return rankObjects(asStrings(values), Comparator.naturalOrder());
+    }
+
+    /**
+     * Returns the model rows ordered in the specified direction.
+     * The returned array is shared and must not be modified.
+     *
+     * @param direction <code>TableSorter.ASCENDING</code> or
+     *                  <code>TableSorter.DESCENDING</code>
+     */
+    int[] rows(int direction) {
+
+        if (direction != TableSorter.DESCENDING) {
+            return ascending;
+        }
+
+        int[] rows = descending;
+        if (rows == null) {
+            rows = sort(ascending, TableSorter.DESCENDING);
+            descending = rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Reorders the specified rows by the values of this column keeping
+     * the current order of rows with equal values.
+     *
+     * @param rows      all model rows in their current order
+     * @param direction the sort direction
+     * @return the reordered rows
+     */
+    int[] sort(int[] rows, int direction) {
+
+        boolean reverse = direction == TableSorter.DESCENDING;
+
+        int[] starts = new int[rankCount + 1];
+        for (int row : rows) {
+            starts[key(row, reverse) + 1]++;
+        }
+        for (int i = 0; i < rankCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+
+        int[] sorted = new int[rows.length];
+        for (int row : rows) {
+            sorted[starts[key(row, reverse)]++] = row;
+        }
+        return sorted;
+    }
+
+    int rowCount() {
+        return ranks.length;
+    }
+
+    private int key(int row, boolean reverse) {
+        return reverse ? rankCount - 1 - ranks[row] : ranks[row];
+    }
+
+    private static TableColumnOrder rankNumbers(Object[] values) {
+
+        double[] keys = new double[values.length];
+        IntStream.range(0, values.length).parallel().forEach(row -> {
+
+            // adding zero folds -0.0 into 0.0
+            if (values[row] != null) {
+                keys[row] = ((Number) values[row]).doubleValue() + 0.0;
+            }
+        });
+
+        double[] distinct = new double[values.length];
+        int nonNull = 0;
+        for (int row = 0; row < values.length; row++) {
+            if (values[row] != null) {
+                distinct[nonNull++] = keys[row];
+            }
+        }
+        Arrays.parallelSort(distinct, 0, nonNull);
+
+        int count = 0;
+        for (int i = 0; i < nonNull; i++) {
+            if (count == 0 || Double.compare(distinct[count - 1], distinct[i]) != 0) {
+                distinct[count++] = distinct[i];
+            }
+        }
+
+        int distinctCount = count;
+        int[] ranks = new int[values.length];
+        IntStream.range(0, values.length).parallel().forEach(row -> {
+            if (values[row] != null) {
+                ranks[row] = Arrays.binarySearch(distinct, 0, distinctCount, keys[row]) + 1;
+            }
+        });
+
+        return new TableColumnOrder(ranks, distinctCount + 1);
+    }
+
+    private static TableColumnOrder rankDates(Object[] values) {
+
+        long[] keys = new long[values.length];
+        IntStream.range(0, values.length).parallel().forEach(row -> {
+            if (values[row] != null) {
+                keys[row] = ((Date) values[row]).getTime();
+            }
+        });
+
+        long[] distinct = new long[values.length];
+        int nonNull = 0;
+        for (int row = 0; row < values.length; row++) {
+            if (values[row] != null) {
+                distinct[nonNull++] = keys[row];
+            }
+        }
+        Arrays.parallelSort(distinct, 0, nonNull);
+
+        int count = 0;
+        for (int i = 0; i < nonNull; i++) {
+            if (count == 0 || distinct[count - 1] != distinct[i]) {
+                distinct[count++] = distinct[i];
+            }
+        }
+
+        int distinctCount = count;
+        int[] ranks = new int[values.length];
+        IntStream.range(0, values.length).parallel().forEach(row -> {
+            if (values[row] != null) {
+                ranks[row] = Arrays.binarySearch(distinct, 0, distinctCount, keys[row]) + 1;
+            }
+        });
+
+        return new TableColumnOrder(ranks, distinctCount + 1);
+    }
+
+    /**
+     * Ranks the values collecting the distinct values by equality so
+     * repeated values are compared once. Values equal by the
+     * comparator but not by equality share the same rank.
+     */
+    private static TableColumnOrder rankObjects(Object[] values, Comparator comparator) {
+
+        Map<Object, Integer> distinctRanks = new HashMap<>();
+        for (Object value : values) {
+            if (value != null) {
+                distinctRanks.put(value, 0);
+            }
+        }
+
+        Object[] distinct = distinctRanks.keySet().toArray();
+        Arrays.parallelSort(distinct, comparator);
+
+        int rank = 0;
+        for (int i = 0; i < distinct.length; i++) {
+
+            if (i == 0 || comparator.compare(distinct[i - 1], distinct[i]) != 0) {
+                rank++;
+            }
+            distinctRanks.put(distinct[i], rank);
+        }
+
+        int[] ranks = new int[values.length];
+        IntStream.range(0, values.length).parallel().forEach(row -> {
+            if (values[row] != null) {
+                ranks[row] = distinctRanks.get(values[row]);
+            }
+        });
+
+        return new TableColumnOrder(ranks, rank + 1);
+    }
+
+    /**
+     * Returns the class shared by all non-null values, the closest
+     * common class of numbers and dates, or Object if the values
+     * are mixed. Null is returned for a column of null values only.
+     */
+    private static Class commonType(Object[] values) {
+
+        Class type = null;
+        for (Object value : values) {
+
+            if (value == null) {
+                continue;
+            }
+
+            Class valueType = value.getClass();
+            if (type == null || type == valueType) {
+                type = valueType;
+
+            } else if (value instanceof Number && Number.class.isAssignableFrom(type)) {
+                type = Number.class;
+
+            } else if (value instanceof Date && Date.class.isAssignableFrom(type)) {
+                type = Date.class;
+
+            } else {
+                return Object.class;
+            }
+        }
+        return type;
+    }
+
+    private static Object[] asStrings(Object[] values) {
+
+        Object[] strings = new Object[values.length];
+        IntStream.range(0, values.length).parallel().forEach(row -> {
+            if (values[row] != null) {
+                strings[row] = values[row].toString();
+            }
+        });
+        return strings;
+    }
+
+    private static Object valueAt(TableModel model, int row, int column) {
+
+        Object value = model.getValueAt(row, column);
+        if (value instanceof TableCellValue) {
+            value = ((TableCellValue) value).getValue();
+        }
+        return value;
+    }
+
+}
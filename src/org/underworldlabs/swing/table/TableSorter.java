@@ -35,6 +35,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TableSorter is a decorator for TableModels; adding sorting
@@ -55,6 +56,11 @@ import java.util.*;
  * rows, a note of this is made and the sorter will resort the
  * rows the next time a value is requested.
  * <p/>
+ * Rows are sorted on the ranks of the column values computed by
+ * {@link TableColumnOrder} - the values of a column are read once and
+ * the order of each sorted column is kept until the model changes.
+ * Sorting from the table header runs off the event dispatch thread.
+ * <p/>
  * When the tableHeader property is set, either by using the
  * setTableHeader() method or the two argument constructor, the
  * table header may be used as a complete UI for TableSorter.
@@ -114,9 +120,19 @@ public class TableSorter extends AbstractTableModel {
         }
     };
 
-    private Row[] viewToModel;
+    private volatile int[] viewToModel;
     private int[] modelToView;
 
+    /**
+     * the orders of the sorted columns kept until the model changes
+     */
+    private final Map<Integer, TableColumnOrder> columnOrders = new ConcurrentHashMap<>();
+
+    /**
+     * incremented with each model change to discard sorts of older data
+     */
+    private volatile int modelVersion;
+
     private JTableHeader tableHeader;
     private MouseListener mouseListener;
     private TableModelListener tableModelListener;
@@ -152,6 +168,11 @@ public class TableSorter extends AbstractTableModel {
         modelToView = null;
     }
 
+    private void clearColumnOrders() {
+        modelVersion++;
+        columnOrders.clear();
+    }
+
     public TableModel getReferencedTableModel() {
         return tableModel;
     }
@@ -174,6 +195,7 @@ public class TableSorter extends AbstractTableModel {
             this.tableModel.addTableModelListener(tableModelListener);
         }
 
+        clearColumnOrders();
         reset();
     }
 
@@ -272,6 +294,7 @@ public class TableSorter extends AbstractTableModel {
         } else {
             columnComparators.put(type, comparator);
         }
+        columnOrders.clear();
     }
 
     protected Comparator getComparator(int column) {
@@ -291,36 +314,66 @@ public class TableSorter extends AbstractTableModel {
         return LEXICAL_COMPARATOR;
     }
 
-    private Row[] getViewToModel() {
+    private int[] getViewToModel() {
 
-        if (viewToModel == null) {
+        int[] rows = viewToModel;
+        if (rows == null) {
 
-            int tableModelRowCount = tableModel.getRowCount();
+            rows = sortedRows(new ArrayList<Directive>(sortingColumns));
+            viewToModel = rows;
+        }
 
-            viewToModel = new Row[tableModelRowCount];
-            for (int row = 0; row < tableModelRowCount; row++) {
+        return rows;
+    }
 
-                viewToModel[row] = new Row(row);
-            }
+    /**
+     * Orders the model rows by the specified sorting columns. The last
+     * column is sorted first and each preceding column is then sorted
+     * keeping the order of equal values.
+     */
+    private int[] sortedRows(List<Directive> directives) {
 
-            if (isSorting()) {
+        if (directives.isEmpty()) {
 
-                Arrays.sort(viewToModel);
+            int[] rows = new int[tableModel.getRowCount()];
+            for (int row = 0; row < rows.length; row++) {
+                rows[row] = row;
             }
+            return rows;
+        }
+
+        Directive last = directives.get(directives.size() - 1);
+        int[] rows = columnOrder(last.column).rows(last.direction);
+        for (int i = directives.size() - 2; i >= 0; i--) {
+
+            Directive directive = directives.get(i);
+            rows = columnOrder(directive.column).sort(rows, directive.direction);
+        }
+
+        return rows;
+    }
+
+    private TableColumnOrder columnOrder(int column) {
+
+        TableColumnOrder columnOrder = columnOrders.get(column);
+        if (columnOrder == null || columnOrder.rowCount() != tableModel.getRowCount()) {
 
+            Class type = tableModel.getColumnClass(column);
+            columnOrder = TableColumnOrder.create(tableModel, column, (Comparator) columnComparators.get(type));
+            columnOrders.put(column, columnOrder);
         }
 
-        return viewToModel;
+        return columnOrder;
     }
 
     public int modelIndex(int viewIndex) {
 
-        Row[] rows = getViewToModel();
+        int[] rows = getViewToModel();
         if (viewIndex >= rows.length) {
             return -1;
         }
 
-        return rows[viewIndex].modelIndex;
+        return rows[viewIndex];
     }
 
     private int[] getModelToView() {
@@ -406,196 +459,12 @@ public class TableSorter extends AbstractTableModel {
 
     // Helper classes
 
-    private class Row implements Comparable {
-
-        private int modelIndex;
-
-        public Row(int index) {
-
-            this.modelIndex = index;
-        }
-
-        public int compareTo(Object o) {
-
-            int row1 = modelIndex;
-            int row2 = ((Row) o).modelIndex;
-
-            for (Iterator it = sortingColumns.iterator(); it.hasNext(); ) {
-
-                Directive directive = (Directive) it.next();
-
-                int column = directive.column;
-
-                Object o1 = valueToCompareFromModel(row1, column);
-                Object o2 = valueToCompareFromModel(row2, column);
-
-                int comparison = 0;
-
-                // Define null less than everything, except null.
-                if (o1 == null && o2 == null) {
-
-                    comparison = 0;
-
-                } else if (o1 == null) {
-
-                    comparison = -1;
-
-                } else if (o2 == null) {
-
-                    comparison = 1;
-
-                } else {
-
-                    Class type = tableModel.getColumnClass(column);
-
-                    if (columnComparators.containsKey(type)) {
-
-                        comparison = ((Comparator) columnComparators.get(type)).compare(o1, o2);
-
-                    } else {
-
-                        comparison = compareByColumn(type, o1, o2);
-                        //  comparison = getComparator(column).compare(o1, o2);
-                    }
-
-                }
-
-                if (comparison != 0) {
-
-                    return directive.direction == DESCENDING ? -comparison : comparison;
-                }
-
-            }
-
-            return 0;
-        }
-
-        private int compareByColumn(Class type, Object o1, Object o2) {
-
-            if (type.getSuperclass() == java.lang.Number.class) {
-
-                return compareAsNumber(o1, o2);
-
-            } else if (type == java.util.Date.class) {
-
-                return compareAsDate(o1, o2);
-
-            } else if (type == String.class) {
-
-                return compareAsString(o1, o2);
-
-            } else if (type == Boolean.class) {
-
-                return compareAsBoolean(o1, o2);
-
-            } else {
-
-                try {
-
-                    return compareAsNumber(o1, o2);
-
-                } catch (ClassCastException e) {
-
-                    return compareAsString(o1, o2);
-                }
-
-            }
-
-        }
-
-        private int compareAsNumber(Object o1, Object o2) {
-
-            Number n1 = (Number) o1;
-            double d1 = n1.doubleValue();
-            Number n2 = (Number) o2;
-            double d2 = n2.doubleValue();
-
-            if (d1 < d2)
-                return -1;
-            else if (d1 > d2)
-                return 1;
-            else
-                return 0;
-        }
-
-        private int compareAsDate(Object o1, Object o2) {
-
-            long n1 = -1;
-            try {
-                Date d1 = (Date) o1;
-                n1 = d1.getTime();
-            } catch (ClassCastException e) {
-            }
-
-            long n2 = -1;
-            try {
-                Date d2 = (Date) o2;
-                n2 = d2.getTime();
-            } catch (ClassCastException e) {
-            }
-
-            if (n1 < n2)
-                return -1;
-            else if (n1 > n2)
-                return 1;
-            else
-                return 0;
-        }
-
-        private int compareAsString(Object o1, Object o2) {
-
-            try {
-
-                String s1 = o1.toString();
-                String s2 = o2.toString();
-                int result = s1.compareTo(s2);
-
-                if (result < 0)
-                    return -1;
-                else if (result > 0)
-                    return 1;
-                else
-                    return 0;
-
-            } catch (ClassCastException e) {
-
-                return 0;
-            }
-        }
-
-        private int compareAsBoolean(Object o1, Object o2) {
-
-            Boolean bool1 = (Boolean) o1;
-            boolean b1 = bool1.booleanValue();
-            Boolean bool2 = (Boolean) o2;
-            boolean b2 = bool2.booleanValue();
-
-            if (b1 == b2)
-                return 0;
-            else if (b1) // Define false < true
-                return 1;
-            else
-                return -1;
-        }
-
-        private Object valueToCompareFromModel(int row, int column) {
-
-            Object object = tableModel.getValueAt(row, column);
-
-            if (object instanceof TableCellValue) {
-
-                object = ((TableCellValue) object).getValue();
-            }
-
-            return object;
-        }
-
-    } // class Row
-
     private class TableModelHandler implements TableModelListener {
 
         public void tableChanged(TableModelEvent e) {
 
+            clearColumnOrders();
+
             // If we're not sorting by anything, just pass the event along.
             if (!isSorting()) {
                 clearSortingState();
@@ -701,29 +570,24 @@ public class TableSorter extends AbstractTableModel {
 
                     status = getSortingStatus(column);
 
-                    if (!e.isControlDown()) {
-
-                        cancelSorting();
-                    }
-
                     // Cycle the sorting states through {NOT_SORTED, ASCENDING, DESCENDING} or
                     // {NOT_SORTED, DESCENDING, ASCENDING} depending on whether shift is pressed.
                     status = status + (e.isShiftDown() ? -1 : 1);
                     status = (status + 4) % 3 - 1; // signed mod, returning {-1, 0, 1}
 
-                    SwingWorker worker = new SwingWorker() {
-                        public Object construct() {
-                            setSortingStatus(column, status);
-                            for (SortingListener listener : sortingListeners) {
-                                listener.postsorting(new DefaultSortingEvent(TableSorter.this, SortingEvent.POSTSORTING));
-                            }
-                            return "done";
-                        }
-                    };
+                    List<Directive> directives = new ArrayList<Directive>();
+                    if (e.isControlDown()) {
+                        directives.addAll(sortingColumns);
+                        directives.remove(getDirective(column));
+                    }
+                    if (status != NOT_SORTED) {
+                        directives.add(new Directive(column, status));
+                    }
+
                     for (SortingListener listener : sortingListeners) {
                         listener.presorting(new DefaultSortingEvent(TableSorter.this, SortingEvent.PRESORTING));
                     }
-                    worker.start();
+                    sortInBackground(directives);
 
                 }
 
@@ -731,6 +595,48 @@ public class TableSorter extends AbstractTableModel {
 
         }
 
+        /**
+         * Sorts the rows away from the event dispatch thread applying
+         * the new sorting columns with the sorted rows once done.
+         */
+        private void sortInBackground(List<Directive> directives) {
+
+            int version = modelVersion;
+            SwingWorker worker = new SwingWorker() {
+                public Object construct() {
+                    try {
+                        return sortedRows(directives);
+                    } catch (RuntimeException e) {
+                        // the model changed while sorting - sorted again when requested
+                        return null;
+                    }
+                }
+
+                public void finished() {
+
+                    sortingColumns.clear();
+                    sortingColumns.addAll(directives);
+                    clearSortingState();
+
+                    // rows sorted from data changed meanwhile are sorted again when requested
+                    int[] rows = (int[]) get();
+                    if (rows != null && version == modelVersion && rows.length == tableModel.getRowCount()) {
+                        viewToModel = rows;
+                    }
+
+                    fireTableDataChanged();
+                    if (tableHeader != null) {
+                        tableHeader.repaint();
+                    }
+
+                    for (SortingListener listener : sortingListeners) {
+                        listener.postsorting(new DefaultSortingEvent(TableSorter.this, SortingEvent.POSTSORTING));
+                    }
+                }
+            };
+            worker.start();
+        }
+
         private void resizeColumn(int selectedColumn) {
 
             TableColumnModel columnModel = tableHeader.getColumnModel();
@@ -33,33 +33,32 @@ import javax.swing.*;
  * Note that the API changed slightly in the 3rd version:
  * You must now invoke start() on the SwingWorker after
  * creating it.
+ * <p>
+ * The work no longer runs on a thread of its own but is scheduled
+ * on the pool of its {@link TaskScheduler.Workload} - by default the
+ * background pool. Work touching a database connection should pass
+ * the connection as limit key so that the number of concurrent tasks
+ * against one server stays bounded.
  */
 public abstract class SwingWorker {
 
     private Object value;  // see getValue(), setValue()
-    private Thread thread;
 
-    /**
-     * Class to maintain reference to current worker thread
-     * under separate synchronization control.
-     */
-    private static class ThreadVar {
-        private Thread thread;
+    private final TaskScheduler.Workload workload;
 
-        ThreadVar(Thread t) {
-            thread = t;
-        }
+    private final Object limitKey;
 
-        synchronized Thread get() {
-            return thread;
-        }
+    private TaskScheduler.Priority priority = TaskScheduler.Priority.NORMAL;
 
-        synchronized void clear() {
-            thread = null;
-        }
-    }
+    /**
+     * the scheduled task or null if not started
+     */
+    private TaskScheduler.Task task;
 
-    private ThreadVar threadVar;
+    /**
+     * interrupted before being started
+     */
+    private boolean interrupted;
 
     /**
      * Get the value produced by the worker thread, or null if it
@@ -93,11 +92,14 @@ public abstract class SwingWorker {
      * to force the worker to stop what it's doing.
      */
     public void interrupt() {
-        Thread t = threadVar.get();
+        TaskScheduler.Task t = getTask();
         if (t != null) {
-            t.interrupt();
+            t.cancel();
+        } else {
+            synchronized (this) {
+                interrupted = true;
+            }
         }
-        threadVar.clear();
     }
 
     /**
@@ -108,26 +110,60 @@ public abstract class SwingWorker {
      * @return the value created by the <code>construct</code> method
      */
     public Object get() {
-        while (true) {
-            Thread t = threadVar.get();
-            if (t == null) {
-                return getValue();
-            }
-            try {
-                t.join();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt(); // propagate
-                return null;
-            }
+        TaskScheduler.Task t = getTask();
+        if (t == null) {
+            return getValue();
         }
+        try {
+            t.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // propagate
+            return null;
+        }
+        return getValue();
     }
 
-
     /**
-     * Start a thread that will call the <code>construct</code> method
-     * and then exit.
+     * Creates a worker of the background pool.
      */
     public SwingWorker() {
+        this(TaskScheduler.Workload.BACKGROUND, null);
+    }
+
+    /**
+     * Creates a worker of the specified pool.
+     *
+     * @param workload the pool to run the work on
+     */
+    public SwingWorker(TaskScheduler.Workload workload) {
+        this(workload, null);
+    }
+
+    /**
+     * Creates a worker of the specified pool limited by the key.
+     *
+     * @param workload the pool to run the work on
+     * @param limitKey the key of the concurrency limit - typically
+     *                 the database connection - or null
+     */
+    public SwingWorker(TaskScheduler.Workload workload, Object limitKey) {
+        this.workload = workload;
+        this.limitKey = limitKey;
+    }
+
+    /**
+     * Sets the priority of the work within its pool.
+     * This has no effect once the worker was started.
+     */
+    public void setPriority(TaskScheduler.Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Schedule the work calling the <code>construct</code> method.
+     */
+    public void start() {
+
         final Runnable doFinished = new Runnable() {
             public void run() {
                 finished();
@@ -136,38 +172,21 @@ public abstract class SwingWorker {
 
         Runnable doConstruct = new Runnable() {
             public void run() {
-                try {
-                    setValue(construct());
-                } finally {
-                    threadVar.clear();
-                }
-
+                setValue(construct());
                 SwingUtilities.invokeLater(doFinished);
             }
         };
 
-        Thread t = new Thread(doConstruct);
-        threadVar = new ThreadVar(t);
-    }
-
-    /**
-     * Start the worker thread.
-     */
-    public void start() {
-        Thread t = threadVar.get();
-        if (t != null) {
-            t.start();
+        synchronized (this) {
+            if (interrupted || task != null) {
+                return;
+            }
+            task = TaskScheduler.getInstance().submit(doConstruct, workload, priority, limitKey);
         }
     }
-}
-
-
-
-
-
-
-
-
-
 
+    private synchronized TaskScheduler.Task getTask() {
+        return task;
+    }
 
+}
@@ -0,0 +1,579 @@
+/*
+ * TaskScheduler.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.underworldlabs.swing.util;
+
+import org.executequery.log.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Central scheduler of the background tasks of the application.
+ * <p>
+ * Tasks run on bounded pools of named daemon threads, one pool per
+ * {@link Workload} class, so that many simultaneous requests queue
+ * instead of each creating its own thread. Within a pool tasks are
+ * taken by {@link Priority} and in submission order. Tasks may carry
+ * a limit key - typically the database connection they query - and
+ * at most {@link #getKeyLimit()} tasks of the same key run at once,
+ * the others waiting without holding a pool thread.
+ * <p>
+ * Cancellation is cooperative: a cancelled task that has not started
+ * yet runs with its thread already interrupted, a running task has
+ * its thread interrupted.
+ * <p>
+ * Each pool keeps the number of its queued and running tasks and the
+ * average and maximum times its tasks waited and ran, available with
+ * {@link #getStatistics()}.
+ *
+ * @author Takis Diakoumis
+ */
+public final class TaskScheduler {
+
+    /**
+     * The classes of work each having its own pool.
+     */
+    public enum Workload {
+
+        /**
+         * database meta data loading
+         */
+        METADATA("metadata", 8),
+
+        /**
+         * statement execution and result set loading
+         */
+        QUERY("query", 16),
+
+        /**
+         * file import, export and other file access
+         */
+        IO("io", 4),
+
+        /**
+         * any other background work of the user interface
+         */
+        BACKGROUND("background", 16);
+
+        private final String threadName;
+
+        private final int poolSize;
+
+        Workload(String threadName, int poolSize) {
+            this.threadName = threadName;
+            this.poolSize = poolSize;
+        }
+
+    }
+
+    /**
+     * The order in which queued tasks of a pool are started.
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    /**
+     * the default number of tasks of one limit key run at once
+     */
+    private static final int DEFAULT_KEY_LIMIT = 4;
+
+    /**
+     * queue waits longer than this are logged
+     */
+    private static final long SLOW_START_MILLIS = 2000;
+
+    private static final TaskScheduler INSTANCE = new TaskScheduler();
+
+    /**
+     * the task running on the current thread
+     */
+    private static final ThreadLocal<Task> CURRENT_TASK = new ThreadLocal<>();
+
+    private final Map<Workload, Pool> pools = new EnumMap<>(Workload.class);
+
+    /**
+     * tasks waiting for their key limit by limit key
+     */
+    private final Map<Object, KeyQueue> keyQueues = new HashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile int keyLimit = DEFAULT_KEY_LIMIT;
+
+    private TaskScheduler() {
+
+        for (Workload workload : Workload.values()) {
+            pools.put(workload, new Pool(workload));
+        }
+    }
+
+    public static TaskScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * <p>Schedules the specified work.
+     *
+     * @param work     the work to be run
+     * @param workload the pool to run the work on
+     * @param priority the priority of the work within the pool
+     * @param limitKey the key of the concurrency limit or null
+     * @return the handle of the scheduled task
+     */
+    public Task submit(Runnable work, Workload workload, Priority priority, Object limitKey) {
+
+        Task task = new Task(work, workload, priority, limitKey, sequence.incrementAndGet());
+        Pool pool = pools.get(workload);
+        pool.submitted.incrementAndGet();
+        pool.queued.incrementAndGet();
+
+        if (limitKey == null) {
+            dispatch(task);
+            return task;
+        }
+
+        boolean dispatch;
+        synchronized (keyQueues) {
+
+            KeyQueue queue = keyQueues.computeIfAbsent(limitKey, k -> new KeyQueue());
+            dispatch = queue.running < keyLimit;
+            if (dispatch) {
+                queue.running++;
+            } else {
+                queue.waiting.add(task);
+            }
+        }
+
+        if (dispatch) {
+            dispatch(task);
+        }
+        return task;
+    }
+
+    /**
+     * <p>Schedules the specified work on the background pool.
+     *
+     * @param work the work to be run
+     * @return the handle of the scheduled task
+     */
+    public Task submit(Runnable work) {
+        return submit(work, Workload.BACKGROUND, Priority.NORMAL, null);
+    }
+
+    /**
+     * <p>Returns the number of tasks of one limit key run at once.
+     */
+    public int getKeyLimit() {
+        return keyLimit;
+    }
+
+    /**
+     * <p>Sets the number of tasks of one limit key run at once.
+     *
+     * @param keyLimit the task limit of a key
+     */
+    public void setKeyLimit(int keyLimit) {
+        this.keyLimit = Math.max(1, keyLimit);
+    }
+
+    /**
+     * <p>Whether the task running on the current thread was cancelled.
+     * Long running work should check this - or the interrupted state
+     * of its thread - and stop early.
+     */
+    public static boolean isCurrentTaskCancelled() {
+
+        Task task = CURRENT_TASK.get();
+        return task != null ? task.isCancelled() : Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * <p>Returns the current statistics of all pools.
+     */
+    public List<PoolStatistics> getStatistics() {
+
+        List<PoolStatistics> statistics = new ArrayList<>(pools.size());
+        for (Pool pool : pools.values()) {
+            statistics.add(pool.statistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * <p>Returns the current statistics of the specified pool.
+     *
+     * @param workload the workload of the pool
+     */
+    public PoolStatistics getStatistics(Workload workload) {
+        return pools.get(workload).statistics();
+    }
+
+    private void dispatch(Task task) {
+        pools.get(task.workload).executor.execute(task);
+    }
+
+    private void completed(Task task) {
+
+        if (task.limitKey == null) {
+            return;
+        }
+
+        Task next;
+        synchronized (keyQueues) {
+
+            KeyQueue queue = keyQueues.get(task.limitKey);
+            next = queue.next();
+            if (next == null) {
+
+                queue.running--;
+                if (queue.running == 0) {
+                    keyQueues.remove(task.limitKey);
+                }
+            }
+        }
+
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public final class Task implements Runnable, Comparable<Task> {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+
+        private final Runnable work;
+        private final Workload workload;
+        private final Priority priority;
+        private final Object limitKey;
+        private final long order;
+        private final long submitTime;
+
+        private int state = QUEUED;
+        private Thread thread;
+        private volatile boolean cancelled;
+
+        private Task(Runnable work, Workload workload, Priority priority, Object limitKey, long order) {
+            this.work = work;
+            this.workload = workload;
+            this.priority = priority;
+            this.limitKey = limitKey;
+            this.order = order;
+            this.submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+
+            synchronized (this) {
+                state = RUNNING;
+                thread = Thread.currentThread();
+                if (cancelled) {
+                    thread.interrupt();
+                }
+            }
+
+            Pool pool = pools.get(workload);
+            long start = System.nanoTime();
+            long waited = start - submitTime;
+            pool.started(waited);
+            if (TimeUnit.NANOSECONDS.toMillis(waited) > SLOW_START_MILLIS) {
+                Log.debug("Task waited " + TimeUnit.NANOSECONDS.toMillis(waited)
+                        + "ms in the " + workload.threadName + " queue");
+            }
+
+            CURRENT_TASK.set(this);
+            try {
+
+                work.run();
+
+            } catch (RuntimeException | Error e) {
+
+                pool.failed.incrementAndGet();
+                Log.error("Background task failed", e);
+
+            } finally {
+
+                CURRENT_TASK.remove();
+                synchronized (this) {
+                    state = DONE;
+                    thread = null;
+                    notifyAll();
+                }
+
+                // do not leak the interrupt to the next task of the thread
+                Thread.interrupted();
+
+                pool.finished(System.nanoTime() - start);
+                completed(this);
+            }
+        }
+
+        /**
+         * <p>Cancels the task interrupting its thread if running.
+         */
+        public synchronized void cancel() {
+
+            cancelled = true;
+            if (state == RUNNING && thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public synchronized boolean isDone() {
+            return state == DONE;
+        }
+
+        /**
+         * <p>Waits for the task to complete.
+         *
+         * @throws InterruptedException if the waiting thread is interrupted
+         */
+        public synchronized void await() throws InterruptedException {
+
+            while (state != DONE) {
+                wait();
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(order, other.order);
+        }
+
+    }
+
+    /**
+     * Statistics of one pool.
+     */
+    public static final class PoolStatistics {
+
+        private final Workload workload;
+        private final int threads;
+        private final int queued;
+        private final int running;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long averageWaitMillis;
+        private final long maxWaitMillis;
+        private final long averageRunMillis;
+        private final long maxRunMillis;
+
+        PoolStatistics(Workload workload, int threads, int queued, int running,
+                       long submitted, long completed, long failed,
+                       long averageWaitMillis, long maxWaitMillis,
+                       long averageRunMillis, long maxRunMillis) {
+            this.workload = workload;
+            this.threads = threads;
+            this.queued = queued;
+            this.running = running;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.averageRunMillis = averageRunMillis;
+            this.maxRunMillis = maxRunMillis;
+        }
+
+        public Workload getWorkload() {
+            return workload;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * <p>The tasks submitted and not started yet - waiting in the pool
+         * queue or for their key limit.
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public long getAverageRunMillis() {
+            return averageRunMillis;
+        }
+
+        public long getMaxRunMillis() {
+            return maxRunMillis;
+        }
+
+        @Override
+        public String toString() {
+            return workload.threadName + ": threads " + threads + ", queued " + queued
+                    + ", running " + running + ", submitted " + submitted
+                    + ", completed " + completed + ", failed " + failed
+                    + ", wait " + averageWaitMillis + "ms average, " + maxWaitMillis + "ms max"
+                    + ", run " + averageRunMillis + "ms average, " + maxRunMillis + "ms max";
+        }
+
+    }
+
+    /**
+     * Tasks of one limit key waiting for a running task to complete.
+     */
+    private static final class KeyQueue {
+
+        private int running;
+
+        private final Deque<Task> waiting = new ArrayDeque<>();
+
+        /**
+         * the waiting task of the highest priority
+         */
+        Task next() {
+
+            Task next = null;
+            for (Task task : waiting) {
+                if (next == null || task.compareTo(next) < 0) {
+                    next = task;
+                }
+            }
+
+            if (next != null) {
+                waiting.remove(next);
+            }
+            return next;
+        }
+
+    }
+
+    private final class Pool {
+
+        private final Workload workload;
+
+        private final ThreadPoolExecutor executor;
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong waitTime = new AtomicLong();
+        private final AtomicLong maxWaitTime = new AtomicLong();
+        private final AtomicLong runTime = new AtomicLong();
+        private final AtomicLong maxRunTime = new AtomicLong();
+
+        Pool(Workload workload) {
+
+            this.workload = workload;
+
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, workload.threadName + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+
+            // the priority queue is unbounded so the pool never grows past
+            // its core size - idle threads are released after a minute
+            executor = new ThreadPoolExecutor(workload.poolSize, workload.poolSize,
+                    60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        void started(long waited) {
+
+            queued.decrementAndGet();
+            running.incrementAndGet();
+            started.incrementAndGet();
+            waitTime.addAndGet(waited);
+            maxWaitTime.accumulateAndGet(waited, Math::max);
+        }
+
+        void finished(long ran) {
+
+            running.decrementAndGet();
+            completed.incrementAndGet();
+            runTime.addAndGet(ran);
+            maxRunTime.accumulateAndGet(ran, Math::max);
+        }
+
+        PoolStatistics statistics() {
+
+            long waits = Math.max(started.get(), 1);
+            long runs = Math.max(completed.get(), 1);
+            return new PoolStatistics(workload,
+                    executor.getPoolSize(),
+                    queued.get(),
+                    running.get(),
+                    submitted.get(),
+                    completed.get(),
+                    failed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(waitTime.get() / waits),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get()),
+                    TimeUnit.NANOSECONDS.toMillis(runTime.get() / runs),
+                    TimeUnit.NANOSECONDS.toMillis(maxRunTime.get()));
+        }
+
+    }
+
+}
@@ -26,6 +26,7 @@ import org.mozilla.universalchardet.UniversalDetector;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class EncodingDetector {
 
@@ -44,27 +45,62 @@ public class EncodingDetector {
             }
             detector.dataEnd();
 
-            String encoding = detector.getDetectedCharset();
-            if (encoding != null) {
+            return detectedCharset(detector);
 
-                Log.info("Detected file encoding - " + encoding);
+        } finally {
 
-            } else {
+            detector.reset();
+            if (fis != null) {
 
-                Log.debug("No specific file encoding detected.");
+                fis.close();
             }
 
-            return encoding;
+        }
+    }
+
+    /**
+     * Detects the encoding of the content already in memory or mapped -
+     * no more than limit bytes are examined and the detector stops
+     * earlier once it is sure.
+     */
+    public String detectCharset(ByteBuffer content, int limit) {
+
+        byte[] buf = new byte[4096];
+        ByteBuffer buffer = content.duplicate();
+        buffer.limit(Math.min(buffer.limit(), buffer.position() + limit));
+        UniversalDetector detector = new UniversalDetector(null);
+
+        try {
+
+            while (buffer.hasRemaining() && !detector.isDone()) {
+
+                int read = Math.min(buf.length, buffer.remaining());
+                buffer.get(buf, 0, read);
+                detector.handleData(buf, 0, read);
+            }
+            detector.dataEnd();
+
+            return detectedCharset(detector);
 
         } finally {
 
             detector.reset();
-            if (fis != null) {
+        }
+    }
 
-                fis.close();
-            }
+    private String detectedCharset(UniversalDetector detector) {
+
+        String encoding = detector.getDetectedCharset();
+        if (encoding != null) {
 
+            Log.info("Detected file encoding - " + encoding);
+
+        } else {
+
+            Log.debug("No specific file encoding detected.");
         }
+
+        return encoding;
     }
 
 }
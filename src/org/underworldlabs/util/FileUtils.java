@@ -21,10 +21,15 @@
 package org.underworldlabs.util;
 
 import org.apache.commons.lang.StringUtils;
+import org.executequery.log.Log;
 
 import java.io.*;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -35,6 +40,11 @@ import java.util.UUID;
  */
 public class FileUtils {
 
+    /**
+     * The number of bytes the encoding of a file is detected from.
+     */
+    public static final int MAX_DETECTION_LENGTH = 16 * 1024 * 1024;
+
     private FileUtils() {
     }
 
@@ -113,77 +123,105 @@ public class FileUtils {
     }
 
     public static String loadFile(File file, boolean escapeLines) throws IOException {
+        return decodeFile(file, escapeLines, null, true);
+    }
 
-        FileReader fileReader = null;
-        BufferedReader reader = null;
+    public static String loadFile(File file, boolean escapeLines, String encoding) throws IOException {
+        return decodeFile(file, escapeLines, encoding, false);
+    }
 
-        try {
-            fileReader = new FileReader(file);
-            reader = new BufferedReader(fileReader);
-            String value = null;
-            StringBuilder sb = new StringBuilder();
+    /**
+     * Reads the file once detecting its encoding
+     * from the same bytes which are then decoded.
+     *
+     * @param encoding the encoding of the file or null
+     * @param detect   whether to detect the encoding if none is specified,
+     *                 the default charset is used otherwise
+     */
+    private static String decodeFile(File file, boolean escapeLines,
+                                     String encoding, boolean detect) throws IOException {
 
-            while ((value = reader.readLine()) != null) {
-                sb.append(value);
+        ByteBuffer content = readContent(file);
 
-                if (escapeLines) {
-                    sb.append('\n');
-                }
-
-            }
+        Charset charset = Charset.defaultCharset();
+        if (StringUtils.isNotBlank(encoding)) {
 
-            String charset = new EncodingDetector().detectCharset(file);
-            if (StringUtils.isNotBlank(charset)) {
+            charset = toCharset(encoding);
 
-                return new String(sb.toString().getBytes(), charset);
-            }
+        } else if (detect) {
 
-            return sb.toString();
+            String detected = new EncodingDetector().detectCharset(content, MAX_DETECTION_LENGTH);
+            if (StringUtils.isNotBlank(detected)) {
 
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
-            if (fileReader != null) {
-                fileReader.close();
+                try {
+                    charset = toCharset(detected);
+                } catch (UnsupportedEncodingException e) {
+                    Log.warning("Detected file encoding " + detected + " is not supported, using " + charset);
+                }
             }
         }
+
+        return joinLines(charset.decode(content), escapeLines);
     }
 
-    public static String loadFile(File file, boolean escapeLines, String encoding) throws IOException {
+    private static ByteBuffer readContent(File file) throws IOException {
 
-        FileReader fileReader = null;
-        BufferedReader reader = null;
+        if (file.length() > Integer.MAX_VALUE) {
+
+            throw new IOException("The file " + file + " is too large to be loaded as text");
+        }
+
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    }
+
+    public static Charset toCharset(String encoding) throws UnsupportedEncodingException {
 
         try {
-            fileReader = new FileReader(file);
-            reader = new BufferedReader(fileReader);
-            String value = null;
-            StringBuilder sb = new StringBuilder();
 
-            while ((value = reader.readLine()) != null) {
-                sb.append(value);
+            return Charset.forName(encoding);
+
+        } catch (IllegalArgumentException e) {
+
+            throw new UnsupportedEncodingException(encoding);
+        }
+    }
+
+    /**
+     * Joins the lines of the text as read line by line - every line is
+     * terminated with a new line character when escaping lines.
+     */
+    private static String joinLines(CharBuffer chars, boolean escapeLines) {
+
+        int length = chars.remaining();
+        StringBuilder sb = new StringBuilder(length + 1);
+
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+
+            char c = chars.get(i);
+            if (c == '\n' || c == '\r') {
 
+                sb.append(chars, lineStart, i);
                 if (escapeLines) {
                     sb.append('\n');
                 }
 
+                if (c == '\r' && i + 1 < length && chars.get(i + 1) == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
             }
-            if (StringUtils.isNotBlank(encoding)) {
-
-                return new String(sb.toString().getBytes(), encoding);
-            }
+        }
 
-            return sb.toString();
+        if (lineStart < length) {
 
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
-            if (fileReader != null) {
-                fileReader.close();
+            sb.append(chars, lineStart, length);
+            if (escapeLines) {
+                sb.append('\n');
             }
         }
+
+        return sb.toString();
     }
 
 
@@ -0,0 +1,319 @@
+/*
+ * MappedTextFile.java
+ *
+ * Copyright (C) 2002-2017 Takis Diakoumis
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.underworldlabs.util;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A text file too large to be loaded as one string. The file is
+ * memory mapped, its encoding is detected from the mapped bytes and
+ * the offset of every {@value #LINES_PER_BLOCK}th line is indexed in
+ * one pass, so any range of lines is decoded as it is required and
+ * the whole text is read as a stream.
+ * <p>
+ * Lines are indexed at line feed bytes, so the encoding must be ASCII
+ * compatible - a carriage return before the line feed is removed from
+ * the lines read.
+ *
+ * @author Takis Diakoumis
+ */
+public class MappedTextFile implements Closeable {
+
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    /**
+     * the number of lines between the offsets indexed
+     */
+    private static final int LINES_PER_BLOCK = 64;
+
+    private final File file;
+
+    private final long length;
+
+    private final Charset charset;
+
+    private MappedByteBuffer[] segments;
+
+    private long[] blockOffsets;
+
+    private long lineCount;
+
+    /**
+     * Maps and indexes the file.
+     *
+     * @param encoding the encoding of the file or null to detect it
+     */
+    public MappedTextFile(File file, String encoding) throws IOException {
+
+        this.file = file;
+        this.length = file.length();
+
+        map();
+        charset = charsetOf(encoding);
+        if (!Arrays.equals("\n\r".getBytes(charset), new byte[]{'\n', '\r'})) {
+
+            throw new UnsupportedEncodingException(
+                    "The encoding " + charset + " of the file " + file + " is not supported for large files");
+        }
+
+        index();
+    }
+
+    private void map() throws IOException {
+
+        segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            // the mappings stay valid once the channel is closed
+            for (int i = 0; i < segments.length; i++) {
+
+                long start = (long) i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        start, Math.min(SEGMENT_SIZE, length - start));
+            }
+        }
+    }
+
+    private Charset charsetOf(String encoding) throws UnsupportedEncodingException {
+
+        if (StringUtils.isNotBlank(encoding)) {
+
+            return FileUtils.toCharset(encoding);
+        }
+
+        if (segments.length > 0) {
+
+            String detected = new EncodingDetector().detectCharset(segments[0], FileUtils.MAX_DETECTION_LENGTH);
+            if (StringUtils.isNotBlank(detected)) {
+
+                return FileUtils.toCharset(detected);
+            }
+        }
+
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * Counts the lines, recording the offset of the first line of
+     * every block.
+     */
+    private void index() {
+
+        long[] offsets = new long[1024];
+        int blocks = 1;
+        long lines = 0;
+        boolean lineOpen = false;
+
+        for (int i = 0; i < segments.length; i++) {
+
+            ByteBuffer segment = segments[i];
+            long segmentStart = (long) i * SEGMENT_SIZE;
+            int limit = segment.limit();
+
+            for (int j = 0; j < limit; j++) {
+
+                if (segment.get(j) != '\n') {
+
+                    lineOpen = true;
+                    continue;
+                }
+
+                lineOpen = false;
+                lines++;
+                if (lines % LINES_PER_BLOCK == 0) {
+
+                    if (blocks == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, blocks * 2);
+                    }
+                    offsets[blocks++] = segmentStart + j + 1;
+                }
+            }
+        }
+
+        lineCount = lineOpen ? lines + 1 : lines;
+        blockOffsets = Arrays.copyOf(offsets, blocks);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the byte offset of the line or the length of the file for
+     * the line after the last one.
+     */
+    public long getLineOffset(long line) {
+
+        if (line >= lineCount) {
+            return length;
+        }
+
+        long offset = blockOffsets[(int) (line / LINES_PER_BLOCK)];
+        for (long skip = line % LINES_PER_BLOCK; skip > 0; offset++) {
+
+            if (byteAt(segments, offset) == '\n') {
+                skip--;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the lines in the range, each terminated by a line feed.
+     */
+    public String getLines(long firstLine, int count) {
+
+        long start = getLineOffset(firstLine);
+        long end = getLineOffset(firstLine + count);
+        return getText(start, end);
+    }
+
+    /**
+     * Decodes the bytes from the start offset to the end offset
+     * exclusive.
+     */
+    public String getText(long start, long end) {
+
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The range " + start + " - " + end + " is too large");
+        }
+
+        byte[] bytes = new byte[(int) (end - start)];
+        read(segments, start, bytes, 0, bytes.length);
+
+        String text = new String(bytes, charset);
+        return text.indexOf('\r') != -1 ? text.replace("\r\n", "\n") : text;
+    }
+
+    /**
+     * Opens a reader of the whole text decoding the mapped content as
+     * it is read - the reader stays valid once the file is closed.
+     */
+    public Reader openReader() {
+
+        return new InputStreamReader(new MappedInputStream(), charset);
+    }
+
+    private static byte byteAt(MappedByteBuffer[] segments, long position) {
+
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    private int read(MappedByteBuffer[] segments, long position, byte[] b, int off, int len) {
+
+        len = (int) Math.min(len, length - position);
+        int done = 0;
+        while (done < len) {
+
+            int index = (int) ((position + done) / SEGMENT_SIZE);
+            int segmentOffset = (int) ((position + done) % SEGMENT_SIZE);
+
+            // a duplicate keeps the position of the shared segment
+            ByteBuffer buffer = segments[index].duplicate();
+            buffer.position(segmentOffset);
+
+            int count = Math.min(len - done, buffer.remaining());
+            buffer.get(b, off + done, count);
+            done += count;
+        }
+        return done;
+    }
+
+    /**
+     * Drops the mapping which is released by the garbage collector.
+     */
+    public void close() {
+
+        segments = new MappedByteBuffer[0];
+        blockOffsets = new long[]{0};
+        lineCount = 0;
+    }
+
+    private class MappedInputStream extends InputStream {
+
+        private final MappedByteBuffer[] mapped = segments;
+
+        private long position;
+
+        @Override
+        public int read() {
+
+            return position < length ? byteAt(mapped, position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= length) {
+                return -1;
+            }
+
+            int read = MappedTextFile.this.read(mapped, position, b, off, len);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+
+    } // class MappedInputStream
+
+}